@@ -17,7 +17,7 @@ public abstract class AbstractReconnectHandler implements ReconnectHandler
             server = getStoredServer( player );
             if ( server == null )
             {
-                server = ProxyServer.getInstance().getServerInfo( player.getPendingConnection().getListener().getDefaultServer() );
+                server = ProxyServer.getInstance().selectServer( player.getPendingConnection().getListener().getDefaultServer() );
             }
 
             Preconditions.checkState( server != null, "Default server not defined" );
@@ -34,7 +34,7 @@ public abstract class AbstractReconnectHandler implements ReconnectHandler
         {
             forced = con.getListener().getDefaultServer();
         }
-        return ( forced == null ) ? null : ProxyServer.getInstance().getServerInfo( forced );
+        return ( forced == null ) ? null : ProxyServer.getInstance().selectServer( forced );
     }
 
     protected abstract ServerInfo getStoredServer(ProxiedPlayer player);
@@ -122,6 +122,20 @@ import net.md_5.bungee.api.scheduler.TaskScheduler;
      */
     public abstract ServerInfo getServerInfo(String name);
 
+    /**
+     * Gets the server to connect a player to. Unlike
+     * {@link #getServerInfo(String)}, the name may also be one the proxy
+     * resolves to one of several servers, and picking one may count towards
+     * later picks. Only use this right before connecting.
+     *
+     * @param name the name of a server, or of anything resolving to one
+     * @return the server to connect to, or null
+     */
+    public ServerInfo selectServer(String name)
+    {
+        return getServerInfo( name );
+    }
+
     /**
      * Get the {@link PluginManager} associated with loading plugins and
      * dispatching events. It is recommended that implementations use the
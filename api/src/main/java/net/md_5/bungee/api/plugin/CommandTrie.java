@@ -0,0 +1,171 @@
+package net.md_5.bungee.api.plugin;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Case insensitive prefix tree of command names and aliases.
+ *
+ * Names are stored lower cased. Lookups lower case ASCII while walking and
+ * only fall back to {@link String#toLowerCase(Locale)} for other characters.
+ * Children are replaced instead of modified, so lookups do not need to lock
+ * while commands are registered.
+ */
+final class CommandTrie
+{
+
+    private static final Node[] NO_CHILDREN = new Node[ 0 ];
+    //
+    private final Node root = new Node( '\0' );
+
+    private static final class Node
+    {
+
+        private final char ch;
+        /**
+         * Sorted by {@link #ch}.
+         */
+        private volatile Node[] children = NO_CHILDREN;
+        private volatile Map.Entry<String, Command> entry;
+
+        private Node(char ch)
+        {
+            this.ch = ch;
+        }
+
+        private Node child(char ch)
+        {
+            Node[] children = this.children;
+            int low = 0;
+            int high = children.length - 1;
+            while ( low <= high )
+            {
+                int mid = ( low + high ) >>> 1;
+                char midCh = children[mid].ch;
+                if ( midCh < ch )
+                {
+                    low = mid + 1;
+                } else if ( midCh > ch )
+                {
+                    high = mid - 1;
+                } else
+                {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private Node getOrCreateChild(char ch)
+        {
+            Node child = child( ch );
+            if ( child == null )
+            {
+                Node[] children = this.children;
+                int index = 0;
+                while ( index < children.length && children[index].ch < ch )
+                {
+                    index++;
+                }
+                Node[] grown = new Node[ children.length + 1 ];
+                System.arraycopy( children, 0, grown, 0, index );
+                System.arraycopy( children, index, grown, index + 1, children.length - index );
+                grown[index] = child = new Node( ch );
+                this.children = grown;
+            }
+            return child;
+        }
+    }
+
+    /**
+     * Registers a command under a lower cased name, replacing the previous
+     * command of that name.
+     */
+    synchronized void put(String name, Command command)
+    {
+        Node node = root;
+        for ( int i = 0; i < name.length(); i++ )
+        {
+            node = node.getOrCreateChild( name.charAt( i ) );
+        }
+        node.entry = new AbstractMap.SimpleImmutableEntry<>( name, command );
+    }
+
+    synchronized void remove(String name)
+    {
+        Node node = find( name );
+        if ( node != null )
+        {
+            node.entry = null;
+        }
+    }
+
+    /**
+     * Looks up a command ignoring case.
+     *
+     * @return the lower cased name and the command, or null
+     */
+    Map.Entry<String, Command> get(String name)
+    {
+        Node node = walk( name );
+        return ( node != null ) ? node.entry : null;
+    }
+
+    /**
+     * Adds the names starting with the prefix, ignoring case, whose entry
+     * matches the filter. Names are added in sorted order.
+     */
+    void collect(String prefix, Predicate<Map.Entry<String, Command>> filter, List<String> out)
+    {
+        Node node = walk( prefix );
+        if ( node != null )
+        {
+            collect( node, filter, out );
+        }
+    }
+
+    private static void collect(Node node, Predicate<Map.Entry<String, Command>> filter, List<String> out)
+    {
+        Map.Entry<String, Command> entry = node.entry;
+        if ( entry != null && filter.test( entry ) )
+        {
+            out.add( entry.getKey() );
+        }
+        for ( Node child : node.children )
+        {
+            collect( child, filter, out );
+        }
+    }
+
+    private Node walk(String name)
+    {
+        Node node = root;
+        for ( int i = 0; i < name.length() && node != null; i++ )
+        {
+            char ch = name.charAt( i );
+            if ( ch >= 'A' && ch <= 'Z' )
+            {
+                ch += 'a' - 'A';
+            } else if ( ch >= 0x80 )
+            {
+                // may lower case to a different length or to ASCII
+                return find( name.toLowerCase( Locale.ROOT ) );
+            }
+            node = node.child( ch );
+        }
+        return node;
+    }
+
+    private Node find(String name)
+    {
+        Node node = root;
+        for ( int i = 0; i < name.length() && node != null; i++ )
+        {
+            node = node.child( name.charAt( i ) );
+        }
+        return node;
+    }
+}
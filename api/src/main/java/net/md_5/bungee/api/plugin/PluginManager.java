@@ -1,5 +1,6 @@
 package net.md_5.bungee.api.plugin;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
@@ -11,7 +12,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Method;
 import java.net.URLClassLoader;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -62,6 +63,7 @@ public final class PluginManager
     private final MutableGraph<String> dependencyGraph = GraphBuilder.directed().build();
     private final LibraryLoader libraryLoader;
     private final Map<String, Command> commandMap = new HashMap<>();
+    private final CommandTrie commandTrie = new CommandTrie();
     private Map<String, PluginDescription> toLoad = new HashMap<>();
     private final Multimap<Plugin, Command> commandsByPlugin = ArrayListMultimap.create();
     private final Multimap<Plugin, Listener> listenersByPlugin = ArrayListMultimap.create();
@@ -100,14 +102,33 @@ public final class PluginManager
      */
     public void registerCommand(Plugin plugin, Command command)
     {
-        commandMap.put( command.getName().toLowerCase( Locale.ROOT ), command );
+        putCommand( command.getName().toLowerCase( Locale.ROOT ), command );
         for ( String alias : command.getAliases() )
         {
-            commandMap.put( alias.toLowerCase( Locale.ROOT ), command );
+            putCommand( alias.toLowerCase( Locale.ROOT ), command );
         }
         commandsByPlugin.put( plugin, command );
     }
 
+    private void putCommand(String name, Command command)
+    {
+        commandMap.put( name, command );
+        commandTrie.put( name, command );
+    }
+
+    private void removeCommand(Command command)
+    {
+        for ( Iterator<Map.Entry<String, Command>> it = commandMap.entrySet().iterator(); it.hasNext(); )
+        {
+            Map.Entry<String, Command> entry = it.next();
+            if ( entry.getValue().equals( command ) )
+            {
+                commandTrie.remove( entry.getKey() );
+                it.remove();
+            }
+        }
+    }
+
     /**
      * Unregister a command so it will no longer be executed.
      *
@@ -115,7 +136,7 @@ public final class PluginManager
      */
     public void unregisterCommand(Command command)
     {
-        while ( commandMap.values().remove( command ) );
+        removeCommand( command );
         commandsByPlugin.values().remove( command );
     }
 
@@ -129,22 +150,44 @@ public final class PluginManager
         for ( Iterator<Command> it = commandsByPlugin.get( plugin ).iterator(); it.hasNext(); )
         {
             Command command = it.next();
-            while ( commandMap.values().remove( command ) );
+            removeCommand( command );
             it.remove();
         }
     }
 
     private Command getCommandIfEnabled(String commandName, CommandSender sender)
     {
-        String commandLower = commandName.toLowerCase( Locale.ROOT );
+        Map.Entry<String, Command> entry = commandTrie.get( commandName );
+        if ( entry == null )
+        {
+            return null;
+        }
 
         // Check if command is disabled when a player sent the command
-        if ( ( sender instanceof ProxiedPlayer ) && proxy.getDisabledCommands().contains( commandLower ) )
+        if ( ( sender instanceof ProxiedPlayer ) && proxy.getDisabledCommands().contains( entry.getKey() ) )
         {
             return null;
         }
 
-        return commandMap.get( commandLower );
+        return entry.getValue();
+    }
+
+    /**
+     * Gets the lower cased names and aliases starting with the given prefix,
+     * ignoring case, of the commands the sender may execute. Commands disabled
+     * for players are left out when the sender is a player.
+     *
+     * @param sender the sender to check permissions of
+     * @param prefix the start of the command name
+     * @return the matching names in sorted order
+     */
+    public List<String> getMatchingCommands(CommandSender sender, String prefix)
+    {
+        List<String> matches = new ArrayList<>();
+        boolean player = sender instanceof ProxiedPlayer;
+        commandTrie.collect( prefix, (entry) -> entry.getValue().hasPermission( sender )
+                && !( player && proxy.getDisabledCommands().contains( entry.getKey() ) ), matches );
+        return matches;
     }
 
     /**
@@ -178,14 +221,15 @@ public final class PluginManager
      */
     public boolean dispatchCommand(CommandSender sender, String commandLine, List<String> tabResults)
     {
-        String[] split = commandLine.split( " ", -1 );
+        int space = commandLine.indexOf( ' ' );
+        String commandName = ( space == -1 ) ? commandLine : commandLine.substring( 0, space );
         // Check for chat that only contains " "
-        if ( split.length == 0 || split[0].isEmpty() )
+        if ( commandName.isEmpty() )
         {
             return false;
         }
 
-        Command command = getCommandIfEnabled( split[0], sender );
+        Command command = getCommandIfEnabled( commandName, sender );
         if ( command == null )
         {
             return false;
@@ -200,7 +244,7 @@ public final class PluginManager
             return true;
         }
 
-        String[] args = Arrays.copyOfRange( split, 1, split.length );
+        String[] args = splitArguments( commandLine, space );
             if ( tabResults == null )
             {
         try { // Waterfall - split command & tab complete exception handlers for exception event
@@ -219,7 +263,7 @@ public final class PluginManager
             this.callEvent( new ProxyExceptionEvent( new ProxyCommandException( ex, command, sender, args ) ) ); //Waterfall - throw error event
         }
         // Waterfall end
-            } else if ( commandLine.contains( " " ) && command instanceof TabExecutor )
+            } else if ( space != -1 && command instanceof TabExecutor )
             {
         try { // Waterfall - split command & tab complete exception handlers for exception event
                 for ( String s : ( (TabExecutor) command ).onTabComplete( sender, args ) )
@@ -237,6 +281,43 @@ public final class PluginManager
         return true;
     }
 
+    /**
+     * Splits the arguments after the command name like
+     * <code>String.split(" ", -1)</code> would.
+     *
+     * @param commandLine the complete command line
+     * @param space the index of the first space, or -1 if there is none
+     * @return the arguments
+     */
+    @VisibleForTesting
+    static String[] splitArguments(String commandLine, int space)
+    {
+        if ( space == -1 )
+        {
+            return new String[ 0 ];
+        }
+
+        int count = 1;
+        for ( int i = space + 1; i < commandLine.length(); i++ )
+        {
+            if ( commandLine.charAt( i ) == ' ' )
+            {
+                count++;
+            }
+        }
+
+        String[] args = new String[ count ];
+        int start = space + 1;
+        for ( int i = 0; i < count - 1; i++ )
+        {
+            int end = commandLine.indexOf( ' ', start );
+            args[i] = commandLine.substring( start, end );
+            start = end + 1;
+        }
+        args[count - 1] = commandLine.substring( start );
+        return args;
+    }
+
     // Waterfall start - Add method to tab-complete command names
     /**
      * Searches for tab-complete suggestions for the given command line.
@@ -0,0 +1,118 @@
+package net.md_5.bungee.api.plugin;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import net.md_5.bungee.api.CommandSender;
+import org.junit.jupiter.api.Test;
+
+public class CommandTrieTest
+{
+
+    private static Command command(String name)
+    {
+        return new Command( name )
+        {
+            @Override
+            public void execute(CommandSender sender, String[] args)
+            {
+            }
+        };
+    }
+
+    private static List<String> collect(CommandTrie trie, String prefix)
+    {
+        List<String> names = new ArrayList<>();
+        trie.collect( prefix, (entry) -> true, names );
+        return names;
+    }
+
+    @Test
+    public void testLookup()
+    {
+        CommandTrie trie = new CommandTrie();
+        Command server = command( "server" );
+        Command send = command( "send" );
+        trie.put( "server", server );
+        trie.put( "srv", server );
+        trie.put( "send", send );
+        trie.put( "k\u00f6nig", send );
+
+        assertSame( server, trie.get( "server" ).getValue() );
+        assertSame( server, trie.get( "SeRvEr" ).getValue() );
+        assertEquals( "srv", trie.get( "SRV" ).getKey() );
+        assertSame( send, trie.get( "K\u00d6NIG" ).getValue() );
+        assertNull( trie.get( "serve" ) );
+        assertNull( trie.get( "servers" ) );
+        assertNull( trie.get( "" ) );
+
+        // the Kelvin sign lower cases to an ASCII k
+        trie.put( "kick", send );
+        assertSame( send, trie.get( "\u212aICK" ).getValue() );
+
+        trie.remove( "srv" );
+        assertNull( trie.get( "srv" ) );
+        assertSame( server, trie.get( "server" ).getValue() );
+        trie.put( "server", send );
+        assertSame( send, trie.get( "server" ).getValue() );
+    }
+
+    @Test
+    public void testCollect()
+    {
+        CommandTrie trie = new CommandTrie();
+        for ( String name : new String[]
+        {
+            "send", "server", "glist", "sendall", "alert", "s"
+        } )
+        {
+            trie.put( name, command( name ) );
+        }
+
+        assertEquals( Arrays.asList( "s", "send", "sendall", "server" ), collect( trie, "S" ) );
+        assertEquals( Arrays.asList( "send", "sendall" ), collect( trie, "send" ) );
+        assertEquals( Arrays.asList( "alert", "glist", "s", "send", "sendall", "server" ), collect( trie, "" ) );
+        assertTrue( collect( trie, "x" ).isEmpty() );
+
+        List<String> names = new ArrayList<>();
+        trie.collect( "se", (entry) -> !entry.getKey().equals( "server" ), names );
+        assertEquals( Arrays.asList( "send", "sendall" ), names );
+
+        trie.remove( "send" );
+        assertEquals( Arrays.asList( "sendall", "server" ), collect( trie, "se" ) );
+    }
+
+    @Test
+    public void testManyCommands()
+    {
+        CommandTrie trie = new CommandTrie();
+        for ( int i = 0; i < 600; i++ )
+        {
+            trie.put( "cmd" + Integer.toString( i, 36 ), command( "cmd" + i ) );
+        }
+        for ( int i = 0; i < 600; i++ )
+        {
+            String name = "cmd" + Integer.toString( i, 36 );
+            Map.Entry<String, Command> entry = trie.get( name.toUpperCase( Locale.ROOT ) );
+            assertEquals( name, entry.getKey() );
+            assertEquals( "cmd" + i, entry.getValue().getName() );
+        }
+        assertEquals( 600, collect( trie, "CMD" ).size() );
+    }
+
+    @Test
+    public void testSplitArguments()
+    {
+        for ( String line : new String[]
+        {
+            "server", "server ", "server lobby", "send  a b", "alert hello world ", "glist   "
+        } )
+        {
+            String[] split = line.split( " ", -1 );
+            assertArrayEquals( Arrays.copyOfRange( split, 1, split.length ), PluginManager.splitArguments( line, line.indexOf( ' ' ) ), line );
+        }
+    }
+}
@@ -29,6 +29,23 @@ public final class ChatColor
      * Colour instances keyed by their active character.
      */
     private static final Map<Character, ChatColor> BY_CHAR = new HashMap<Character, ChatColor>();
+    /**
+     * Colour instances indexed by their active character, for lookups without
+     * boxing.
+     */
+    private static final ChatColor[] BY_CHAR_TABLE = new ChatColor[ 128 ];
+    /**
+     * Whether a character is one of {@link #ALL_CODES}.
+     */
+    private static final boolean[] IS_CODE = new boolean[ 128 ];
+
+    static
+    {
+        for ( char code : ALL_CODES.toCharArray() )
+        {
+            IS_CODE[code] = true;
+        }
+    }
     /**
      * Colour instances keyed by their name.
      */
@@ -154,6 +171,7 @@ public final class ChatColor
         this.color = color;
 
         BY_CHAR.put( code, this );
+        BY_CHAR_TABLE[code] = this;
         BY_NAME.put( name.toUpperCase( Locale.ROOT ), this );
     }
 
@@ -213,10 +231,16 @@ public final class ChatColor
 
     public static String translateAlternateColorCodes(char altColorChar, String textToTranslate)
     {
+        if ( textToTranslate.indexOf( altColorChar ) == -1 )
+        {
+            return textToTranslate;
+        }
+
         char[] b = textToTranslate.toCharArray();
         for ( int i = 0; i < b.length - 1; i++ )
         {
-            if ( b[i] == altColorChar && ALL_CODES.indexOf( b[i + 1] ) > -1 )
+            char code = b[i + 1];
+            if ( b[i] == altColorChar && code < IS_CODE.length && IS_CODE[code] )
             {
                 b[i] = ChatColor.COLOR_CHAR;
                 b[i + 1] = Character.toLowerCase( b[i + 1] );
@@ -233,7 +257,7 @@ public final class ChatColor
      */
     public static ChatColor getByChar(char code)
     {
-        return BY_CHAR.get( code );
+        return ( code < BY_CHAR_TABLE.length ) ? BY_CHAR_TABLE[code] : null;
     }
 
     public static ChatColor of(Color color)
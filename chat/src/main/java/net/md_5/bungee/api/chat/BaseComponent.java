@@ -11,11 +11,15 @@ import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.chat.ComponentBuilder.FormatRetention;
 
 @Setter
-@ToString(exclude = "parent")
+@ToString(exclude = { "parent", "transformFlags" })
 @EqualsAndHashCode(exclude = "parent")
 public abstract class BaseComponent
 {
 
+    private static final byte TRANSFORM_KNOWN = 1;
+    private static final byte TRANSFORM_SCORE = 2;
+    private static final byte TRANSFORM_HOVER = 4;
+
     @Setter(AccessLevel.NONE)
     BaseComponent parent;
 
@@ -56,6 +60,13 @@ public abstract class BaseComponent
     @Getter
     private transient boolean reset;
 
+    /**
+     * Cached summary of this tree for {@link #needsTransform(boolean)}, zero
+     * if not known.
+     */
+    @Setter(AccessLevel.NONE)
+    private transient byte transformFlags;
+
     /**
      * Default constructor.
      *
@@ -562,6 +573,18 @@ public abstract class BaseComponent
         }
     }
 
+    /**
+     * Set the action to perform when this component (and child components)
+     * are hovered over.
+     *
+     * @param hoverEvent the hover event, or null to remove it
+     */
+    public void setHoverEvent(HoverEvent hoverEvent)
+    {
+        this.hoverEvent = hoverEvent;
+        invalidateTransform();
+    }
+
     public void setExtra(List<BaseComponent> components)
     {
         for ( BaseComponent component : components )
@@ -569,6 +592,7 @@ public abstract class BaseComponent
             component.parent = this;
         }
         extra = components;
+        invalidateTransform();
     }
 
     /**
@@ -596,6 +620,62 @@ public abstract class BaseComponent
         }
         component.parent = this;
         extra.add( component );
+        invalidateTransform();
+    }
+
+    /**
+     * Returns whether this component or any of its extra components has to be
+     * rewritten for a player before it is sent, that is whether it contains a
+     * {@link ScoreComponent} or, if legacy hovers are requested, a hover event
+     * that is not in the legacy format yet.
+     * <p>
+     * The result is cached in the tree and reset by the setters of this class.
+     * Changes made directly to the list returned by {@link #getExtra()} or to a
+     * {@link HoverEvent} that is already set are not noticed, set the list or
+     * event again after such changes.
+     *
+     * @param legacyHover whether hover events have to be in the legacy format
+     * @return whether the tree needs to be transformed
+     */
+    public boolean needsTransform(boolean legacyHover)
+    {
+        int flags = transformFlags();
+        return ( flags & TRANSFORM_SCORE ) != 0 || ( legacyHover && ( flags & TRANSFORM_HOVER ) != 0 );
+    }
+
+    byte transformFlags()
+    {
+        byte flags = transformFlags;
+        if ( flags == 0 )
+        {
+            flags = TRANSFORM_KNOWN;
+            if ( this instanceof ScoreComponent )
+            {
+                flags |= TRANSFORM_SCORE;
+            }
+            if ( hoverEvent != null && !hoverEvent.isLegacy() )
+            {
+                flags |= TRANSFORM_HOVER;
+            }
+            if ( extra != null )
+            {
+                for ( BaseComponent component : extra )
+                {
+                    flags |= component.transformFlags();
+                }
+            }
+            transformFlags = flags;
+        }
+        return flags;
+    }
+
+    private void invalidateTransform()
+    {
+        // a known summary implies known summaries below it, so stop at the first unknown one
+        for ( BaseComponent component = this; component != null && component.transformFlags != 0; component = component.parent )
+        {
+            component.transformFlags = 0;
+        }
     }
 
     /**
@@ -0,0 +1,397 @@
+package net.md_5.bungee.api.chat;
+
+import com.google.common.base.Preconditions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.chat.ComponentSerializer;
+
+/**
+ * An immutable copy of a component tree which remembers how it was encoded.
+ * <p>
+ * Meant for components which are sent unchanged to many players or over and
+ * over again, such as broadcasts, MOTDs and scoreboard titles. The JSON string
+ * is built once, and the protocol layer keeps the encoded bytes of each wire
+ * format in the component, so sending it again is a plain copy.
+ * <p>
+ * All setters throw {@link UnsupportedOperationException}, {@link #duplicate()}
+ * returns a regular, mutable copy. The children returned by
+ * {@link #getExtra()} are frozen as well. Events are shared with the component this
+ * copy was made from and must not be changed. Within a mutable parent a frozen
+ * component does not inherit the parent's formatting in
+ * {@link #toLegacyText()}, it does in JSON.
+ */
+@ToString(of = "component")
+@EqualsAndHashCode(callSuper = false, of = "component")
+public final class FrozenComponent extends BaseComponent
+{
+
+    /**
+     * Number of wire formats which can be remembered, see
+     * {@link #getEncoded(int, Function)}.
+     */
+    public static final int FORMATS = 4;
+    //
+    private final BaseComponent component;
+    private final AtomicReferenceArray<byte[]> encoded = new AtomicReferenceArray<>( FORMATS );
+    private volatile String json;
+    private volatile List<BaseComponent> extra;
+
+    private FrozenComponent(BaseComponent component)
+    {
+        this.component = component;
+    }
+
+    /**
+     * Freezes a copy of the component. Later changes to the given component do
+     * not affect the result.
+     *
+     * @param component the component to copy
+     * @return the frozen copy, or the component itself if it is already frozen
+     */
+    public static FrozenComponent of(BaseComponent component)
+    {
+        if ( component instanceof FrozenComponent )
+        {
+            return (FrozenComponent) component;
+        }
+        return new FrozenComponent( component.duplicate() );
+    }
+
+    /**
+     * Returns the JSON form of this component, built on first use.
+     *
+     * @return the same string {@link ComponentSerializer#toString(BaseComponent)}
+     * produces for the original component
+     */
+    public String getJson()
+    {
+        String json = this.json;
+        if ( json == null )
+        {
+            this.json = json = ComponentSerializer.toString( component );
+        }
+        return json;
+    }
+
+    /**
+     * Returns the bytes of this component in a wire format, creating them with
+     * the encoder the first time the format is requested. The format numbers
+     * are chosen by the caller, it must always pass the same encoder for a
+     * format.
+     *
+     * @param format the format, below {@link #FORMATS}
+     * @param encoder creates the bytes of this component in that format
+     * @return the remembered bytes, which must not be modified
+     */
+    public byte[] getEncoded(int format, Function<FrozenComponent, byte[]> encoder)
+    {
+        Preconditions.checkElementIndex( format, FORMATS, "format" );
+        byte[] bytes = encoded.get( format );
+        if ( bytes == null )
+        {
+            bytes = encoder.apply( this );
+            encoded.set( format, bytes );
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the frozen tree, used to serialize this component.
+     *
+     * @return the component, which must not be modified
+     */
+    public BaseComponent getComponent()
+    {
+        return component;
+    }
+
+    @Override
+    public BaseComponent duplicate()
+    {
+        return component.duplicate();
+    }
+
+    @Override
+    byte transformFlags()
+    {
+        return component.transformFlags();
+    }
+
+    @Override
+    public ComponentStyle getStyle()
+    {
+        return component.getStyle().clone();
+    }
+
+    @Override
+    public String getInsertion()
+    {
+        return component.getInsertion();
+    }
+
+    @Override
+    public List<BaseComponent> getExtra()
+    {
+        if ( component.getExtra() == null )
+        {
+            return null;
+        }
+        List<BaseComponent> extra = this.extra;
+        if ( extra == null )
+        {
+            // The children belong to the private copy, so they can be wrapped without copying them again
+            List<BaseComponent> frozen = new ArrayList<>( component.getExtra().size() );
+            for ( BaseComponent child : component.getExtra() )
+            {
+                frozen.add( ( child instanceof FrozenComponent ) ? child : new FrozenComponent( child ) );
+            }
+            this.extra = extra = Collections.unmodifiableList( frozen );
+        }
+        return extra;
+    }
+
+    @Override
+    public ClickEvent getClickEvent()
+    {
+        return component.getClickEvent();
+    }
+
+    @Override
+    public HoverEvent getHoverEvent()
+    {
+        return component.getHoverEvent();
+    }
+
+    @Override
+    public boolean isReset()
+    {
+        return component.isReset();
+    }
+
+    @Override
+    public ChatColor getColor()
+    {
+        return component.getColor();
+    }
+
+    @Override
+    public ChatColor getColorRaw()
+    {
+        return component.getColorRaw();
+    }
+
+    @Override
+    public String getFont()
+    {
+        return component.getFont();
+    }
+
+    @Override
+    public String getFontRaw()
+    {
+        return component.getFontRaw();
+    }
+
+    @Override
+    public boolean isBold()
+    {
+        return component.isBold();
+    }
+
+    @Override
+    public Boolean isBoldRaw()
+    {
+        return component.isBoldRaw();
+    }
+
+    @Override
+    public boolean isItalic()
+    {
+        return component.isItalic();
+    }
+
+    @Override
+    public Boolean isItalicRaw()
+    {
+        return component.isItalicRaw();
+    }
+
+    @Override
+    public boolean isUnderlined()
+    {
+        return component.isUnderlined();
+    }
+
+    @Override
+    public Boolean isUnderlinedRaw()
+    {
+        return component.isUnderlinedRaw();
+    }
+
+    @Override
+    public boolean isStrikethrough()
+    {
+        return component.isStrikethrough();
+    }
+
+    @Override
+    public Boolean isStrikethroughRaw()
+    {
+        return component.isStrikethroughRaw();
+    }
+
+    @Override
+    public boolean isObfuscated()
+    {
+        return component.isObfuscated();
+    }
+
+    @Override
+    public Boolean isObfuscatedRaw()
+    {
+        return component.isObfuscatedRaw();
+    }
+
+    @Override
+    public boolean hasStyle()
+    {
+        return component.hasStyle();
+    }
+
+    @Override
+    public boolean hasFormatting()
+    {
+        return component.hasFormatting();
+    }
+
+    @Override
+    void toPlainText(StringBuilder builder)
+    {
+        component.toPlainText( builder );
+    }
+
+    @Override
+    void toLegacyText(StringBuilder builder)
+    {
+        component.toLegacyText( builder );
+    }
+
+    private static UnsupportedOperationException frozen()
+    {
+        return new UnsupportedOperationException( "Frozen components can not be changed, duplicate() it first" );
+    }
+
+    @Override
+    public void setStyle(ComponentStyle style)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setInsertion(String insertion)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setExtra(List<BaseComponent> components)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void addExtra(String text)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void addExtra(BaseComponent component)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setClickEvent(ClickEvent clickEvent)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setHoverEvent(HoverEvent hoverEvent)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setReset(boolean reset)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setColor(ChatColor color)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setFont(String font)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setBold(Boolean bold)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setItalic(Boolean italic)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setUnderlined(Boolean underlined)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setStrikethrough(Boolean strikethrough)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void setObfuscated(Boolean obfuscated)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void applyStyle(ComponentStyle style)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void copyFormatting(BaseComponent component, ComponentBuilder.FormatRetention retention, boolean replace)
+    {
+        throw frozen();
+    }
+
+    @Override
+    public void retain(ComponentBuilder.FormatRetention retention)
+    {
+        throw frozen();
+    }
+}
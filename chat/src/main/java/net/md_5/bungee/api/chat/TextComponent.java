@@ -1,5 +1,7 @@
 package net.md_5.bungee.api.chat;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.function.Consumer;
@@ -19,6 +21,13 @@ public final class TextComponent extends BaseComponent
 {
 
     private static final Pattern url = Pattern.compile( "^(?:(https?)://)?([-\\w_\\.]{2,}\\.[a-z]{2,4})(/\\S*)?$" );
+    /**
+     * Recently converted legacy messages with the default colour, repeated
+     * messages such as alerts and prefixes are copied instead of parsed again.
+     * Only copies of the cached components are handed out.
+     */
+    private static final Cache<String, BaseComponent> legacyCache = CacheBuilder.newBuilder().maximumSize( 1024 ).build();
+    private static final int MAX_CACHED_LEGACY_LENGTH = 1024;
 
     /**
      * Converts the old formatting system that used
@@ -45,9 +54,24 @@ public final class TextComponent extends BaseComponent
      */
     public static BaseComponent fromLegacy(String message, ChatColor defaultColor)
     {
+        boolean cacheable = defaultColor == ChatColor.WHITE && message.length() <= MAX_CACHED_LEGACY_LENGTH;
+        if ( cacheable )
+        {
+            BaseComponent cached = legacyCache.getIfPresent( message );
+            if ( cached != null )
+            {
+                return cached.duplicate();
+            }
+        }
+
         ComponentBuilder componentBuilder = new ComponentBuilder();
         populateComponentStructure( message, defaultColor, componentBuilder::append );
-        return componentBuilder.build();
+        BaseComponent component = componentBuilder.build();
+        if ( cacheable )
+        {
+            legacyCache.put( message, component.duplicate() );
+        }
+        return component;
     }
 
     /**
@@ -94,14 +118,19 @@ public final class TextComponent extends BaseComponent
     {
         StringBuilder builder = new StringBuilder();
         TextComponent component = new TextComponent();
-        Matcher matcher = url.matcher( message );
+        Matcher matcher = null;
+        int length = message.length();
+        // next colour char, space and dot at or after i, a word without a dot can not be a link
+        int color = -1;
+        int space = -1;
+        int dot = -1;
 
-        for ( int i = 0; i < message.length(); i++ )
+        for ( int i = 0; i < length; i++ )
         {
             char c = message.charAt( i );
             if ( c == ChatColor.COLOR_CHAR )
             {
-                if ( ++i >= message.length() )
+                if ( ++i >= length )
                 {
                     break;
                 }
@@ -111,16 +140,17 @@ public final class TextComponent extends BaseComponent
                     c += 32;
                 }
                 ChatColor format;
-                if ( c == 'x' && i + 12 < message.length() )
+                if ( c == 'x' && i + 12 < length )
                 {
-                    StringBuilder hex = new StringBuilder( "#" );
+                    char[] hex = new char[ 7 ];
+                    hex[0] = '#';
                     for ( int j = 0; j < 6; j++ )
                     {
-                        hex.append( message.charAt( i + 2 + ( j * 2 ) ) );
+                        hex[j + 1] = message.charAt( i + 2 + ( j * 2 ) );
                     }
                     try
                     {
-                        format = ChatColor.of( hex.toString() );
+                        format = ChatColor.of( new String( hex ) );
                     } catch ( IllegalArgumentException ex )
                     {
                         format = null;
@@ -140,7 +170,7 @@ public final class TextComponent extends BaseComponent
                     TextComponent old = component;
                     component = new TextComponent( old );
                     old.setText( builder.toString() );
-                    builder = new StringBuilder();
+                    builder.setLength( 0 );
                     appender.accept( old );
                 }
                 if ( format == ChatColor.BOLD )
@@ -170,12 +200,43 @@ public final class TextComponent extends BaseComponent
                 }
                 continue;
             }
-            int pos = message.indexOf( ' ', i );
-            if ( pos == -1 )
+            if ( space < i )
+            {
+                space = message.indexOf( ' ', i );
+                if ( space == -1 )
+                {
+                    space = length;
+                }
+            }
+            if ( dot < i )
+            {
+                dot = message.indexOf( '.', i );
+                if ( dot == -1 )
+                {
+                    dot = length;
+                }
+            }
+            if ( dot >= space )
+            {
+                // no link can start before the next space, copy up to it or the next colour
+                if ( color < i )
+                {
+                    color = message.indexOf( ChatColor.COLOR_CHAR, i );
+                    if ( color == -1 )
+                    {
+                        color = length;
+                    }
+                }
+                int end = Math.min( Math.min( space + 1, length ), color );
+                builder.append( message, i, end );
+                i = end - 1;
+                continue;
+            }
+            if ( matcher == null )
             {
-                pos = message.length();
+                matcher = url.matcher( message );
             }
-            if ( matcher.region( i, pos ).find() )
+            if ( matcher.region( i, space ).find() )
             { //Web link handling
 
                 if ( builder.length() > 0 )
@@ -183,18 +244,18 @@ public final class TextComponent extends BaseComponent
                     TextComponent old = component;
                     component = new TextComponent( old );
                     old.setText( builder.toString() );
-                    builder = new StringBuilder();
+                    builder.setLength( 0 );
                     appender.accept( old );
                 }
 
                 TextComponent old = component;
                 component = new TextComponent( old );
-                String urlString = message.substring( i, pos );
+                String urlString = message.substring( i, space );
                 component.setText( urlString );
                 component.setClickEvent( new ClickEvent( ClickEvent.Action.OPEN_URL,
                         urlString.startsWith( "http" ) ? urlString : "http://" + urlString ) );
                 appender.accept( component );
-                i += pos - i - 1;
+                i += space - i - 1;
                 component = old;
                 continue;
             }
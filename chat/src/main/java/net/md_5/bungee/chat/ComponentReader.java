@@ -0,0 +1,725 @@
+package net.md_5.bungee.chat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.KeybindComponent;
+import net.md_5.bungee.api.chat.ScoreComponent;
+import net.md_5.bungee.api.chat.SelectorComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.TranslatableComponent;
+import net.md_5.bungee.api.chat.hover.content.Content;
+import net.md_5.bungee.api.chat.hover.content.Text;
+
+/**
+ * Reads components straight from a JSON string, without a Gson tree.
+ * <p>
+ * Only strict JSON in the shape the serializers of this package write is read
+ * here: objects, arrays, strings and booleans, with text hover contents. On
+ * anything else, such as numbers, nulls, item or entity hovers, lenient syntax
+ * or input Gson would reject, {@link Unsupported} is thrown and the caller
+ * parses the string with Gson again. That keeps the results and the errors
+ * exactly those of Gson.
+ */
+final class ComponentReader
+{
+
+    private final String json;
+    private int pos;
+
+    private ComponentReader(String json)
+    {
+        this.json = json;
+    }
+
+    /**
+     * Thrown when the input has to be parsed by Gson.
+     */
+    static final class Unsupported extends RuntimeException
+    {
+
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported()
+        {
+            super( null, null, false, false );
+        }
+    }
+
+    /**
+     * Same as {@link ComponentSerializer#deserialize(String)}.
+     */
+    static BaseComponent read(String json)
+    {
+        ComponentReader reader = new ComponentReader( json );
+        BaseComponent component;
+        if ( reader.peek() == '[' )
+        {
+            component = TextComponent.fromArray( reader.array() );
+        } else
+        {
+            component = reader.element();
+        }
+        reader.end();
+        return component;
+    }
+
+    /**
+     * Same as {@link ComponentSerializer#parse(String)}.
+     */
+    static BaseComponent[] readArray(String json)
+    {
+        ComponentReader reader = new ComponentReader( json );
+        BaseComponent[] components;
+        if ( reader.peek() == '[' )
+        {
+            components = reader.array();
+        } else
+        {
+            components = new BaseComponent[]
+            {
+                reader.element()
+            };
+        }
+        reader.end();
+        return components;
+    }
+
+    private static Unsupported unsupported()
+    {
+        return Unsupported.INSTANCE;
+    }
+
+    /**
+     * A component where Gson expects one: a primitive becomes text, an object
+     * is read by its keys.
+     */
+    private BaseComponent element()
+    {
+        char c = peek();
+        if ( c == '{' )
+        {
+            return object();
+        }
+        if ( c == '[' )
+        {
+            throw unsupported();
+        }
+        return new TextComponent( scalar() );
+    }
+
+    private BaseComponent[] array()
+    {
+        expect( '[' );
+        List<BaseComponent> list = new ArrayList<>();
+        if ( peek() != ']' )
+        {
+            do
+            {
+                list.add( element() );
+            } while ( next( ',', ']' ) );
+        } else
+        {
+            pos++;
+        }
+        return list.toArray( new BaseComponent[ 0 ] );
+    }
+
+    private BaseComponent object()
+    {
+        Boolean bold = null, italic = null, underlined = null, strikethrough = null, obfuscated = null;
+        String color = null, font = null, insertion = null;
+        ClickEvent clickEvent = null;
+        HoverEvent hoverEvent = null;
+        BaseComponent[] extra = null;
+        String text = null, translate = null, fallback = null, keybind = null, selector = null, separator = null;
+        BaseComponent[] with = null;
+        boolean score = false;
+        String scoreName = null, scoreObjective = null, scoreValue = null;
+
+        expect( '{' );
+        if ( peek() != '}' )
+        {
+            do
+            {
+                String key = string();
+                expect( ':' );
+                switch ( key )
+                {
+                    case "bold":
+                        bold = bool();
+                        break;
+                    case "italic":
+                        italic = bool();
+                        break;
+                    case "underlined":
+                        underlined = bool();
+                        break;
+                    case "strikethrough":
+                        strikethrough = bool();
+                        break;
+                    case "obfuscated":
+                        obfuscated = bool();
+                        break;
+                    case "color":
+                        color = scalar();
+                        break;
+                    case "font":
+                        font = scalar();
+                        break;
+                    case "insertion":
+                        insertion = scalar();
+                        break;
+                    case "clickEvent":
+                        clickEvent = clickEvent();
+                        break;
+                    case "hoverEvent":
+                        hoverEvent = hoverEvent();
+                        break;
+                    case "extra":
+                        extra = array();
+                        break;
+                    case "text":
+                        text = scalar();
+                        break;
+                    case "translate":
+                        translate = scalar();
+                        break;
+                    case "with":
+                        with = array();
+                        break;
+                    case "fallback":
+                        fallback = scalar();
+                        break;
+                    case "keybind":
+                        keybind = scalar();
+                        break;
+                    case "selector":
+                        selector = scalar();
+                        break;
+                    case "separator":
+                        separator = scalar();
+                        break;
+                    case "score":
+                        score = true;
+                        scoreName = scoreObjective = scoreValue = null;
+                        expect( '{' );
+                        if ( peek() != '}' )
+                        {
+                            do
+                            {
+                                String field = string();
+                                expect( ':' );
+                                switch ( field )
+                                {
+                                    case "name":
+                                        scoreName = scalar();
+                                        break;
+                                    case "objective":
+                                        scoreObjective = scalar();
+                                        break;
+                                    case "value":
+                                        scoreValue = scalar();
+                                        break;
+                                    default:
+                                        skip();
+                                }
+                            } while ( next( ',', '}' ) );
+                        } else
+                        {
+                            pos++;
+                        }
+                        break;
+                    default:
+                        skip();
+                }
+            } while ( next( ',', '}' ) );
+        } else
+        {
+            pos++;
+        }
+
+        BaseComponent component;
+        if ( translate != null )
+        {
+            TranslatableComponent translatable = new TranslatableComponent();
+            translatable.setTranslate( translate );
+            if ( with != null )
+            {
+                translatable.setWith( Arrays.asList( with ) );
+            }
+            translatable.setFallback( fallback );
+            component = translatable;
+        } else if ( keybind != null )
+        {
+            component = new KeybindComponent( keybind );
+        } else if ( score )
+        {
+            if ( scoreName == null || scoreObjective == null )
+            {
+                throw unsupported();
+            }
+            ScoreComponent scoreComponent = new ScoreComponent( scoreName, scoreObjective );
+            if ( scoreValue != null && !scoreValue.isEmpty() )
+            {
+                scoreComponent.setValue( scoreValue );
+            }
+            component = scoreComponent;
+        } else if ( selector != null )
+        {
+            SelectorComponent selectorComponent = new SelectorComponent( selector );
+            if ( separator != null )
+            {
+                selectorComponent.setSeparator( ComponentSerializer.deserialize( separator ) );
+            }
+            component = selectorComponent;
+        } else
+        {
+            component = ( text != null ) ? new TextComponent( text ) : new TextComponent();
+        }
+
+        if ( bold != null )
+        {
+            component.setBold( bold );
+        }
+        if ( italic != null )
+        {
+            component.setItalic( italic );
+        }
+        if ( underlined != null )
+        {
+            component.setUnderlined( underlined );
+        }
+        if ( strikethrough != null )
+        {
+            component.setStrikethrough( strikethrough );
+        }
+        if ( obfuscated != null )
+        {
+            component.setObfuscated( obfuscated );
+        }
+        if ( color != null )
+        {
+            component.setColor( color( color ) );
+        }
+        if ( font != null )
+        {
+            component.setFont( font );
+        }
+        if ( insertion != null )
+        {
+            component.setInsertion( insertion );
+        }
+        if ( clickEvent != null )
+        {
+            component.setClickEvent( clickEvent );
+        }
+        if ( hoverEvent != null )
+        {
+            component.setHoverEvent( hoverEvent );
+        }
+        if ( extra != null )
+        {
+            component.setExtra( Arrays.asList( extra ) );
+        }
+        return component;
+    }
+
+    private ClickEvent clickEvent()
+    {
+        String action = null;
+        String value = "";
+        expect( '{' );
+        if ( peek() != '}' )
+        {
+            do
+            {
+                String key = string();
+                expect( ':' );
+                if ( key.equals( "action" ) )
+                {
+                    action = scalar();
+                } else if ( key.equals( "value" ) )
+                {
+                    value = scalar();
+                } else
+                {
+                    skip();
+                }
+            } while ( next( ',', '}' ) );
+        } else
+        {
+            pos++;
+        }
+        if ( action == null )
+        {
+            throw unsupported();
+        }
+        return new ClickEvent( action( ClickEvent.Action.class, action ), value );
+    }
+
+    private HoverEvent hoverEvent()
+    {
+        String action = null;
+        BaseComponent[] value = null;
+        List<Content> contents = null;
+        expect( '{' );
+        if ( peek() != '}' )
+        {
+            do
+            {
+                String key = string();
+                expect( ':' );
+                switch ( key )
+                {
+                    case "action":
+                        action = scalar();
+                        break;
+                    case "value":
+                        value = ( peek() == '[' ) ? array() : new BaseComponent[]
+                        {
+                            element()
+                        };
+                        break;
+                    case "contents":
+                        // read as text, only show_text is handled here
+                        contents = new ArrayList<>();
+                        if ( peek() == '[' )
+                        {
+                            expect( '[' );
+                            if ( peek() != ']' )
+                            {
+                                do
+                                {
+                                    contents.add( text() );
+                                } while ( next( ',', ']' ) );
+                            } else
+                            {
+                                pos++;
+                            }
+                        } else
+                        {
+                            contents.add( text() );
+                        }
+                        break;
+                    default:
+                        skip();
+                }
+            } while ( next( ',', '}' ) );
+        } else
+        {
+            pos++;
+        }
+
+        if ( action == null )
+        {
+            throw unsupported();
+        }
+        HoverEvent.Action hoverAction = action( HoverEvent.Action.class, action );
+        if ( value != null )
+        {
+            return new HoverEvent( hoverAction, value );
+        }
+        if ( contents != null )
+        {
+            if ( hoverAction != HoverEvent.Action.SHOW_TEXT )
+            {
+                throw unsupported();
+            }
+            return new HoverEvent( hoverAction, contents );
+        }
+        return null;
+    }
+
+    /**
+     * Unknown values are left to Gson, so that its checks run in its order.
+     */
+    private static ChatColor color(String color)
+    {
+        try
+        {
+            return ChatColor.of( color );
+        } catch ( IllegalArgumentException ex )
+        {
+            throw unsupported();
+        }
+    }
+
+    private static <T extends Enum<T>> T action(Class<T> type, String action)
+    {
+        try
+        {
+            return Enum.valueOf( type, action.toUpperCase( Locale.ROOT ) );
+        } catch ( IllegalArgumentException ex )
+        {
+            throw unsupported();
+        }
+    }
+
+    private Text text()
+    {
+        char c = peek();
+        if ( c == '[' )
+        {
+            return new Text( array() );
+        }
+        if ( c == '{' )
+        {
+            return new Text( new BaseComponent[]
+            {
+                object()
+            } );
+        }
+        return new Text( scalar() );
+    }
+
+    /**
+     * A value Gson would turn into a string: a string or a boolean.
+     */
+    private String scalar()
+    {
+        char c = peek();
+        if ( c == '"' )
+        {
+            return string();
+        }
+        if ( c == 't' && json.startsWith( "true", pos ) )
+        {
+            pos += 4;
+            return "true";
+        }
+        if ( c == 'f' && json.startsWith( "false", pos ) )
+        {
+            pos += 5;
+            return "false";
+        }
+        throw unsupported();
+    }
+
+    /**
+     * A style flag, anything but a boolean is false like in
+     * {@link ComponentStyleSerializer}.
+     */
+    private boolean bool()
+    {
+        char c = peek();
+        if ( c == 't' || c == 'f' )
+        {
+            return Boolean.parseBoolean( scalar() );
+        }
+        if ( c == '"' )
+        {
+            string();
+            return false;
+        }
+        throw unsupported();
+    }
+
+    private void skip()
+    {
+        char c = peek();
+        if ( c == '{' )
+        {
+            pos++;
+            if ( peek() != '}' )
+            {
+                do
+                {
+                    string();
+                    expect( ':' );
+                    skip();
+                } while ( next( ',', '}' ) );
+            } else
+            {
+                pos++;
+            }
+        } else if ( c == '[' )
+        {
+            pos++;
+            if ( peek() != ']' )
+            {
+                do
+                {
+                    skip();
+                } while ( next( ',', ']' ) );
+            } else
+            {
+                pos++;
+            }
+        } else if ( c == 'n' && json.startsWith( "null", pos ) )
+        {
+            pos += 4;
+        } else if ( c == '-' || ( c >= '0' && c <= '9' ) )
+        {
+            int start = pos;
+            while ( pos < json.length() && "+-.eE0123456789".indexOf( json.charAt( pos ) ) != -1 )
+            {
+                pos++;
+            }
+            try
+            {
+                Double.parseDouble( json.substring( start, pos ) );
+            } catch ( NumberFormatException ex )
+            {
+                throw unsupported();
+            }
+        } else
+        {
+            scalar();
+        }
+    }
+
+    private String string()
+    {
+        expect( '"' );
+        int start = pos;
+        int length = json.length();
+        while ( pos < length )
+        {
+            char c = json.charAt( pos );
+            if ( c == '"' )
+            {
+                return json.substring( start, pos++ );
+            }
+            if ( c == '\\' )
+            {
+                return escaped( start );
+            }
+            pos++;
+        }
+        throw unsupported();
+    }
+
+    private String escaped(int start)
+    {
+        StringBuilder builder = new StringBuilder( pos - start + 16 );
+        builder.append( json, start, pos );
+        int length = json.length();
+        while ( pos < length )
+        {
+            char c = json.charAt( pos++ );
+            if ( c == '"' )
+            {
+                return builder.toString();
+            }
+            if ( c != '\\' )
+            {
+                builder.append( c );
+                continue;
+            }
+            if ( pos >= length )
+            {
+                break;
+            }
+            char escape = json.charAt( pos++ );
+            switch ( escape )
+            {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append( escape );
+                    break;
+                case 'b':
+                    builder.append( '\b' );
+                    break;
+                case 'f':
+                    builder.append( '\f' );
+                    break;
+                case 'n':
+                    builder.append( '\n' );
+                    break;
+                case 'r':
+                    builder.append( '\r' );
+                    break;
+                case 't':
+                    builder.append( '\t' );
+                    break;
+                case 'u':
+                    if ( pos + 4 > length )
+                    {
+                        throw unsupported();
+                    }
+                    int value = 0;
+                    for ( int i = 0; i < 4; i++ )
+                    {
+                        int digit = Character.digit( json.charAt( pos++ ), 16 );
+                        if ( digit < 0 )
+                        {
+                            throw unsupported();
+                        }
+                        value = ( value << 4 ) | digit;
+                    }
+                    builder.append( (char) value );
+                    break;
+                default:
+                    throw unsupported();
+            }
+        }
+        throw unsupported();
+    }
+
+    /**
+     * Consumes a separator or the closing character.
+     *
+     * @return true if another element follows
+     */
+    private boolean next(char separator, char close)
+    {
+        char c = peek();
+        pos++;
+        if ( c == separator )
+        {
+            return true;
+        }
+        if ( c == close )
+        {
+            return false;
+        }
+        throw unsupported();
+    }
+
+    private void expect(char expected)
+    {
+        if ( peek() != expected )
+        {
+            throw unsupported();
+        }
+        pos++;
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it.
+     */
+    private char peek()
+    {
+        int length = json.length();
+        while ( pos < length )
+        {
+            char c = json.charAt( pos );
+            if ( c != ' ' && c != '\n' && c != '\r' && c != '\t' )
+            {
+                return c;
+            }
+            pos++;
+        }
+        throw unsupported();
+    }
+
+    private void end()
+    {
+        int length = json.length();
+        while ( pos < length )
+        {
+            char c = json.charAt( pos++ );
+            if ( c != ' ' && c != '\n' && c != '\r' && c != '\t' )
+            {
+                throw unsupported();
+            }
+        }
+    }
+}
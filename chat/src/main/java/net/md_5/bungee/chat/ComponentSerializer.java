@@ -14,6 +14,7 @@ import java.lang.reflect.Type;
 import java.util.Set;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ComponentStyle;
+import net.md_5.bungee.api.chat.FrozenComponent;
 import net.md_5.bungee.api.chat.ItemTag;
 import net.md_5.bungee.api.chat.KeybindComponent;
 import net.md_5.bungee.api.chat.ScoreComponent;
@@ -37,6 +38,7 @@ public class ComponentSerializer implements JsonDeserializer<BaseComponent>
             registerTypeAdapter( KeybindComponent.class, new KeybindComponentSerializer() ).
             registerTypeAdapter( ScoreComponent.class, new ScoreComponentSerializer() ).
             registerTypeAdapter( SelectorComponent.class, new SelectorComponentSerializer() ).
+            registerTypeAdapter( FrozenComponent.class, new FrozenComponentSerializer() ).
             registerTypeAdapter( ComponentStyle.class, new ComponentStyleSerializer() ).
             registerTypeAdapter( Entity.class, new EntitySerializer() ).
             registerTypeAdapter( Text.class, new TextSerializer() ).
@@ -65,6 +67,14 @@ public class ComponentSerializer implements JsonDeserializer<BaseComponent>
      */
     public static BaseComponent[] parse(String json)
     {
+        try
+        {
+            return ComponentReader.readArray( json );
+        } catch ( ComponentReader.Unsupported ex )
+        {
+            // not in the common shape, Gson decides
+        }
+
         JsonElement jsonElement = JsonParser.parseString( json );
 
         if ( jsonElement.isJsonArray() )
@@ -89,6 +99,14 @@ public class ComponentSerializer implements JsonDeserializer<BaseComponent>
      */
     public static BaseComponent deserialize(String json)
     {
+        try
+        {
+            return ComponentReader.read( json );
+        } catch ( ComponentReader.Unsupported ex )
+        {
+            // not in the common shape, Gson decides
+        }
+
         JsonElement jsonElement = JsonParser.parseString( json );
 
         return deserialize( jsonElement );
@@ -165,17 +183,21 @@ public class ComponentSerializer implements JsonDeserializer<BaseComponent>
 
     public static String toString(BaseComponent component)
     {
-        return gson.toJson( component );
+        if ( component instanceof FrozenComponent )
+        {
+            return ( (FrozenComponent) component ).getJson();
+        }
+        return ComponentWriter.toString( component );
     }
 
     public static String toString(BaseComponent... components)
     {
         if ( components.length == 1 )
         {
-            return gson.toJson( components[0] );
+            return toString( components[0] );
         } else
         {
-            return gson.toJson( new TextComponent( components ) );
+            return ComponentWriter.toString( new TextComponent( components ) );
         }
     }
 
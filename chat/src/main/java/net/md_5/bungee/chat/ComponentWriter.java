@@ -0,0 +1,373 @@
+package net.md_5.bungee.chat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.ComponentStyle;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.KeybindComponent;
+import net.md_5.bungee.api.chat.ScoreComponent;
+import net.md_5.bungee.api.chat.SelectorComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.TranslatableComponent;
+import net.md_5.bungee.api.chat.hover.content.Content;
+import net.md_5.bungee.api.chat.hover.content.Entity;
+import net.md_5.bungee.api.chat.hover.content.Item;
+import net.md_5.bungee.api.chat.hover.content.Text;
+
+/**
+ * Writes components as JSON without building a Gson tree.
+ * <p>
+ * The output is the same, character for character, as the Gson serializers
+ * of this package produce: same key order, nulls left out and the same HTML
+ * safe escaping. Loops are found by comparing against the components being
+ * written instead of a thread local set. Component and content types this
+ * class does not know are handed to Gson.
+ */
+public final class ComponentWriter
+{
+
+    private static final String[] REPLACEMENTS = new String[ 128 ];
+
+    static
+    {
+        for ( int i = 0; i < 0x20; i++ )
+        {
+            REPLACEMENTS[i] = String.format( "\\u%04x", i );
+        }
+        REPLACEMENTS['"'] = "\\\"";
+        REPLACEMENTS['\\'] = "\\\\";
+        REPLACEMENTS['\t'] = "\\t";
+        REPLACEMENTS['\b'] = "\\b";
+        REPLACEMENTS['\n'] = "\\n";
+        REPLACEMENTS['\r'] = "\\r";
+        REPLACEMENTS['\f'] = "\\f";
+        REPLACEMENTS['<'] = "\\u003c";
+        REPLACEMENTS['>'] = "\\u003e";
+        REPLACEMENTS['&'] = "\\u0026";
+        REPLACEMENTS['='] = "\\u003d";
+        REPLACEMENTS['\''] = "\\u0027";
+    }
+    //
+    private StringBuilder out;
+    private BaseComponent[] path;
+    private int depth;
+
+    private ComponentWriter(StringBuilder out)
+    {
+        this.out = out;
+    }
+
+    /**
+     * Serializes a component to JSON.
+     *
+     * @param component the component
+     * @return the JSON string
+     * @throws IllegalArgumentException if the component contains itself
+     */
+    public static String toString(BaseComponent component)
+    {
+        StringBuilder builder = new StringBuilder( 64 );
+        write( component, builder );
+        return builder.toString();
+    }
+
+    /**
+     * Appends the JSON of a component to a builder.
+     *
+     * @param component the component
+     * @param builder the builder to append to
+     * @throws IllegalArgumentException if the component contains itself
+     */
+    public static void write(BaseComponent component, StringBuilder builder)
+    {
+        new ComponentWriter( builder ).component( component );
+    }
+
+    private void component(BaseComponent component)
+    {
+        if ( component == null )
+        {
+            out.append( "null" );
+            return;
+        }
+        if ( component instanceof FrozenComponent )
+        {
+            out.append( ( (FrozenComponent) component ).getJson() );
+            return;
+        }
+
+        Class<?> type = component.getClass();
+        if ( type != TextComponent.class && type != TranslatableComponent.class && type != KeybindComponent.class
+                && type != ScoreComponent.class && type != SelectorComponent.class )
+        {
+            out.append( ComponentSerializer.toString( (Object) component ) );
+            return;
+        }
+
+        enter( component );
+        out.append( '{' );
+        base( component );
+        if ( type == TextComponent.class )
+        {
+            string( "text", ( (TextComponent) component ).getText() );
+        } else if ( type == TranslatableComponent.class )
+        {
+            TranslatableComponent translatable = (TranslatableComponent) component;
+            string( "translate", translatable.getTranslate() );
+            if ( translatable.getWith() != null )
+            {
+                name( "with" );
+                components( translatable.getWith() );
+            }
+            string( "fallback", translatable.getFallback() );
+        } else if ( type == KeybindComponent.class )
+        {
+            string( "keybind", ( (KeybindComponent) component ).getKeybind() );
+        } else if ( type == ScoreComponent.class )
+        {
+            ScoreComponent score = (ScoreComponent) component;
+            name( "score" );
+            out.append( '{' );
+            string( "name", score.getName() );
+            string( "objective", score.getObjective() );
+            string( "value", score.getValue() );
+            out.append( '}' );
+        } else
+        {
+            SelectorComponent selector = (SelectorComponent) component;
+            string( "selector", selector.getSelector() );
+            if ( selector.getSeparator() != null )
+            {
+                // the separator is embedded as a string, but still counts for loops
+                StringBuilder outer = out;
+                out = new StringBuilder();
+                component( selector.getSeparator() );
+                String separator = out.toString();
+                out = outer;
+                string( "separator", separator );
+            }
+        }
+        out.append( '}' );
+        depth--;
+    }
+
+    private void enter(BaseComponent component)
+    {
+        if ( path == null )
+        {
+            path = new BaseComponent[ 8 ];
+        }
+        for ( int i = 0; i < depth; i++ )
+        {
+            if ( path[i] == component )
+            {
+                throw new IllegalArgumentException( "Component loop" );
+            }
+        }
+        if ( depth == path.length )
+        {
+            path = Arrays.copyOf( path, depth * 2 );
+        }
+        path[depth++] = component;
+    }
+
+    private void base(BaseComponent component)
+    {
+        ComponentStyle style = component.getStyle();
+        bool( "bold", style.isBoldRaw() );
+        bool( "italic", style.isItalicRaw() );
+        bool( "underlined", style.isUnderlinedRaw() );
+        bool( "strikethrough", style.isStrikethroughRaw() );
+        bool( "obfuscated", style.isObfuscatedRaw() );
+        if ( style.hasColor() && style.getColor().getColor() != null )
+        {
+            string( "color", style.getColor().getName() );
+        }
+        if ( style.hasFont() )
+        {
+            string( "font", style.getFont() );
+        }
+        string( "insertion", component.getInsertion() );
+
+        ClickEvent clickEvent = component.getClickEvent();
+        if ( clickEvent != null )
+        {
+            name( "clickEvent" );
+            out.append( '{' );
+            string( "action", clickEvent.getAction().toString().toLowerCase( Locale.ROOT ) );
+            string( "value", clickEvent.getValue() );
+            out.append( '}' );
+        }
+        HoverEvent hoverEvent = component.getHoverEvent();
+        if ( hoverEvent != null )
+        {
+            name( "hoverEvent" );
+            out.append( '{' );
+            string( "action", hoverEvent.getAction().toString().toLowerCase( Locale.ROOT ) );
+            List<Content> contents = hoverEvent.getContents();
+            if ( hoverEvent.isLegacy() )
+            {
+                name( "value" );
+                content( contents.get( 0 ) );
+            } else
+            {
+                name( "contents" );
+                if ( contents.size() == 1 )
+                {
+                    content( contents.get( 0 ) );
+                } else
+                {
+                    out.append( '[' );
+                    for ( int i = 0; i < contents.size(); i++ )
+                    {
+                        if ( i != 0 )
+                        {
+                            out.append( ',' );
+                        }
+                        content( contents.get( i ) );
+                    }
+                    out.append( ']' );
+                }
+            }
+            out.append( '}' );
+        }
+
+        if ( component.getExtra() != null )
+        {
+            name( "extra" );
+            components( component.getExtra() );
+        }
+    }
+
+    private void components(List<BaseComponent> components)
+    {
+        out.append( '[' );
+        for ( int i = 0; i < components.size(); i++ )
+        {
+            if ( i != 0 )
+            {
+                out.append( ',' );
+            }
+            component( components.get( i ) );
+        }
+        out.append( ']' );
+    }
+
+    private void content(Content content)
+    {
+        if ( content == null )
+        {
+            out.append( "null" );
+        } else if ( content.getClass() == Text.class && ( (Text) content ).getValue() instanceof BaseComponent[] )
+        {
+            BaseComponent[] components = (BaseComponent[]) ( (Text) content ).getValue();
+            out.append( '[' );
+            for ( int i = 0; i < components.length; i++ )
+            {
+                if ( i != 0 )
+                {
+                    out.append( ',' );
+                }
+                component( components[i] );
+            }
+            out.append( ']' );
+        } else if ( content.getClass() == Text.class && ( (Text) content ).getValue() instanceof String )
+        {
+            escape( (String) ( (Text) content ).getValue() );
+        } else if ( content.getClass() == Item.class )
+        {
+            Item item = (Item) content;
+            out.append( '{' );
+            string( "id", ( item.getId() == null ) ? "minecraft:air" : item.getId() );
+            if ( item.getCount() != -1 )
+            {
+                name( "Count" );
+                out.append( item.getCount() );
+            }
+            if ( item.getTag() != null )
+            {
+                string( "tag", item.getTag().getNbt() );
+            }
+            out.append( '}' );
+        } else if ( content.getClass() == Entity.class )
+        {
+            Entity entity = (Entity) content;
+            out.append( '{' );
+            string( "type", ( entity.getType() != null ) ? entity.getType() : "minecraft:pig" );
+            string( "id", entity.getId() );
+            if ( entity.getName() != null )
+            {
+                name( "name" );
+                component( entity.getName() );
+            }
+            out.append( '}' );
+        } else
+        {
+            out.append( ComponentSerializer.toString( (Object) content ) );
+        }
+    }
+
+    private void name(String name)
+    {
+        if ( out.charAt( out.length() - 1 ) != '{' )
+        {
+            out.append( ',' );
+        }
+        out.append( '"' ).append( name ).append( "\":" );
+    }
+
+    private void bool(String name, Boolean value)
+    {
+        if ( value != null )
+        {
+            name( name );
+            out.append( value.booleanValue() );
+        }
+    }
+
+    private void string(String name, String value)
+    {
+        if ( value != null )
+        {
+            name( name );
+            escape( value );
+        }
+    }
+
+    private void escape(String value)
+    {
+        StringBuilder out = this.out;
+        out.append( '"' );
+        int last = 0;
+        int length = value.length();
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            String replacement;
+            if ( c < 128 )
+            {
+                replacement = REPLACEMENTS[c];
+                if ( replacement == null )
+                {
+                    continue;
+                }
+            } else if ( c == '\u2028' )
+            {
+                replacement = "\\u2028";
+            } else if ( c == '\u2029' )
+            {
+                replacement = "\\u2029";
+            } else
+            {
+                continue;
+            }
+            out.append( value, last, i ).append( replacement );
+            last = i + 1;
+        }
+        out.append( value, last, length ).append( '"' );
+    }
+}
@@ -0,0 +1,17 @@
+package net.md_5.bungee.chat;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSerializationContext;
+import com.google.gson.JsonSerializer;
+import java.lang.reflect.Type;
+import net.md_5.bungee.api.chat.FrozenComponent;
+
+public class FrozenComponentSerializer implements JsonSerializer<FrozenComponent>
+{
+
+    @Override
+    public JsonElement serialize(FrozenComponent src, Type typeOfSrc, JsonSerializationContext context)
+    {
+        return context.serialize( src.getComponent() );
+    }
+}
@@ -3,6 +3,7 @@ package net.md_5.bungee.api.chat;
 import static net.md_5.bungee.api.ChatColor.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.awt.Color;
+import java.util.ArrayList;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -835,6 +836,81 @@ public class ComponentsTest
         assertFalse( style.isEmpty() );
     }
 
+    @Test
+    public void testNeedsTransform()
+    {
+        TextComponent root = new TextComponent( "root" );
+        TextComponent child = new TextComponent( "child" );
+        root.addExtra( child );
+        assertFalse( root.needsTransform( true ) );
+
+        // cached results are reset when the tree changes below them
+        child.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( "hover" ) ) );
+        assertFalse( root.needsTransform( false ) );
+        assertTrue( root.needsTransform( true ) );
+
+        child.getHoverEvent().setLegacy( true );
+        child.setHoverEvent( child.getHoverEvent() );
+        assertFalse( root.needsTransform( true ) );
+
+        child.addExtra( new ScoreComponent( "*", "objective" ) );
+        assertTrue( root.needsTransform( false ) );
+
+        root.setExtra( new ArrayList<>() );
+        assertFalse( root.needsTransform( true ) );
+        assertTrue( child.needsTransform( false ) );
+
+        // duplicates and parsed trees start out unknown
+        assertTrue( child.duplicate().needsTransform( false ) );
+        assertTrue( ComponentSerializer.deserialize( ComponentSerializer.toString( child ) ).needsTransform( false ) );
+    }
+
+    @Test
+    public void testFrozen()
+    {
+        BaseComponent original = new ComponentBuilder( "Hello " ).color( RED ).bold( true )
+                .append( "world" ).color( GOLD ).event( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( "hover" ) ) )
+                .build();
+        String json = ComponentSerializer.toString( original );
+        FrozenComponent frozen = FrozenComponent.of( original );
+        assertSame( frozen, FrozenComponent.of( frozen ) );
+
+        assertEquals( json, frozen.getJson() );
+        assertEquals( json, ComponentSerializer.toString( frozen ) );
+        assertEquals( json, ComponentSerializer.toJson( frozen ).toString() );
+        assertEquals( original.toLegacyText(), frozen.toLegacyText() );
+        assertEquals( original.toPlainText(), frozen.toPlainText() );
+
+        // later changes to the original do not leak in
+        original.addExtra( "!" );
+        assertEquals( json, ComponentSerializer.toString( frozen ) );
+        assertThrows( UnsupportedOperationException.class, () -> frozen.setColor( BLUE ) );
+        assertThrows( UnsupportedOperationException.class, () -> frozen.addExtra( "!" ) );
+        assertThrows( UnsupportedOperationException.class, () -> frozen.getExtra().clear() );
+        assertThrows( UnsupportedOperationException.class, () -> frozen.getExtra().get( 0 ).setColor( BLUE ) );
+        assertSame( frozen.getExtra(), frozen.getExtra() );
+
+        // duplicates can be changed again
+        BaseComponent duplicate = frozen.duplicate();
+        duplicate.addExtra( "!" );
+        assertEquals( json, frozen.getJson() );
+
+        // as an extra it serializes like the component it was made from
+        TextComponent parent = new TextComponent( "a" );
+        parent.addExtra( frozen );
+        assertEquals( "{\"extra\":[" + json + "],\"text\":\"a\"}", ComponentSerializer.toString( parent ) );
+        assertTrue( parent.needsTransform( true ) );
+        assertFalse( parent.needsTransform( false ) );
+
+        int[] calls = new int[ 1 ];
+        byte[] encoded = frozen.getEncoded( 0, (component) -> new byte[]
+        {
+            (byte) ++calls[0]
+        } );
+        assertSame( encoded, frozen.getEncoded( 0, (component) -> new byte[ 0 ] ) );
+        assertEquals( 1, calls[0] );
+    }
+
     /*
      * In legacy chat, colors and reset both reset all formatting.
      * Make sure it works in combination with ComponentBuilder.
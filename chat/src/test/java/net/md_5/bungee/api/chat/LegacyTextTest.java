@@ -0,0 +1,205 @@
+package net.md_5.bungee.api.chat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+public class LegacyTextTest
+{
+
+    private static final Pattern url = Pattern.compile( "^(?:(https?)://)?([-\\w_\\.]{2,}\\.[a-z]{2,4})(/\\S*)?$" );
+
+    private static final String[] PARTS = new String[]
+    {
+        "hello", " ", "  ", "world", "\u00a7", "\u00a7a", "\u00a7L", "\u00a7r", "\u00a7k", "\u00a7z", "&", "&c", "&X", "&&", "\u00a7x\u00a7f\u00a7f\u00a70\u00a70\u00a71\u00a72",
+        "\u00a7x\u00a7g\u00a7f\u00a70\u00a70\u00a71\u00a72", "&x&1&2&3&4&5&6", "example.com", "http://example.com/path?q=1", "https://a.bc", "x.y", "a.b.c.d.museum",
+        "(www.test.org)", "...", ".", "1.5", "\u00e9", "bungee.md_5.net/\u00a7cred", "ws://no.link", ":"
+    };
+
+    @Test
+    public void testParity()
+    {
+        Random random = new Random( 7 );
+        for ( int i = 0; i < 5000; i++ )
+        {
+            StringBuilder message = new StringBuilder();
+            int parts = random.nextInt( 12 );
+            for ( int j = 0; j < parts; j++ )
+            {
+                message.append( PARTS[random.nextInt( PARTS.length )] );
+            }
+            String legacy = ChatColor.translateAlternateColorCodes( '&', message.toString() );
+            assertEquals( referenceTranslate( '&', message.toString() ), legacy );
+
+            ChatColor defaultColor = random.nextBoolean() ? ChatColor.WHITE : ChatColor.GRAY;
+            ComponentBuilder expected = new ComponentBuilder();
+            referenceParse( legacy, defaultColor, expected::append );
+            assertEquals( ComponentSerializer.toString( expected.build() ), ComponentSerializer.toString( TextComponent.fromLegacy( legacy, defaultColor ) ) );
+
+            List<BaseComponent> array = new ArrayList<>();
+            referenceParse( legacy, defaultColor, array::add );
+            assertEquals( ComponentSerializer.toString( array.toArray( new BaseComponent[ 0 ] ) ), ComponentSerializer.toString( TextComponent.fromLegacyText( legacy, defaultColor ) ) );
+        }
+    }
+
+    @Test
+    public void testCachedCopies()
+    {
+        String message = ChatColor.translateAlternateColorCodes( '&', "&6[Alert] &fServer restarting, see example.com" );
+        BaseComponent first = TextComponent.fromLegacy( message );
+        BaseComponent second = TextComponent.fromLegacy( message );
+        assertEquals( first, second );
+        assertNotSame( first, second );
+        assertNotSame( first.getExtra().get( 0 ), second.getExtra().get( 0 ) );
+
+        first.getExtra().get( 0 ).setColor( ChatColor.RED );
+        first.addExtra( "changed" );
+        assertEquals( second, TextComponent.fromLegacy( message ) );
+    }
+
+    @Test
+    public void testTranslateUnchanged()
+    {
+        String message = "no codes here";
+        assertSame( message, ChatColor.translateAlternateColorCodes( '&', message ) );
+        assertEquals( "trailing &", ChatColor.translateAlternateColorCodes( '&', "trailing &" ) );
+    }
+
+    private static String referenceTranslate(char altColorChar, String textToTranslate)
+    {
+        char[] b = textToTranslate.toCharArray();
+        for ( int i = 0; i < b.length - 1; i++ )
+        {
+            if ( b[i] == altColorChar && ChatColor.ALL_CODES.indexOf( b[i + 1] ) > -1 )
+            {
+                b[i] = ChatColor.COLOR_CHAR;
+                b[i + 1] = Character.toLowerCase( b[i + 1] );
+            }
+        }
+        return new String( b );
+    }
+
+    /**
+     * The parser as it was before the single pass version, used as reference.
+     */
+    private static void referenceParse(String message, ChatColor defaultColor, Consumer<BaseComponent> appender)
+    {
+        StringBuilder builder = new StringBuilder();
+        TextComponent component = new TextComponent();
+        Matcher matcher = url.matcher( message );
+
+        for ( int i = 0; i < message.length(); i++ )
+        {
+            char c = message.charAt( i );
+            if ( c == ChatColor.COLOR_CHAR )
+            {
+                if ( ++i >= message.length() )
+                {
+                    break;
+                }
+                c = message.charAt( i );
+                if ( c >= 'A' && c <= 'Z' )
+                {
+                    c += 32;
+                }
+                ChatColor format;
+                if ( c == 'x' && i + 12 < message.length() )
+                {
+                    StringBuilder hex = new StringBuilder( "#" );
+                    for ( int j = 0; j < 6; j++ )
+                    {
+                        hex.append( message.charAt( i + 2 + ( j * 2 ) ) );
+                    }
+                    try
+                    {
+                        format = ChatColor.of( hex.toString() );
+                    } catch ( IllegalArgumentException ex )
+                    {
+                        format = null;
+                    }
+
+                    i += 12;
+                } else
+                {
+                    format = ChatColor.getByChar( c );
+                }
+                if ( format == null )
+                {
+                    continue;
+                }
+                if ( builder.length() > 0 )
+                {
+                    TextComponent old = component;
+                    component = new TextComponent( old );
+                    old.setText( builder.toString() );
+                    builder = new StringBuilder();
+                    appender.accept( old );
+                }
+                if ( format == ChatColor.BOLD )
+                {
+                    component.setBold( true );
+                } else if ( format == ChatColor.ITALIC )
+                {
+                    component.setItalic( true );
+                } else if ( format == ChatColor.UNDERLINE )
+                {
+                    component.setUnderlined( true );
+                } else if ( format == ChatColor.STRIKETHROUGH )
+                {
+                    component.setStrikethrough( true );
+                } else if ( format == ChatColor.MAGIC )
+                {
+                    component.setObfuscated( true );
+                } else
+                {
+                    if ( format == ChatColor.RESET )
+                    {
+                        format = defaultColor;
+                    }
+                    component = new TextComponent();
+                    component.setColor( format );
+                    component.setReset( true );
+                }
+                continue;
+            }
+            int pos = message.indexOf( ' ', i );
+            if ( pos == -1 )
+            {
+                pos = message.length();
+            }
+            if ( matcher.region( i, pos ).find() )
+            {
+                if ( builder.length() > 0 )
+                {
+                    TextComponent old = component;
+                    component = new TextComponent( old );
+                    old.setText( builder.toString() );
+                    builder = new StringBuilder();
+                    appender.accept( old );
+                }
+
+                TextComponent old = component;
+                component = new TextComponent( old );
+                String urlString = message.substring( i, pos );
+                component.setText( urlString );
+                component.setClickEvent( new ClickEvent( ClickEvent.Action.OPEN_URL,
+                        urlString.startsWith( "http" ) ? urlString : "http://" + urlString ) );
+                appender.accept( component );
+                i += pos - i - 1;
+                component = old;
+                continue;
+            }
+            builder.append( c );
+        }
+
+        component.setText( builder.toString() );
+        appender.accept( component );
+    }
+}
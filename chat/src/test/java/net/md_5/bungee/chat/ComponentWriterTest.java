@@ -0,0 +1,261 @@
+package net.md_5.bungee.chat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.util.Random;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.ItemTag;
+import net.md_5.bungee.api.chat.KeybindComponent;
+import net.md_5.bungee.api.chat.ScoreComponent;
+import net.md_5.bungee.api.chat.SelectorComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.TranslatableComponent;
+import net.md_5.bungee.api.chat.hover.content.Entity;
+import net.md_5.bungee.api.chat.hover.content.Item;
+import net.md_5.bungee.api.chat.hover.content.Text;
+import org.junit.jupiter.api.Test;
+
+public class ComponentWriterTest
+{
+
+    private static final String[] STRINGS = new String[]
+    {
+        "", "hello", "a \"quoted\" \\ path", "<b>&amp;</b> = 'x'", "tab\tnew\nline\r\f\b", "\u0000\u001f\u007f",
+        "\u00e9\u4e16\u754c", "\u2028\u2029", "\ud83d\ude00", "\ud800", "minecraft:stone"
+    };
+
+    @Test
+    public void testWriterParity()
+    {
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            BaseComponent component = randomComponent( random, 0 );
+            assertEquals( ComponentSerializer.toString( (Object) component ), ComponentWriter.toString( component ) );
+        }
+    }
+
+    @Test
+    public void testReaderParity()
+    {
+        Random random = new Random( 1337 );
+        int read = 0;
+        for ( int i = 0; i < 2000; i++ )
+        {
+            String json = ComponentSerializer.toString( (Object) randomComponent( random, 0 ) );
+            BaseComponent expected = ComponentSerializer.deserialize( JsonParser.parseString( json ) );
+            assertSameTree( expected, ComponentSerializer.deserialize( json ) );
+            try
+            {
+                assertSameTree( expected, ComponentReader.read( json ) );
+                read++;
+            } catch ( ComponentReader.Unsupported ex )
+            {
+                // item and entity hovers are left to Gson
+            }
+        }
+        assertTrue( read > 1000, "read " + read );
+    }
+
+    @Test
+    public void testReaderFallback()
+    {
+        String[] inputs = new String[]
+        {
+            "\"plain\"", "true", "[\"a\",{\"text\":\"b\"}]", "[]", " { \"text\" : \"spaced\" } ",
+            "{\"text\":\"x\",\"bold\":1}", "{\"text\":\"x\",\"bold\":\"true\"}", "{\"text\":7}", "{\"text\":\"x\",\"unknown\":[1,null,{\"a\":-2.5e3}]}",
+            "{\"text\":\"x\",\"hoverEvent\":{\"action\":\"show_item\",\"contents\":{\"id\":\"minecraft:stone\",\"Count\":3}}}",
+            "{\"text\":\"x\",\"hoverEvent\":{\"action\":\"show_text\",\"contents\":[\"a\",{\"text\":\"b\"},[\"c\"]]}}",
+            "{\"text\":\"x\",\"clickEvent\":{\"action\":\"run_command\"}}", "{text:'lenient'}", "{\"text\":\"\\u00e9\\/\"}",
+            "{\"score\":{\"name\":\"n\",\"objective\":\"o\",\"value\":\"\"}}", "{\"selector\":\"@a\",\"separator\":\"{\\\"text\\\":\\\", \\\"}\"}"
+        };
+        for ( String json : inputs )
+        {
+            assertSameTree( ComponentSerializer.deserialize( JsonParser.parseString( json ) ), ComponentSerializer.deserialize( json ) );
+            assertEquals( ComponentSerializer.toString( (Object) gsonParse( json ) ), ComponentSerializer.toString( (Object) ComponentSerializer.parse( json ) ) );
+        }
+    }
+
+    @Test
+    public void testReaderErrors()
+    {
+        String[] inputs = new String[]
+        {
+            "{\"translate\":null}", "{\"text\":\"x\",\"clickEvent\":{\"action\":\"nope\"}}", "{\"score\":{\"name\":\"n\"}}", "[[\"nested\"]]", "{\"text\":\"x\",\"color\":\"#nothex\"}"
+        };
+        for ( String json : inputs )
+        {
+            Class<? extends Throwable> expected = assertThrows( RuntimeException.class, () -> ComponentSerializer.deserialize( JsonParser.parseString( json ) ) ).getClass();
+            assertThrows( expected, () -> ComponentSerializer.deserialize( json ) );
+        }
+    }
+
+    @Test
+    public void testLoop()
+    {
+        TextComponent component = new TextComponent( "loop" );
+        TextComponent child = new TextComponent( "child" );
+        component.addExtra( child );
+        child.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( new BaseComponent[]
+        {
+            component
+        } ) ) );
+        assertThrows( IllegalArgumentException.class, () -> ComponentWriter.toString( component ) );
+
+        // the same component twice side by side is not a loop
+        TextComponent shared = new TextComponent( "shared" );
+        TextComponent parent = new TextComponent( shared, shared );
+        assertEquals( ComponentSerializer.toString( (Object) parent ), ComponentWriter.toString( parent ) );
+    }
+
+    private static BaseComponent[] gsonParse(String json)
+    {
+        JsonElement element = JsonParser.parseString( json );
+        if ( !element.isJsonArray() )
+        {
+            return new BaseComponent[]
+            {
+                ComponentSerializer.deserialize( element )
+            };
+        }
+        JsonArray array = element.getAsJsonArray();
+        BaseComponent[] components = new BaseComponent[ array.size() ];
+        for ( int i = 0; i < components.length; i++ )
+        {
+            components[i] = ComponentSerializer.deserialize( array.get( i ) );
+        }
+        return components;
+    }
+
+    private static void assertSameTree(BaseComponent expected, BaseComponent actual)
+    {
+        assertEquals( expected.getClass(), actual.getClass() );
+        // Text contents do not implement equals, compare what Gson makes of both
+        assertEquals( ComponentSerializer.toString( (Object) expected ), ComponentSerializer.toString( (Object) actual ) );
+        assertEquals( expected.toLegacyText(), actual.toLegacyText() );
+    }
+
+    private static String string(Random random)
+    {
+        return STRINGS[random.nextInt( STRINGS.length )];
+    }
+
+    private static BaseComponent randomComponent(Random random, int depth)
+    {
+        BaseComponent component;
+        switch ( random.nextInt( 5 ) )
+        {
+            case 0:
+                TranslatableComponent translatable = new TranslatableComponent( string( random ) );
+                if ( depth < 3 && random.nextBoolean() )
+                {
+                    translatable.addWith( randomComponent( random, depth + 1 ) );
+                    translatable.addWith( string( random ) );
+                }
+                if ( random.nextBoolean() )
+                {
+                    translatable.setFallback( string( random ) );
+                }
+                component = translatable;
+                break;
+            case 1:
+                component = new KeybindComponent( string( random ) );
+                break;
+            case 2:
+                ScoreComponent score = new ScoreComponent( string( random ), string( random ) );
+                if ( random.nextBoolean() )
+                {
+                    score.setValue( "v" + string( random ) );
+                }
+                component = score;
+                break;
+            case 3:
+                SelectorComponent selector = new SelectorComponent( string( random ) );
+                if ( depth < 3 && random.nextBoolean() )
+                {
+                    selector.setSeparator( randomComponent( random, depth + 1 ) );
+                }
+                component = selector;
+                break;
+            default:
+                component = new TextComponent( string( random ) );
+        }
+
+        if ( random.nextInt( 3 ) == 0 )
+        {
+            component.setBold( random.nextBoolean() );
+        }
+        if ( random.nextInt( 3 ) == 0 )
+        {
+            component.setItalic( random.nextBoolean() );
+        }
+        if ( random.nextInt( 4 ) == 0 )
+        {
+            component.setUnderlined( random.nextBoolean() );
+            component.setStrikethrough( random.nextBoolean() );
+            component.setObfuscated( random.nextBoolean() );
+        }
+        if ( random.nextInt( 3 ) == 0 )
+        {
+            component.setColor( random.nextBoolean() ? ChatColor.GOLD : ChatColor.of( "#12ab" + random.nextInt( 10 ) + "f" ) );
+        }
+        if ( random.nextInt( 5 ) == 0 )
+        {
+            component.setFont( string( random ) );
+        }
+        if ( random.nextInt( 5 ) == 0 )
+        {
+            component.setInsertion( string( random ) );
+        }
+        if ( random.nextInt( 4 ) == 0 )
+        {
+            ClickEvent.Action[] actions = ClickEvent.Action.values();
+            component.setClickEvent( new ClickEvent( actions[random.nextInt( actions.length )], string( random ) ) );
+        }
+        if ( random.nextInt( 3 ) == 0 )
+        {
+            component.setHoverEvent( randomHover( random, depth ) );
+        }
+        if ( depth < 3 && random.nextInt( 3 ) == 0 )
+        {
+            int count = random.nextInt( 4 );
+            for ( int i = 0; i < count; i++ )
+            {
+                component.addExtra( randomComponent( random, depth + 1 ) );
+            }
+        }
+        if ( depth > 0 && random.nextInt( 10 ) == 0 )
+        {
+            component = FrozenComponent.of( component );
+        }
+        return component;
+    }
+
+    private static HoverEvent randomHover(Random random, int depth)
+    {
+        switch ( random.nextInt( 5 ) )
+        {
+            case 0:
+                return new HoverEvent( HoverEvent.Action.SHOW_ITEM, new Item( string( random ), random.nextInt( 3 ) - 1, random.nextBoolean() ? ItemTag.ofNbt( "{a:\"" + string( random ) + "\"}" ) : null ) );
+            case 1:
+                return new HoverEvent( HoverEvent.Action.SHOW_ENTITY, new Entity( random.nextBoolean() ? null : string( random ), string( random ),
+                        depth < 3 && random.nextBoolean() ? randomComponent( random, depth + 1 ) : null ) );
+            case 2:
+                return new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( string( random ) ), new Text( string( random ) ) );
+            case 3:
+                // legacy value form
+                return new HoverEvent( HoverEvent.Action.SHOW_TEXT, new BaseComponent[]
+                {
+                    depth < 3 ? randomComponent( random, depth + 1 ) : new TextComponent( string( random ) )
+                } );
+            default:
+                return new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( depth < 3 ? randomComponent( random, depth + 1 ) : new TextComponent( string( random ) ) ) );
+        }
+    }
+}
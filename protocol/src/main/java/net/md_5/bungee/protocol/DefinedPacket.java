@@ -6,6 +6,8 @@ import com.google.gson.JsonElement;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -20,7 +22,9 @@ import java.util.function.BiConsumer;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.api.chat.BaseComponent;
 import net.md_5.bungee.api.chat.ComponentStyle;
+import net.md_5.bungee.api.chat.FrozenComponent;
 import net.md_5.bungee.chat.ComponentSerializer;
+import net.md_5.bungee.chat.ComponentWriter;
 import se.llbit.nbt.ErrorTag;
 import se.llbit.nbt.NamedTag;
 import se.llbit.nbt.SpecificTag;
@@ -48,6 +52,17 @@ public abstract class DefinedPacket
     }
 
     public static final boolean PROCESS_TRACES = Boolean.getBoolean("waterfall.bad-packet-traces");
+    /**
+     * Wire formats remembered by {@link FrozenComponent}: a string before 1.20.3, NBT since.
+     */
+    private static final int FROZEN_JSON = 0;
+    private static final int FROZEN_NBT = 1;
+    /**
+     * Builder the JSON of components is written into before it is copied to the
+     * buffer, dropped again once a large component made it grow past this size.
+     */
+    private static final int MAX_CACHED_JSON = 8192;
+    private static final ThreadLocal<StringBuilder> JSON_BUILDER = ThreadLocal.withInitial( () -> new StringBuilder( 256 ) );
     private static final OverflowPacketException OVERSIZED_VAR_INT_EXCEPTION = new OverflowPacketException( "VarInt too big" );
     private static final BadPacketException NO_MORE_BYTES_EXCEPTION = new BadPacketException("No more bytes reading varint");
     public static void writeString(String s, ByteBuf buf)
@@ -112,10 +127,7 @@ public abstract class DefinedPacket
     {
         if ( protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3 )
         {
-            SpecificTag nbt = (SpecificTag) readTag( buf, protocolVersion );
-            JsonElement json = TagUtil.toJson( nbt );
-
-            return ComponentSerializer.deserialize( json );
+            return NbtComponentCodec.read( buf );
         } else
         {
             String string = readString( buf, maxStringLength );
@@ -145,18 +157,63 @@ public abstract class DefinedPacket
 
     public static void writeBaseComponent(BaseComponent message, ByteBuf buf, int protocolVersion)
     {
-        if ( protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3 )
+        if ( message instanceof FrozenComponent )
         {
-            JsonElement json = ComponentSerializer.toJson( message );
-            SpecificTag nbt = TagUtil.fromJson( json );
+            boolean nbt = protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3;
+            buf.writeBytes( ( (FrozenComponent) message ).getEncoded( nbt ? FROZEN_NBT : FROZEN_JSON, nbt ? DefinedPacket::encodeNbt : DefinedPacket::encodeJson ) );
+            return;
+        }
 
-            writeTag( nbt, buf, protocolVersion );
+        if ( protocolVersion >= ProtocolConstants.MINECRAFT_1_20_3 )
+        {
+            NbtComponentCodec.write( message, buf );
         } else
         {
-            String string = ComponentSerializer.toString( message );
+            StringBuilder json = JSON_BUILDER.get();
+            json.setLength( 0 );
+            try
+            {
+                ComponentWriter.write( message, json );
+                writeString( json, buf, Short.MAX_VALUE );
+            } finally
+            {
+                if ( json.capacity() > MAX_CACHED_JSON )
+                {
+                    JSON_BUILDER.remove();
+                }
+            }
+        }
+    }
+
+    private static void writeString(CharSequence s, ByteBuf buf, int maxLength)
+    {
+        if ( s.length() > maxLength )
+        {
+            throw new OverflowPacketException( "Cannot send string longer than " + maxLength + " (got " + s.length() + " characters)" );
+        }
 
-            writeString( string, buf );
+        int length = ByteBufUtil.utf8Bytes( s );
+        if ( length > maxLength * 3 )
+        {
+            throw new OverflowPacketException( "Cannot send string longer than " + ( maxLength * 3 ) + " (got " + length + " bytes)" );
         }
+
+        writeVarInt( length, buf );
+        ByteBufUtil.writeUtf8( buf, s );
+    }
+
+    private static byte[] encodeJson(FrozenComponent component)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        writeString( component.getJson(), buf );
+        return ByteBufUtil.getBytes( buf );
+    }
+
+    private static byte[] encodeNbt(FrozenComponent component)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        NbtComponentCodec.write( component, buf );
+        return ByteBufUtil.getBytes( buf );
     }
 
     public static void writeComponentStyle(ComponentStyle style, ByteBuf buf, int protocolVersion)
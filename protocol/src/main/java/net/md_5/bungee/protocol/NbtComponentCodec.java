@@ -0,0 +1,878 @@
+package net.md_5.bungee.protocol;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.ComponentStyle;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.KeybindComponent;
+import net.md_5.bungee.api.chat.ScoreComponent;
+import net.md_5.bungee.api.chat.SelectorComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.TranslatableComponent;
+import net.md_5.bungee.api.chat.hover.content.Content;
+import net.md_5.bungee.api.chat.hover.content.Entity;
+import net.md_5.bungee.api.chat.hover.content.Item;
+import net.md_5.bungee.api.chat.hover.content.Text;
+import net.md_5.bungee.chat.ComponentSerializer;
+import se.llbit.nbt.SpecificTag;
+import se.llbit.nbt.Tag;
+
+/**
+ * Reads and writes components as network NBT (1.20.3 and up) directly on the
+ * buffer, without going through a Gson tree and a {@link SpecificTag} tree.
+ * <p>
+ * The bytes written and the components read are the same as those of
+ * {@link TagUtil} combined with {@link ComponentSerializer}. Shapes this class
+ * does not handle, such as unknown component types, string lists or item and
+ * entity hovers on read, are handed back to that path, so its output and its
+ * exceptions are kept.
+ */
+final class NbtComponentCodec
+{
+
+    /**
+     * Thrown when the component has to take the tree based path.
+     */
+    private static final class Unsupported extends RuntimeException
+    {
+
+        private static final Unsupported INSTANCE = new Unsupported();
+
+        private Unsupported()
+        {
+            super( null, null, false, false );
+        }
+    }
+    //
+    private final ByteBuf buf;
+    private BaseComponent[] path;
+    private int depth;
+
+    private NbtComponentCodec(ByteBuf buf)
+    {
+        this.buf = buf;
+    }
+
+    /**
+     * Same as {@code writeTag( TagUtil.fromJson( ComponentSerializer.toJson( component ) ), buf, protocolVersion )}.
+     */
+    static void write(BaseComponent component, ByteBuf buf)
+    {
+        int start = buf.writerIndex();
+        try
+        {
+            buf.writeByte( Tag.TAG_COMPOUND );
+            new NbtComponentCodec( buf ).compound( component );
+        } catch ( Unsupported ex )
+        {
+            buf.writerIndex( start );
+            DefinedPacket.writeTag( TagUtil.fromJson( ComponentSerializer.toJson( component ) ), buf, ProtocolConstants.MINECRAFT_1_20_3 );
+        } catch ( RuntimeException ex )
+        {
+            buf.writerIndex( start );
+            throw ex;
+        }
+    }
+
+    /**
+     * Same as {@code ComponentSerializer.deserialize( TagUtil.toJson( (SpecificTag) readTag( buf, protocolVersion ) ) )}.
+     */
+    static BaseComponent read(ByteBuf buf)
+    {
+        int start = buf.readerIndex();
+        try
+        {
+            NbtComponentCodec codec = new NbtComponentCodec( buf );
+            int type = buf.readByte();
+            switch ( type )
+            {
+                case Tag.TAG_STRING:
+                    return new TextComponent( codec.readString() );
+                case Tag.TAG_COMPOUND:
+                    return codec.readCompound( false );
+                case Tag.TAG_LIST:
+                    return TextComponent.fromArray( codec.readComponents( type ) );
+                default:
+                    throw unsupported();
+            }
+        } catch ( RuntimeException ex )
+        {
+            buf.readerIndex( start );
+        }
+
+        SpecificTag nbt = (SpecificTag) DefinedPacket.readTag( buf, ProtocolConstants.MINECRAFT_1_20_3 );
+        return ComponentSerializer.deserialize( TagUtil.toJson( nbt ) );
+    }
+
+    private static Unsupported unsupported()
+    {
+        return Unsupported.INSTANCE;
+    }
+
+    /*========================================================================*/
+    private void compound(BaseComponent component)
+    {
+        if ( component instanceof FrozenComponent )
+        {
+            component = ( (FrozenComponent) component ).getComponent();
+        }
+        Class<?> type = ( component == null ) ? null : component.getClass();
+        if ( type != TextComponent.class && type != TranslatableComponent.class && type != KeybindComponent.class
+                && type != ScoreComponent.class && type != SelectorComponent.class )
+        {
+            throw unsupported();
+        }
+        enter( component );
+
+        ComponentStyle style = component.getStyle();
+        writeBoolean( "bold", style.isBoldRaw() );
+        writeBoolean( "italic", style.isItalicRaw() );
+        writeBoolean( "underlined", style.isUnderlinedRaw() );
+        writeBoolean( "strikethrough", style.isStrikethroughRaw() );
+        writeBoolean( "obfuscated", style.isObfuscatedRaw() );
+        if ( style.hasColor() && style.getColor().getColor() != null )
+        {
+            writeString( "color", style.getColor().getName() );
+        }
+        if ( style.hasFont() )
+        {
+            writeString( "font", style.getFont() );
+        }
+        writeString( "insertion", component.getInsertion() );
+
+        ClickEvent clickEvent = component.getClickEvent();
+        if ( clickEvent != null )
+        {
+            name( Tag.TAG_COMPOUND, "clickEvent" );
+            writeString( "action", clickEvent.getAction().toString().toLowerCase( Locale.ROOT ) );
+            writeString( "value", clickEvent.getValue() );
+            buf.writeByte( Tag.TAG_END );
+        }
+        HoverEvent hoverEvent = component.getHoverEvent();
+        if ( hoverEvent != null )
+        {
+            name( Tag.TAG_COMPOUND, "hoverEvent" );
+            writeString( "action", hoverEvent.getAction().toString().toLowerCase( Locale.ROOT ) );
+            List<Content> contents = hoverEvent.getContents();
+            if ( !hoverEvent.isLegacy() && contents.size() != 1 )
+            {
+                throw unsupported();
+            }
+            writeContent( hoverEvent.isLegacy() ? "value" : "contents", contents.get( 0 ) );
+            buf.writeByte( Tag.TAG_END );
+        }
+        if ( component.getExtra() != null )
+        {
+            writeComponents( "extra", component.getExtra() );
+        }
+
+        if ( type == TextComponent.class )
+        {
+            writeString( "text", ( (TextComponent) component ).getText() );
+        } else if ( type == TranslatableComponent.class )
+        {
+            TranslatableComponent translatable = (TranslatableComponent) component;
+            writeString( "translate", translatable.getTranslate() );
+            if ( translatable.getWith() != null )
+            {
+                writeComponents( "with", translatable.getWith() );
+            }
+            writeString( "fallback", translatable.getFallback() );
+        } else if ( type == KeybindComponent.class )
+        {
+            writeString( "keybind", ( (KeybindComponent) component ).getKeybind() );
+        } else if ( type == ScoreComponent.class )
+        {
+            ScoreComponent score = (ScoreComponent) component;
+            name( Tag.TAG_COMPOUND, "score" );
+            writeString( "name", score.getName() );
+            writeString( "objective", score.getObjective() );
+            writeString( "value", score.getValue() );
+            buf.writeByte( Tag.TAG_END );
+        } else
+        {
+            SelectorComponent selector = (SelectorComponent) component;
+            writeString( "selector", selector.getSelector() );
+            if ( selector.getSeparator() != null )
+            {
+                // embedded as JSON, like the serializer does
+                writeString( "separator", ComponentSerializer.toString( selector.getSeparator() ) );
+            }
+        }
+        buf.writeByte( Tag.TAG_END );
+        depth--;
+    }
+
+    private void enter(BaseComponent component)
+    {
+        if ( path == null )
+        {
+            path = new BaseComponent[ 8 ];
+        }
+        for ( int i = 0; i < depth; i++ )
+        {
+            if ( path[i] == component )
+            {
+                throw new IllegalArgumentException( "Component loop" );
+            }
+        }
+        if ( depth == path.length )
+        {
+            path = Arrays.copyOf( path, depth * 2 );
+        }
+        path[depth++] = component;
+    }
+
+    private void writeComponents(String name, List<BaseComponent> components)
+    {
+        name( Tag.TAG_LIST, name );
+        buf.writeByte( components.isEmpty() ? Tag.TAG_END : Tag.TAG_COMPOUND );
+        buf.writeInt( components.size() );
+        for ( BaseComponent component : components )
+        {
+            compound( component );
+        }
+    }
+
+    private void writeContent(String name, Content content)
+    {
+        if ( content == null )
+        {
+            throw unsupported();
+        }
+        if ( content.getClass() == Text.class )
+        {
+            Object value = ( (Text) content ).getValue();
+            if ( value instanceof BaseComponent[] )
+            {
+                writeComponents( name, Arrays.asList( (BaseComponent[]) value ) );
+            } else if ( value instanceof String )
+            {
+                writeString( name, (String) value );
+            } else
+            {
+                throw unsupported();
+            }
+        } else if ( content.getClass() == Item.class )
+        {
+            Item item = (Item) content;
+            name( Tag.TAG_COMPOUND, name );
+            writeString( "id", ( item.getId() == null ) ? "minecraft:air" : item.getId() );
+            if ( item.getCount() != -1 )
+            {
+                name( Tag.TAG_INT, "Count" );
+                buf.writeInt( item.getCount() );
+            }
+            if ( item.getTag() != null )
+            {
+                if ( item.getTag().getNbt() == null )
+                {
+                    throw unsupported();
+                }
+                writeString( "tag", item.getTag().getNbt() );
+            }
+            buf.writeByte( Tag.TAG_END );
+        } else if ( content.getClass() == Entity.class )
+        {
+            Entity entity = (Entity) content;
+            name( Tag.TAG_COMPOUND, name );
+            writeString( "type", ( entity.getType() != null ) ? entity.getType() : "minecraft:pig" );
+            writeString( "id", entity.getId() );
+            if ( entity.getName() != null )
+            {
+                name( Tag.TAG_COMPOUND, "name" );
+                compound( entity.getName() );
+            }
+            buf.writeByte( Tag.TAG_END );
+        } else
+        {
+            throw unsupported();
+        }
+    }
+
+    private void writeBoolean(String name, Boolean value)
+    {
+        if ( value != null )
+        {
+            name( Tag.TAG_BYTE, name );
+            buf.writeByte( value ? 1 : 0 );
+        }
+    }
+
+    private void writeString(String name, String value)
+    {
+        if ( value != null )
+        {
+            name( Tag.TAG_STRING, name );
+            writeUtf( value );
+        }
+    }
+
+    private void name(int type, String name)
+    {
+        buf.writeByte( type );
+        buf.writeShort( name.length() );
+        buf.writeCharSequence( name, StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Writes a string in the modified UTF-8 of {@link java.io.DataOutput#writeUTF(String)}.
+     */
+    private void writeUtf(String value)
+    {
+        int length = value.length();
+        int bytes = length;
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            if ( c >= 0x800 )
+            {
+                bytes += 2;
+            } else if ( c >= 0x80 || c == 0 )
+            {
+                bytes++;
+            }
+        }
+        if ( bytes > 0xFFFF )
+        {
+            throw unsupported();
+        }
+
+        buf.writeShort( bytes );
+        if ( bytes == length )
+        {
+            buf.writeCharSequence( value, StandardCharsets.US_ASCII );
+            return;
+        }
+        buf.ensureWritable( bytes );
+        for ( int i = 0; i < length; i++ )
+        {
+            char c = value.charAt( i );
+            if ( c != 0 && c < 0x80 )
+            {
+                buf.writeByte( c );
+            } else if ( c < 0x800 )
+            {
+                buf.writeByte( 0xC0 | ( c >> 6 ) );
+                buf.writeByte( 0x80 | ( c & 0x3F ) );
+            } else
+            {
+                buf.writeByte( 0xE0 | ( c >> 12 ) );
+                buf.writeByte( 0x80 | ( ( c >> 6 ) & 0x3F ) );
+                buf.writeByte( 0x80 | ( c & 0x3F ) );
+            }
+        }
+    }
+
+    /*========================================================================*/
+    /**
+     * Reads the body of a compound as a component.
+     *
+     * @param element whether the compound is a list element, where a compound
+     * holding only an entry named "" stands for that entry's value
+     */
+    private BaseComponent readCompound(boolean element)
+    {
+        Boolean bold = null, italic = null, underlined = null, strikethrough = null, obfuscated = null;
+        String color = null, font = null, insertion = null;
+        ClickEvent clickEvent = null;
+        HoverEvent hoverEvent = null;
+        BaseComponent[] extra = null;
+        String text = null, translate = null, fallback = null, keybind = null, selector = null, separator = null;
+        BaseComponent[] with = null;
+        boolean score = false;
+        String scoreName = null, scoreObjective = null, scoreValue = null;
+
+        boolean first = true;
+        int type;
+        while ( ( type = buf.readByte() ) != Tag.TAG_END )
+        {
+            String key = readString();
+            if ( first && element && key.isEmpty() )
+            {
+                BaseComponent value = readElement( type );
+                if ( buf.readByte() != Tag.TAG_END )
+                {
+                    throw unsupported();
+                }
+                return value;
+            }
+            first = false;
+
+            switch ( key )
+            {
+                case "bold":
+                    bold = readBoolean( type );
+                    break;
+                case "italic":
+                    italic = readBoolean( type );
+                    break;
+                case "underlined":
+                    underlined = readBoolean( type );
+                    break;
+                case "strikethrough":
+                    strikethrough = readBoolean( type );
+                    break;
+                case "obfuscated":
+                    obfuscated = readBoolean( type );
+                    break;
+                case "color":
+                    color = readScalar( type );
+                    break;
+                case "font":
+                    font = readScalar( type );
+                    break;
+                case "insertion":
+                    insertion = readScalar( type );
+                    break;
+                case "clickEvent":
+                    clickEvent = readClickEvent( type );
+                    break;
+                case "hoverEvent":
+                    hoverEvent = readHoverEvent( type );
+                    break;
+                case "extra":
+                    extra = readComponents( type );
+                    break;
+                case "text":
+                    text = readScalar( type );
+                    break;
+                case "translate":
+                    translate = readScalar( type );
+                    break;
+                case "with":
+                    with = readComponents( type );
+                    break;
+                case "fallback":
+                    fallback = readScalar( type );
+                    break;
+                case "keybind":
+                    keybind = readScalar( type );
+                    break;
+                case "selector":
+                    selector = readScalar( type );
+                    break;
+                case "separator":
+                    separator = readScalar( type );
+                    break;
+                case "score":
+                    if ( type != Tag.TAG_COMPOUND )
+                    {
+                        throw unsupported();
+                    }
+                    score = true;
+                    scoreName = scoreObjective = scoreValue = null;
+                    int scoreType;
+                    while ( ( scoreType = buf.readByte() ) != Tag.TAG_END )
+                    {
+                        switch ( readString() )
+                        {
+                            case "name":
+                                scoreName = readScalar( scoreType );
+                                break;
+                            case "objective":
+                                scoreObjective = readScalar( scoreType );
+                                break;
+                            case "value":
+                                scoreValue = readScalar( scoreType );
+                                break;
+                            default:
+                                skip( scoreType );
+                        }
+                    }
+                    break;
+                default:
+                    skip( type );
+            }
+        }
+
+        BaseComponent component;
+        if ( translate != null )
+        {
+            TranslatableComponent translatable = new TranslatableComponent();
+            translatable.setTranslate( translate );
+            if ( with != null )
+            {
+                translatable.setWith( Arrays.asList( with ) );
+            }
+            translatable.setFallback( fallback );
+            component = translatable;
+        } else if ( keybind != null )
+        {
+            component = new KeybindComponent( keybind );
+        } else if ( score )
+        {
+            if ( scoreName == null || scoreObjective == null )
+            {
+                throw unsupported();
+            }
+            ScoreComponent scoreComponent = new ScoreComponent( scoreName, scoreObjective );
+            if ( scoreValue != null && !scoreValue.isEmpty() )
+            {
+                scoreComponent.setValue( scoreValue );
+            }
+            component = scoreComponent;
+        } else if ( selector != null )
+        {
+            SelectorComponent selectorComponent = new SelectorComponent( selector );
+            if ( separator != null )
+            {
+                selectorComponent.setSeparator( ComponentSerializer.deserialize( separator ) );
+            }
+            component = selectorComponent;
+        } else
+        {
+            component = ( text != null ) ? new TextComponent( text ) : new TextComponent();
+        }
+
+        if ( bold != null )
+        {
+            component.setBold( bold );
+        }
+        if ( italic != null )
+        {
+            component.setItalic( italic );
+        }
+        if ( underlined != null )
+        {
+            component.setUnderlined( underlined );
+        }
+        if ( strikethrough != null )
+        {
+            component.setStrikethrough( strikethrough );
+        }
+        if ( obfuscated != null )
+        {
+            component.setObfuscated( obfuscated );
+        }
+        if ( color != null )
+        {
+            component.setColor( ChatColor.of( color ) );
+        }
+        if ( font != null )
+        {
+            component.setFont( font );
+        }
+        if ( insertion != null )
+        {
+            component.setInsertion( insertion );
+        }
+        if ( clickEvent != null )
+        {
+            component.setClickEvent( clickEvent );
+        }
+        if ( hoverEvent != null )
+        {
+            component.setHoverEvent( hoverEvent );
+        }
+        if ( extra != null )
+        {
+            component.setExtra( Arrays.asList( extra ) );
+        }
+        return component;
+    }
+
+    /**
+     * A value where a single component is expected: primitives become text.
+     */
+    private BaseComponent readElement(int type)
+    {
+        if ( type == Tag.TAG_COMPOUND )
+        {
+            return readCompound( false );
+        }
+        return new TextComponent( readScalar( type ) );
+    }
+
+    private BaseComponent[] readComponents(int type)
+    {
+        if ( type != Tag.TAG_LIST )
+        {
+            throw unsupported();
+        }
+        int elementType = buf.readByte();
+        int size = buf.readInt();
+        if ( size < 0 || ( size > 0 && elementType == Tag.TAG_END ) || size > buf.readableBytes() )
+        {
+            throw unsupported();
+        }
+        BaseComponent[] components = new BaseComponent[ size ];
+        for ( int i = 0; i < size; i++ )
+        {
+            components[i] = ( elementType == Tag.TAG_COMPOUND ) ? readCompound( true ) : readElement( elementType );
+        }
+        return components;
+    }
+
+    private ClickEvent readClickEvent(int type)
+    {
+        if ( type != Tag.TAG_COMPOUND )
+        {
+            throw unsupported();
+        }
+        String action = null;
+        String value = "";
+        int entryType;
+        while ( ( entryType = buf.readByte() ) != Tag.TAG_END )
+        {
+            switch ( readString() )
+            {
+                case "action":
+                    action = readScalar( entryType );
+                    break;
+                case "value":
+                    value = readScalar( entryType );
+                    break;
+                default:
+                    skip( entryType );
+            }
+        }
+        if ( action == null )
+        {
+            throw unsupported();
+        }
+        return new ClickEvent( ClickEvent.Action.valueOf( action.toUpperCase( Locale.ROOT ) ), value );
+    }
+
+    private HoverEvent readHoverEvent(int type)
+    {
+        if ( type != Tag.TAG_COMPOUND )
+        {
+            throw unsupported();
+        }
+        String action = null;
+        BaseComponent[] value = null;
+        Text contents = null;
+        int entryType;
+        while ( ( entryType = buf.readByte() ) != Tag.TAG_END )
+        {
+            switch ( readString() )
+            {
+                case "action":
+                    action = readScalar( entryType );
+                    break;
+                case "value":
+                    value = ( entryType == Tag.TAG_LIST ) ? readComponents( entryType ) : new BaseComponent[]
+                    {
+                        readElement( entryType )
+                    };
+                    break;
+                case "contents":
+                    // read as text, only show_text is handled here
+                    if ( entryType == Tag.TAG_COMPOUND )
+                    {
+                        contents = new Text( new BaseComponent[]
+                        {
+                            readCompound( false )
+                        } );
+                    } else if ( entryType == Tag.TAG_LIST )
+                    {
+                        throw unsupported();
+                    } else
+                    {
+                        contents = new Text( readScalar( entryType ) );
+                    }
+                    break;
+                default:
+                    skip( entryType );
+            }
+        }
+
+        if ( action == null )
+        {
+            throw unsupported();
+        }
+        HoverEvent.Action hoverAction = HoverEvent.Action.valueOf( action.toUpperCase( Locale.ROOT ) );
+        if ( value != null )
+        {
+            return new HoverEvent( hoverAction, value );
+        }
+        if ( contents != null )
+        {
+            if ( hoverAction != HoverEvent.Action.SHOW_TEXT )
+            {
+                throw unsupported();
+            }
+            List<Content> list = new ArrayList<>( 1 );
+            list.add( contents );
+            return new HoverEvent( hoverAction, list );
+        }
+        return null;
+    }
+
+    /**
+     * A style flag, bytes are read as booleans and anything else is false.
+     */
+    private boolean readBoolean(int type)
+    {
+        if ( type == Tag.TAG_BYTE )
+        {
+            return buf.readByte() != 0;
+        }
+        skip( type );
+        return false;
+    }
+
+    /**
+     * A value read as a string, numbers are printed like Gson does.
+     */
+    private String readScalar(int type)
+    {
+        switch ( type )
+        {
+            case Tag.TAG_STRING:
+                return readString();
+            case Tag.TAG_BYTE:
+                return Byte.toString( buf.readByte() );
+            case Tag.TAG_SHORT:
+                return Short.toString( buf.readShort() );
+            case Tag.TAG_INT:
+                return Integer.toString( buf.readInt() );
+            case Tag.TAG_LONG:
+                return Long.toString( buf.readLong() );
+            case Tag.TAG_FLOAT:
+                return Float.toString( buf.readFloat() );
+            case Tag.TAG_DOUBLE:
+                return Double.toString( buf.readDouble() );
+            default:
+                throw unsupported();
+        }
+    }
+
+    private void skip(int type)
+    {
+        switch ( type )
+        {
+            case Tag.TAG_BYTE:
+                buf.skipBytes( 1 );
+                break;
+            case Tag.TAG_SHORT:
+                buf.skipBytes( 2 );
+                break;
+            case Tag.TAG_INT:
+            case Tag.TAG_FLOAT:
+                buf.skipBytes( 4 );
+                break;
+            case Tag.TAG_LONG:
+            case Tag.TAG_DOUBLE:
+                buf.skipBytes( 8 );
+                break;
+            case Tag.TAG_BYTE_ARRAY:
+                skipArray( 1 );
+                break;
+            case Tag.TAG_INT_ARRAY:
+                skipArray( 4 );
+                break;
+            case Tag.TAG_LONG_ARRAY:
+                skipArray( 8 );
+                break;
+            case Tag.TAG_STRING:
+                buf.skipBytes( buf.readUnsignedShort() );
+                break;
+            case Tag.TAG_LIST:
+                int elementType = buf.readByte();
+                int size = buf.readInt();
+                if ( size < 0 || ( size > 0 && elementType == Tag.TAG_END ) )
+                {
+                    throw unsupported();
+                }
+                for ( int i = 0; i < size; i++ )
+                {
+                    skip( elementType );
+                }
+                break;
+            case Tag.TAG_COMPOUND:
+                int entryType;
+                while ( ( entryType = buf.readByte() ) != Tag.TAG_END )
+                {
+                    buf.skipBytes( buf.readUnsignedShort() );
+                    skip( entryType );
+                }
+                break;
+            default:
+                throw unsupported();
+        }
+    }
+
+    private void skipArray(int width)
+    {
+        int length = buf.readInt();
+        if ( length < 0 )
+        {
+            throw unsupported();
+        }
+        buf.skipBytes( length * width );
+    }
+
+    /**
+     * Reads a string in the modified UTF-8 of {@link java.io.DataInput#readUTF()}.
+     */
+    private String readString()
+    {
+        int length = buf.readUnsignedShort();
+        int start = buf.readerIndex();
+        int end = start + length;
+        if ( end > buf.writerIndex() )
+        {
+            throw unsupported();
+        }
+
+        int ascii = buf.forEachByte( start, length, b -> b > 0 );
+        if ( ascii == -1 )
+        {
+            String value = buf.toString( start, length, StandardCharsets.US_ASCII );
+            buf.skipBytes( length );
+            return value;
+        }
+
+        char[] chars = new char[ length ];
+        int count = 0;
+        int i = start;
+        while ( i < end )
+        {
+            int a = buf.getByte( i++ ) & 0xFF;
+            if ( a < 0x80 )
+            {
+                chars[count++] = (char) a;
+            } else if ( ( a & 0xE0 ) == 0xC0 )
+            {
+                if ( i >= end )
+                {
+                    throw unsupported();
+                }
+                int b = buf.getByte( i++ );
+                if ( ( b & 0xC0 ) != 0x80 )
+                {
+                    throw unsupported();
+                }
+                chars[count++] = (char) ( ( ( a & 0x1F ) << 6 ) | ( b & 0x3F ) );
+            } else if ( ( a & 0xF0 ) == 0xE0 )
+            {
+                if ( i + 1 >= end )
+                {
+                    throw unsupported();
+                }
+                int b = buf.getByte( i++ );
+                int c = buf.getByte( i++ );
+                if ( ( b & 0xC0 ) != 0x80 || ( c & 0xC0 ) != 0x80 )
+                {
+                    throw unsupported();
+                }
+                chars[count++] = (char) ( ( ( a & 0x0F ) << 12 ) | ( ( b & 0x3F ) << 6 ) | ( c & 0x3F ) );
+            } else
+            {
+                throw unsupported();
+            }
+        }
+        buf.readerIndex( end );
+        return new String( chars, 0, count );
+    }
+}
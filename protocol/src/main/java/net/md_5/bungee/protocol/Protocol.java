@@ -966,7 +966,7 @@ public enum Protocol
             return protocolData.packetMap.containsKey( packet );
         }
 
-        int getId(Class<? extends DefinedPacket> packet, int version)
+        public int getId(Class<? extends DefinedPacket> packet, int version)
         {
 
             ProtocolData protocolData = getProtocolData( version );
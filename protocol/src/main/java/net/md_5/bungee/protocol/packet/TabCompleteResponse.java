@@ -5,7 +5,7 @@ import com.mojang.brigadier.context.StringRange;
 import com.mojang.brigadier.suggestion.Suggestion;
 import com.mojang.brigadier.suggestion.Suggestions;
 import io.netty.buffer.ByteBuf;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -48,7 +48,8 @@ public class TabCompleteResponse extends DefinedPacket
             StringRange range = StringRange.between( start, start + length );
 
             int cnt = readVarInt( buf );
-            List<Suggestion> matches = new LinkedList<>();
+            // every suggestion takes at least two bytes
+            List<Suggestion> matches = new ArrayList<>( Math.min( cnt, buf.readableBytes() ) );
             for ( int i = 0; i < cnt; i++ )
             {
                 String match = readString( buf );
@@ -0,0 +1,45 @@
+package net.md_5.bungee.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import org.junit.jupiter.api.Test;
+
+public class FrozenComponentTest
+{
+
+    private static byte[] write(BaseComponent component, int protocolVersion)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        DefinedPacket.writeBaseComponent( component, buf, protocolVersion );
+        return ByteBufUtil.getBytes( buf );
+    }
+
+    @Test
+    public void testSameBytes()
+    {
+        BaseComponent component = new ComponentBuilder( "Welcome to " ).color( ChatColor.GRAY )
+                .append( "the server" ).color( ChatColor.AQUA ).bold( true )
+                .build();
+        FrozenComponent frozen = FrozenComponent.of( component );
+
+        for ( int protocolVersion : new int[]
+        {
+            ProtocolConstants.MINECRAFT_1_8, ProtocolConstants.MINECRAFT_1_20_2, ProtocolConstants.MINECRAFT_1_20_3, ProtocolConstants.MINECRAFT_1_20_5
+        } )
+        {
+            byte[] expected = write( component, protocolVersion );
+            assertArrayEquals( expected, write( frozen, protocolVersion ) );
+            // second time from the memo
+            assertArrayEquals( expected, write( frozen, protocolVersion ) );
+        }
+
+        ByteBuf buf = Unpooled.wrappedBuffer( write( frozen, ProtocolConstants.MINECRAFT_1_20_3 ) );
+        assertEquals( component.toLegacyText(), DefinedPacket.readBaseComponent( buf, ProtocolConstants.MINECRAFT_1_20_3 ).toLegacyText() );
+    }
+}
@@ -0,0 +1,221 @@
+package net.md_5.bungee.protocol;
+
+import static org.junit.jupiter.api.Assertions.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.Arrays;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.ClickEvent;
+import net.md_5.bungee.api.chat.ComponentBuilder;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import net.md_5.bungee.api.chat.HoverEvent;
+import net.md_5.bungee.api.chat.ItemTag;
+import net.md_5.bungee.api.chat.KeybindComponent;
+import net.md_5.bungee.api.chat.ScoreComponent;
+import net.md_5.bungee.api.chat.SelectorComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.chat.TranslatableComponent;
+import net.md_5.bungee.api.chat.hover.content.Entity;
+import net.md_5.bungee.api.chat.hover.content.Item;
+import net.md_5.bungee.api.chat.hover.content.Text;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.junit.jupiter.api.Test;
+import se.llbit.nbt.ByteTag;
+import se.llbit.nbt.CompoundTag;
+import se.llbit.nbt.FloatTag;
+import se.llbit.nbt.IntArrayTag;
+import se.llbit.nbt.IntTag;
+import se.llbit.nbt.ListTag;
+import se.llbit.nbt.LongTag;
+import se.llbit.nbt.SpecificTag;
+import se.llbit.nbt.StringTag;
+import se.llbit.nbt.Tag;
+
+public class NbtComponentCodecTest
+{
+
+    private static byte[] treeWrite(BaseComponent component)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        DefinedPacket.writeTag( TagUtil.fromJson( ComponentSerializer.toJson( component ) ), buf, ProtocolConstants.MINECRAFT_1_20_3 );
+        return ByteBufUtil.getBytes( buf );
+    }
+
+    private static BaseComponent treeRead(byte[] bytes)
+    {
+        SpecificTag nbt = (SpecificTag) DefinedPacket.readTag( Unpooled.wrappedBuffer( bytes ), ProtocolConstants.MINECRAFT_1_20_3 );
+        return ComponentSerializer.deserialize( TagUtil.toJson( nbt ) );
+    }
+
+    private static void testDissembleReassemble(BaseComponent component)
+    {
+        byte[] expected = treeWrite( component );
+
+        ByteBuf buf = Unpooled.buffer();
+        NbtComponentCodec.write( component, buf );
+        assertArrayEquals( expected, ByteBufUtil.getBytes( buf ) );
+
+        assertRead( expected );
+    }
+
+    private static void assertRead(byte[] bytes)
+    {
+        ByteBuf buf = Unpooled.wrappedBuffer( bytes );
+        BaseComponent read = NbtComponentCodec.read( buf );
+        assertEquals( 0, buf.readableBytes() );
+
+        BaseComponent expected = treeRead( bytes );
+        assertEquals( expected.getClass(), read.getClass() );
+        assertEquals( ComponentSerializer.toString( (Object) expected ), ComponentSerializer.toString( (Object) read ) );
+    }
+
+    private static byte[] bytes(SpecificTag tag)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        DefinedPacket.writeTag( tag, buf, ProtocolConstants.MINECRAFT_1_20_3 );
+        return ByteBufUtil.getBytes( buf );
+    }
+
+    @Test
+    public void testText()
+    {
+        testDissembleReassemble( new TextComponent( "hello" ) );
+        testDissembleReassemble( new TextComponent( "" ) );
+        testDissembleReassemble( new TextComponent( "\u0000 \u00e9 \u4e16\u754c \ud83d\ude00 \ud800" ) );
+        testDissembleReassemble( new ComponentBuilder( "Welcome to " ).color( ChatColor.GRAY )
+                .append( "the server" ).color( ChatColor.of( "#12abef" ) ).bold( true ).italic( false ).underlined( true )
+                .append( "!" ).strikethrough( true ).obfuscated( false ).font( "minecraft:uniform" ).insertion( "insert" )
+                .build() );
+    }
+
+    @Test
+    public void testTypes()
+    {
+        TranslatableComponent translatable = new TranslatableComponent( "chat.type.text", new TextComponent( "Player" ), "message" );
+        translatable.setFallback( "%s: %s" );
+        testDissembleReassemble( translatable );
+        testDissembleReassemble( new TranslatableComponent( "multiplayer.player.joined" ) );
+
+        testDissembleReassemble( new KeybindComponent( "key.jump" ) );
+
+        ScoreComponent score = new ScoreComponent( "Notch", "kills" );
+        testDissembleReassemble( score );
+        score.setValue( "42" );
+        testDissembleReassemble( score );
+
+        SelectorComponent selector = new SelectorComponent( "@a" );
+        testDissembleReassemble( selector );
+        selector.setSeparator( new TextComponent( ", " ) );
+        testDissembleReassemble( selector );
+    }
+
+    @Test
+    public void testEvents()
+    {
+        TextComponent component = new TextComponent( "events" );
+        component.setClickEvent( new ClickEvent( ClickEvent.Action.RUN_COMMAND, "/spawn" ) );
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( "tooltip" ) ) );
+        testDissembleReassemble( component );
+
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( new ComponentBuilder( "red" ).color( ChatColor.RED ).create() ) ) );
+        testDissembleReassemble( component );
+
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new BaseComponent[]
+        {
+            new TextComponent( "legacy" )
+        } ) );
+        testDissembleReassemble( component );
+
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_ITEM, new Item( "minecraft:stone", 3, ItemTag.ofNbt( "{display:{}}" ) ) ) );
+        testDissembleReassemble( component );
+
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_ENTITY, new Entity( null, "8667ba71-b85a-4004-af54-457a9734eed7", new TextComponent( "Steve" ) ) ) );
+        testDissembleReassemble( component );
+
+        // several contents are written by the tree based path, which can not read them back
+        component.setHoverEvent( new HoverEvent( HoverEvent.Action.SHOW_TEXT, new Text( "a" ), new Text( "b" ) ) );
+        ByteBuf buf = Unpooled.buffer();
+        NbtComponentCodec.write( component, buf );
+        assertArrayEquals( treeWrite( component ), ByteBufUtil.getBytes( buf ) );
+    }
+
+    @Test
+    public void testNested()
+    {
+        TextComponent root = new TextComponent( "root" );
+        TextComponent child = new TextComponent( "child" );
+        child.addExtra( new KeybindComponent( "key.sneak" ) );
+        root.addExtra( child );
+        root.addExtra( new TranslatableComponent( "item.minecraft.stone" ) );
+        root.addExtra( FrozenComponent.of( new TextComponent( "frozen" ) ) );
+        testDissembleReassemble( root );
+
+        root.setExtra( Arrays.asList() );
+        testDissembleReassemble( root );
+
+        testDissembleReassemble( FrozenComponent.of( child ) );
+    }
+
+    @Test
+    public void testLoop()
+    {
+        TextComponent component = new TextComponent( "loop" );
+        component.addExtra( component );
+        ByteBuf buf = Unpooled.buffer();
+        assertThrows( IllegalArgumentException.class, () -> NbtComponentCodec.write( component, buf ) );
+        assertEquals( 0, buf.writerIndex() );
+    }
+
+    @Test
+    public void testVanillaShapes()
+    {
+        // a plain string instead of a compound
+        assertRead( bytes( new StringTag( "plain" ) ) );
+
+        // mixed lists are sent as compounds wrapping the value in an entry named ""
+        CompoundTag wrapped = new CompoundTag();
+        wrapped.add( "", new StringTag( "wrapped" ) );
+        CompoundTag text = new CompoundTag();
+        text.add( "text", new StringTag( "compound" ) );
+        CompoundTag component = new CompoundTag();
+        component.add( "text", new StringTag( "" ) );
+        component.add( "extra", new ListTag( Tag.TAG_COMPOUND, Arrays.asList( wrapped, text ) ) );
+        assertRead( bytes( component ) );
+
+        // lists of plain strings
+        CompoundTag translate = new CompoundTag();
+        translate.add( "translate", new StringTag( "chat.type.text" ) );
+        translate.add( "with", new ListTag( Tag.TAG_STRING, Arrays.asList( new StringTag( "a" ), new StringTag( "b" ) ) ) );
+        assertRead( bytes( translate ) );
+        assertRead( bytes( new ListTag( Tag.TAG_COMPOUND, Arrays.asList( text, wrapped ) ) ) );
+
+        // numbers and bytes where strings and booleans are expected
+        CompoundTag numbers = new CompoundTag();
+        numbers.add( "text", new FloatTag( 1.5F ) );
+        numbers.add( "bold", new ByteTag( 1 ) );
+        numbers.add( "italic", new StringTag( "true" ) );
+        numbers.add( "underlined", new IntTag( 1 ) );
+        numbers.add( "insertion", new LongTag( 7 ) );
+        assertRead( bytes( numbers ) );
+
+        // item hovers and unknown keys
+        CompoundTag item = new CompoundTag();
+        item.add( "id", new StringTag( "minecraft:stone" ) );
+        item.add( "count", new IntTag( 2 ) );
+        CompoundTag hover = new CompoundTag();
+        hover.add( "action", new StringTag( "show_item" ) );
+        hover.add( "contents", item );
+        CompoundTag unknown = new CompoundTag();
+        unknown.add( "text", new StringTag( "x" ) );
+        unknown.add( "unknown", new IntArrayTag( new int[]
+        {
+            1, 2
+        } ) );
+        unknown.add( "other", new ListTag( Tag.TAG_LIST, Arrays.asList( new ListTag( Tag.TAG_END, Arrays.asList() ) ) ) );
+        unknown.add( "hoverEvent", hover );
+        assertRead( bytes( unknown ) );
+        assertRead( bytes( new CompoundTag() ) );
+    }
+}
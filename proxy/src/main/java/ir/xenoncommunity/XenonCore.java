@@ -2,15 +2,22 @@ package ir.xenoncommunity;
 
 //import ir.xenoncommunity.listener.JoinListener;
 import ir.xenoncommunity.abstracts.ModuleListener;
+import ir.xenoncommunity.antibot.AntiBot;
+import ir.xenoncommunity.antibot.IpFilter;
+import ir.xenoncommunity.balancer.RedirectScheduler;
+import ir.xenoncommunity.balancer.ServerBalancer;
+import ir.xenoncommunity.queue.QueueManager;
+import ir.xenoncommunity.tracing.LoginTracer;
+import ir.xenoncommunity.utils.ConfigSnapshot;
 import ir.xenoncommunity.utils.Configuration;
 import ir.xenoncommunity.utils.TaskManager;
 import lombok.Getter;
 import lombok.Setter;
 import net.md_5.bungee.BungeeCord;
-import net.md_5.bungee.api.ChatColor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.net.SocketAddress;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,7 +30,17 @@ public class XenonCore {
     private final TaskManager taskManager;
     private final BungeeCord bungeeInstance;
     private final Configuration configuration;
+    private final AntiBot antiBot;
+    private final IpFilter ipFilter;
+    private final LoginTracer loginTracer;
+    private final ServerBalancer balancer;
+    private final RedirectScheduler redirectScheduler;
+    private final QueueManager queueManager;
     @Setter private Configuration.ConfigData configData;
+    /**
+     * Compiled view of {@link #configData}, swapped as a whole on reload.
+     */
+    private volatile ConfigSnapshot snapshot;
     /**
      * Initializes all required variables.
      */
@@ -33,30 +50,81 @@ public class XenonCore {
         this.taskManager = new TaskManager();
         this.bungeeInstance = BungeeCord.getInstance();
         this.configuration = new Configuration();
+        this.antiBot = new AntiBot();
+        this.ipFilter = new IpFilter();
+        this.loginTracer = new LoginTracer();
+        this.balancer = new ServerBalancer();
+        this.redirectScheduler = new RedirectScheduler(() -> snapshot.getRedirect());
+        this.queueManager = new QueueManager(() -> snapshot.getQueue());
+        // loaded before config.yml, which may name server groups
+        setConfigData(configuration.init());
+        this.snapshot = new ConfigSnapshot(configData);
+        balancer.load(snapshot);
     }
     /**
      * Called when proxy is loaded.
      */
     public void init(final long startTime){
-        setConfigData(configuration.init());
-        configData.setLoadingmessage(configData.getLoadingmessage().replace("PREFIX", configData.getPrefix()));
-        configData.getModules().setSpymessage(configData.getModules().getSpymessage().replace("PREFIX", configData.getPrefix()));
-        configData.getModules().setStaffchatmessage(configData.getModules().getStaffchatmessage().replace("PREFIX", configData.getPrefix()));
-        configData.getCommandwhitelist().setBlockmessage(configData.getCommandwhitelist().getBlockmessage().replace("PREFIX", configData.getPrefix()));
+        balancer.start();
+        redirectScheduler.start();
+        queueManager.start();
         //bungeeInstance.getPluginManager().registerListener(null , new JoinListener());
-        getTaskManager().independentTask(() -> {
+        startTask("module loader", () -> {
             while(!isProxyCompletlyLoaded)
-                bungeeInstance.getPlayers().forEach(proxiedPlayer -> proxiedPlayer.disconnect(ChatColor.translateAlternateColorCodes('&', configData.getLoadingmessage())));
+                bungeeInstance.getPlayers().forEach(proxiedPlayer -> proxiedPlayer.disconnect(snapshot.getLoadingMessage()));
 
             ModuleListener.init();
         });
+        startTask("ip list loader", this::loadIpLists);
+        startTask("config watcher", () -> configuration.watch(this::reload, () -> snapshot.getListDirectories(), file -> {
+            if (snapshot.isListFile(file)) loadIpLists();
+        }));
         getLogger().info(String.format("Done loading! took %sMS to load!", System.currentTimeMillis() - startTime));
     }
 
+    /**
+     * Publishes a freshly loaded config, readers pick it up on their next event.
+     */
+    public void reload(final Configuration.ConfigData data){
+        try {
+            final ConfigSnapshot compiled = new ConfigSnapshot(data);
+            setConfigData(data);
+            this.snapshot = compiled;
+            balancer.load(compiled);
+            startTask("ip list loader", this::loadIpLists);
+            getLogger().info("Reloaded XenonCore.yml.");
+        } catch (final Exception e) {
+            getLogger().error(String.format("Could not reload XenonCore.yml: %s", e.getMessage()));
+        }
+    }
+
+    /**
+     * Runs the allow and block lists, then the anti bot, for a freshly accepted socket.
+     *
+     * @return false if the socket should be closed right away
+     */
+    public boolean acceptConnection(final SocketAddress address){
+        final IpFilter.Verdict verdict = ipFilter.check(address);
+        if (verdict != IpFilter.Verdict.NONE) return verdict == IpFilter.Verdict.ALLOW;
+        return antiBot.allowConnection(address);
+    }
+
+    private void startTask(final String name, final Runnable task){
+        if (!getTaskManager().independentTask(task))
+            getLogger().error(String.format("Could not start the %s, too many blocking tasks are running.", name));
+    }
+
+    private void loadIpLists(){
+        final ConfigSnapshot config = snapshot;
+        if (config.isBlocklistEnabled()) ipFilter.load(config.getBlockFiles(), config.getAllowFiles());
+        else ipFilter.clear();
+    }
+
     /**
      * Called when proxy is shutting down.
      */
     public void shutdown(){
+        taskManager.shutdown();
     }
     public List<String> getPlayerNames(){
         List<String> players = new ArrayList<>();
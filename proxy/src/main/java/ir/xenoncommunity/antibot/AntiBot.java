@@ -0,0 +1,174 @@
+package ir.xenoncommunity.antibot;
+
+import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.utils.ConfigSnapshot;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.Handshake;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Scores connections by network prefix before netty builds a pipeline for them.
+ * <ul>
+ * <li>accept time: the prefix's accumulated penalties</li>
+ * <li>handshake: login rate per /24 or /64, protocol and hostname fingerprint</li>
+ * <li>login: handshake to login timing, and while under attack the verify-first check</li>
+ * </ul>
+ * Status pings are not rated, server lists and players sharing a NAT refresh them freely. Once the
+ * proxy wide login rate crosses the attack threshold, only prefixes which joined before, or which
+ * reconnect after being asked to, are allowed to log in.
+ * <p>
+ * All state lives in fixed size lock free tables, the accept path does not allocate for IPv4.
+ */
+public class AntiBot {
+    private static final int TABLE_SIZE = Integer.getInteger("xenoncord.antibot.tableSize", 1 << 16);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int PENALTY_WINDOW_SECONDS = 60;
+    private static final int VERIFY_WINDOW_SECONDS = 60;
+    private static final int VERIFIED_SECONDS = (int) TimeUnit.DAYS.toSeconds(1);
+
+    private final long epoch = System.nanoTime();
+    private final PrefixTable connections = new PrefixTable(TABLE_SIZE);
+    private final PrefixTable penalties = new PrefixTable(TABLE_SIZE);
+    private final PrefixTable firstAttempts = new PrefixTable(TABLE_SIZE);
+    private final PrefixTable verified = new PrefixTable(TABLE_SIZE);
+    /**
+     * Proxy wide logins, second in the high and count in the low half.
+     */
+    private final AtomicLong globalRate = new AtomicLong();
+    private final AtomicLong attackUntil = new AtomicLong(epoch);
+    private final LongAdder blocked = new LongAdder();
+
+    /**
+     * Called for every accepted socket before anything is added to its pipeline.
+     *
+     * @return false if the socket should be closed right away
+     */
+    public boolean allowConnection(final SocketAddress address) {
+        final AntiBotSettings settings = settings();
+        if (settings == null || !(address instanceof InetSocketAddress)) return true;
+        return allowConnection(settings, ((InetSocketAddress) address).getAddress(), System.nanoTime());
+    }
+
+    boolean allowConnection(final AntiBotSettings settings, final InetAddress address, final long now) {
+        final int penalty = penalties.count(PrefixTable.prefixOf(address), seconds(now) / PENALTY_WINDOW_SECONDS);
+        if (penalty >= settings.getPenaltyLimit() || (penalty > 0 && isUnderAttack(now))) return block();
+        return true;
+    }
+
+    /**
+     * Rates login handshakes and penalizes handshakes no vanilla client would send.
+     *
+     * @return false if the connection should be closed
+     */
+    public boolean allowHandshake(final SocketAddress address, final Handshake handshake) {
+        final AntiBotSettings settings = settings();
+        if (settings == null || !(address instanceof InetSocketAddress)) return true;
+        return allowHandshake(settings, ((InetSocketAddress) address).getAddress(), handshake, System.nanoTime());
+    }
+
+    boolean allowHandshake(final AntiBotSettings settings, final InetAddress address, final Handshake handshake, final long now) {
+        final long prefix = PrefixTable.prefixOf(address);
+        final int second = seconds(now);
+        final boolean login = handshake.getRequestedProtocol() != 1;
+
+        if (handshake.getHost().isEmpty()
+                || (login && !ProtocolConstants.SUPPORTED_VERSION_IDS.contains(handshake.getProtocolVersion())))
+            penalize(address, now);
+        if (!login) return true;
+
+        if (countGlobal(second) > settings.getAttackThreshold()) startAttack(settings, now);
+
+        if (connections.add(prefix, second, 1) > settings.getMaxConnectionsPerSecond()) {
+            penalize(address, now);
+            return block();
+        }
+        return true;
+    }
+
+    /**
+     * @param handshakeToLogin nanos between the handshake and the login start packet
+     * @return false if the player has to reconnect to prove they are not a bot
+     */
+    public boolean allowLogin(final SocketAddress address, final long handshakeToLogin) {
+        final AntiBotSettings settings = settings();
+        if (settings == null || !(address instanceof InetSocketAddress)) return true;
+        return allowLogin(settings, ((InetSocketAddress) address).getAddress(), handshakeToLogin, System.nanoTime());
+    }
+
+    boolean allowLogin(final AntiBotSettings settings, final InetAddress address, final long handshakeToLogin, final long now) {
+        final long prefix = PrefixTable.prefixOf(address);
+        final int second = seconds(now);
+
+        if (handshakeToLogin > settings.getMaxLoginDelayNanos()) penalize(address, now);
+
+        if (!isUnderAttack(now)) {
+            verified.set(prefix, second);
+            return true;
+        }
+
+        final long verifiedAt = verified.get(prefix);
+        if (verifiedAt != 0 && second - verifiedAt <= VERIFIED_SECONDS) return true;
+
+        final long firstAttempt = firstAttempts.get(prefix);
+        if (firstAttempt != 0 && second - firstAttempt >= 1 && second - firstAttempt <= VERIFY_WINDOW_SECONDS) {
+            verified.set(prefix, second);
+            return true;
+        }
+
+        firstAttempts.set(prefix, second);
+        return block();
+    }
+
+    public boolean isUnderAttack() {
+        return isUnderAttack(System.nanoTime());
+    }
+
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    private boolean isUnderAttack(final long now) {
+        return now - attackUntil.get() < 0;
+    }
+
+    private void startAttack(final AntiBotSettings settings, final long now) {
+        final long previous = attackUntil.getAndSet(now + settings.getAttackDurationNanos());
+        if (now - previous >= 0 && XenonCore.instance != null)
+            XenonCore.instance.getLogger().warn("Bot attack detected, switching to verify-first mode.");
+    }
+
+    private int countGlobal(final int second) {
+        for (;;) {
+            final long current = globalRate.get();
+            final int count = (int) (current >>> 32) == second ? (int) current + 1 : 1;
+            if (globalRate.compareAndSet(current, ((long) second << 32) | count)) return count;
+        }
+    }
+
+    private void penalize(final InetAddress address, final long now) {
+        penalties.add(PrefixTable.prefixOf(address), seconds(now) / PENALTY_WINDOW_SECONDS, 1);
+    }
+
+    private boolean block() {
+        blocked.increment();
+        return false;
+    }
+
+    /**
+     * @return seconds since this instance was created, starting at 1 so 0 can mean "never"
+     */
+    private int seconds(final long now) {
+        return (int) ((now - epoch) / SECOND) + 1;
+    }
+
+    private static AntiBotSettings settings() {
+        final ConfigSnapshot config = XenonCore.instance.getSnapshot();
+        return config == null || !config.getAntiBot().isEnabled() ? null : config.getAntiBot();
+    }
+}
@@ -0,0 +1,30 @@
+package ir.xenoncommunity.antibot;
+
+import ir.xenoncommunity.utils.Configuration;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable anti-bot thresholds, part of {@link ir.xenoncommunity.utils.ConfigSnapshot}.
+ */
+@Getter
+public final class AntiBotSettings {
+    private final boolean enabled;
+    private final int maxConnectionsPerSecond;
+    private final int attackThreshold;
+    private final long attackDurationNanos;
+    private final long maxLoginDelayNanos;
+    private final int penaltyLimit;
+    private final String verifyMessage;
+
+    public AntiBotSettings(final Configuration.AntiBotData data, final String verifyMessage) {
+        this.enabled = data.isEnabled();
+        this.maxConnectionsPerSecond = data.getMaxconnectionspersecond();
+        this.attackThreshold = data.getAttackthreshold();
+        this.attackDurationNanos = TimeUnit.SECONDS.toNanos(data.getAttackduration());
+        this.maxLoginDelayNanos = TimeUnit.MILLISECONDS.toNanos(data.getMaxlogindelay());
+        this.penaltyLimit = data.getPenaltylimit();
+        this.verifyMessage = verifyMessage;
+    }
+}
@@ -0,0 +1,233 @@
+package ir.xenoncommunity.antibot;
+
+import com.google.common.base.Preconditions;
+import com.google.common.net.InetAddresses;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/**
+ * Path compressed binary radix tree of IPv4 or IPv6 prefixes, answering "is this address covered".
+ * <p>
+ * Nodes live in parallel primitive arrays instead of objects, an IPv4 node costs 18 bytes and an
+ * IPv6 node 26, and a tree of n prefixes has less than 2n nodes. Prefixes covered by a shorter one
+ * are not stored at all. Built once per list load and read concurrently without locking.
+ */
+public final class CidrTrie {
+    private static final short TERMINAL = 0x100;
+
+    private final int bits;
+    private final int stride;
+    private long[] keys;
+    /**
+     * Prefix length in the low byte, {@link #TERMINAL} if the prefix itself is listed.
+     */
+    private short[] lengths;
+    private int[] children;
+    private int size;
+
+    private CidrTrie(final int bits) {
+        this.bits = bits;
+        this.stride = bits / 64 + (bits % 64 == 0 ? 0 : 1);
+        this.keys = new long[16 * stride];
+        this.lengths = new short[16];
+        this.children = new int[32];
+        this.size = 1; // root, the empty prefix
+    }
+
+    public static CidrTrie ipv4() {
+        return new CidrTrie(32);
+    }
+
+    public static CidrTrie ipv6() {
+        return new CidrTrie(128);
+    }
+
+    public int getNodeCount() {
+        return size;
+    }
+
+    /**
+     * @return approximate heap used by the node arrays
+     */
+    public long getMemoryBytes() {
+        return keys.length * 8L + lengths.length * 2L + children.length * 4L;
+    }
+
+    /**
+     * Adds a prefix, the address does not have to be masked.
+     */
+    public void add(final InetAddress address, final int prefixLength) {
+        Preconditions.checkArgument((address instanceof Inet4Address) == (bits == 32), "Wrong address family for this tree: %s", address);
+        Preconditions.checkArgument(prefixLength >= 0 && prefixLength <= bits, "Invalid prefix length %s", prefixLength);
+        final byte[] bytes = address.getAddress();
+        final long hi = bits == 32 ? high(address) : read(bytes, 0);
+        final long lo = bits == 32 ? 0 : read(bytes, 8);
+        add(mask(hi, prefixLength), prefixLength > 64 ? mask(lo, prefixLength - 64) : 0, prefixLength);
+    }
+
+    public boolean contains(final InetAddress address) {
+        if (address instanceof Inet4Address)
+            return bits == 32 && contains(high(address), 0);
+        if (bits == 32) return false;
+        final byte[] bytes = address.getAddress();
+        return contains(read(bytes, 0), read(bytes, 8));
+    }
+
+    /**
+     * Shrinks the arrays to their used size once loading is done. Nodes cut off by a covering prefix added
+     * after them are dropped here, only nodes reachable from the root are kept.
+     */
+    public CidrTrie trim() {
+        // breadth first, a node is numbered when it is reached
+        final int[] order = new int[size];
+        final int[] index = new int[size];
+        int count = 1;
+        for (int i = 0; i < count; i++) {
+            final int node = order[i];
+            for (int side = 0; side < 2; side++) {
+                final int child = children[node * 2 + side];
+                if (child == 0) continue;
+                index[child] = count;
+                order[count++] = child;
+            }
+        }
+
+        final long[] keys = new long[count * stride];
+        final short[] lengths = new short[count];
+        final int[] children = new int[count * 2];
+        for (int i = 0; i < count; i++) {
+            final int node = order[i];
+            System.arraycopy(this.keys, node * stride, keys, i * stride, stride);
+            lengths[i] = this.lengths[node];
+            children[i * 2] = index[this.children[node * 2]];
+            children[i * 2 + 1] = index[this.children[node * 2 + 1]];
+        }
+        this.keys = keys;
+        this.lengths = lengths;
+        this.children = children;
+        this.size = count;
+        return this;
+    }
+
+    private boolean contains(final long hi, final long lo) {
+        int node = 0;
+        for (;;) {
+            if ((lengths[node] & TERMINAL) != 0) return true;
+            final int length = lengths[node] & 0xFF;
+            if (length == bits) return false;
+
+            final int child = children[node * 2 + bit(hi, lo, length)];
+            if (child == 0 || !matches(child, hi, lo)) return false;
+            node = child;
+        }
+    }
+
+    private void add(final long hi, final long lo, final int prefixLength) {
+        int node = 0;
+        for (;;) {
+            // an existing shorter prefix already covers this one
+            if ((lengths[node] & TERMINAL) != 0) return;
+            final int length = lengths[node] & 0xFF;
+            if (length == prefixLength) {
+                // covers everything below it, lookups stop here
+                lengths[node] |= TERMINAL;
+                children[node * 2] = children[node * 2 + 1] = 0;
+                return;
+            }
+
+            final int slot = node * 2 + bit(hi, lo, length);
+            final int child = children[slot];
+            if (child == 0) {
+                // newNode may grow the arrays, read the field only after it returns
+                final int leaf = newNode(hi, lo, prefixLength, true);
+                children[slot] = leaf;
+                return;
+            }
+
+            final int childLength = lengths[child] & 0xFF;
+            final int common = Math.min(commonLength(child, hi, lo), Math.min(childLength, prefixLength));
+            if (common == childLength) {
+                node = child;
+                continue;
+            }
+
+            // split the edge at the first differing bit
+            final int split = newNode(mask(hi, Math.min(common, 64)), common > 64 ? mask(lo, common - 64) : 0, common, common == prefixLength);
+            children[slot] = split;
+            if (common == prefixLength) return;
+            final long childHi = keys[child * stride];
+            final long childLo = stride == 2 ? keys[child * stride + 1] : 0;
+            final int leaf = newNode(hi, lo, prefixLength, true);
+            children[split * 2 + bit(childHi, childLo, common)] = child;
+            children[split * 2 + bit(hi, lo, common)] = leaf;
+            return;
+        }
+    }
+
+    private int newNode(final long hi, final long lo, final int length, final boolean terminal) {
+        if (size == lengths.length) {
+            final int capacity = size + (size >> 1);
+            keys = Arrays.copyOf(keys, capacity * stride);
+            lengths = Arrays.copyOf(lengths, capacity);
+            children = Arrays.copyOf(children, capacity * 2);
+        }
+        final int node = size++;
+        keys[node * stride] = hi;
+        if (stride == 2) keys[node * stride + 1] = lo;
+        lengths[node] = (short) (length | (terminal ? TERMINAL : 0));
+        return node;
+    }
+
+    private boolean matches(final int node, final long hi, final long lo) {
+        final int length = lengths[node] & 0xFF;
+        if (mask(hi, Math.min(length, 64)) != keys[node * stride]) return false;
+        return length <= 64 || mask(lo, length - 64) == keys[node * stride + 1];
+    }
+
+    private int commonLength(final int node, final long hi, final long lo) {
+        final long diffHi = hi ^ keys[node * stride];
+        if (diffHi != 0) return Long.numberOfLeadingZeros(diffHi);
+        if (stride == 1) return 64;
+        final long diffLo = lo ^ keys[node * stride + 1];
+        return 64 + (diffLo != 0 ? Long.numberOfLeadingZeros(diffLo) : 64);
+    }
+
+    /**
+     * @return the bit of the address right after the first {@code index} bits
+     */
+    private static int bit(final long hi, final long lo, final int index) {
+        return index < 64 ? (int) (hi >>> (63 - index)) & 1 : (int) (lo >>> (127 - index)) & 1;
+    }
+
+    private static long mask(final long value, final int length) {
+        return length == 0 ? 0 : value & (-1L << (64 - Math.min(length, 64)));
+    }
+
+    /**
+     * @return the IPv4 address left aligned, without allocating
+     */
+    private static long high(final InetAddress address) {
+        // Inet4Address#hashCode is the raw address
+        return (long) address.hashCode() << 32;
+    }
+
+    private static long read(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) value = (value << 8) | (bytes[i] & 0xFF);
+        return value;
+    }
+
+    /**
+     * Parses {@code address} or {@code address/length} without DNS lookups.
+     *
+     * @throws IllegalArgumentException on malformed input
+     */
+    public static void parseInto(final String cidr, final CidrTrie ipv4, final CidrTrie ipv6) {
+        final int slash = cidr.indexOf('/');
+        final InetAddress address = InetAddresses.forString(slash == -1 ? cidr : cidr.substring(0, slash));
+        final CidrTrie trie = address instanceof Inet4Address ? ipv4 : ipv6;
+        trie.add(address, slash == -1 ? trie.bits : Integer.parseInt(cidr.substring(slash + 1)));
+    }
+}
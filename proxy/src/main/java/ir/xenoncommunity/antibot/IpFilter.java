@@ -0,0 +1,96 @@
+package ir.xenoncommunity.antibot;
+
+import ir.xenoncommunity.XenonCore;
+import lombok.Cleanup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.List;
+
+/**
+ * Allowlist and blocklist of IPv4 / IPv6 prefixes, checked when a socket is accepted.
+ * <p>
+ * List files hold one address or CIDR prefix per line, {@code #} starts a comment. Lists are
+ * rebuilt off the netty threads and swapped in through a single volatile reference.
+ */
+public class IpFilter {
+    public enum Verdict {
+        ALLOW, BLOCK, NONE
+    }
+
+    private volatile Lists lists;
+
+    public Verdict check(final SocketAddress address) {
+        final Lists current = lists;
+        if (current == null || !(address instanceof InetSocketAddress)) return Verdict.NONE;
+        final InetAddress inet = ((InetSocketAddress) address).getAddress();
+        if (inet == null) return Verdict.NONE;
+        if (current.allow4.contains(inet) || current.allow6.contains(inet)) return Verdict.ALLOW;
+        if (current.block4.contains(inet) || current.block6.contains(inet)) return Verdict.BLOCK;
+        return Verdict.NONE;
+    }
+
+    /**
+     * Reads the list files and swaps them in, blocking. Unreadable files are logged and treated as empty.
+     */
+    public void load(final List<String> blockFiles, final List<String> allowFiles) {
+        final long start = System.nanoTime();
+        final Lists loaded = new Lists();
+        final int blocked = read(blockFiles, loaded.block4, loaded.block6);
+        final int allowed = read(allowFiles, loaded.allow4, loaded.allow6);
+        loaded.block4.trim();
+        loaded.block6.trim();
+        loaded.allow4.trim();
+        loaded.allow6.trim();
+        this.lists = loaded;
+        XenonCore.instance.getLogger().info(String.format("Loaded %d blocked and %d allowed prefixes in %dms (%d KiB).",
+                blocked, allowed, (System.nanoTime() - start) / 1_000_000, loaded.getMemoryBytes() / 1024));
+    }
+
+    public void clear() {
+        this.lists = null;
+    }
+
+    private static int read(final List<String> files, final CidrTrie ipv4, final CidrTrie ipv6) {
+        int count = 0;
+        for (final String name : files) {
+            final File file = new File(name);
+            if (!file.exists()) continue;
+            try {
+                @Cleanup final BufferedReader reader = new BufferedReader(new FileReader(file), 1 << 16);
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    final int comment = line.indexOf('#');
+                    final String cidr = (comment == -1 ? line : line.substring(0, comment)).trim();
+                    if (cidr.isEmpty()) continue;
+                    try {
+                        CidrTrie.parseInto(cidr, ipv4, ipv6);
+                        count++;
+                    } catch (final IllegalArgumentException e) {
+                        XenonCore.instance.getLogger().warn(String.format("Skipping invalid entry '%s' at %s:%d", cidr, name, lineNumber));
+                    }
+                }
+            } catch (final Exception e) {
+                XenonCore.instance.getLogger().error(String.format("Could not read %s: %s", name, e.getMessage()));
+            }
+        }
+        return count;
+    }
+
+    private static final class Lists {
+        private final CidrTrie block4 = CidrTrie.ipv4();
+        private final CidrTrie block6 = CidrTrie.ipv6();
+        private final CidrTrie allow4 = CidrTrie.ipv4();
+        private final CidrTrie allow6 = CidrTrie.ipv6();
+
+        private long getMemoryBytes() {
+            return block4.getMemoryBytes() + block6.getMemoryBytes() + allow4.getMemoryBytes() + allow6.getMemoryBytes();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package ir.xenoncommunity.antibot;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size, lock free table of per network prefix slots.
+ * <p>
+ * Addresses are folded to their /24 (IPv4) or /64 (IPv6) and hashed into a slot. Each slot packs a
+ * 16 bit tag of its prefix next to the value, a slot holding another prefix reads as empty and is
+ * taken over on write. Colliding prefixes can therefore lose each other's state, but never inherit
+ * it, and memory stays constant no matter how many sources an attacker rotates through.
+ */
+final class PrefixTable {
+    /**
+     * Values stored by {@link #set} may use the low 48 bits.
+     */
+    static final long VALUE_MASK = (1L << 48) - 1;
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    PrefixTable(final int size) {
+        final int capacity = Integer.highestOneBit(Math.max(16, size - 1) << 1);
+        this.slots = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return the network prefix of the address, without allocating for IPv4
+     */
+    static long prefixOf(final InetAddress address) {
+        if (address instanceof Inet4Address)
+            // Inet4Address#hashCode is the raw address
+            return (1L << 32) | (address.hashCode() & 0xFFFFFF00L);
+
+        final byte[] bytes = address.getAddress();
+        long prefix = 0;
+        for (int i = 0; i < 8; i++)
+            prefix = (prefix << 8) | (bytes[i] & 0xFF);
+        return prefix;
+    }
+
+    /**
+     * Adds to the counter of the prefix within the given window, counters of older windows restart at zero.
+     * Counts saturate at 65535.
+     *
+     * @return the new count
+     */
+    int add(final long prefix, final int window, final int delta) {
+        final long hash = hash(prefix);
+        final int index = (int) hash & mask;
+        final long tag = tag(hash);
+        for (;;) {
+            final long current = slots.get(index);
+            final int count = (current & ~VALUE_MASK) == tag && (int) (current >>> 16) == window ? (int) current & MAX_COUNT : 0;
+            final int next = Math.min(count + delta, MAX_COUNT);
+            if (slots.compareAndSet(index, current, tag | ((window & 0xFFFFFFFFL) << 16) | next)) return next;
+        }
+    }
+
+    int count(final long prefix, final int window) {
+        final long hash = hash(prefix);
+        final long current = slots.get((int) hash & mask);
+        return (current & ~VALUE_MASK) == tag(hash) && (int) (current >>> 16) == window ? (int) current & MAX_COUNT : 0;
+    }
+
+    /**
+     * @return the value last set for the prefix, or 0 if its slot was never set or holds another prefix
+     */
+    long get(final long prefix) {
+        final long hash = hash(prefix);
+        final long current = slots.get((int) hash & mask);
+        return (current & ~VALUE_MASK) == tag(hash) ? current & VALUE_MASK : 0;
+    }
+
+    void set(final long prefix, final long value) {
+        final long hash = hash(prefix);
+        slots.set((int) hash & mask, tag(hash) | (value & VALUE_MASK));
+    }
+
+    /**
+     * The top 16 bits of the hash, the index is taken from the low bits.
+     */
+    private static long tag(final long hash) {
+        return hash & ~VALUE_MASK;
+    }
+
+    private static long hash(final long prefix) {
+        // murmur3 finalizer
+        long hash = prefix;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,69 @@
+package ir.xenoncommunity.balancer;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * What the balancer knows about one backend, shared by every group it is in.
+ */
+@Getter
+public final class BackendState {
+    /**
+     * Consecutive failed pings or connects after which a backend is skipped until it answers again.
+     */
+    static final int FAILURE_THRESHOLD = 3;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger failures = new AtomicInteger();
+    /**
+     * Moving average of the ping round trip, -1 until the first answer.
+     */
+    private volatile long latencyNanos = -1;
+    private volatile int online = -1;
+    private volatile int max = -1;
+    private volatile int localPlayers;
+    private final AtomicInteger connecting = new AtomicInteger();
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    public boolean isHealthy() {
+        return failures.get() < FAILURE_THRESHOLD;
+    }
+
+    /**
+     * @return false if the backend is down or reports itself as full
+     */
+    public boolean isAvailable() {
+        return isHealthy() && !(max > 0 && online >= max);
+    }
+
+    public int load() {
+        return Math.max(localPlayers, online) + connecting.get();
+    }
+
+    void setLocalPlayers(final int localPlayers) {
+        this.localPlayers = localPlayers;
+    }
+
+    void pinged(final long latencyNanos, final int online, final int max) {
+        this.latencyNanos = this.latencyNanos < 0 ? latencyNanos : (this.latencyNanos * 3 + latencyNanos) / 4;
+        this.online = online;
+        this.max = max;
+        failures.set(0);
+    }
+
+    void failed() {
+        failures.incrementAndGet();
+    }
+
+    /**
+     * Connects counted since the last health check have either joined or failed by now.
+     */
+    void resetConnecting() {
+        connecting.set(0);
+    }
+}
@@ -0,0 +1,62 @@
+package ir.xenoncommunity.balancer;
+
+import java.util.List;
+
+/**
+ * How a {@link ServerGroup} picks one of its available members.
+ */
+public enum BalanceStrategy {
+    /**
+     * Fewest players, counting this proxy's players, the backend's own count and connects in flight.
+     */
+    LEAST_PLAYERS {
+        @Override
+        ServerGroup.Member pick(final List<ServerGroup.Member> candidates) {
+            ServerGroup.Member best = null;
+            for (final ServerGroup.Member member : candidates)
+                if (best == null || member.getState().load() < best.getState().load()) best = member;
+            return best;
+        }
+    },
+    /**
+     * Smooth weighted round robin, a member with weight 3 gets three of every four joins against a weight 1 member.
+     */
+    ROUND_ROBIN {
+        @Override
+        ServerGroup.Member pick(final List<ServerGroup.Member> candidates) {
+            int total = 0;
+            ServerGroup.Member best = null;
+            for (final ServerGroup.Member member : candidates) {
+                member.current += member.getWeight();
+                total += member.getWeight();
+                if (best == null || member.current > best.current) best = member;
+            }
+            if (best != null) best.current -= total;
+            return best;
+        }
+    },
+    /**
+     * Lowest ping round trip, ties and members without a sample yet go by player count.
+     */
+    LOWEST_LATENCY {
+        @Override
+        ServerGroup.Member pick(final List<ServerGroup.Member> candidates) {
+            ServerGroup.Member best = null;
+            for (final ServerGroup.Member member : candidates)
+                if (best == null || compareLatency(member.getState(), best.getState()) < 0) best = member;
+            return best;
+        }
+
+        private int compareLatency(final BackendState a, final BackendState b) {
+            final long latencyA = a.getLatencyNanos() < 0 ? Long.MAX_VALUE : a.getLatencyNanos();
+            final long latencyB = b.getLatencyNanos() < 0 ? Long.MAX_VALUE : b.getLatencyNanos();
+            if (latencyA != latencyB) return Long.compare(latencyA, latencyB);
+            return Integer.compare(a.load(), b.load());
+        }
+    };
+
+    /**
+     * Called with the group locked, {@code candidates} is never empty.
+     */
+    abstract ServerGroup.Member pick(List<ServerGroup.Member> candidates);
+}
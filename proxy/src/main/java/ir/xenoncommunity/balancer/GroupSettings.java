@@ -0,0 +1,33 @@
+package ir.xenoncommunity.balancer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import ir.xenoncommunity.utils.Configuration;
+import lombok.Getter;
+
+import java.util.Locale;
+
+/**
+ * Immutable server group definition, part of {@link ir.xenoncommunity.utils.ConfigSnapshot}.
+ */
+@Getter
+public final class GroupSettings {
+    private final String name;
+    private final BalanceStrategy strategy;
+    private final ImmutableList<String> servers;
+    private final ImmutableMap<String, Integer> weights;
+
+    /**
+     * @throws IllegalArgumentException on an unknown strategy
+     */
+    public GroupSettings(final String name, final Configuration.ServerGroupData data) {
+        this.name = name;
+        this.strategy = BalanceStrategy.valueOf(data.getStrategy().toUpperCase(Locale.ROOT));
+        this.servers = ImmutableList.copyOf(data.getServers());
+        this.weights = data.getWeights() == null ? ImmutableMap.of() : ImmutableMap.copyOf(data.getWeights());
+    }
+
+    public int getWeight(final String server) {
+        return weights.getOrDefault(server, 1);
+    }
+}
@@ -0,0 +1,159 @@
+package ir.xenoncommunity.balancer;
+
+import ir.xenoncommunity.XenonCore;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Spreads the players of a backend that went down over time, so their fallback server is not
+ * hit by all of their logins at once.
+ * <p>
+ * Every fallback target admits at most {@code rate} players per second with bursts of up to
+ * {@code burst}, and each admission is delayed by a random jitter so waves from several proxies
+ * do not line up. Waiting players are told their position every {@link #PROGRESS_INTERVAL} and
+ * nobody waits longer than {@code maxwait}.
+ */
+public class RedirectScheduler {
+    static final long TICK_MILLIS = 50;
+    static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(2);
+
+    /**
+     * A displaced player.
+     */
+    public interface Waiting {
+        /**
+         * @return false once the player left or was moved somewhere else meanwhile
+         */
+        boolean isActive();
+
+        /**
+         * Starts the connect to the fallback target after {@code delayMillis}.
+         */
+        void admit(long delayMillis);
+
+        /**
+         * Tells the player where they are in line, and keeps the client from timing out.
+         */
+        void progress(String message);
+    }
+
+    private final Supplier<RedirectSettings> settings;
+    private final Map<String, Target> targets = new HashMap<>();
+
+    public RedirectScheduler(final Supplier<RedirectSettings> settings) {
+        this.settings = settings;
+    }
+
+    public void start() {
+        XenonCore.instance.getTaskManager().repeatingTask(() -> tick(System.nanoTime()), (int) TICK_MILLIS, (int) TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void redirect(final String target, final Waiting waiting) {
+        redirect(target, waiting, System.nanoTime());
+    }
+
+    synchronized void redirect(final String target, final Waiting waiting, final long now) {
+        final RedirectSettings current = settings.get();
+        if (!current.isEnabled()) {
+            waiting.admit(0);
+            return;
+        }
+
+        final Target state = targets.computeIfAbsent(target, name -> new Target(name, current, now));
+        state.refill(current, now);
+        if (state.queue.isEmpty() && state.tokens >= 1) {
+            state.tokens--;
+            waiting.admit(jitter(current));
+            return;
+        }
+        state.queue.addLast(new Entry(waiting, now));
+        waiting.progress(message(current, state.name, state.queue.size(), state.queue.size()));
+    }
+
+    synchronized void tick(final long now) {
+        final RedirectSettings current = settings.get();
+        for (final Iterator<Target> iterator = targets.values().iterator(); iterator.hasNext(); ) {
+            final Target state = iterator.next();
+            state.refill(current, now);
+
+            Entry entry;
+            while ((entry = state.queue.peekFirst()) != null) {
+                if (!entry.waiting.isActive()) {
+                    state.queue.pollFirst();
+                    continue;
+                }
+                if (state.tokens >= 1) state.tokens--;
+                else if (current.isEnabled() && now - entry.queued < current.getMaxWaitNanos()) break;
+                state.queue.pollFirst();
+                entry.waiting.admit(jitter(current));
+            }
+
+            if (state.queue.isEmpty()) {
+                if (state.tokens >= current.getBurst()) iterator.remove();
+            } else if (now - state.lastProgress >= PROGRESS_INTERVAL) {
+                state.lastProgress = now;
+                int position = 0;
+                for (final Entry waiting : state.queue)
+                    waiting.waiting.progress(message(current, state.name, ++position, state.queue.size()));
+            }
+        }
+    }
+
+    /**
+     * @return players waiting per fallback target
+     */
+    public synchronized Map<String, Integer> getWaiting() {
+        final Map<String, Integer> waiting = new HashMap<>();
+        targets.forEach((name, state) -> {
+            if (!state.queue.isEmpty()) waiting.put(name, state.queue.size());
+        });
+        return waiting;
+    }
+
+    private static long jitter(final RedirectSettings settings) {
+        return settings.getJitterMillis() == 0 ? 0 : ThreadLocalRandom.current().nextInt(settings.getJitterMillis() + 1);
+    }
+
+    private static String message(final RedirectSettings settings, final String target, final int position, final int total) {
+        return settings.getProgressMessage()
+                .replace("SERVER", target)
+                .replace("POSITION", Integer.toString(position))
+                .replace("TOTAL", Integer.toString(total));
+    }
+
+    private static final class Target {
+        private final String name;
+        private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+        private double tokens;
+        private long lastRefill;
+        private long lastProgress;
+
+        private Target(final String name, final RedirectSettings settings, final long now) {
+            this.name = name;
+            this.tokens = settings.getBurst();
+            this.lastRefill = now;
+            this.lastProgress = now;
+        }
+
+        private void refill(final RedirectSettings settings, final long now) {
+            tokens = Math.min(settings.getBurst(), tokens + (now - lastRefill) * settings.getRate() / TimeUnit.SECONDS.toNanos(1));
+            lastRefill = now;
+        }
+    }
+
+    private static final class Entry {
+        private final Waiting waiting;
+        private final long queued;
+
+        private Entry(final Waiting waiting, final long queued) {
+            this.waiting = waiting;
+            this.queued = queued;
+        }
+    }
+}
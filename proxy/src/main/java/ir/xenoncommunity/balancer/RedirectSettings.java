@@ -0,0 +1,28 @@
+package ir.xenoncommunity.balancer;
+
+import ir.xenoncommunity.utils.Configuration;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable redirect wave limits, part of {@link ir.xenoncommunity.utils.ConfigSnapshot}.
+ */
+@Getter
+public final class RedirectSettings {
+    private final boolean enabled;
+    private final double rate;
+    private final int burst;
+    private final int jitterMillis;
+    private final long maxWaitNanos;
+    private final String progressMessage;
+
+    public RedirectSettings(final Configuration.RedirectData data, final String progressMessage) {
+        this.enabled = data.isEnabled();
+        this.rate = Math.max(0.1, data.getRate());
+        this.burst = Math.max(1, data.getBurst());
+        this.jitterMillis = Math.max(0, data.getJitter());
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(data.getMaxwait());
+        this.progressMessage = progressMessage;
+    }
+}
@@ -0,0 +1,122 @@
+package ir.xenoncommunity.balancer;
+
+import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.utils.ConfigSnapshot;
+import net.md_5.bungee.BungeeCord;
+import net.md_5.bungee.BungeeServerInfo;
+import net.md_5.bungee.api.config.ServerInfo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves server group names to one of their members.
+ * <p>
+ * Group names work wherever BungeeCord connects a player by name (priorities, forced hosts, the
+ * default server, /send and the Connect plugin messages) because {@link BungeeCord#selectServer(String)}
+ * falls back to {@link #select(String, ServerInfo)}. {@link BungeeCord#getServerInfo(String)} stays a
+ * plain lookup, so plugins and periodic lookups do not advance the pick. Health and latency come from
+ * background pings of every group member, failed connects count as failed pings.
+ */
+public class ServerBalancer {
+    private final Map<String, BackendState> states = new ConcurrentHashMap<>();
+    private volatile Map<String, ServerGroup> groups = Collections.emptyMap();
+    private volatile long nextCheck;
+
+    /**
+     * Swaps in the groups of a new config, backend state of servers still in a group is kept.
+     */
+    public void load(final ConfigSnapshot snapshot) {
+        final Map<String, ServerGroup> loaded = new HashMap<>();
+        final Set<String> used = new HashSet<>();
+        for (final GroupSettings settings : snapshot.getServerGroups()) {
+            final ServerGroup.Member[] members = settings.getServers().stream()
+                    .map(server -> new ServerGroup.Member(server, settings.getWeight(server), states.computeIfAbsent(key(server), key -> new BackendState())))
+                    .toArray(ServerGroup.Member[]::new);
+            settings.getServers().forEach(server -> used.add(key(server)));
+            loaded.put(key(settings.getName()), new ServerGroup(settings.getName(), settings.getStrategy(), members));
+        }
+        states.keySet().retainAll(used);
+        this.groups = loaded;
+    }
+
+    /**
+     * Starts the background health checks.
+     */
+    public void start() {
+        XenonCore.instance.getTaskManager().repeatingTask(this::tick, 1, 1, TimeUnit.SECONDS);
+    }
+
+    public boolean isGroup(final String name) {
+        return name != null && groups.containsKey(key(name));
+    }
+
+    public Map<String, ServerGroup> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * Picks a member of the group.
+     *
+     * @param exclude a server not to pick, the one a player just failed to join
+     * @return null if the name is not a group or none of its members exist
+     */
+    public ServerInfo select(final String name, final ServerInfo exclude) {
+        final ServerGroup group = name == null ? null : groups.get(key(name));
+        if (group == null) return null;
+
+        final Map<String, ServerInfo> servers = new HashMap<>();
+        for (final ServerGroup.Member member : group.getMembers()) {
+            final ServerInfo info = BungeeCord.getInstance().getConfig().getServerInfo(member.getServer());
+            if (info == null || info.equals(exclude)) continue;
+            if (info instanceof BungeeServerInfo) member.getState().setLocalPlayers(((BungeeServerInfo) info).getPlayerCount());
+            servers.put(member.getServer(), info);
+        }
+        final ServerGroup.Member picked = group.select(member -> servers.containsKey(member.getServer()));
+        return picked == null ? null : servers.get(picked.getServer());
+    }
+
+    /**
+     * Counts a connect that has been started, until the next health check sees its player.
+     */
+    public void connecting(final ServerInfo server) {
+        final BackendState state = states.get(key(server.getName()));
+        if (state != null) state.getConnecting().incrementAndGet();
+    }
+
+    public void reportFailure(final ServerInfo server) {
+        final BackendState state = states.get(key(server.getName()));
+        if (state != null) state.failed();
+    }
+
+    private void tick() {
+        final long now = System.nanoTime();
+        if (now - nextCheck < 0 || states.isEmpty()) return;
+        nextCheck = now + TimeUnit.SECONDS.toNanos(XenonCore.instance.getSnapshot().getBalancerInterval());
+
+        for (final Map.Entry<String, BackendState> entry : states.entrySet()) {
+            final BackendState state = entry.getValue();
+            state.resetConnecting();
+            final ServerInfo info = BungeeCord.getInstance().getConfig().getServerInfo(entry.getKey());
+            if (!(info instanceof BungeeServerInfo)) continue;
+
+            final long start = System.nanoTime();
+            ((BungeeServerInfo) info).pingBackend((ping, error) -> {
+                if (error != null || ping == null) state.failed();
+                else state.pinged(System.nanoTime() - start,
+                        ping.getPlayers() == null ? -1 : ping.getPlayers().getOnline(),
+                        ping.getPlayers() == null ? -1 : ping.getPlayers().getMax());
+            });
+        }
+    }
+
+    private static String key(final String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,57 @@
+package ir.xenoncommunity.balancer;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Named set of backends that can stand in for a server name, picking a member on every lookup.
+ */
+@Getter
+public final class ServerGroup {
+    private final String name;
+    private final BalanceStrategy strategy;
+    private final Member[] members;
+
+    public ServerGroup(final String name, final BalanceStrategy strategy, final Member[] members) {
+        this.name = name;
+        this.strategy = strategy;
+        this.members = members;
+    }
+
+    /**
+     * Picks among the available members that pass {@code filter}. When none is available the
+     * healthiest one left is returned anyway, so a join still has something to try.
+     *
+     * @return null if no member passes the filter
+     */
+    public synchronized Member select(final Predicate<Member> filter) {
+        final List<Member> candidates = new ArrayList<>(members.length);
+        Member fallback = null;
+        for (final Member member : members) {
+            if (!filter.test(member)) continue;
+            if (member.state.isAvailable()) candidates.add(member);
+            else if (fallback == null || member.state.getFailures() < fallback.state.getFailures()) fallback = member;
+        }
+        return candidates.isEmpty() ? fallback : strategy.pick(candidates);
+    }
+
+    @Getter
+    public static final class Member {
+        private final String server;
+        private final int weight;
+        private final BackendState state;
+        /**
+         * Round robin credit, only touched with the group locked.
+         */
+        int current;
+
+        public Member(final String server, final int weight, final BackendState state) {
+            this.server = server;
+            this.weight = Math.max(1, weight);
+            this.state = state;
+        }
+    }
+}
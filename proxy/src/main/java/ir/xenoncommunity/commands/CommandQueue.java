@@ -0,0 +1,51 @@
+package ir.xenoncommunity.commands;
+
+import ir.xenoncommunity.XenonCore;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.Command;
+import net.md_5.bungee.api.plugin.TabExecutor;
+
+import java.util.Collections;
+import java.util.Map;
+
+public class CommandQueue extends Command implements TabExecutor
+{
+
+    public CommandQueue()
+    {
+        super( "queue" );
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args)
+    {
+        if ( !( sender instanceof ProxiedPlayer ) )
+        {
+            XenonCore.instance.getQueueManager().getSizes().forEach( (server, size) -> sender.sendMessage( ChatColor.YELLOW + server + " " + ChatColor.WHITE + size ) );
+            return;
+        }
+
+        ProxiedPlayer player = (ProxiedPlayer) sender;
+        if ( args.length == 1 && args[0].equalsIgnoreCase( "leave" ) )
+        {
+            sender.sendMessage( XenonCore.instance.getQueueManager().leave( player.getUniqueId() )
+                    ? ChatColor.GOLD + "You left the queue."
+                    : ChatColor.RED + "You are not in a queue." );
+            return;
+        }
+
+        Map.Entry<String, Integer> position = XenonCore.instance.getQueueManager().getPosition( player.getUniqueId() );
+        sender.sendMessage( position == null
+                ? ChatColor.RED + "You are not in a queue."
+                : ChatColor.GOLD + "You are " + ChatColor.WHITE + position.getValue() + ChatColor.GOLD + " in line for " + ChatColor.WHITE + position.getKey()
+                + ChatColor.GOLD + ", /queue leave to leave." );
+    }
+
+    @Override
+    public Iterable<String> onTabComplete(CommandSender sender, String[] args)
+    {
+        return args.length == 1 ? Collections.singletonList( "leave" ) : Collections.emptyList();
+    }
+}
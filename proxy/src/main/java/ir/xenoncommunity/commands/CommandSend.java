@@ -104,7 +104,7 @@ public class CommandSend extends Command implements TabExecutor
             sender.sendMessage( ProxyServer.getInstance().getTranslation( "send_cmd_usage" ) );
             return;
         }
-        ServerInfo server = ProxyServer.getInstance().getServerInfo( args[1] );
+        ServerInfo server = ProxyServer.getInstance().selectServer( args[1] );
         if ( server == null )
         {
             sender.sendMessage( ProxyServer.getInstance().getTranslation( "no_server" ) );
@@ -0,0 +1,82 @@
+package ir.xenoncommunity.commands;
+
+import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.tracing.LoginStage;
+import ir.xenoncommunity.tracing.LoginTracer;
+import ir.xenoncommunity.tracing.SlowLogin;
+import net.md_5.bungee.api.ChatColor;
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.plugin.Command;
+import net.md_5.bungee.api.plugin.TabExecutor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+public class CommandXenon extends Command implements TabExecutor
+{
+
+    private static final List<String> SUBCOMMANDS = Arrays.asList( "logins", "slow", "tasks", "reset" );
+
+    public CommandXenon()
+    {
+        super( "xenon", "xenoncord.command.xenon" );
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args)
+    {
+        LoginTracer tracer = XenonCore.instance.getLoginTracer();
+        switch ( ( args.length == 0 ) ? "" : args[0].toLowerCase( Locale.ROOT ) )
+        {
+            case "logins":
+                sender.sendMessage( ChatColor.GOLD + "Login latency (" + ( tracer.isJfrAvailable() ? "also recorded as xenoncord.Login JFR events" : "JFR unavailable" ) + "):" );
+                sender.sendMessage( ChatColor.YELLOW + "total " + ChatColor.WHITE + tracer.getTotal() );
+                for ( LoginStage stage : LoginStage.values() )
+                {
+                    sender.sendMessage( ChatColor.YELLOW + stage.getLabel() + " " + ChatColor.WHITE + tracer.getHistogram( stage ) );
+                }
+                break;
+            case "slow":
+                List<SlowLogin> logins = tracer.getSlowLogins();
+                sender.sendMessage( ChatColor.GOLD + "Slow logins, newest first (" + logins.size() + "):" );
+                int limit = ( args.length > 1 ) ? parseLimit( args[1] ) : 10;
+                logins.stream().limit( limit ).forEach( login -> sender.sendMessage( ChatColor.WHITE + login.toString() ) );
+                break;
+            case "tasks":
+                sender.sendMessage( ChatColor.GOLD + "Tasks: " + ChatColor.WHITE + XenonCore.instance.getTaskManager().getMetrics()
+                        + " queued=" + XenonCore.instance.getTaskManager().getQueueDepth()
+                        + " running=" + XenonCore.instance.getTaskManager().getRunningTasks() );
+                break;
+            case "reset":
+                tracer.reset();
+                sender.sendMessage( ChatColor.GOLD + "Login latency statistics cleared." );
+                break;
+            default:
+                sender.sendMessage( ChatColor.RED + "Usage: /xenon <" + String.join( "|", SUBCOMMANDS ) + "> [slow login count]" );
+        }
+    }
+
+    private static int parseLimit(String value)
+    {
+        try
+        {
+            return Math.max( 1, Integer.parseInt( value ) );
+        } catch ( NumberFormatException ex )
+        {
+            return 10;
+        }
+    }
+
+    @Override
+    public Iterable<String> onTabComplete(CommandSender sender, String[] args)
+    {
+        if ( args.length != 1 )
+        {
+            return Collections.emptyList();
+        }
+        return SUBCOMMANDS.stream().filter( sub -> sub.startsWith( args[0].toLowerCase( Locale.ROOT ) ) ).collect( Collectors.toList() );
+    }
+}
@@ -1,6 +1,7 @@
 package ir.xenoncommunity.modules.commands;
 
 import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.utils.ConfigSnapshot;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.CommandSender;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
@@ -10,27 +11,27 @@ import java.util.Arrays;
 
 @SuppressWarnings("unused") public class StaffChat extends Command {
     public StaffChat() {
-        super("staffchat", XenonCore.instance.getConfigData().getModules().getStaffchatperm(), "sc");
+        super("staffchat", XenonCore.instance.getSnapshot().getStaffChatPerm(), "sc");
     }
 
     @Override
     public void execute(CommandSender sender, String[] args) {
+        final ConfigSnapshot config = XenonCore.instance.getSnapshot();
         if(!(sender instanceof ProxiedPlayer) ||
-        !sender.hasPermission(XenonCore.instance.getConfigData().getModules().getStaffchatperm())) return;
+        !sender.hasPermission(config.getStaffChatPerm())) return;
 
-        XenonCore.instance.getTaskManager().add(() -> {
+        final boolean started = XenonCore.instance.getTaskManager().add(() -> {
             final StringBuilder stringBuilder = new StringBuilder();
             Arrays.stream(args).forEach(string -> stringBuilder.append(string).append(" "));
-            final String message = stringBuilder.toString();
+            final String message = config.getStaffChatMessage()
+                    .replace("PLAYER", ChatColor.translateAlternateColorCodes('&', sender.getName()))
+                    .replace("MESSAGE", ChatColor.translateAlternateColorCodes('&', stringBuilder.toString()));
 
             XenonCore.instance.getBungeeInstance().getPlayers().stream().filter(
-                    proxiedPlayer -> proxiedPlayer.hasPermission(XenonCore.instance.getConfigData().getModules()
-                            .getStaffchatperm())).forEach(
-                                    proxiedPlayer -> proxiedPlayer.sendMessage(ChatColor.translateAlternateColorCodes(
-                                            '&',
-                                            XenonCore.instance.getConfigData().getModules().getStaffchatmessage()
-                                                    .replace("PLAYER", sender.getName())
-                                                    .replace("MESSAGE", message))));
+                    proxiedPlayer -> proxiedPlayer.hasPermission(config.getStaffChatPerm())).forEach(
+                                    proxiedPlayer -> proxiedPlayer.sendMessage(message));
         });
+        if (!started)
+            XenonCore.instance.getLogger().warn(String.format("Dropped staff chat message of %s, the task pool is saturated.", sender.getName()));
     }
 }
@@ -2,14 +2,13 @@ package ir.xenoncommunity.modules.listeners;
 
 import ir.xenoncommunity.XenonCore;
 import ir.xenoncommunity.abstracts.ModuleListener;
+import ir.xenoncommunity.utils.ConfigSnapshot;
 import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.event.ChatEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 
-import java.util.Arrays;
-
 public class CommandSpy extends ModuleListener implements Listener {
     @EventHandler
     public void onCommand(final ChatEvent e) {
@@ -17,25 +16,24 @@ public class CommandSpy extends ModuleListener implements Listener {
             || !(e.getSender() instanceof ProxiedPlayer)) return;
 
         final ProxiedPlayer player = (ProxiedPlayer) e.getSender();
-        if(player.hasPermission(XenonCore.instance.getConfigData().getModules().getSpybypass())) return;
+        final ConfigSnapshot config = XenonCore.instance.getSnapshot();
+        if(player.hasPermission(config.getSpyBypass())) return;
 
         final String rawCommand = e.getMessage();
         final String command = rawCommand.substring(1).toLowerCase();
 
-        XenonCore.instance.getTaskManager().add(() -> {
-            if (Arrays.stream(XenonCore.instance.getConfigData().getModules().getSpyexceptions())
-                    .map(String::toLowerCase)
-                    .anyMatch(command::contains)) return;
+        final boolean started = XenonCore.instance.getTaskManager().add(() -> {
+            if (config.isSpyException(command)) return;
 
+            final String message = config.getSpyMessage()
+                    .replace("PLAYER", ChatColor.translateAlternateColorCodes('&', player.getDisplayName()))
+                    .replace("COMMAND", ChatColor.translateAlternateColorCodes('&', rawCommand));
 
             XenonCore.instance.getBungeeInstance().getPlayers().stream().filter(
-                    proxiedPlayer -> proxiedPlayer.hasPermission(XenonCore.instance.getConfigData().getModules().getSpyperm())).forEach(
-                    proxiedPlayer -> {
-                        proxiedPlayer.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                                XenonCore.instance.getConfigData().getModules().getSpymessage()
-                                        .replace("PLAYER", player.getDisplayName())
-                                        .replace("COMMAND", rawCommand)));
-                    });
+                    proxiedPlayer -> proxiedPlayer.hasPermission(config.getSpyPerm())).forEach(
+                    proxiedPlayer -> proxiedPlayer.sendMessage(message));
         });
+        if (!started)
+            XenonCore.instance.getLogger().warn(String.format("Dropped command spy message of %s, the task pool is saturated.", player.getName()));
     }
 }
@@ -2,67 +2,56 @@ package ir.xenoncommunity.modules.listeners;
 
 import ir.xenoncommunity.XenonCore;
 import ir.xenoncommunity.abstracts.ModuleListener;
-import ir.xenoncommunity.utils.Configuration;
-import net.md_5.bungee.api.ChatColor;
+import ir.xenoncommunity.utils.ConfigSnapshot;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.event.ChatEvent;
 import net.md_5.bungee.api.event.TabCompleteEvent;
 import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.event.EventHandler;
 
-import java.util.Arrays;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unused") public class CommandWhitelist extends ModuleListener implements Listener {
 
     @EventHandler public void onCommandExecution(final ChatEvent e) {
+        final ConfigSnapshot config = XenonCore.instance.getSnapshot();
         if (!e.getMessage().startsWith("/")
                 || !(e.getSender() instanceof ProxiedPlayer)
-                || ((ProxiedPlayer) e.getSender()).hasPermission(XenonCore.instance.getConfigData().getCommandwhitelist().getBypass())) {
+                || ((ProxiedPlayer) e.getSender()).hasPermission(config.getWhitelistBypass())) {
             return;
         }
 
-        String rawCommand = e.getMessage();
-        String command = rawCommand.substring(1);
+        String command = e.getMessage().substring(1);
         ProxiedPlayer player = (ProxiedPlayer) e.getSender();
-        Configuration.CommandWhitelistData whitelistData = XenonCore.instance.getConfigData().getCommandwhitelist();
 
-        if (whitelistData.getPergroup().entrySet().stream()
-                .filter(entry -> player.hasPermission("xenoncord.commandwhitelist." + entry.getKey()))
-                .map(Map.Entry::getValue)
-                .noneMatch(groupData ->
-                        Arrays.asList(groupData.getServers()).contains(player.getServer().getInfo().getName()) &&
-                                Arrays.asList(groupData.getCommands()).contains(command)
-                )) {
-            player.sendMessage(ChatColor.translateAlternateColorCodes('&',
-                    whitelistData.getBlockmessage()));
+        if (!isAllowed(config, player, command)) {
+            player.sendMessage(config.getWhitelistBlockMessage());
             e.setCancelled(true);
         }
     }
     @EventHandler public void onTabComplete(final TabCompleteEvent e) {
+        final ConfigSnapshot config = XenonCore.instance.getSnapshot();
         if (!(e.getSender() instanceof ProxiedPlayer)
-                || ((ProxiedPlayer) e.getSender()).hasPermission(XenonCore.instance.getConfigData().getCommandwhitelist().getBypass())) {
+                || ((ProxiedPlayer) e.getSender()).hasPermission(config.getWhitelistBypass())) {
             return;
         }
 
         ProxiedPlayer player = (ProxiedPlayer) e.getSender();
         String command = e.getCursor().trim();
-        Configuration.CommandWhitelistData whitelistData = XenonCore.instance.getConfigData().getCommandwhitelist();
 
-        if (whitelistData.getPergroup().entrySet().stream()
-                .filter(entry -> player.hasPermission("xenoncord.commandwhitelist." + entry.getKey()))
-                .map(Map.Entry::getValue)
-                .noneMatch(groupData ->
-                        Arrays.asList(groupData.getServers()).contains(player.getServer().getInfo().getName()) &&
-                                Arrays.asList(groupData.getCommands()).contains(command)
-                )) {
+        if (!isAllowed(config, player, command)) {
             e.getSuggestions().clear();
-            e.getSuggestions().addAll(whitelistData.getPergroup().entrySet().stream()
-                    .filter(entry -> player.hasPermission("xenoncord.commandwhitelist." + entry.getKey()))
-                    .map(Map.Entry::getValue)
-                    .flatMap(ss -> Arrays.stream(ss.getCommands()))
+            e.getSuggestions().addAll(config.getWhitelistGroups().stream()
+                    .filter(group -> player.hasPermission(group.getPermission()))
+                    .flatMap(group -> group.getCommands().stream())
                     .collect(Collectors.toList()));
         }
     }
-}
\ No newline at end of file
+
+    private static boolean isAllowed(final ConfigSnapshot config, final ProxiedPlayer player, final String command) {
+        final String server = player.getServer().getInfo().getName();
+        for (final ConfigSnapshot.WhitelistGroup group : config.getWhitelistGroups())
+            if (group.allows(server, command) && player.hasPermission(group.getPermission())) return true;
+        return false;
+    }
+}
@@ -2,7 +2,6 @@ package ir.xenoncommunity.modules.listeners;
 
 import ir.xenoncommunity.XenonCore;
 import ir.xenoncommunity.abstracts.ModuleListener;
-import net.md_5.bungee.api.ChatColor;
 import net.md_5.bungee.api.ServerPing;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.event.ProxyPingEvent;
@@ -12,7 +11,7 @@ import net.md_5.bungee.event.EventHandler;
 public class MotdChanger extends ModuleListener implements Listener {
     @EventHandler public void proxyPingEvent(final ProxyPingEvent e){
         final ServerPing serverPing = e.getResponse();
-        serverPing.setDescriptionComponent(new TextComponent(ChatColor.translateAlternateColorCodes('&', XenonCore.instance.getConfigData().getModules().getMotd())));
+        serverPing.setDescriptionComponent(new TextComponent(XenonCore.instance.getSnapshot().getMotd()));
         e.setResponse(serverPing);
     }
 }
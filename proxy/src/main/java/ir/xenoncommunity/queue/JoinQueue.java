@@ -0,0 +1,176 @@
+package ir.xenoncommunity.queue;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Players waiting for one server, in priority tiers that are each first come first served.
+ * <p>
+ * Every tier keeps its entries in arrival order with a Fenwick tree over the slots, so adding,
+ * leaving from anywhere in the line and looking up a position are all O(log n). Slots of players
+ * who left are reclaimed when a tier grows, by compacting instead of growing while at least half
+ * of it is empty. Not thread safe.
+ */
+public final class JoinQueue {
+    private final Tier[] tiers;
+    private int size;
+
+    public JoinQueue(final int tierCount) {
+        this.tiers = new Tier[Math.max(1, tierCount)];
+        for (int i = 0; i < tiers.length; i++) tiers[i] = new Tier();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param tier 0 is served first, out of range tiers are clamped
+     */
+    public Entry add(final UUID player, final int tier) {
+        final Entry entry = new Entry(player, Math.max(0, Math.min(tier, tiers.length - 1)));
+        tiers[entry.tier].add(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * @return false if the entry already left the queue
+     */
+    public boolean remove(final Entry entry) {
+        if (entry.slot < 0) return false;
+        tiers[entry.tier].remove(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * @return the first entry of the highest non empty tier, or null
+     */
+    public Entry peek() {
+        for (final Tier tier : tiers)
+            if (tier.count > 0) return tier.first();
+        return null;
+    }
+
+    public Entry poll() {
+        final Entry entry = peek();
+        if (entry != null) remove(entry);
+        return entry;
+    }
+
+    /**
+     * @return 1 for the next player in line, 0 if the entry already left the queue
+     */
+    public int position(final Entry entry) {
+        if (entry.slot < 0) return 0;
+        int ahead = 0;
+        for (int i = 0; i < entry.tier; i++) ahead += tiers[i].count;
+        return ahead + tiers[entry.tier].rank(entry.slot);
+    }
+
+    public static final class Entry {
+        private final UUID player;
+        private final int tier;
+        /**
+         * Index in its tier, -1 once removed.
+         */
+        private int slot = -1;
+
+        private Entry(final UUID player, final int tier) {
+            this.player = player;
+            this.tier = tier;
+        }
+
+        public UUID getPlayer() {
+            return player;
+        }
+
+        public int getTier() {
+            return tier;
+        }
+
+        public boolean isQueued() {
+            return slot >= 0;
+        }
+    }
+
+    private static final class Tier {
+        private Entry[] slots = new Entry[16];
+        /**
+         * 1-based Fenwick tree, 1 for every occupied slot.
+         */
+        private int[] tree = new int[17];
+        private int head;
+        private int tail;
+        private int count;
+
+        private void add(final Entry entry) {
+            if (tail == slots.length) {
+                if (count <= slots.length / 2) compact();
+                else grow();
+            }
+            entry.slot = tail;
+            slots[tail] = entry;
+            update(tail++, 1);
+            count++;
+        }
+
+        private void remove(final Entry entry) {
+            slots[entry.slot] = null;
+            update(entry.slot, -1);
+            entry.slot = -1;
+            count--;
+            while (head < tail && slots[head] == null) head++;
+        }
+
+        private Entry first() {
+            return slots[head];
+        }
+
+        private int rank(final int slot) {
+            int sum = 0;
+            for (int i = slot + 1; i > 0; i -= i & -i) sum += tree[i];
+            return sum;
+        }
+
+        private void update(final int slot, final int delta) {
+            for (int i = slot + 1; i < tree.length; i += i & -i) tree[i] += delta;
+        }
+
+        private void grow() {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            rebuild();
+        }
+
+        private void compact() {
+            int to = 0;
+            for (int from = head; from < tail; from++) {
+                final Entry entry = slots[from];
+                if (entry == null) continue;
+                entry.slot = to;
+                slots[to++] = entry;
+            }
+            Arrays.fill(slots, to, slots.length, null);
+            head = 0;
+            tail = to;
+            rebuild();
+        }
+
+        /**
+         * O(n) construction of the tree from the occupied slots.
+         */
+        private void rebuild() {
+            tree = new int[slots.length + 1];
+            for (int i = 1; i <= slots.length; i++) {
+                if (slots[i - 1] != null) tree[i]++;
+                final int parent = i + (i & -i);
+                if (parent <= slots.length) tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ir.xenoncommunity.queue;
+
+import ir.xenoncommunity.XenonCore;
+import net.md_5.bungee.BungeeServerInfo;
+import net.md_5.bungee.api.ChatMessageType;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.event.ServerConnectEvent;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Native join queues for full servers.
+ * <p>
+ * A player connecting to a server listed under {@code queue.servers} while it has no free slot,
+ * or while others are already waiting for it, is put in line instead. Free slots come from
+ * background pings of the server, or from {@link #reportCapacity(String, int)} when a plugin knows
+ * better. Every waiting player sees their position in the action bar; each tick refreshes only a
+ * slice of the players so the work per tick stays small with thousands in line.
+ */
+public class QueueManager {
+    static final long TICK_MILLIS = 100;
+    /**
+     * Ticks it takes to refresh every waiting player once, the action bar fades after about 3 seconds.
+     */
+    static final int REFRESH_TICKS = 20;
+    private static final long PING_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private final Supplier<QueueSettings> settings;
+    private final Map<String, ServerQueue> queues = new HashMap<>();
+    private final Map<UUID, Waiting> waiting = new HashMap<>();
+    private final ArrayDeque<Waiting> refresh = new ArrayDeque<>();
+    private final ThreadLocal<Boolean> admitting = new ThreadLocal<>();
+
+    public QueueManager(final Supplier<QueueSettings> settings) {
+        this.settings = settings;
+    }
+
+    public void start() {
+        XenonCore.instance.getTaskManager().repeatingTask(this::tick, (int) TICK_MILLIS, (int) TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Called for every connect of a player who already is on a server.
+     *
+     * @return true if the player was put in line and the connect should not go ahead
+     */
+    public boolean enqueue(final ProxiedPlayer player, final ServerInfo target) {
+        final QueueSettings current = settings.get();
+        final String key = key(target.getName());
+        if (admitting.get() != null || !current.getServers().contains(key) || player.hasPermission(current.getBypass()))
+            return false;
+
+        final int tier = tier(player, current);
+        final int position;
+        final int total;
+        synchronized (this) {
+            final ServerQueue queue = queues.computeIfAbsent(key, name -> new ServerQueue(target.getName(), current));
+            Waiting entry = waiting.get(player.getUniqueId());
+            if (entry != null && entry.queue != queue) {
+                entry.queue.line.remove(entry.entry);
+                waiting.remove(player.getUniqueId());
+                entry = null;
+            }
+            if (entry == null) {
+                if (queue.line.isEmpty() && queue.free() > 0) {
+                    queue.inFlight++;
+                    return false;
+                }
+                entry = new Waiting(queue, queue.line.add(player.getUniqueId(), tier));
+                waiting.put(player.getUniqueId(), entry);
+                refresh.addLast(entry);
+            }
+            position = queue.line.position(entry.entry);
+            total = queue.line.size();
+        }
+        player.sendMessage(ChatMessageType.ACTION_BAR, message(current, target.getName(), position, total));
+        return true;
+    }
+
+    /**
+     * @return false if the player was not waiting
+     */
+    public synchronized boolean leave(final UUID player) {
+        final Waiting entry = waiting.remove(player);
+        return entry != null && entry.queue.line.remove(entry.entry);
+    }
+
+    /**
+     * @return the server the player waits for and their position in line, or null
+     */
+    public synchronized Map.Entry<String, Integer> getPosition(final UUID player) {
+        final Waiting entry = waiting.get(player);
+        return entry == null ? null : new AbstractMap.SimpleImmutableEntry<>(entry.queue.name, entry.queue.line.position(entry.entry));
+    }
+
+    /**
+     * Lets a plugin report how many players a server can take right now. Once reported, the
+     * server is no longer pinged for its player count.
+     */
+    public synchronized void reportCapacity(final String server, final int freeSlots) {
+        final ServerQueue queue = queues.computeIfAbsent(key(server), name -> new ServerQueue(server, settings.get()));
+        queue.reported = freeSlots;
+        queue.inFlight = 0;
+        queue.inFlightAtPing = 0;
+    }
+
+    /**
+     * @return players waiting per server
+     */
+    public synchronized Map<String, Integer> getSizes() {
+        final Map<String, Integer> sizes = new HashMap<>();
+        queues.values().forEach(queue -> sizes.put(queue.name, queue.line.size()));
+        return sizes;
+    }
+
+    void tick() {
+        final QueueSettings current = settings.get();
+        final long now = System.nanoTime();
+        final List<ProxiedPlayer> admit = new ArrayList<>();
+        final List<ServerInfo> admitTo = new ArrayList<>();
+        final List<ProxiedPlayer> notify = new ArrayList<>();
+        final List<TextComponent> messages = new ArrayList<>();
+        final List<ServerQueue> ping = new ArrayList<>();
+
+        synchronized (this) {
+            for (final String server : current.getServers()) {
+                final ServerInfo info = ProxyServer.getInstance().getServerInfo(server);
+                if (info != null) queues.computeIfAbsent(server, name -> new ServerQueue(info.getName(), current));
+            }
+
+            for (final ServerQueue queue : queues.values()) {
+                final ServerInfo target = ProxyServer.getInstance().getServerInfo(queue.name);
+                if (target == null) continue;
+                if (queue.reported < 0 && !queue.pinging && now - queue.lastPing >= PING_NANOS) {
+                    queue.pinging = true;
+                    queue.lastPing = now;
+                    queue.inFlightAtPing = queue.inFlight;
+                    ping.add(queue);
+                }
+
+                int free = queue.free();
+                JoinQueue.Entry entry;
+                while (free > 0 && (entry = queue.line.poll()) != null) {
+                    waiting.remove(entry.getPlayer());
+                    final ProxiedPlayer player = ProxyServer.getInstance().getPlayer(entry.getPlayer());
+                    if (player == null || (player.getServer() != null && player.getServer().getInfo().equals(target))) continue;
+                    queue.inFlight++;
+                    free--;
+                    admit.add(player);
+                    admitTo.add(target);
+                }
+            }
+
+            // a slice of the line per tick, everyone is visited once every REFRESH_TICKS ticks
+            for (int i = (refresh.size() + REFRESH_TICKS - 1) / REFRESH_TICKS; i > 0; i--) {
+                final Waiting entry = refresh.pollFirst();
+                if (!entry.entry.isQueued()) continue;
+                final ProxiedPlayer player = ProxyServer.getInstance().getPlayer(entry.entry.getPlayer());
+                if (player == null) {
+                    entry.queue.line.remove(entry.entry);
+                    waiting.remove(entry.entry.getPlayer());
+                    continue;
+                }
+                notify.add(player);
+                messages.add(message(current, entry.queue.name, entry.queue.line.position(entry.entry), entry.queue.line.size()));
+                refresh.addLast(entry);
+            }
+        }
+
+        for (int i = 0; i < notify.size(); i++)
+            notify.get(i).sendMessage(ChatMessageType.ACTION_BAR, messages.get(i));
+        for (final ServerQueue queue : ping) ping(queue);
+        for (int i = 0; i < admit.size(); i++) {
+            admitting.set(Boolean.TRUE);
+            try {
+                admit.get(i).connect(admitTo.get(i), ServerConnectEvent.Reason.PLUGIN);
+            } finally {
+                admitting.remove();
+            }
+        }
+    }
+
+    private void ping(final ServerQueue queue) {
+        final ServerInfo target = ProxyServer.getInstance().getServerInfo(queue.name);
+        if (!(target instanceof BungeeServerInfo)) {
+            synchronized (this) {
+                queue.pinging = false;
+            }
+            return;
+        }
+        ((BungeeServerInfo) target).pingBackend((result, error) -> {
+            synchronized (this) {
+                queue.pinging = false;
+                final boolean known = error == null && result != null && result.getPlayers() != null;
+                queue.online = known ? result.getPlayers().getOnline() : -1;
+                queue.max = known ? result.getPlayers().getMax() : -1;
+                // connects started before this ping are counted in its player count by now, later ones are not
+                queue.inFlight = Math.max(0, queue.inFlight - queue.inFlightAtPing);
+            }
+        });
+    }
+
+    private static int tier(final ProxiedPlayer player, final QueueSettings settings) {
+        for (int i = 0; i < settings.getTiers().size(); i++)
+            if (player.hasPermission(settings.getTiers().get(i))) return i;
+        return settings.getTiers().size();
+    }
+
+    private static TextComponent message(final QueueSettings settings, final String server, final int position, final int total) {
+        return new TextComponent(settings.getMessage()
+                .replace("SERVER", server)
+                .replace("POSITION", Integer.toString(position))
+                .replace("TOTAL", Integer.toString(total)));
+    }
+
+    private static String key(final String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static final class ServerQueue {
+        private final String name;
+        /**
+         * One tier per priority permission, plus one for everybody else.
+         */
+        private final JoinQueue line;
+        private int online = -1;
+        private int max = -1;
+        private int reported = -1;
+        private int inFlight;
+        /**
+         * {@link #inFlight} when the running ping was sent.
+         */
+        private int inFlightAtPing;
+        private long lastPing = System.nanoTime() - PING_NANOS;
+        private boolean pinging;
+
+        private ServerQueue(final String name, final QueueSettings settings) {
+            this.name = name;
+            this.line = new JoinQueue(settings.getTiers().size() + 1);
+        }
+
+        /**
+         * @return slots that can be handed out now, 0 while nothing is known about the server
+         */
+        private int free() {
+            if (reported >= 0) return reported - inFlight;
+            return max < 0 ? 0 : max - online - inFlight;
+        }
+    }
+
+    private static final class Waiting {
+        private final ServerQueue queue;
+        private final JoinQueue.Entry entry;
+
+        private Waiting(final ServerQueue queue, final JoinQueue.Entry entry) {
+            this.queue = queue;
+            this.entry = entry;
+        }
+    }
+}
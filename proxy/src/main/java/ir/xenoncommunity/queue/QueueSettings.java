@@ -0,0 +1,35 @@
+package ir.xenoncommunity.queue;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import ir.xenoncommunity.utils.Configuration;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Immutable join queue settings, part of {@link ir.xenoncommunity.utils.ConfigSnapshot}.
+ */
+@Getter
+public final class QueueSettings {
+    /**
+     * Lower case names of the servers with a queue.
+     */
+    private final ImmutableSet<String> servers;
+    /**
+     * Priority permissions, highest first.
+     */
+    private final ImmutableList<String> tiers;
+    private final String bypass;
+    private final String message;
+
+    public QueueSettings(final Configuration.QueueData data, final String message) {
+        this.servers = Arrays.stream(data.getServers())
+                .map(server -> server.toLowerCase(Locale.ROOT))
+                .collect(ImmutableSet.toImmutableSet());
+        this.tiers = ImmutableList.copyOf(data.getTiers());
+        this.bypass = data.getBypass();
+        this.message = message;
+    }
+}
@@ -0,0 +1,181 @@
+package ir.xenoncommunity.reconnect;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import ir.xenoncommunity.XenonCore;
+import net.md_5.bungee.api.AbstractReconnectHandler;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Remembers the last server of every player in a SQLite database.
+ * <p>
+ * All locations are read into memory once on startup, so logins never touch the disk. Saving a
+ * location only updates the map and marks the key dirty, a single writer thread upserts the latest
+ * value of every dirty key in batched transactions. A disconnect storm therefore costs the event
+ * loops a map update per player, and a player reconnecting over and over is written once.
+ */
+public class SqliteReconnectHandler extends AbstractReconnectHandler {
+    private static final String UPSERT = "INSERT INTO locations (player, server) VALUES (?, ?) "
+            + "ON CONFLICT (player) DO UPDATE SET server = excluded.server";
+
+    private final Connection connection;
+    private final Map<String, String> locations = new ConcurrentHashMap<>();
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+    private final int batchSize;
+    private final ScheduledExecutorService writer;
+
+    /**
+     * Opens or creates the database and loads every stored location.
+     *
+     * @param flushInterval milliseconds between writes of the pending locations
+     * @param batchSize pending locations that trigger an early write, and the rows per transaction
+     */
+    public SqliteReconnectHandler(final File file, final long flushInterval, final int batchSize) throws SQLException {
+        this.connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        this.batchSize = Math.max(1, batchSize);
+        try (final Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            statement.execute("CREATE TABLE IF NOT EXISTS locations (player TEXT PRIMARY KEY NOT NULL, server TEXT NOT NULL)");
+            try (final ResultSet rows = statement.executeQuery("SELECT player, server FROM locations")) {
+                while (rows.next())
+                    locations.put(rows.getString(1), rows.getString(2));
+            }
+            connection.setAutoCommit(false);
+        } catch (final SQLException e) {
+            connection.close();
+            throw e;
+        }
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("XenonCord Reconnect Writer").setDaemon(true).build());
+        writer.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected ServerInfo getStoredServer(final ProxiedPlayer player) {
+        final String server = locations.get(key(player));
+        return server == null ? null : ProxyServer.getInstance().getServerInfo(server);
+    }
+
+    @Override
+    public void setServer(final ProxiedPlayer player) {
+        final ServerInfo server = player.getReconnectServer() != null ? player.getReconnectServer()
+                : player.getServer() != null ? player.getServer().getInfo() : null;
+        if (server != null) put(key(player), server.getName());
+    }
+
+    @Override
+    public void save() {
+        flush();
+    }
+
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            connection.close();
+        } catch (final SQLException e) {
+            XenonCore.instance.getLogger().error(String.format("Could not close the reconnect database: %s", e.getMessage()));
+        }
+    }
+
+    private static String key(final ProxiedPlayer player) {
+        final InetSocketAddress host = player.getPendingConnection().getVirtualHost();
+        return host == null ? player.getUniqueId().toString() : player.getUniqueId() + ";" + host.getHostString() + ":" + host.getPort();
+    }
+
+    @VisibleForTesting
+    void put(final String key, final String server) {
+        // the map is updated before the key is marked, see flush
+        if (server.equals(locations.put(key, server))) return;
+        dirty.add(key);
+
+        if (dirty.size() >= batchSize && flushQueued.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::flush);
+            } catch (final RejectedExecutionException e) {
+                flushQueued.set(false); // closing, close() flushes one last time
+            }
+        }
+    }
+
+    @VisibleForTesting
+    String get(final String key) {
+        return locations.get(key);
+    }
+
+    @VisibleForTesting
+    int pending() {
+        return dirty.size();
+    }
+
+    /**
+     * Writes the current value of every dirty key. A key is unmarked before its value is read, so an
+     * update racing with the write either is written now or marks the key again for the next flush.
+     */
+    private synchronized void flush() {
+        flushQueued.set(false);
+        final List<String> batch = new ArrayList<>(Math.min(batchSize, dirty.size()));
+        final Iterator<String> keys = dirty.iterator();
+        while (keys.hasNext()) {
+            batch.add(keys.next());
+            keys.remove();
+            if (batch.size() == batchSize || !keys.hasNext()) {
+                if (!write(batch)) return;
+                batch.clear();
+            }
+        }
+    }
+
+    private boolean write(final List<String> batch) {
+        try (final PreparedStatement upsert = connection.prepareStatement(UPSERT)) {
+            for (final String key : batch) {
+                upsert.setString(1, key);
+                upsert.setString(2, locations.get(key));
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+            connection.commit();
+            return true;
+        } catch (final SQLException e) {
+            try {
+                connection.rollback();
+            } catch (final SQLException ignored) {
+            }
+            // keep them for the next attempt
+            dirty.addAll(batch);
+            XenonCore.instance.getLogger().error(String.format("Could not save %s reconnect locations: %s", batch.size(), e.getMessage()));
+            return false;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package ir.xenoncommunity.tracing;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Emits a {@code xenoncord.Login} JFR event for every finished login.
+ * <p>
+ * The proxy is compiled against the Java 8 API, which has no {@code jdk.jfr}, so the event type is
+ * defined at runtime through {@code jdk.jfr.EventFactory} (Java 12+). On older runtimes
+ * {@link #create()} returns null and nothing is emitted.
+ */
+final class LoginEvents {
+    private final Object factory;
+    private final Method newEvent;
+    private final Method shouldCommit;
+    private final Method set;
+    private final Method commit;
+
+    private LoginEvents(final Object factory) throws ReflectiveOperationException {
+        final Class<?> event = Class.forName("jdk.jfr.Event");
+        this.factory = factory;
+        this.newEvent = factory.getClass().getMethod("newEvent");
+        this.shouldCommit = event.getMethod("shouldCommit");
+        this.set = event.getMethod("set", int.class, Object.class);
+        this.commit = event.getMethod("commit");
+    }
+
+    static LoginEvents create() {
+        try {
+            final Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+            final Constructor<?> annotation = annotationElement.getConstructor(Class.class, Object.class);
+            final Constructor<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+            final Class<?> name = Class.forName("jdk.jfr.Name");
+            final Class<?> label = Class.forName("jdk.jfr.Label");
+            final Class<?> timespan = Class.forName("jdk.jfr.Timespan");
+
+            final List<Object> fields = new ArrayList<>();
+            fields.add(valueDescriptor.newInstance(String.class, "player", Collections.singletonList(annotation.newInstance(label, "Player"))));
+            fields.add(valueDescriptor.newInstance(String.class, "address", Collections.singletonList(annotation.newInstance(label, "Address"))));
+            fields.add(valueDescriptor.newInstance(long.class, "total", Arrays.asList(annotation.newInstance(label, "Total"), annotation.newInstance(timespan, "NANOSECONDS"))));
+            for (final LoginStage stage : LoginStage.VALUES)
+                fields.add(valueDescriptor.newInstance(long.class, camelCase(stage), Arrays.asList(
+                        annotation.newInstance(label, stage.getLabel()), annotation.newInstance(timespan, "NANOSECONDS"))));
+
+            final List<Object> annotations = Arrays.asList(
+                    annotation.newInstance(name, "xenoncord.Login"),
+                    annotation.newInstance(label, "Login"),
+                    annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[]{"XenonCord"}),
+                    annotation.newInstance(Class.forName("jdk.jfr.Description"), "Time spent in each stage of a player's login"),
+                    annotation.newInstance(Class.forName("jdk.jfr.StackTrace"), false));
+
+            return new LoginEvents(Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class).invoke(null, annotations, fields));
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    void emit(final String player, final String address, final long totalNanos, final long[] stageNanos) {
+        try {
+            final Object event = newEvent.invoke(factory);
+            if (!(Boolean) shouldCommit.invoke(event)) return;
+            set.invoke(event, 0, player);
+            set.invoke(event, 1, address);
+            set.invoke(event, 2, totalNanos);
+            for (int i = 0; i < stageNanos.length; i++) set.invoke(event, 3 + i, stageNanos[i]);
+            commit.invoke(event);
+        } catch (final ReflectiveOperationException ignored) {
+        }
+    }
+
+    private static String camelCase(final LoginStage stage) {
+        final String[] words = stage.name().toLowerCase().split("_");
+        final StringBuilder builder = new StringBuilder(words[0]);
+        for (int i = 1; i < words.length; i++)
+            builder.append(Character.toUpperCase(words[i].charAt(0))).append(words[i].substring(1));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,31 @@
+package ir.xenoncommunity.tracing;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The steps of a join, in the order they happen. Time between steps (the client answering, queued
+ * events) only shows up in the total.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum LoginStage {
+    /** Socket accepted until the handshake packet arrived. */
+    HANDSHAKE("handshake"),
+    /** PreLoginEvent and its intents. */
+    PRE_LOGIN("pre-login"),
+    /** Verify token and shared secret decryption, including the wait for a crypto worker. */
+    ENCRYPTION("encryption"),
+    /** The hasJoined request to the session server. */
+    AUTH("auth"),
+    /** LoginEvent and its intents. */
+    LOGIN_EVENT("login-event"),
+    /** Connecting and logging in to the first backend server. */
+    CONNECT("connect"),
+    /** Handling the backend Login packet and switching the player over. */
+    HANDLE_LOGIN("handle-login");
+
+    static final LoginStage[] VALUES = values();
+
+    private final String label;
+}
@@ -0,0 +1,41 @@
+package ir.xenoncommunity.tracing;
+
+import ir.xenoncommunity.XenonCore;
+
+import java.net.SocketAddress;
+
+/**
+ * Monotonic timestamps of one connection's way through {@link LoginStage}s.
+ * <p>
+ * Stages follow each other through event callbacks and executor hand-offs, which already order
+ * the writes, so nothing here is synchronized.
+ */
+public final class LoginTrace {
+    private final long created = System.nanoTime();
+    private final long[] begins = new long[LoginStage.VALUES.length];
+    private final long[] durations = new long[LoginStage.VALUES.length];
+    private boolean done;
+
+    public void begin(final LoginStage stage) {
+        begins[stage.ordinal()] = System.nanoTime();
+    }
+
+    public void end(final LoginStage stage) {
+        final int index = stage.ordinal();
+        final long begin = stage == LoginStage.HANDSHAKE ? created : begins[index];
+        if (begin != 0 && durations[index] == 0) durations[index] = Math.max(1, System.nanoTime() - begin);
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Hands the finished login to the tracer, only the first call counts.
+     */
+    public void complete(final String player, final SocketAddress address) {
+        if (done) return;
+        done = true;
+        XenonCore.instance.getLoginTracer().record(player, address, System.nanoTime() - created, durations.clone());
+    }
+}
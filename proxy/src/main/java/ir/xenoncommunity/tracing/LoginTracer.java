@@ -0,0 +1,72 @@
+package ir.xenoncommunity.tracing;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Collects finished {@link LoginTrace}s: a histogram per stage plus the total, a ring buffer of
+ * the most recent slow logins, and a JFR event per login when a recording is running.
+ */
+public class LoginTracer {
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("xenoncord.tracing.slowLoginMillis", 1000L));
+    private static final int SLOW_LOGINS = Integer.getInteger("xenoncord.tracing.slowLogins", 64);
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram[] stages = new LatencyHistogram[LoginStage.VALUES.length];
+    private final AtomicReferenceArray<SlowLogin> slowLogins = new AtomicReferenceArray<>(SLOW_LOGINS);
+    private final AtomicLong slowCursor = new AtomicLong();
+    private final LoginEvents events = LoginEvents.create();
+
+    public LoginTracer() {
+        for (int i = 0; i < stages.length; i++) stages[i] = new LatencyHistogram();
+    }
+
+    void record(final String player, final SocketAddress socketAddress, final long totalNanos, final long[] stageNanos) {
+        total.record(totalNanos);
+        for (int i = 0; i < stageNanos.length; i++)
+            if (stageNanos[i] != 0) stages[i].record(stageNanos[i]);
+
+        final String address = socketAddress instanceof InetSocketAddress
+                ? ((InetSocketAddress) socketAddress).getAddress().getHostAddress() : String.valueOf(socketAddress);
+        if (totalNanos >= SLOW_NANOS)
+            slowLogins.set((int) (slowCursor.getAndIncrement() % SLOW_LOGINS),
+                    new SlowLogin(System.currentTimeMillis(), player, address, totalNanos, stageNanos));
+        if (events != null) events.emit(player, address, totalNanos, stageNanos);
+    }
+
+    public LatencyHistogram getTotal() {
+        return total;
+    }
+
+    public LatencyHistogram getHistogram(final LoginStage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * @return the recorded slow logins, newest first
+     */
+    public List<SlowLogin> getSlowLogins() {
+        final long cursor = slowCursor.get();
+        final List<SlowLogin> logins = new ArrayList<>();
+        for (long i = cursor - 1; i >= Math.max(0, cursor - SLOW_LOGINS); i--) {
+            final SlowLogin login = slowLogins.get((int) (i % SLOW_LOGINS));
+            if (login != null) logins.add(login);
+        }
+        return logins;
+    }
+
+    public boolean isJfrAvailable() {
+        return events != null;
+    }
+
+    public void reset() {
+        total.reset();
+        for (final LatencyHistogram stage : stages) stage.reset();
+        for (int i = 0; i < SLOW_LOGINS; i++) slowLogins.set(i, null);
+    }
+}
@@ -0,0 +1,39 @@
+package ir.xenoncommunity.tracing;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A login which took longer than the slow login threshold, kept for {@code /xenon slow}.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class SlowLogin {
+    private final long timestamp;
+    private final String player;
+    private final String address;
+    private final long totalNanos;
+    private final long[] stageNanos;
+
+    public long getStageNanos(final LoginStage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder()
+                .append('[').append(new SimpleDateFormat("HH:mm:ss").format(new Date(timestamp))).append("] ")
+                .append(player).append(' ').append(address)
+                .append(" total ").append(TimeUnit.NANOSECONDS.toMillis(totalNanos)).append("ms:");
+        for (final LoginStage stage : LoginStage.VALUES) {
+            if (stageNanos[stage.ordinal()] == 0) continue;
+            builder.append(' ').append(stage.getLabel()).append(' ')
+                    .append(TimeUnit.NANOSECONDS.toMillis(stageNanos[stage.ordinal()])).append("ms");
+        }
+        return builder.toString();
+    }
+}
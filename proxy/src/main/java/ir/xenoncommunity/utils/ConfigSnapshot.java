@@ -0,0 +1,167 @@
+package ir.xenoncommunity.utils;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import ir.xenoncommunity.antibot.AntiBotSettings;
+import ir.xenoncommunity.balancer.GroupSettings;
+import ir.xenoncommunity.balancer.RedirectSettings;
+import ir.xenoncommunity.queue.QueueSettings;
+import lombok.Getter;
+import net.md_5.bungee.api.ChatColor;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, pre-compiled view of {@link Configuration.ConfigData}.
+ * <p>
+ * Color codes are already translated and PREFIX is already substituted, so modules only have to
+ * fill in their per-message placeholders. A new snapshot is built on every reload and published
+ * through {@link ir.xenoncommunity.XenonCore#getSnapshot()}.
+ */
+@Getter
+public final class ConfigSnapshot {
+    private final String prefix;
+    private final String loadingMessage;
+    private final String ingameBrandName;
+    private final ImmutableSet<String> enabledModules;
+    private final String motd;
+    private final ImmutableList<String> spyExceptions;
+    private final String spyBypass;
+    private final String spyPerm;
+    private final String spyMessage;
+    private final String staffChatPerm;
+    private final String staffChatMessage;
+    private final String whitelistBypass;
+    private final String whitelistBlockMessage;
+    private final ImmutableList<WhitelistGroup> whitelistGroups;
+    private final AntiBotSettings antiBot;
+    private final boolean blocklistEnabled;
+    private final ImmutableList<String> blockFiles;
+    private final ImmutableList<String> allowFiles;
+    /**
+     * Absolute paths of the block and allow lists.
+     */
+    private final ImmutableSet<Path> listFiles;
+    /**
+     * Directories holding the lists, watched for changes.
+     */
+    private final ImmutableSet<Path> listDirectories;
+    private final int balancerInterval;
+    private final ImmutableList<GroupSettings> serverGroups;
+    private final RedirectSettings redirect;
+    private final QueueSettings queue;
+    private final boolean reconnectEnabled;
+    private final String reconnectFile;
+    private final int reconnectFlushInterval;
+    private final int reconnectBatchSize;
+    private final boolean globalTabList;
+    private final int tabListFlushInterval;
+    private final boolean tabCompletePipeline;
+    private final int tabCompleteCacheTtl;
+
+    public ConfigSnapshot(final Configuration.ConfigData data) {
+        final Configuration.ModulesData modules = data.getModules();
+        final Configuration.CommandWhitelistData whitelist = data.getCommandwhitelist();
+
+        this.prefix = color(data.getPrefix());
+        this.loadingMessage = compile(data.getLoadingmessage(), data.getPrefix());
+        this.ingameBrandName = data.getIngamebrandname();
+        this.enabledModules = ImmutableSet.copyOf(modules.getEnables());
+        this.motd = color(modules.getMotd());
+        this.spyExceptions = Arrays.stream(modules.getSpyexceptions())
+                .map(exception -> exception.toLowerCase(Locale.ROOT))
+                .collect(ImmutableList.toImmutableList());
+        this.spyBypass = modules.getSpybypass();
+        this.spyPerm = modules.getSpyperm();
+        this.spyMessage = compile(modules.getSpymessage(), data.getPrefix());
+        this.staffChatPerm = modules.getStaffchatperm();
+        this.staffChatMessage = compile(modules.getStaffchatmessage(), data.getPrefix());
+        this.whitelistBypass = whitelist.getBypass();
+        this.whitelistBlockMessage = compile(whitelist.getBlockmessage(), data.getPrefix());
+        this.whitelistGroups = whitelist.getPergroup().entrySet().stream()
+                .map(WhitelistGroup::new)
+                .collect(ImmutableList.toImmutableList());
+        final Configuration.AntiBotData antiBot = data.getAntibot() != null ? data.getAntibot() : new Configuration.AntiBotData();
+        this.antiBot = new AntiBotSettings(antiBot, compile(antiBot.getVerifymessage(), data.getPrefix()));
+        final Configuration.BlocklistData blocklist = data.getBlocklist() != null ? data.getBlocklist() : new Configuration.BlocklistData();
+        this.blocklistEnabled = blocklist.isEnabled();
+        this.blockFiles = ImmutableList.copyOf(blocklist.getBlockfiles());
+        this.allowFiles = ImmutableList.copyOf(blocklist.getAllowfiles());
+        this.listFiles = Stream.concat(blockFiles.stream(), allowFiles.stream())
+                .map(name -> Paths.get(name).toAbsolutePath().normalize())
+                .collect(ImmutableSet.toImmutableSet());
+        this.listDirectories = listFiles.stream()
+                .map(Path::getParent)
+                .collect(ImmutableSet.toImmutableSet());
+        final Configuration.BalancerData balancer = data.getBalancer() != null ? data.getBalancer() : new Configuration.BalancerData();
+        this.balancerInterval = Math.max(1, balancer.getHealthcheckinterval());
+        this.serverGroups = balancer.getGroups() == null ? ImmutableList.of() : balancer.getGroups().entrySet().stream()
+                .map(entry -> new GroupSettings(entry.getKey(), entry.getValue()))
+                .collect(ImmutableList.toImmutableList());
+        final Configuration.RedirectData redirect = data.getRedirect() != null ? data.getRedirect() : new Configuration.RedirectData();
+        this.redirect = new RedirectSettings(redirect, compile(redirect.getMessage(), data.getPrefix()));
+        final Configuration.QueueData queue = data.getQueue() != null ? data.getQueue() : new Configuration.QueueData();
+        this.queue = new QueueSettings(queue, compile(queue.getMessage(), data.getPrefix()));
+        final Configuration.ReconnectData reconnect = data.getReconnect() != null ? data.getReconnect() : new Configuration.ReconnectData();
+        this.reconnectEnabled = reconnect.isEnabled();
+        this.reconnectFile = reconnect.getFile();
+        this.reconnectFlushInterval = Math.max(50, reconnect.getFlushinterval());
+        this.reconnectBatchSize = Math.max(1, reconnect.getBatchsize());
+        final Configuration.TabListData tabList = data.getTablist() != null ? data.getTablist() : new Configuration.TabListData();
+        this.globalTabList = tabList.isGlobal();
+        this.tabListFlushInterval = Math.max(10, tabList.getFlushinterval());
+        final Configuration.TabCompleteData tabComplete = data.getTabcomplete() != null ? data.getTabcomplete() : new Configuration.TabCompleteData();
+        this.tabCompletePipeline = tabComplete.isPipeline();
+        this.tabCompleteCacheTtl = Math.max(0, tabComplete.getCachettl());
+    }
+
+    public boolean isEnabled(final String module) {
+        return enabledModules.contains(module);
+    }
+
+    /**
+     * @return true if the file is one of the configured block or allow lists
+     */
+    public boolean isListFile(final Path file) {
+        return listFiles.contains(file.toAbsolutePath().normalize());
+    }
+
+    /**
+     * @return true if the command is exempt from command spy
+     */
+    public boolean isSpyException(final String lowerCaseCommand) {
+        for (final String exception : spyExceptions)
+            if (lowerCaseCommand.contains(exception)) return true;
+        return false;
+    }
+
+    private static String compile(final String message, final String prefix) {
+        return color(message.replace("PREFIX", prefix));
+    }
+
+    private static String color(final String message) {
+        return ChatColor.translateAlternateColorCodes('&', message);
+    }
+
+    @Getter
+    public static final class WhitelistGroup {
+        private final String permission;
+        private final ImmutableSet<String> servers;
+        private final ImmutableSet<String> commands;
+
+        private WhitelistGroup(final Map.Entry<String, Configuration.GroupData> entry) {
+            this.permission = "xenoncord.commandwhitelist." + entry.getKey();
+            this.servers = ImmutableSet.copyOf(entry.getValue().getServers());
+            this.commands = ImmutableSet.copyOf(entry.getValue().getCommands());
+        }
+
+        public boolean allows(final String server, final String command) {
+            return servers.contains(server) && commands.contains(command);
+        }
+    }
+}
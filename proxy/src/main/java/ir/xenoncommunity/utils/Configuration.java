@@ -9,8 +9,16 @@ import org.yaml.snakeyaml.Yaml;
 import org.yaml.snakeyaml.constructor.Constructor;
 
 import java.io.*;
+import java.nio.file.*;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Configuration {
     @Getter private File configFile;
@@ -52,6 +60,63 @@ public class Configuration {
             return null;
         }
     }
+    /**
+     * Blocks the calling thread and hands every successfully parsed change of the config file to the consumer.
+     * Invalid files are logged and skipped so the last good config stays active.
+     * Changes of any other file next to it or in one of {@code directories} are reported by absolute path to
+     * {@code onFileChange}. The directories are asked for again after every change, new ones are watched from then on.
+     */
+    public void watch(final Consumer<ConfigData> onReload, final Supplier<? extends Collection<Path>> directories, final Consumer<Path> onFileChange) {
+        final Path file = configFile.getAbsoluteFile().toPath().normalize();
+        try (final WatchService watchService = FileSystems.getDefault().newWatchService()) {
+            final Set<Path> watched = new HashSet<>();
+            register(watchService, Collections.singleton(file.getParent()), watched);
+            register(watchService, directories.get(), watched);
+            while (!Thread.currentThread().isInterrupted()) {
+                final Set<Path> changed = new HashSet<>();
+                collect(watchService.take(), changed);
+
+                // editors tend to write in several steps, let them finish
+                Thread.sleep(250L);
+                WatchKey pending;
+                while ((pending = watchService.poll()) != null)
+                    collect(pending, changed);
+
+                for (final Path other : changed)
+                    if (!other.equals(file)) onFileChange.accept(other);
+                if (changed.contains(file)) {
+                    final ConfigData data = getConfig();
+                    if (data == null)
+                        XenonCore.instance.getLogger().error("Not reloading XenonCore.yml, keeping the previous configuration.");
+                    else
+                        onReload.accept(data);
+                }
+                register(watchService, directories.get(), watched);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final Exception e) {
+            XenonCore.instance.getLogger().error(e.getMessage());
+        }
+    }
+    private static void register(final WatchService watchService, final Collection<Path> directories, final Set<Path> watched) {
+        for (final Path directory : directories) {
+            // directories which do not exist yet are tried again after the next change
+            if (watched.contains(directory) || !Files.isDirectory(directory)) continue;
+            try {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+                watched.add(directory);
+            } catch (final IOException e) {
+                XenonCore.instance.getLogger().warn(String.format("Could not watch %s for changes: %s", directory, e.getMessage()));
+            }
+        }
+    }
+    private static void collect(final WatchKey key, final Set<Path> changed) {
+        final Path directory = (Path) key.watchable();
+        for (final WatchEvent<?> event : key.pollEvents())
+            if (event.context() instanceof Path) changed.add(directory.resolve((Path) event.context()));
+        key.reset();
+    }
     @Getter
     @Setter
     public static class ConfigData{
@@ -60,6 +125,14 @@ public class Configuration {
         private String ingamebrandname;
         private ModulesData modules;
         private CommandWhitelistData commandwhitelist;
+        private AntiBotData antibot = new AntiBotData();
+        private BlocklistData blocklist = new BlocklistData();
+        private BalancerData balancer = new BalancerData();
+        private RedirectData redirect = new RedirectData();
+        private QueueData queue = new QueueData();
+        private ReconnectData reconnect = new ReconnectData();
+        private TabListData tablist = new TabListData();
+        private TabCompleteData tabcomplete = new TabCompleteData();
     }
     @Getter
     @Setter
@@ -81,6 +154,84 @@ public class Configuration {
         private Map<String, GroupData> pergroup;
     }
 
+    @Getter
+    @Setter
+    public static class AntiBotData {
+        private boolean enabled = false;
+        private int maxconnectionspersecond = 10;
+        private int attackthreshold = 200;
+        private int attackduration = 60;
+        private int maxlogindelay = 5000;
+        private int penaltylimit = 10;
+        private String verifymessage = "PREFIX\n&cBot attack in progress, please reconnect to verify.";
+    }
+
+    @Getter
+    @Setter
+    public static class BlocklistData {
+        private boolean enabled = true;
+        private String[] blockfiles = {"blocklist.txt"};
+        private String[] allowfiles = {"allowlist.txt"};
+    }
+
+    @Getter
+    @Setter
+    public static class BalancerData {
+        private int healthcheckinterval = 5;
+        private Map<String, ServerGroupData> groups = new HashMap<>();
+    }
+
+    @Getter
+    @Setter
+    public static class RedirectData {
+        private boolean enabled = true;
+        private double rate = 20;
+        private int burst = 20;
+        private int jitter = 250;
+        private int maxwait = 120;
+        private String message = "PREFIX &7The server went down, moving you to &bSERVER&7, you are &bPOSITION&7/&bTOTAL&7 in line.";
+    }
+
+    @Getter
+    @Setter
+    public static class QueueData {
+        private String[] servers = {};
+        private String[] tiers = {"xenoncord.queue.priority.1", "xenoncord.queue.priority.2"};
+        private String bypass = "xenoncord.queue.bypass";
+        private String message = "&7Position in queue for &bSERVER&7: &bPOSITION&7/&bTOTAL";
+    }
+
+    @Getter
+    @Setter
+    public static class ReconnectData {
+        private boolean enabled = true;
+        private String file = "locations.db";
+        private int flushinterval = 1000;
+        private int batchsize = 500;
+    }
+
+    @Getter
+    @Setter
+    public static class TabListData {
+        private boolean global = false;
+        private int flushinterval = 50;
+    }
+
+    @Getter
+    @Setter
+    public static class TabCompleteData {
+        private boolean pipeline = true;
+        private int cachettl = 0;
+    }
+
+    @Getter
+    @Setter
+    public static class ServerGroupData {
+        private String strategy = "LEAST_PLAYERS";
+        private String[] servers = {};
+        private Map<String, Integer> weights = new HashMap<>();
+    }
+
     @Getter
     @Setter
     public static class GroupData {
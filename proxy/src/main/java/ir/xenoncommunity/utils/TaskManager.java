@@ -1,46 +1,200 @@
 package ir.xenoncommunity.utils;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import ir.xenoncommunity.XenonCore;
+import lombok.Getter;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Runs XenonCore work off the netty threads.
+ * <p>
+ * CPU bound work goes to a bounded platform pool, blocking work goes to virtual threads when the
+ * runtime has them (a bounded cached pool otherwise). Both sides reject instead of queueing without
+ * bound, so a chat flood can not pile up module tasks; callers have to handle a rejected task.
+ * Repeating tasks run on the scheduler thread itself.
+ */
 @SuppressWarnings("unused")
 public class TaskManager {
-    private final ExecutorService executorService;
+    private static final int CPU_QUEUE_CAPACITY = Integer.getInteger("xenoncord.tasks.cpuQueue", 1024);
+    private static final int MAX_BLOCKING_TASKS = Integer.getInteger("xenoncord.tasks.maxBlocking", 256);
+
+    private final ThreadPoolExecutor cpuExecutor;
+    private final ExecutorService blockingExecutor;
     private final ScheduledExecutorService scheduledExecutorService;
+    private final Semaphore blockingPermits = new Semaphore(MAX_BLOCKING_TASKS);
+    @Getter private final boolean virtualThreads;
+    @Getter private final Metrics metrics = new Metrics();
 
     public TaskManager() {
-        this.executorService = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
-        this.scheduledExecutorService = Executors.newScheduledThreadPool(1);
-    }
-
-    public synchronized void add(final Runnable runnableIn) {
-        executorService.submit(() -> {
-            try {
-                runnableIn.run();
-            } catch (final Exception e) {
-                XenonCore.instance.getLogger().error(e.getMessage());
-            }
-        });
-    }
-
-    public synchronized void repeatingTask(final Runnable runnableIn, final int initDelay, final int delayInMS, final TimeUnit timeUnit) {
-        scheduledExecutorService.scheduleAtFixedRate(() -> {
-            try {
-                runnableIn.run();
-            } catch (final Exception e) {
-                XenonCore.instance.getLogger().error(e.getMessage());
-            }
+        final int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        this.cpuExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(CPU_QUEUE_CAPACITY),
+                new ThreadFactoryBuilder().setNameFormat("XenonCord Task #%1$d").setDaemon(true).build(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduledExecutorService = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("XenonCord Scheduler").setDaemon(true).build());
+
+        final ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.blockingExecutor = virtual != null ? virtual : new ThreadPoolExecutor(0, MAX_BLOCKING_TASKS, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("XenonCord Blocking Task #%1$d").setDaemon(true).build());
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} reflectively, we still compile against java 9.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a short, CPU bound task on the bounded platform pool.
+     *
+     * @return false if the pool is saturated and the task was dropped
+     */
+    public boolean add(final Runnable runnableIn) {
+        final long submitted = System.nanoTime();
+        try {
+            cpuExecutor.execute(() -> run(runnableIn, submitted));
+            metrics.submitted.increment();
+            return true;
+        } catch (final RejectedExecutionException e) {
+            metrics.rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Runs a task which may block (IO, sleeping, waiting on locks) on its own virtual thread.
+     *
+     * @return false if too many blocking tasks are already in flight and the task was dropped
+     */
+    public boolean independentTask(final Runnable task) {
+        if (!blockingPermits.tryAcquire()) {
+            metrics.rejected.increment();
+            return false;
+        }
+        final long submitted = System.nanoTime();
+        try {
+            blockingExecutor.execute(() -> {
+                try {
+                    run(task, submitted);
+                } finally {
+                    blockingPermits.release();
+                }
+            });
+            metrics.submitted.increment();
+            return true;
+        } catch (final RejectedExecutionException e) {
+            blockingPermits.release();
+            metrics.rejected.increment();
+            return false;
+        }
+    }
+
+    /**
+     * Runs a short task periodically on the scheduler thread. Ticks of all repeating tasks run one
+     * after another, so a tick never overlaps the previous one and is never dropped by a saturated
+     * pool. Hand anything slow from a tick to {@link #add} or {@link #independentTask}.
+     */
+    public ScheduledFuture<?> repeatingTask(final Runnable runnableIn, final int initDelay, final int delayInMS, final TimeUnit timeUnit) {
+        return scheduledExecutorService.scheduleAtFixedRate(() -> {
+            metrics.submitted.increment();
+            run(runnableIn, System.nanoTime());
         }, initDelay, delayInMS, timeUnit);
     }
 
-    public synchronized void independentTask(final Runnable task) {
-        new Thread(() -> {
-            try {
-                task.run();
-            } catch (final Exception e) {
-                XenonCore.instance.getLogger().error(e.getMessage());
-            }
-        }).start();
+    public void shutdown() {
+        scheduledExecutorService.shutdownNow();
+        cpuExecutor.shutdown();
+        blockingExecutor.shutdown();
+    }
+
+    /**
+     * @return tasks waiting for a CPU thread, blocking tasks never wait
+     */
+    public int getQueueDepth() {
+        return cpuExecutor.getQueue().size();
+    }
+
+    /**
+     * @return CPU tasks being run plus blocking tasks in flight, long lived ones like the config watcher included
+     */
+    public int getRunningTasks() {
+        return cpuExecutor.getActiveCount() + MAX_BLOCKING_TASKS - blockingPermits.availablePermits();
+    }
+
+    private void run(final Runnable task, final long submitted) {
+        final long start = System.nanoTime();
+        metrics.recordWait(start - submitted);
+        try {
+            task.run();
+        } catch (final Exception e) {
+            XenonCore.instance.getLogger().error(e.getMessage());
+        } finally {
+            metrics.recordRun(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Lock free counters, cheap enough to update on every task.
+     */
+    public static class Metrics {
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder waitNanos = new LongAdder();
+        private final LongAdder runNanos = new LongAdder();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+
+        private void recordWait(final long nanos) {
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void recordRun(final long nanos) {
+            runNanos.add(nanos);
+            completed.increment();
+        }
+
+        public long getSubmitted() {
+            return submitted.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getCompleted() {
+            return completed.sum();
+        }
+
+        public double getAverageWaitMillis() {
+            final long done = completed.sum();
+            return done == 0 ? 0 : waitNanos.sum() / (done * 1_000_000D);
+        }
+
+        public double getAverageRunMillis() {
+            final long done = completed.sum();
+            return done == 0 ? 0 : runNanos.sum() / (done * 1_000_000D);
+        }
+
+        public double getMaxWaitMillis() {
+            return maxWaitNanos.get() / 1_000_000D;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("submitted=%d completed=%d rejected=%d avgWait=%.2fms maxWait=%.2fms avgRun=%.2fms",
+                    getSubmitted(), getCompleted(), getRejected(), getAverageWaitMillis(), getMaxWaitMillis(), getAverageRunMillis());
+        }
     }
 }
@@ -0,0 +1,215 @@
+package net.md_5.bungee;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import net.md_5.bungee.netty.PipelineUtils;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pre-connected idle sockets to backend servers, one pool per event loop so a drawn socket is
+ * already registered on the loop of the player switching servers.
+ * <p>
+ * Nothing is sent on an idle socket, the handshake is written by {@link ServerConnector} once a
+ * player takes it. Sockets are dropped when the backend closes them or sends anything, and are
+ * replaced after {@link #MAX_AGE} ms, well before a vanilla server times out an idle handshake.
+ * Backends stop being refilled once no player has connected to them for a while.
+ */
+final class BackendConnectionPool
+{
+
+    static final int SIZE = Integer.getInteger( "net.md_5.bungee.backend_pool.size", 0 );
+    static final int MAX_AGE = Integer.getInteger( "net.md_5.bungee.backend_pool.max_age", 15000 );
+    private static final long MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos( MAX_AGE );
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos( Integer.getInteger( "net.md_5.bungee.backend_pool.idle_timeout", 60000 ) );
+    private static final long RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos( Integer.getInteger( "net.md_5.bungee.backend_pool.retry_delay", 5000 ) );
+    private static final Map<EventLoop, BackendConnectionPool> pools = new ConcurrentHashMap<>();
+    //
+    private final EventLoop eventLoop;
+    private final Bootstrap bootstrap;
+    private final int size;
+    private final Map<SocketAddress, Backend> backends = new HashMap<>();
+
+    @VisibleForTesting
+    BackendConnectionPool(EventLoop eventLoop, Bootstrap bootstrap, int size)
+    {
+        this.eventLoop = eventLoop;
+        this.bootstrap = bootstrap.group( eventLoop );
+        this.size = size;
+    }
+
+    static BackendConnectionPool of(EventLoop eventLoop)
+    {
+        return pools.computeIfAbsent( eventLoop, loop -> new BackendConnectionPool( loop, new Bootstrap()
+                .channelFactory( PipelineUtils.getChannelFactory( null ) )
+                .option( ChannelOption.CONNECT_TIMEOUT_MILLIS, BungeeCord.getInstance().getConfig().getServerConnectTimeout() ), SIZE ) );
+    }
+
+    /**
+     * Takes a connected idle socket to the address and tops the pool up again. Must be called on
+     * the event loop.
+     *
+     * @return an active channel with an empty pipeline, or null if none is ready
+     */
+    Channel poll(SocketAddress address)
+    {
+        if ( !( address instanceof InetSocketAddress ) )
+        {
+            return null;
+        }
+
+        Backend backend = backends.get( address );
+        if ( backend == null )
+        {
+            backend = new Backend( address );
+            backends.put( address, backend );
+        }
+        return backend.poll();
+    }
+
+    @VisibleForTesting
+    int idle(SocketAddress address)
+    {
+        Backend backend = backends.get( address );
+        return ( backend == null ) ? 0 : backend.idle.size();
+    }
+
+    private final class Backend
+    {
+
+        private final SocketAddress address;
+        private final ArrayDeque<Idle> idle = new ArrayDeque<>();
+        private int connecting;
+        private long lastUsed;
+        private long retryAt;
+        private ScheduledFuture<?> maintenance;
+
+        private Backend(SocketAddress address)
+        {
+            this.address = address;
+        }
+
+        private Channel poll()
+        {
+            lastUsed = System.nanoTime();
+            if ( maintenance == null )
+            {
+                maintenance = eventLoop.scheduleAtFixedRate( this::maintain, 1, 1, TimeUnit.SECONDS );
+            }
+
+            Channel channel = null;
+            Idle entry;
+            // newest first, it is the least likely to have been closed in the meantime
+            while ( channel == null && ( entry = idle.pollLast() ) != null )
+            {
+                if ( entry.channel.isActive() && !entry.isExpired() )
+                {
+                    channel = entry.channel;
+                    channel.pipeline().remove( entry );
+                } else
+                {
+                    entry.channel.close();
+                }
+            }
+            fill();
+            return channel;
+        }
+
+        private void maintain()
+        {
+            if ( System.nanoTime() - lastUsed > IDLE_NANOS )
+            {
+                maintenance.cancel( false );
+                maintenance = null;
+                backends.remove( address );
+                while ( !idle.isEmpty() )
+                {
+                    idle.pollFirst().channel.close();
+                }
+                return;
+            }
+
+            while ( !idle.isEmpty() && idle.peekFirst().isExpired() )
+            {
+                idle.pollFirst().channel.close();
+            }
+            fill();
+        }
+
+        private void fill()
+        {
+            if ( retryAt - System.nanoTime() > 0 )
+            {
+                return;
+            }
+            while ( idle.size() + connecting < size )
+            {
+                connecting++;
+                final Idle entry = new Idle();
+                bootstrap.clone().remoteAddress( address ).handler( entry ).connect().addListener( (ChannelFutureListener) future ->
+                {
+                    connecting--;
+                    if ( !future.isSuccess() )
+                    {
+                        retryAt = System.nanoTime() + RETRY_NANOS;
+                    } else if ( maintenance == null || idle.size() >= size )
+                    {
+                        future.channel().close();
+                    } else
+                    {
+                        entry.channel = future.channel();
+                        idle.addLast( entry );
+                    }
+                } );
+            }
+        }
+
+        /**
+         * Sits in the pipeline of an idle socket, nothing is expected to arrive before the handshake.
+         */
+        private final class Idle extends ChannelInboundHandlerAdapter
+        {
+
+            private final long created = System.nanoTime();
+            private Channel channel;
+
+            private boolean isExpired()
+            {
+                return System.nanoTime() - created > MAX_AGE_NANOS;
+            }
+
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg)
+            {
+                ReferenceCountUtil.release( msg );
+                ctx.close();
+            }
+
+            @Override
+            public void channelInactive(ChannelHandlerContext ctx)
+            {
+                idle.remove( this );
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause)
+            {
+                ctx.close();
+            }
+        }
+    }
+}
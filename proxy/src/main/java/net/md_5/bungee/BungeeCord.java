@@ -16,6 +16,8 @@ import io.netty.channel.*;
 import io.netty.util.ResourceLeakDetector;
 import ir.xenoncommunity.XenonCore;
 import ir.xenoncommunity.commands.*;
+import ir.xenoncommunity.reconnect.SqliteReconnectHandler;
+import ir.xenoncommunity.utils.ConfigSnapshot;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.Synchronized;
@@ -30,6 +32,7 @@ import net.md_5.bungee.api.plugin.PluginManager;
 import net.md_5.bungee.chat.*;
 import net.md_5.bungee.command.*;
 import net.md_5.bungee.compress.CompressFactory;
+import net.md_5.bungee.connection.LoginResult;
 import net.md_5.bungee.conf.Configuration;
 import net.md_5.bungee.conf.YamlConfig;
 import net.md_5.bungee.forge.ForgeConstants;
@@ -38,7 +41,9 @@ import net.md_5.bungee.protocol.ProtocolConstants;
 import net.md_5.bungee.protocol.packet.PluginMessage;
 import net.md_5.bungee.query.RemoteQuery;
 import net.md_5.bungee.scheduler.BungeeScheduler;
+import net.md_5.bungee.tab.GlobalTabList;
 import net.md_5.bungee.util.CaseInsensitiveMap;
+import net.md_5.bungee.util.Translation;
 import org.reflections.Reflections;
 import org.reflections.scanners.Scanners;
 import org.reflections.util.ConfigurationBuilder;
@@ -50,8 +55,7 @@ import java.lang.reflect.Type;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.charset.StandardCharsets;
-import java.text.Format;
-import java.text.MessageFormat;
+import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -79,7 +83,7 @@ public class BungeeCord extends ProxyServer
     /**
      * Localization formats.
      */
-    private Map<String, Format> messageFormats;
+    private Map<String, Translation> translations; // XenonCord
     public EventLoopGroup bossEventLoopGroup, workerEventLoopGroup;
     /**
      * locations.yml save thread.
@@ -128,11 +132,22 @@ public class BungeeCord extends ProxyServer
             .registerTypeAdapter( KeybindComponent.class, new KeybindComponentSerializer() )
             .registerTypeAdapter( ScoreComponent.class, new ScoreComponentSerializer() )
             .registerTypeAdapter( SelectorComponent.class, new SelectorComponentSerializer() )
+            .registerTypeAdapter( FrozenComponent.class, new FrozenComponentSerializer() ) // XenonCord
             .registerTypeAdapter( ComponentStyle.class, new ComponentStyleSerializer() )
             .registerTypeAdapter( ServerPing.PlayerInfo.class, new PlayerInfoSerializer() )
-            .registerTypeAdapter( Favicon.class, Favicon.getFaviconTypeAdapter() ).create();
+            .registerTypeAdapter( Favicon.class, Favicon.getFaviconTypeAdapter() )
+            // XenonCord - streaming adapters for the per login and per ping types
+            .registerTypeAdapter( LoginResult.class, new LoginResultSerializer() )
+            .registerTypeAdapterFactory( ServerPingSerializer.FACTORY ).create();
     @Getter
     private ConnectionThrottle connectionThrottle;
+    // XenonCord start
+    /**
+     * Table behind the tab lists of players on GLOBAL and GLOBAL_PING listeners.
+     */
+    @Getter
+    private final GlobalTabList globalTabList = new GlobalTabList();
+    // XenonCord end
     public static BungeeCord getInstance()
     {
         return (BungeeCord) ProxyServer.getInstance();
@@ -186,9 +201,23 @@ public class BungeeCord extends ProxyServer
         registerChannel( ForgeConstants.FML_HANDSHAKE_TAG );
         registerChannel( ForgeConstants.FORGE_REGISTER );
 
+        // XenonCord start - bundled reconnect handler, set before plugins so they can still replace it
+        ConfigSnapshot snapshot = XenonCore.instance.getSnapshot();
+        if ( reconnectHandler == null && snapshot.isReconnectEnabled() )
+        {
+            try
+            {
+                reconnectHandler = new SqliteReconnectHandler( new File( snapshot.getReconnectFile() ), snapshot.getReconnectFlushInterval(), snapshot.getReconnectBatchSize() );
+            } catch ( SQLException ex )
+            {
+                getLogger().log( Level.WARNING, "Could not open reconnect database, reconnect locations are disabled", ex );
+            }
+        }
+        // XenonCord end
+
         isRunning = true;
 
-        XenonCore.instance.getTaskManager().add(() ->{
+        boolean started = XenonCore.instance.getTaskManager().add(() ->{
             XenonCore.instance.getLogger().info("ASYNC task command registerer is starting...");
             new Reflections("ir.xenoncommunity.commands").getSubTypesOf(Command.class).stream().filter(
                     command -> !command.getSimpleName().toLowerCase().contains("playercommand")).forEach(command -> {
@@ -200,17 +229,29 @@ public class BungeeCord extends ProxyServer
                 }
             });
         });
-        XenonCore.instance.getTaskManager().independentTask(() -> {
+        // XenonCord start - the task pools reject instead of queueing without bound
+        if ( !started )
+        {
+            XenonCore.instance.getLogger().error( "Could not start the command registerer, the task pool is saturated." );
+        }
+        started = XenonCore.instance.getTaskManager().independentTask(() -> {
             XenonCore.instance.getLogger().info("ASYNC task plugin loader is starting...");
             pluginManager.detectPlugins( pluginsFolder );
             pluginManager.loadPlugins();
             XenonCore.instance.setProxyCompletlyLoaded(pluginManager.enablePlugins());
             XenonCore.instance.getLogger().info("Plugins are loaded!");
         });
+        if ( !started )
+        {
+            XenonCore.instance.getLogger().error( "Could not start the plugin loader, too many blocking tasks are running." );
+        }
+        // XenonCord end
 
 
         if ( config.getThrottle() > 0 )
-            connectionThrottle = new ConnectionThrottle( config.getThrottle(), config.getThrottleLimit() );
+            connectionThrottle = config.isThrottleSketch()
+                    ? new SketchConnectionThrottle( config.getThrottle(), config.getThrottleLimit() )
+                    : new ConnectionThrottle( config.getThrottle(), config.getThrottleLimit() );
 
         startListeners();
 
@@ -225,6 +266,33 @@ public class BungeeCord extends ProxyServer
                 }
             }
         }, 0, TimeUnit.MINUTES.toMillis( 5 ) );
+        // XenonCord start - keep passthrough pings warm, the pings themselves are async
+        workerEventLoopGroup.scheduleAtFixedRate( () ->
+        {
+            if ( config.getRemotePingCache() <= 0 )
+            {
+                return;
+            }
+            for ( ServerInfo server : getServersCopy().values() )
+            {
+                if ( server instanceof BungeeServerInfo )
+                {
+                    ( (BungeeServerInfo) server ).refreshPing();
+                }
+            }
+        }, 1, 1, TimeUnit.SECONDS );
+        long tabListInterval = XenonCore.instance.getSnapshot().getTabListFlushInterval();
+        workerEventLoopGroup.scheduleAtFixedRate( () ->
+        {
+            try
+            {
+                globalTabList.flush();
+            } catch ( RuntimeException ex )
+            {
+                getLogger().log( Level.WARNING, "Could not send global tab list changes", ex );
+            }
+        }, tabListInterval, tabListInterval, TimeUnit.MILLISECONDS );
+        // XenonCord end
         //metricsThread.scheduleAtFixedRate( new Metrics(), 0, TimeUnit.MINUTES.toMillis( Metrics.PING_INTERVAL ) ); // Waterfall: Disable Metrics
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> independentThreadStop( getTranslation( "restart" ), false )));
@@ -435,7 +503,7 @@ public class BungeeCord extends ProxyServer
 
     public final void reloadMessages()
     {
-        Map<String, Format> cachedFormats = new HashMap<>();
+        Map<String, Translation> cachedFormats = new HashMap<>(); // XenonCord
 
         File file = new File( "messages.properties" );
         if ( file.isFile() )
@@ -459,25 +527,43 @@ public class BungeeCord extends ProxyServer
         }
         cacheResourceBundle( cachedFormats, baseBundle );
 
-        messageFormats = Collections.unmodifiableMap( cachedFormats );
+        translations = Collections.unmodifiableMap( cachedFormats ); // XenonCord
     }
 
-    private void cacheResourceBundle(Map<String, Format> map, ResourceBundle resourceBundle)
+    private void cacheResourceBundle(Map<String, Translation> map, ResourceBundle resourceBundle) // XenonCord
     {
         Enumeration<String> keys = resourceBundle.getKeys();
         while ( keys.hasMoreElements() )
         {
-            map.computeIfAbsent( keys.nextElement(), (key) -> new MessageFormat( resourceBundle.getString( key ) ) );
+            map.computeIfAbsent( keys.nextElement(), (key) -> new Translation( resourceBundle.getString( key ) ) ); // XenonCord
         }
     }
 
     @Override
     public String getTranslation(String name, Object... args)
     {
-        Format format = messageFormats.get( name );
-        return ( format != null ) ? format.format( args ) : "<translation '" + name + "' missing>";
+        // XenonCord start
+        Translation translation = translations.get( name );
+        return ( translation != null ) ? translation.format( args ) : "<translation '" + name + "' missing>";
+        // XenonCord end
     }
 
+    // XenonCord start
+    /**
+     * Gets a translation without arguments as components. The components are
+     * built once per reload and copied for each call.
+     *
+     * @param name the translation key
+     * @return the same as {@link TextComponent#fromLegacyText(String)} of
+     * {@link #getTranslation(String, Object...)}
+     */
+    public BaseComponent[] getTranslationComponents(String name)
+    {
+        Translation translation = translations.get( name );
+        return ( translation != null ) ? translation.toComponents() : TextComponent.fromLegacyText( getTranslation( name ) );
+    }
+    // XenonCord end
+
     @Override
     public Collection<ProxiedPlayer> getPlayers()
     {
@@ -557,6 +643,19 @@ public class BungeeCord extends ProxyServer
         return config.getServerInfo( name ); // Waterfall
     }
 
+    // XenonCord start - server group names resolve to one of their members
+    @Override
+    public ServerInfo selectServer(String name)
+    {
+        ServerInfo server = config.getServerInfo( name );
+        if ( server == null && XenonCore.instance != null )
+        {
+            server = XenonCore.instance.getBalancer().select( name, null );
+        }
+        return server;
+    }
+    // XenonCord end
+
     @Override
     @Synchronized("pluginChannels")
     public void registerChannel(String channel)
@@ -626,16 +725,20 @@ public class BungeeCord extends ProxyServer
     public void broadcast(final BaseComponent... message)
     {
         getConsole().sendMessage( message );
+        // XenonCord - encoded once for all players
+        final BaseComponent frozen = FrozenComponent.of( TextComponent.fromArray( message ) );
         for ( final ProxiedPlayer player : getPlayers() )
-            player.sendMessage( message );
+            player.sendMessage( frozen );
     }
 
     @Override
     public void broadcast(final BaseComponent message)
     {
         getConsole().sendMessage( message );
+        // XenonCord - encoded once for all players
+        final BaseComponent frozen = FrozenComponent.of( message );
         for ( final ProxiedPlayer player : getPlayers() )
-            player.sendMessage( message );
+            player.sendMessage( frozen );
     }
 
     public boolean addConnection(final UserConnection con)
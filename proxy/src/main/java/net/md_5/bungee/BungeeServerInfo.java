@@ -24,7 +24,9 @@ import net.md_5.bungee.protocol.packet.PluginMessage;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 // CHECKSTYLE:OFF
 @RequiredArgsConstructor
@@ -67,6 +69,14 @@ public class BungeeServerInfo implements ServerInfo
         return Collections.unmodifiableCollection( new HashSet<>( players ) );
     }
 
+    // XenonCord start
+    @Synchronized("players")
+    public int getPlayerCount()
+    {
+        return players.size();
+    }
+    // XenonCord end
+
     @Override
     public String getPermission()
     {
@@ -124,18 +134,55 @@ public class BungeeServerInfo implements ServerInfo
         return false;
     }
 
-    private long lastPing;
-    private ServerPing cachedPing;
+    // XenonCord start - stale-while-revalidate ping cache with single-flight backend pings
+    /**
+     * How long past remote_ping_cache an expired ping is still served while a refresh runs.
+     */
+    private static final int STALE_WINDOW = Integer.getInteger( "net.md_5.bungee.ping.stale_window", 30000 );
+    /**
+     * Backends nobody asked about for this long are no longer refreshed in the background.
+     */
+    private static final int IDLE_TIMEOUT = Integer.getInteger( "net.md_5.bungee.ping.idle_timeout", 60000 );
+    //
+    private volatile long lastPing;
+    private volatile ServerPing cachedPing;
+    private volatile long lastRequested;
+    private volatile int lastProtocol;
+    private final Map<Integer, List<Callback<ServerPing>>> pendingPings = new HashMap<>();
 
     public void cachePing(ServerPing serverPing)
     {
         if ( ProxyServer.getInstance().getConfig().getRemotePingCache() > 0 )
         {
-            this.cachedPing = serverPing;
             this.lastPing = System.currentTimeMillis();
+            this.cachedPing = serverPing;
+        }
+    }
+
+    /**
+     * Called periodically, pings the backend ahead of cache expiry while it is being asked about so
+     * that status requests are answered from the cache.
+     */
+    public void refreshPing()
+    {
+        int pingCache = ProxyServer.getInstance().getConfig().getRemotePingCache();
+        long now = System.currentTimeMillis();
+        if ( pingCache > 0 && lastRequested != 0 && now - lastRequested < IDLE_TIMEOUT && ( cachedPing == null || now - lastPing > pingCache / 2 ) )
+        {
+            ping0( null, lastProtocol );
         }
     }
 
+    /**
+     * Pings the backend itself, skipping the cache. Joins a ping of the proxy version already running.
+     */
+    public void pingBackend(Callback<ServerPing> callback)
+    {
+        Preconditions.checkNotNull( callback, "callback" );
+        ping0( callback, ProxyServer.getInstance().getProtocolVersion() );
+    }
+    // XenonCord end
+
     @Override
     public InetSocketAddress getAddress()
     {
@@ -152,18 +199,80 @@ public class BungeeServerInfo implements ServerInfo
     {
         Preconditions.checkNotNull( callback, "callback" );
 
+        // XenonCord start
         int pingCache = ProxyServer.getInstance().getConfig().getRemotePingCache();
-        if ( pingCache > 0 && cachedPing != null && ( System.currentTimeMillis() - lastPing ) > pingCache )
+        if ( pingCache > 0 )
         {
-            cachedPing = null;
+            long now = System.currentTimeMillis();
+            lastRequested = now;
+            lastProtocol = protocolVersion;
+
+            ServerPing cached = cachedPing;
+            long age = now - lastPing;
+            if ( cached != null && age <= pingCache + STALE_WINDOW )
+            {
+                if ( age > pingCache )
+                {
+                    ping0( null, protocolVersion );
+                }
+                callback.done( cached, null );
+                return;
+            }
         }
 
-        if ( cachedPing != null )
+        ping0( callback, protocolVersion );
+    }
+
+    /**
+     * Joins the ping already running for this protocol version, or starts one. A null callback only
+     * makes sure a ping is running.
+     */
+    private void ping0(Callback<ServerPing> callback, final int protocolVersion)
+    {
+        final List<Callback<ServerPing>> flight;
+        synchronized ( pendingPings )
         {
-            callback.done( cachedPing, null );
-            return;
+            List<Callback<ServerPing>> waiting = pendingPings.get( protocolVersion );
+            if ( waiting != null )
+            {
+                if ( callback != null )
+                {
+                    waiting.add( callback );
+                }
+                return;
+            }
+            flight = new ArrayList<>( 4 );
+            if ( callback != null )
+            {
+                flight.add( callback );
+            }
+            pendingPings.put( protocolVersion, flight );
         }
 
+        final Callback<ServerPing> done = new Callback<ServerPing>()
+        {
+            private final AtomicBoolean completed = new AtomicBoolean();
+
+            @Override
+            public void done(ServerPing result, Throwable error)
+            {
+                // the response, a late exception and the channel closing may all report
+                if ( !completed.compareAndSet( false, true ) )
+                {
+                    return;
+                }
+                synchronized ( pendingPings )
+                {
+                    pendingPings.remove( protocolVersion, flight );
+                }
+                for ( Callback<ServerPing> callback : flight )
+                {
+                    callback.done( result, error );
+                }
+            }
+        };
+        // XenonCord end
+
         ChannelFutureListener listener = new ChannelFutureListener()
         {
             @Override
@@ -171,10 +280,13 @@ public class BungeeServerInfo implements ServerInfo
             {
                 if ( future.isSuccess() )
                 {
-                    future.channel().pipeline().get( HandlerBoss.class ).setHandler( new PingHandler( BungeeServerInfo.this, callback, protocolVersion ) );
+                    future.channel().pipeline().get( HandlerBoss.class ).setHandler( new PingHandler( BungeeServerInfo.this, done, protocolVersion ) ); // XenonCord
+                    // XenonCord start - a backend closing or timing out without a response still ends the flight
+                    future.channel().closeFuture().addListener( (ChannelFutureListener) closed -> done.done( null, new ClosedChannelException() ) );
+                    // XenonCord end
                 } else
                 {
-                    callback.done( null, future.cause() );
+                    done.done( null, future.cause() ); // XenonCord
                 }
             }
         };
@@ -42,6 +42,20 @@ public class ConnectionThrottle
         this.throttleLimit = throttleLimit;
     }
 
+    /**
+     * For implementations which keep their own counters.
+     */
+    protected ConnectionThrottle(int throttleLimit)
+    {
+        this.throttle = null;
+        this.throttleLimit = throttleLimit;
+    }
+
+    protected int getThrottleLimit()
+    {
+        return throttleLimit;
+    }
+
     public void unthrottle(SocketAddress socketAddress)
     {
         if ( !( socketAddress instanceof InetSocketAddress ) )
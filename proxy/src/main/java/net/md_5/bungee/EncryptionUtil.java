@@ -2,6 +2,7 @@ package net.md_5.bungee;
 
 import com.google.common.io.ByteStreams;
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.Getter;
 import net.md_5.bungee.jni.NativeCode;
 import net.md_5.bungee.jni.cipher.BungeeCipher;
@@ -15,6 +16,7 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import java.io.IOException;
+import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
@@ -25,6 +27,10 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Class containing all encryption related methods for the proxy.
@@ -39,6 +45,15 @@ public class EncryptionUtil
     private static final SecretKey secret = new SecretKeySpec( new byte[ 16 ], "AES" );
     public static final NativeCode<BungeeCipher> nativeFactory = new NativeCode<>( "native-cipher", JavaCipher::new, NativeCipher::new );
     private static final PublicKey MOJANG_KEY;
+    // XenonCord start - RSA and hashing for logins run here instead of on the netty event loops
+    private static final int CRYPTO_THREADS = Integer.getInteger( "net.md_5.bungee.crypto.threads", Math.max( 1, Runtime.getRuntime().availableProcessors() / 2 ) );
+    /**
+     * Bounded so a login flood queues at most this many handshakes, further ones are rejected.
+     */
+    private static final int CRYPTO_QUEUE = Integer.getInteger( "net.md_5.bungee.crypto.queue", 1024 );
+    public static final ExecutorService cryptoExecutor = new ThreadPoolExecutor( CRYPTO_THREADS, CRYPTO_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>( CRYPTO_QUEUE ), new ThreadFactoryBuilder().setNameFormat( "Crypto Worker #%1$d" ).setDaemon( true ).build() );
+    // XenonCord end
 
     static
     {
@@ -120,6 +135,18 @@ public class EncryptionUtil
         return new SecretKeySpec( cipher.doFinal( resp.getSharedSecret() ), "AES" );
     }
 
+    /**
+     * @return the server id hash sent to the session server, as the signed hex digest Mojang expects
+     */
+    public static String getServerHash(String serverId, SecretKey shared) throws GeneralSecurityException
+    {
+        MessageDigest sha = MessageDigest.getInstance( "SHA-1" );
+        sha.update( serverId.getBytes( StandardCharsets.ISO_8859_1 ) );
+        sha.update( shared.getEncoded() );
+        sha.update( keys.getPublic().getEncoded() );
+        return new BigInteger( sha.digest() ).toString( 16 );
+    }
+
     public static BungeeCipher getCipher(boolean forEncryption, SecretKey shared) throws GeneralSecurityException
     {
         BungeeCipher cipher = nativeFactory.newInstance();
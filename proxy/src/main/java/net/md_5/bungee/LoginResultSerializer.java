@@ -0,0 +1,180 @@
+package net.md_5.bungee;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import net.md_5.bungee.connection.LoginResult;
+import net.md_5.bungee.protocol.Property;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming replacement for the reflective adapter Gson would use for the session server reply.
+ * Unknown fields such as {@code profileActions} are skipped.
+ */
+public class LoginResultSerializer extends TypeAdapter<LoginResult>
+{
+
+    @Override
+    public void write(JsonWriter out, LoginResult value) throws IOException
+    {
+        if ( value == null )
+        {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        out.name( "id" ).value( value.getId() );
+        out.name( "name" ).value( value.getName() );
+        if ( value.getProperties() != null )
+        {
+            out.name( "properties" );
+            writeProperties( out, value.getProperties() );
+        }
+        out.endObject();
+    }
+
+    @Override
+    public LoginResult read(JsonReader in) throws IOException
+    {
+        if ( in.peek() == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+
+        String id = null;
+        String name = null;
+        Property[] properties = null;
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                continue;
+            }
+            switch ( field )
+            {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "properties":
+                    properties = readProperties( in );
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new LoginResult( id, name, properties );
+    }
+
+    /**
+     * Serializes properties exactly like {@code gson.toJson(properties)} did for the forwarded
+     * handshake, without reflection and into a buffer sized for the usual textures property.
+     */
+    public static String toJson(Property[] properties)
+    {
+        int size = 2;
+        for ( Property property : properties )
+        {
+            size += 48 + length( property.getName() ) + length( property.getValue() ) + length( property.getSignature() );
+        }
+
+        StringWriter buffer = new StringWriter( size );
+        try
+        {
+            JsonWriter out = new JsonWriter( buffer );
+            // Gson escapes '=' and friends by default, keep the forwarded string byte for byte the same
+            out.setHtmlSafe( true );
+            out.setSerializeNulls( false );
+            writeProperties( out, properties );
+            out.flush();
+        } catch ( IOException ex )
+        {
+            throw new AssertionError( ex );
+        }
+        return buffer.toString();
+    }
+
+    private static int length(String value)
+    {
+        return ( value == null ) ? 0 : value.length() + ( value.length() >> 4 );
+    }
+
+    private static void writeProperties(JsonWriter out, Property[] properties) throws IOException
+    {
+        out.beginArray();
+        for ( Property property : properties )
+        {
+            if ( property == null )
+            {
+                out.nullValue();
+                continue;
+            }
+            out.beginObject();
+            out.name( "name" ).value( property.getName() );
+            out.name( "value" ).value( property.getValue() );
+            out.name( "signature" ).value( property.getSignature() );
+            out.endObject();
+        }
+        out.endArray();
+    }
+
+    private static Property[] readProperties(JsonReader in) throws IOException
+    {
+        List<Property> properties = new ArrayList<>( 1 );
+        in.beginArray();
+        while ( in.hasNext() )
+        {
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                properties.add( null );
+                continue;
+            }
+
+            String name = null;
+            String value = null;
+            String signature = null;
+            in.beginObject();
+            while ( in.hasNext() )
+            {
+                String field = in.nextName();
+                if ( in.peek() == JsonToken.NULL )
+                {
+                    in.nextNull();
+                    continue;
+                }
+                switch ( field )
+                {
+                    case "name":
+                        name = in.nextString();
+                        break;
+                    case "value":
+                        value = in.nextString();
+                        break;
+                    case "signature":
+                        signature = in.nextString();
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            properties.add( new Property( name, value, signature ) );
+        }
+        in.endArray();
+        return properties.toArray( new Property[ 0 ] );
+    }
+}
@@ -4,6 +4,8 @@ import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import ir.xenoncommunity.tracing.LoginStage;
+import ir.xenoncommunity.tracing.LoginTrace;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.api.ChatColor;
@@ -116,7 +118,7 @@ public class ServerConnector extends PacketHandler
 
             // If we touched any properties, then append them
             if (properties.length > 0) {
-                newHost += "\00" + BungeeCord.getInstance().gson.toJson(properties);
+                newHost += "\00" + LoginResultSerializer.toJson( properties ); // XenonCord
             }
 
             copiedHandshake.setHost( newHost );
@@ -200,9 +202,28 @@ public class ServerConnector extends PacketHandler
     {
         Preconditions.checkState( thisState == State.LOGIN, "Not expecting LOGIN" );
 
-        ServerConnection server = new ServerConnection( ch, target );
-        handleLogin( bungee, ch, user, target, handshakeHandler, server, login );
-        cutThrough( server );
+        // XenonCord start - only the first server of a login is traced
+        LoginTrace trace = user.getPendingConnection().getLoginTrace();
+        boolean traced = !trace.isDone();
+        if ( traced )
+        {
+            trace.end( LoginStage.CONNECT );
+            trace.begin( LoginStage.HANDLE_LOGIN );
+        }
+        try
+        {
+            ServerConnection server = new ServerConnection( ch, target );
+            handleLogin( bungee, ch, user, target, handshakeHandler, server, login );
+            cutThrough( server );
+        } finally
+        {
+            if ( traced && thisState == State.FINISHED )
+            {
+                trace.end( LoginStage.HANDLE_LOGIN );
+                trace.complete( user.getName(), user.getSocketAddress() );
+            }
+        }
+        // XenonCord end
     }
 
     public static void handleLogin(ProxyServer bungee, ChannelWrapper ch, UserConnection user, BungeeServerInfo target, ForgeServerHandler handshakeHandler, ServerConnection server, Login login) throws Exception
@@ -285,6 +306,8 @@ public class ServerConnector extends PacketHandler
                 DefinedPacket.writeString( bungee.getName() + " (" + bungee.getVersion() + ")", brand );
                 user.unsafe().sendPacket( new PluginMessage( user.getPendingConnection().getVersion() >= ProtocolConstants.MINECRAFT_1_13 ? "minecraft:brand" : "MC|Brand", brand, handshakeHandler != null && handshakeHandler.isServerForge() ) ); // Waterfall
                 brand.release();
+
+                user.getTabListHandler().onJoinGame(); // XenonCord
             }
 
             user.setDimension( login.getDimension() );
@@ -391,6 +414,7 @@ public class ServerConnector extends PacketHandler
             {
                 // Begin config mode
                 user.unsafe().sendPacket( new StartConfiguration() );
+                user.getTabListHandler().onReconfigure(); // XenonCord
             } else
             {
                 LoginResult loginProfile = user.getPendingConnection().getLoginProfile();
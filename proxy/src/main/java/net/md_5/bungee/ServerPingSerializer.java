@@ -0,0 +1,344 @@
+package net.md_5.bungee;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import lombok.RequiredArgsConstructor;
+import net.md_5.bungee.api.Favicon;
+import net.md_5.bungee.api.ServerPing;
+import net.md_5.bungee.api.chat.BaseComponent;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Streaming replacement for the reflective adapter Gson would use for status responses, writing
+ * the same fields in the same order. The description is still handed to the component
+ * serializers.
+ */
+@RequiredArgsConstructor
+public class ServerPingSerializer extends TypeAdapter<ServerPing>
+{
+
+    public static final TypeAdapterFactory FACTORY = new TypeAdapterFactory()
+    {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type)
+        {
+            return ( type.getRawType() == ServerPing.class ) ? (TypeAdapter<T>) new ServerPingSerializer( gson ) : null;
+        }
+    };
+    //
+    private final Gson gson;
+
+    @Override
+    public void write(JsonWriter out, ServerPing value) throws IOException
+    {
+        if ( value == null )
+        {
+            out.nullValue();
+            return;
+        }
+
+        out.beginObject();
+        ServerPing.Protocol version = value.getVersion();
+        if ( version != null )
+        {
+            out.name( "version" ).beginObject();
+            out.name( "name" ).value( version.getName() );
+            out.name( "protocol" ).value( version.getProtocol() );
+            out.endObject();
+        }
+
+        ServerPing.Players players = value.getPlayers();
+        if ( players != null )
+        {
+            out.name( "players" ).beginObject();
+            out.name( "max" ).value( players.getMax() );
+            out.name( "online" ).value( players.getOnline() );
+            if ( players.getSample() != null )
+            {
+                out.name( "sample" ).beginArray();
+                for ( ServerPing.PlayerInfo info : players.getSample() )
+                {
+                    if ( info == null )
+                    {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    out.name( "name" ).value( info.getName() );
+                    out.name( "id" ).value( info.getUniqueId().toString() );
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+
+        BaseComponent description = value.getDescriptionComponent();
+        if ( description != null )
+        {
+            out.name( "description" );
+            gson.toJson( description, description.getClass(), out );
+        }
+
+        if ( value.getFaviconObject() != null )
+        {
+            out.name( "favicon" );
+            Favicon.getFaviconTypeAdapter().write( out, value.getFaviconObject() );
+        }
+
+        ServerPing.ModInfo modinfo = value.getModinfo();
+        if ( modinfo != null )
+        {
+            out.name( "modinfo" ).beginObject();
+            out.name( "type" ).value( modinfo.getType() );
+            if ( modinfo.getModList() != null )
+            {
+                out.name( "modList" ).beginArray();
+                for ( ServerPing.ModItem item : modinfo.getModList() )
+                {
+                    if ( item == null )
+                    {
+                        out.nullValue();
+                        continue;
+                    }
+                    out.beginObject();
+                    out.name( "modid" ).value( item.getModid() );
+                    out.name( "version" ).value( item.getVersion() );
+                    out.endObject();
+                }
+                out.endArray();
+            }
+            out.endObject();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ServerPing read(JsonReader in) throws IOException
+    {
+        if ( in.peek() == JsonToken.NULL )
+        {
+            in.nextNull();
+            return null;
+        }
+
+        ServerPing ping = new ServerPing();
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                continue;
+            }
+            switch ( field )
+            {
+                case "version":
+                    ping.setVersion( readVersion( in ) );
+                    break;
+                case "players":
+                    ping.setPlayers( readPlayers( in ) );
+                    break;
+                case "description":
+                    ping.setDescriptionComponent( gson.fromJson( in, BaseComponent.class ) );
+                    break;
+                case "favicon":
+                    ping.setFavicon( Favicon.getFaviconTypeAdapter().read( in ) );
+                    break;
+                case "modinfo":
+                    readModInfo( in, ping.getModinfo() );
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return ping;
+    }
+
+    private static ServerPing.Protocol readVersion(JsonReader in) throws IOException
+    {
+        String name = null;
+        int protocol = 0;
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+            } else if ( field.equals( "name" ) )
+            {
+                name = in.nextString();
+            } else if ( field.equals( "protocol" ) )
+            {
+                protocol = in.nextInt();
+            } else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ServerPing.Protocol( name, protocol );
+    }
+
+    private static ServerPing.Players readPlayers(JsonReader in) throws IOException
+    {
+        int max = 0;
+        int online = 0;
+        ServerPing.PlayerInfo[] sample = null;
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                continue;
+            }
+            switch ( field )
+            {
+                case "max":
+                    max = in.nextInt();
+                    break;
+                case "online":
+                    online = in.nextInt();
+                    break;
+                case "sample":
+                    sample = readSample( in );
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ServerPing.Players( max, online, sample );
+    }
+
+    private static ServerPing.PlayerInfo[] readSample(JsonReader in) throws IOException
+    {
+        List<ServerPing.PlayerInfo> sample = new ArrayList<>();
+        in.beginArray();
+        while ( in.hasNext() )
+        {
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+                sample.add( null );
+                continue;
+            }
+
+            String name = null;
+            String id = null;
+            in.beginObject();
+            while ( in.hasNext() )
+            {
+                String field = in.nextName();
+                if ( in.peek() == JsonToken.NULL )
+                {
+                    in.nextNull();
+                } else if ( field.equals( "name" ) )
+                {
+                    name = in.nextString();
+                } else if ( field.equals( "id" ) )
+                {
+                    id = in.nextString();
+                } else
+                {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+
+            // Same rules as PlayerInfoSerializer
+            ServerPing.PlayerInfo info = new ServerPing.PlayerInfo( name, (UUID) null );
+            if ( id != null )
+            {
+                if ( !id.contains( "-" ) )
+                {
+                    info.setId( id );
+                } else
+                {
+                    info.setUniqueId( UUID.fromString( id ) );
+                }
+            }
+            sample.add( info );
+        }
+        in.endArray();
+        return sample.toArray( new ServerPing.PlayerInfo[ 0 ] );
+    }
+
+    private static void readModInfo(JsonReader in, ServerPing.ModInfo modinfo) throws IOException
+    {
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+            } else if ( field.equals( "type" ) )
+            {
+                modinfo.setType( in.nextString() );
+            } else if ( field.equals( "modList" ) )
+            {
+                List<ServerPing.ModItem> mods = new ArrayList<>();
+                in.beginArray();
+                while ( in.hasNext() )
+                {
+                    if ( in.peek() == JsonToken.NULL )
+                    {
+                        in.nextNull();
+                        mods.add( null );
+                    } else
+                    {
+                        mods.add( readModItem( in ) );
+                    }
+                }
+                in.endArray();
+                modinfo.setModList( mods );
+            } else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
+
+    private static ServerPing.ModItem readModItem(JsonReader in) throws IOException
+    {
+        String modid = null;
+        String version = null;
+        in.beginObject();
+        while ( in.hasNext() )
+        {
+            String field = in.nextName();
+            if ( in.peek() == JsonToken.NULL )
+            {
+                in.nextNull();
+            } else if ( field.equals( "modid" ) )
+            {
+                modid = in.nextString();
+            } else if ( field.equals( "version" ) )
+            {
+                version = in.nextString();
+            } else
+            {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ServerPing.ModItem( modid, version );
+    }
+}
@@ -0,0 +1,185 @@
+package net.md_5.bungee;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Connection throttle backed by a fixed size count-min sketch of sliding window counters.
+ * <p>
+ * Unlike {@link ConnectionThrottle} it never allocates per source, so spoofed or rotating IPv6
+ * floods cannot grow it. IPv4 sources are counted per address, IPv6 sources per /64. Every cell
+ * holds the count of the current and previous window, the estimate weighs the previous window by
+ * how much of it still overlaps the sliding window. Hash collisions can only over count.
+ */
+public class SketchConnectionThrottle extends ConnectionThrottle
+{
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = Integer.highestOneBit( Math.max( 1024, Integer.getInteger( "net.md_5.bungee.throttle.sketch_width", 1 << 16 ) ) );
+    private static final long COUNT_MASK = 0xFFFF;
+    //
+    private final Ticker ticker;
+    private final long windowNanos;
+    /**
+     * DEPTH rows of WIDTH cells, each cell is window (32 bits) | previous count (16 bits) | count (16 bits).
+     */
+    private final AtomicLongArray cells = new AtomicLongArray( DEPTH * WIDTH );
+
+    public SketchConnectionThrottle(int throttleTime, int throttleLimit)
+    {
+        this( Ticker.systemTicker(), throttleTime, throttleLimit );
+    }
+
+    @VisibleForTesting
+    SketchConnectionThrottle(Ticker ticker, int throttleTime, int throttleLimit)
+    {
+        super( throttleLimit );
+        this.ticker = ticker;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos( throttleTime );
+    }
+
+    @Override
+    public void unthrottle(SocketAddress socketAddress)
+    {
+        if ( !( socketAddress instanceof InetSocketAddress ) )
+        {
+            return;
+        }
+
+        long key = key( ( (InetSocketAddress) socketAddress ).getAddress() );
+        int window = (int) Math.floorDiv( ticker.read(), windowNanos );
+
+        // Conservative update only raised the rows at the smallest count, taking one off any other
+        // row would remove the count of a colliding address
+        long count = COUNT_MASK;
+        long previous = COUNT_MASK;
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            long cell = rotate( cells.get( index( key, row ) ), window );
+            count = Math.min( count, cell & COUNT_MASK );
+            previous = Math.min( previous, ( cell >>> 16 ) & COUNT_MASK );
+        }
+        int shift;
+        long expected;
+        if ( count > 0 )
+        {
+            shift = 0;
+            expected = count;
+        } else if ( previous > 0 )
+        {
+            shift = 16;
+            expected = previous;
+        } else
+        {
+            return;
+        }
+
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            int index = index( key, row );
+            for ( ;; )
+            {
+                long current = cells.get( index );
+                long cell = rotate( current, window );
+                if ( ( ( cell >>> shift ) & COUNT_MASK ) != expected || cells.compareAndSet( index, current, cell - ( 1L << shift ) ) )
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean throttle(SocketAddress socketAddress)
+    {
+        if ( !( socketAddress instanceof InetSocketAddress ) )
+        {
+            return false;
+        }
+
+        long key = key( ( (InetSocketAddress) socketAddress ).getAddress() );
+        long now = ticker.read();
+        int window = (int) Math.floorDiv( now, windowNanos );
+        long remaining = windowNanos - Math.floorMod( now, windowNanos );
+
+        // Conservative update: only raise each row to the smallest count plus one, this keeps
+        // collisions from inflating each other under a flood of distinct sources
+        long target = COUNT_MASK;
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            target = Math.min( target, ( rotate( cells.get( index( key, row ) ), window ) & COUNT_MASK ) + 1 );
+        }
+
+        long estimate = Long.MAX_VALUE;
+        for ( int row = 0; row < DEPTH; row++ )
+        {
+            int index = index( key, row );
+            long next;
+            for ( ;; )
+            {
+                long current = cells.get( index );
+                long cell = rotate( current, window );
+                next = ( ( cell & COUNT_MASK ) >= target ) ? cell : ( cell & ~COUNT_MASK ) | target;
+                if ( next == current || cells.compareAndSet( index, current, next ) )
+                {
+                    break;
+                }
+            }
+            long count = next & COUNT_MASK;
+            long previous = ( next >>> 16 ) & COUNT_MASK;
+            estimate = Math.min( estimate, count + previous * remaining / windowNanos );
+        }
+
+        return estimate > getThrottleLimit();
+    }
+
+    /**
+     * Moves a cell into the given window, shifting or dropping old counts.
+     */
+    private static long rotate(long cell, int window)
+    {
+        int cellWindow = (int) ( cell >>> 32 );
+        if ( cellWindow == window )
+        {
+            return cell;
+        }
+        long previous = ( cellWindow == window - 1 ) ? ( cell & COUNT_MASK ) : 0;
+        return ( (long) window << 32 ) | ( previous << 16 );
+    }
+
+    private static long key(InetAddress address)
+    {
+        if ( address instanceof Inet4Address )
+        {
+            // Inet4Address#hashCode is the raw address
+            return ( 1L << 32 ) | ( address.hashCode() & 0xFFFFFFFFL );
+        }
+
+        byte[] bytes = address.getAddress();
+        long prefix = 0;
+        for ( int i = 0; i < 8; i++ )
+        {
+            prefix = ( prefix << 8 ) | ( bytes[i] & 0xFF );
+        }
+        return prefix;
+    }
+
+    private static int index(long key, int row)
+    {
+        // murmur3 finalizer, seeded per row
+        long hash = key ^ ( ( row + 1 ) * 0x9E3779B97F4A7C15L );
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return row * WIDTH + ( (int) hash & ( WIDTH - 1 ) );
+    }
+}
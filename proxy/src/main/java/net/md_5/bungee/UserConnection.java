@@ -7,6 +7,7 @@ import com.google.common.collect.Multimap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.*;
 import io.netty.util.internal.PlatformDependent;
+import ir.xenoncommunity.XenonCore;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -24,6 +25,7 @@ import net.md_5.bungee.api.event.ServerConnectEvent;
 import net.md_5.bungee.api.score.Scoreboard;
 import net.md_5.bungee.chat.ComponentSerializer;
 import net.md_5.bungee.connection.InitialHandler;
+import net.md_5.bungee.connection.TabCompletePipeline;
 import net.md_5.bungee.entitymap.EntityMap;
 import net.md_5.bungee.forge.ForgeClientHandler;
 import net.md_5.bungee.forge.ForgeConstants;
@@ -33,6 +35,7 @@ import net.md_5.bungee.netty.HandlerBoss;
 import net.md_5.bungee.netty.PipelineUtils;
 import net.md_5.bungee.protocol.*;
 import net.md_5.bungee.protocol.packet.*;
+import net.md_5.bungee.tab.Global;
 import net.md_5.bungee.tab.ServerUnique;
 import net.md_5.bungee.tab.TabList;
 import net.md_5.bungee.util.CaseInsensitiveSet;
@@ -112,6 +115,8 @@ public final class UserConnection implements ProxiedPlayer
     @Getter
     @Setter
     private String lastCommandTabbed;
+    @Getter
+    private TabCompletePipeline tabCompletes; // XenonCord
     /*========================================================================*/
     @Getter
     private String displayName;
@@ -148,7 +153,17 @@ public final class UserConnection implements ProxiedPlayer
 
         this.displayName = name;
 
-        this.tabListHandler = new ServerUnique(this);
+        // XenonCord start
+        String tabListType = pendingConnection.getListener().getTabListType();
+        if ( XenonCore.instance.getSnapshot().isGlobalTabList() && !"SERVER".equals( tabListType ) )
+        {
+            this.tabListHandler = new Global( this, BungeeCord.getInstance().getGlobalTabList(), "GLOBAL_PING".equals( tabListType ) );
+        } else
+        {
+            this.tabListHandler = new ServerUnique( this );
+        }
+        this.tabCompletes = new TabCompletePipeline( this, XenonCore.instance.getSnapshot().isTabCompletePipeline(), XenonCore.instance.getSnapshot().getTabCompleteCacheTtl() );
+        // XenonCord end
         groups.forEach(this::addGroups);
 
         this.forgeClientHandler = new ForgeClientHandler(this);
@@ -192,6 +207,12 @@ public final class UserConnection implements ProxiedPlayer
     {
         Preconditions.checkNotNull( name, "displayName" );
         displayName = name;
+        // XenonCord start
+        if ( tabListHandler != null )
+        {
+            tabListHandler.onDisplayNameChange();
+        }
+        // XenonCord end
     }
 
     @Override
@@ -240,7 +261,12 @@ public final class UserConnection implements ProxiedPlayer
         ServerInfo next = null;
         while ( !serverJoinQueue.isEmpty() )
         {
-            ServerInfo candidate = ProxyServer.getInstance().getServerInfo( serverJoinQueue.remove() );
+            // XenonCord start - groups pick a member other than the one that failed
+            String name = serverJoinQueue.remove();
+            ServerInfo candidate = XenonCore.instance.getBalancer().isGroup( name ) && bungee.getConfig().getServerInfo( name ) == null
+                    ? XenonCore.instance.getBalancer().select( name, currentTarget )
+                    : ProxyServer.getInstance().getServerInfo( name );
+            // XenonCord end
             if ( !Objects.equals( currentTarget, candidate ) )
             {
                 next = candidate;
@@ -336,17 +362,26 @@ public final class UserConnection implements ProxiedPlayer
             return;
         }
 
+        // XenonCord start - full servers with a queue put the player in line instead
+        if ( getServer() != null && XenonCore.instance.getQueueManager().enqueue( this, target ) )
+        {
+            if ( callback != null )
+            {
+                callback.done( ServerConnectRequest.Result.EVENT_CANCEL, null );
+            }
+            return;
+        }
+        // XenonCord end
+
         pendingConnects.add( target );
+        XenonCore.instance.getBalancer().connecting( target ); // XenonCord
 
         ChannelInitializer initializer = new ChannelInitializer()
         {
             @Override
             protected void initChannel(Channel ch) throws Exception
             {
-                PipelineUtils.BASE_SERVERSIDE.initChannel( ch );
-                ch.pipeline().addAfter( PipelineUtils.FRAME_DECODER, PipelineUtils.PACKET_DECODER, new MinecraftDecoder( Protocol.HANDSHAKE, false, getPendingConnection().getVersion() ) );
-                ch.pipeline().addAfter( PipelineUtils.FRAME_PREPENDER, PipelineUtils.PACKET_ENCODER, new MinecraftEncoder( Protocol.HANDSHAKE, false, getPendingConnection().getVersion() ) );
-                ch.pipeline().get( HandlerBoss.class ).setHandler( new ServerConnector( bungee, UserConnection.this, target ) );
+                initServerChannel( ch, target ); // XenonCord
             }
         };
         ChannelFutureListener listener = new ChannelFutureListener()
@@ -364,6 +399,7 @@ public final class UserConnection implements ProxiedPlayer
                 {
                     future.channel().close();
                     pendingConnects.remove( target );
+                    XenonCore.instance.getBalancer().reportFailure( target ); // XenonCord
 
                     ServerInfo def = updateAndGetNextServer( target );
                     if ( request.isRetry() && def != null && ( getServer() == null || def != getServer().getInfo() ) )
@@ -380,6 +416,28 @@ public final class UserConnection implements ProxiedPlayer
                 }
             }
         };
+        // XenonCord start - take a pre-connected socket, the handshake is still written by ServerConnector
+        boolean bindLocal = getPendingConnection().getListener().isSetLocalAddress() && !PlatformDependent.isWindows() && getPendingConnection().getListener().getSocketAddress() instanceof InetSocketAddress;
+        if ( BackendConnectionPool.SIZE > 0 && !bindLocal && ch.getHandle().eventLoop().inEventLoop() )
+        {
+            Channel pooled = BackendConnectionPool.of( ch.getHandle().eventLoop() ).poll( target.getSocketAddress() );
+            if ( pooled != null )
+            {
+                try
+                {
+                    initServerChannel( pooled, target );
+                    listener.operationComplete( pooled.newSucceededFuture() );
+                } catch ( Exception ex )
+                {
+                    pooled.close();
+                    pendingConnects.remove( target );
+                    throw new RuntimeException( ex );
+                }
+                pooled.pipeline().fireChannelActive();
+                return;
+            }
+        }
+        // XenonCord end
         Bootstrap b = new Bootstrap()
                 .channelFactory( PipelineUtils.getChannelFactory( target.getAddress() ) ) // Waterfall - netty reflection -> factory
                 .group( ch.getHandle().eventLoop() )
@@ -387,13 +445,23 @@ public final class UserConnection implements ProxiedPlayer
                 .option( ChannelOption.CONNECT_TIMEOUT_MILLIS, request.getConnectTimeout() )
                 .remoteAddress( target.getAddress() );
         // Windows is bugged, multi homed users will just have to live with random connecting IPs
-        if ( getPendingConnection().getListener().isSetLocalAddress() && !PlatformDependent.isWindows() && getPendingConnection().getListener().getSocketAddress() instanceof InetSocketAddress )
+        if ( bindLocal ) // XenonCord
         {
             b.localAddress( getPendingConnection().getListener().getHost().getHostString(), 0 );
         }
         b.connect().addListener( listener );
     }
 
+    // XenonCord start
+    private void initServerChannel(Channel ch, BungeeServerInfo target) throws Exception
+    {
+        PipelineUtils.BASE_SERVERSIDE.initChannel( ch );
+        ch.pipeline().addAfter( PipelineUtils.FRAME_DECODER, PipelineUtils.PACKET_DECODER, new MinecraftDecoder( Protocol.HANDSHAKE, false, getPendingConnection().getVersion() ) );
+        ch.pipeline().addAfter( PipelineUtils.FRAME_PREPENDER, PipelineUtils.PACKET_ENCODER, new MinecraftEncoder( Protocol.HANDSHAKE, false, getPendingConnection().getVersion() ) );
+        ch.pipeline().get( HandlerBoss.class ).setHandler( new ServerConnector( bungee, UserConnection.this, target ) );
+    }
+    // XenonCord end
+
     private String connectionFailMessage(Throwable cause)
     {
         bungee.getLogger().log(Level.WARNING, "Error occurred processing connection for " + this.name + " " + Util.exception( cause, false )); // Waterfall
@@ -3,6 +3,7 @@ package net.md_5.bungee.conf;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableMap;
 import gnu.trove.map.TMap;
+import ir.xenoncommunity.XenonCore;
 import lombok.Getter;
 import lombok.Synchronized;
 import net.md_5.bungee.BungeeCord;
@@ -69,6 +70,10 @@ public abstract class Configuration implements ProxyConfig
     private int remotePingTimeout = 5000;
     private int throttle = 4000;
     private int throttleLimit = 3;
+    /**
+     * Use the constant memory {@link net.md_5.bungee.SketchConnectionThrottle}.
+     */
+    private boolean throttleSketch;
     private boolean ipForward;
     private Favicon favicon;
     private int compressionThreshold = 256;
@@ -107,6 +112,7 @@ public abstract class Configuration implements ProxyConfig
         remotePingTimeout = adapter.getInt( "remote_ping_timeout", remotePingTimeout );
         throttle = adapter.getInt( "connection_throttle", throttle );
         throttleLimit = adapter.getInt( "connection_throttle_limit", throttleLimit );
+        throttleSketch = adapter.getBoolean( "connection_throttle_sketch", throttleSketch );
         ipForward = adapter.getBoolean( "ip_forward", ipForward );
         compressionThreshold = adapter.getInt( "network_compression_threshold", compressionThreshold );
         preventProxyConnections = adapter.getBoolean( "prevent_proxy_connections", preventProxyConnections );
@@ -164,11 +170,11 @@ public abstract class Configuration implements ProxyConfig
             for ( int i = 0; i < listener.getServerPriority().size(); i++ )
             {
                 String server = listener.getServerPriority().get( i );
-                Preconditions.checkArgument( servers.containsKey( server ), "Server %s (priority %s) is not defined", server, i );
+                Preconditions.checkArgument( servers.containsKey( server ) || XenonCore.instance.getBalancer().isGroup( server ), "Server %s (priority %s) is not defined", server, i ); // XenonCord
             }
             for ( String server : listener.getForcedHosts().values() )
             {
-                if ( !servers.containsKey( server ) )
+                if ( !servers.containsKey( server ) && !XenonCore.instance.getBalancer().isGroup( server ) ) // XenonCord
                 {
                     ProxyServer.getInstance().getLogger().log( Level.WARNING, "Forced host server {0} is not defined", server );
                 }
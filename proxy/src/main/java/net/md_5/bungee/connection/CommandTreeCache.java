@@ -0,0 +1,109 @@
+package net.md_5.bungee.connection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.Commands;
+
+/**
+ * Command trees of the backends merged with the proxy commands a player may
+ * see, encoded for a protocol version.
+ *
+ * The merged tree only depends on the tree the backend sent, the names of
+ * the added commands and the protocol version, so players with the same
+ * commands share the encoded packet.
+ */
+final class CommandTreeCache
+{
+
+    private final Cache<Key, byte[]> trees;
+
+    CommandTreeCache(long maxBytes)
+    {
+        this.trees = CacheBuilder.newBuilder()
+                .maximumWeight( maxBytes )
+                .weigher( (Key key, byte[] value) -> key.tree.readableBytes() + value.length )
+                .expireAfterAccess( 10, TimeUnit.MINUTES )
+                .build();
+    }
+
+    /**
+     * Gets the merged tree.
+     *
+     * @param tree the packet as sent by the backend, including its id
+     * @param commands the names of the added commands
+     * @param protocolVersion the version of the player
+     * @return the encoded packet including its id, or null if not cached
+     */
+    byte[] get(ByteBuf tree, Set<String> commands, int protocolVersion)
+    {
+        return trees.getIfPresent( new Key( tree, commands, protocolVersion ) );
+    }
+
+    /**
+     * Caches a merged tree, the arguments are copied.
+     */
+    void put(ByteBuf tree, Set<String> commands, int protocolVersion, byte[] encoded)
+    {
+        trees.put( new Key( Unpooled.copiedBuffer( tree ), new HashSet<>( commands ), protocolVersion ), encoded );
+    }
+
+    long size()
+    {
+        return trees.size();
+    }
+
+    /**
+     * Encodes the packet like the encoder of a player connection would.
+     */
+    static byte[] encode(Commands commands, int protocolVersion)
+    {
+        ByteBuf buf = Unpooled.buffer();
+        DefinedPacket.writeVarInt( Protocol.GAME.TO_CLIENT.getId( Commands.class, protocolVersion ), buf );
+        commands.write( buf, Protocol.GAME, ProtocolConstants.Direction.TO_CLIENT, protocolVersion );
+        return ByteBufUtil.getBytes( buf );
+    }
+
+    private static final class Key
+    {
+
+        private final ByteBuf tree;
+        private final Set<String> commands;
+        private final int protocolVersion;
+        private final int hash;
+
+        private Key(ByteBuf tree, Set<String> commands, int protocolVersion)
+        {
+            this.tree = tree;
+            this.commands = commands;
+            this.protocolVersion = protocolVersion;
+            this.hash = ( ByteBufUtil.hashCode( tree ) * 31 + commands.hashCode() ) * 31 + protocolVersion;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if ( !( obj instanceof Key ) )
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && protocolVersion == other.protocolVersion
+                    && commands.equals( other.commands ) && ByteBufUtil.equals( tree, other.tree );
+        }
+    }
+}
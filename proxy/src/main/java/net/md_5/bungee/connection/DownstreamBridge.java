@@ -12,9 +12,12 @@ import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.tree.CommandNode;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.unix.DomainSocketAddress;
 import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.balancer.RedirectScheduler;
 import lombok.RequiredArgsConstructor;
+import net.md_5.bungee.BungeeCord;
 import net.md_5.bungee.ServerConnection;
 import net.md_5.bungee.ServerConnection.KeepAliveData;
 import net.md_5.bungee.ServerConnector;
@@ -43,7 +46,8 @@ import net.md_5.bungee.tab.TabList;
 import java.io.DataInput;
 import java.net.InetSocketAddress;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @RequiredArgsConstructor
 @SuppressWarnings("deprecation")
@@ -55,23 +59,25 @@ public class DownstreamBridge extends PacketHandler
     @SuppressWarnings("rawtypes")
     private static final com.mojang.brigadier.Command DUMMY_COMMAND = (context) ->
             0;
+    private static final CommandTreeCache COMMAND_TREES = new CommandTreeCache( 32 << 20 ); // XenonCord
     //
     private final ProxyServer bungee;
     private final UserConnection con;
     private final ServerConnection server;
     private boolean receivedLogin;
+    private ByteBuf commandTree; // XenonCord - the raw packet of the Commands being handled
 
     @Override
     public void exception(Throwable t) throws Exception
     {
         if ( server.isObsolete() ) return;
 
-        ServerKickEvent event = bungee.getPluginManager().callEvent( new ServerKickEvent( con, server.getInfo(), TextComponent.fromLegacyText( bungee.getTranslation( "server_went_down" ) ),  con.updateAndGetNextServer( server.getInfo()), ServerKickEvent.State.CONNECTED, ServerKickEvent.Cause.EXCEPTION ) );
+        ServerKickEvent event = bungee.getPluginManager().callEvent( new ServerKickEvent( con, server.getInfo(), BungeeCord.getInstance().getTranslationComponents( "server_went_down" ),  con.updateAndGetNextServer( server.getInfo()), ServerKickEvent.State.CONNECTED, ServerKickEvent.Cause.EXCEPTION ) ); // XenonCord
 
         if ( event.isCancelled() && event.getCancelServer() != null )
         {
             server.setObsolete( true );
-            con.connectNow( event.getCancelServer(), ServerConnectEvent.Reason.SERVER_DOWN_REDIRECT );
+            redirect( event.getCancelServer(), ServerConnectEvent.Reason.SERVER_DOWN_REDIRECT, null ); // XenonCord
             return;
         }
         con.disconnect0( event.getReason() );
@@ -98,19 +104,18 @@ public class DownstreamBridge extends PacketHandler
 
             // Waterfall start
             ServerInfo def = con.updateAndGetNextServer( server.getInfo() );
-            ServerKickEvent event = bungee.getPluginManager().callEvent( new ServerKickEvent( con, server.getInfo(), TextComponent.fromLegacyText( bungee.getTranslation( "lost_connection" ) ), def, ServerKickEvent.State.CONNECTED, ServerKickEvent.Cause.LOST_CONNECTION ) );
+            ServerKickEvent event = bungee.getPluginManager().callEvent( new ServerKickEvent( con, server.getInfo(), BungeeCord.getInstance().getTranslationComponents( "lost_connection" ), def, ServerKickEvent.State.CONNECTED, ServerKickEvent.Cause.LOST_CONNECTION ) ); // XenonCord
             if ( event.isCancelled() && event.getCancelServer() != null )
             {
                 server.setObsolete( true );
-                con.connectNow( event.getCancelServer() );
+                redirect( event.getCancelServer(), ServerConnectEvent.Reason.UNKNOWN, null ); // XenonCord
             }
             else
             {
                 if ( def != null )
                 {
                     server.setObsolete( true );
-                    con.connectNow( def, ServerConnectEvent.Reason.SERVER_DOWN_REDIRECT );
-                    con.sendMessage( bungee.getTranslation( "server_went_down", def.getName() ) );
+                    redirect( def, ServerConnectEvent.Reason.SERVER_DOWN_REDIRECT, bungee.getTranslation( "server_went_down", def.getName() ) ); // XenonCord
                 } else
                 {
                     con.disconnect0( event.getReason() );
@@ -119,10 +124,66 @@ public class DownstreamBridge extends PacketHandler
             // Waterfall end
     }
 
+    // XenonCord start
+    /**
+     * Moves the player off the dead backend once the {@link RedirectScheduler} lets them through.
+     */
+    private void redirect(final ServerInfo target, final ServerConnectEvent.Reason reason, final String message)
+    {
+        XenonCore.instance.getRedirectScheduler().redirect( target.getName(), new RedirectScheduler.Waiting()
+        {
+            @Override
+            public boolean isActive()
+            {
+                return con.isConnected() && con.getServer() == server;
+            }
+
+            @Override
+            public void admit(long delayMillis)
+            {
+                con.getCh().getHandle().eventLoop().schedule( () ->
+                {
+                    if ( !isActive() )
+                    {
+                        return;
+                    }
+                    con.connectNow( target, reason );
+                    if ( message != null )
+                    {
+                        con.sendMessage( message );
+                    }
+                }, delayMillis, TimeUnit.MILLISECONDS );
+            }
+
+            @Override
+            public void progress(String progress)
+            {
+                if ( con.getCh().getEncodeProtocol() != Protocol.GAME )
+                {
+                    return;
+                }
+                // the dead backend sends no keep alives anymore, answers are dropped by UpstreamBridge
+                con.unsafe().sendPacket( new KeepAlive( ThreadLocalRandom.current().nextLong() ) );
+                con.sendMessage( progress );
+            }
+        } );
+    }
+    // XenonCord end
+
     @Override
     public boolean shouldHandle(PacketWrapper packet) throws Exception
     {
-        return !server.isObsolete();
+        // XenonCord start
+        if ( server.isObsolete() )
+        {
+            return false;
+        }
+        if ( packet.packet instanceof Commands )
+        {
+            commandTree = packet.buf;
+        }
+        return true;
+        // XenonCord end
     }
 
     @Override
@@ -288,7 +349,7 @@ public class DownstreamBridge extends PacketHandler
 
         if (tag.equals(protocolVersion >= ProtocolConstants.MINECRAFT_1_13 ? "minecraft:brand" : "MC|Brand")) {
             final ByteBuf brand = ByteBufAllocator.DEFAULT.heapBuffer();
-            DefinedPacket.writeString(XenonCore.instance.getConfigData().getIngamebrandname(), brand);
+            DefinedPacket.writeString(XenonCore.instance.getSnapshot().getIngameBrandName(), brand);
             pluginMessage.setData(brand);
             brand.release();
             con.unsafe().sendPacket(pluginMessage);
@@ -344,7 +405,7 @@ public class DownstreamBridge extends PacketHandler
                     break;
                 }
                 case "Connect": {
-                    ServerInfo server = bungee.getServerInfo(in.readUTF());
+                    ServerInfo server = bungee.selectServer(in.readUTF()); // XenonCord
                     if (server != null) {
                         con.connect(server, ServerConnectEvent.Reason.PLUGIN_MESSAGE);
                     }
@@ -353,7 +414,7 @@ public class DownstreamBridge extends PacketHandler
                 case "ConnectOther": {
                     ProxiedPlayer player = bungee.getPlayer(in.readUTF());
                     if (player != null) {
-                        ServerInfo server = bungee.getServerInfo(in.readUTF());
+                        ServerInfo server = bungee.selectServer(in.readUTF()); // XenonCord
                         if (server != null) {
                             player.connect(server);
                         }
@@ -549,26 +610,32 @@ public class DownstreamBridge extends PacketHandler
     public void handle(TabCompleteResponse tabCompleteResponse) throws Exception
     {
         List<String> commands = tabCompleteResponse.getCommands();
+        // XenonCord start
+        TabCompletePipeline pipeline = con.getTabCompletes();
+        String cursor = null;
         if (commands == null) {
-            commands = tabCompleteResponse.getSuggestions().getList().stream()
-                    .map(Suggestion::getText)
-                    .collect(Collectors.toList());
+            cursor = pipeline.response( server, tabCompleteResponse.getTransactionId() );
+            if ( pipeline.superseded( server, tabCompleteResponse.getTransactionId() ) )
+            {
+                throw CancelSendSignal.INSTANCE;
+            }
+
+            List<Suggestion> list = tabCompleteResponse.getSuggestions().getList();
+            commands = new ArrayList<>( list.size() );
+            for ( Suggestion suggestion : list )
+            {
+                commands.add( suggestion.getText() );
+            }
+            // XenonCord end
         } else {
             String last = con.getLastCommandTabbed();
             if (last != null) {
-                String commandName = last.toLowerCase(Locale.ROOT);
-
-                List<String> matchingCommands = bungee.getPluginManager().getCommands().stream()
-                        .filter(entry -> {
-                            String lowerCaseCommand = entry.getKey().toLowerCase(Locale.ROOT);
-                            return lowerCaseCommand.startsWith(commandName) &&
-                                    entry.getValue().hasPermission(con) &&
-                                    !bungee.getDisabledCommands().contains(lowerCaseCommand);
-                        })
-                        .map(entry -> '/' + entry.getKey())
-                        .collect(Collectors.toList());
-
-                commands.addAll(matchingCommands);
+                // XenonCord start
+                for ( String matchingCommand : bungee.getPluginManager().getMatchingCommands( con, last ) )
+                {
+                    commands.add( '/' + matchingCommand );
+                }
+                // XenonCord end
                 commands.sort(String::compareTo);
                 con.setLastCommandTabbed(null);
             }
@@ -582,14 +649,30 @@ public class DownstreamBridge extends PacketHandler
                 if (tabCompleteResponse.getCommands() != null)
                     tabCompleteResponse.setCommands(newSuggestions);
                 else {
+                    // XenonCord start
                     StringRange range = tabCompleteResponse.getSuggestions().getRange();
-                    List<Suggestion> suggestions = newSuggestions.stream()
-                            .map(input -> new Suggestion(range, input))
-                            .collect(Collectors.toList());
+                    List<Suggestion> suggestions = new ArrayList<>( newSuggestions.size() );
+                    for ( String input : newSuggestions )
+                    {
+                        suggestions.add( new Suggestion( range, input ) );
+                    }
                     tabCompleteResponse.setSuggestions(new Suggestions(range, suggestions));
+                    // XenonCord end
                 }
             }
 
+            // XenonCord start
+            if ( tabCompleteResponse.getCommands() == null )
+            {
+                pipeline.cache( server, cursor, tabCompleteResponse.getSuggestions() );
+                if ( commands.equals( newSuggestions ) )
+                {
+                    // unchanged answers are passed on as they were received
+                    return;
+                }
+            }
+            // XenonCord end
+
             con.unsafe().sendPacket(tabCompleteResponse);
         }
 
@@ -639,6 +722,10 @@ public class DownstreamBridge extends PacketHandler
     @Override
     public void handle(Commands commands) throws Exception
     {
+        // XenonCord start
+        ByteBuf tree = commandTree;
+        commandTree = null;
+        // XenonCord end
         boolean modified = false;
 
         // Waterfall start
@@ -657,6 +744,17 @@ public class DownstreamBridge extends PacketHandler
 
         bungee.getPluginManager().callEvent( event );
 
+        // XenonCord start - the merged tree only depends on the backend tree and the command names
+        if ( event.getCommands().isEmpty() ) return;
+        int version = con.getPendingConnection().getVersion();
+        byte[] merged = ( tree != null ) ? COMMAND_TREES.get( tree, event.getCommands().keySet(), version ) : null;
+        if ( merged != null )
+        {
+            con.sendPacket( new PacketWrapper( null, Unpooled.wrappedBuffer( merged ), Protocol.GAME ) );
+            throw CancelSendSignal.INSTANCE;
+        }
+        // XenonCord end
+
         for (Map.Entry<String, Command> command : event.getCommands().entrySet()) {
             CommandNode dummy = LiteralArgumentBuilder.literal(command.getKey()).executes(DUMMY_COMMAND)
                     .then(RequiredArgumentBuilder.argument("args", StringArgumentType.greedyString())
@@ -669,7 +767,16 @@ public class DownstreamBridge extends PacketHandler
 
         if ( !modified ) return;
 
-        con.unsafe().sendPacket( commands );
+        // XenonCord start
+        if ( tree == null )
+        {
+            con.unsafe().sendPacket( commands );
+            throw CancelSendSignal.INSTANCE;
+        }
+        merged = CommandTreeCache.encode( commands, version );
+        COMMAND_TREES.put( tree, event.getCommands().keySet(), version, merged );
+        con.sendPacket( new PacketWrapper( null, Unpooled.wrappedBuffer( merged ), Protocol.GAME ) );
+        // XenonCord end
         throw CancelSendSignal.INSTANCE;
     }
 
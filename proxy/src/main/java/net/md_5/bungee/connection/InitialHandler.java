@@ -2,6 +2,9 @@ package net.md_5.bungee.connection;
 
 import com.google.common.base.Preconditions;
 import com.google.gson.Gson;
+import ir.xenoncommunity.XenonCore;
+import ir.xenoncommunity.tracing.LoginStage;
+import ir.xenoncommunity.tracing.LoginTrace;
 import lombok.*;
 import net.md_5.bungee.*;
 import net.md_5.bungee.api.AbstractReconnectHandler;
@@ -28,19 +31,19 @@ import net.md_5.bungee.protocol.packet.*;
 import net.md_5.bungee.util.AllowedCharacters;
 import net.md_5.bungee.util.BufUtil;
 import net.md_5.bungee.util.QuietException;
+import io.netty.channel.EventLoop;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.math.BigInteger;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
-import java.security.MessageDigest;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 @RequiredArgsConstructor
@@ -63,6 +66,9 @@ public class InitialHandler extends PacketHandler implements PendingConnection
     @Getter
     private final Set<String> registeredChannels = new HashSet<>();
     private State thisState = State.HANDSHAKE;
+    private long handshakeTime;
+    @Getter
+    private final LoginTrace loginTrace = new LoginTrace(); // XenonCord
     private final Queue<CookieFuture> requestedCookies = new LinkedList<>();
 
     @Data
@@ -320,6 +326,8 @@ public class InitialHandler extends PacketHandler implements PendingConnection
     {
         Preconditions.checkState( thisState == State.HANDSHAKE, "Not expecting HANDSHAKE" );
         this.handshake = handshake;
+        this.handshakeTime = System.nanoTime();
+        loginTrace.end( LoginStage.HANDSHAKE ); // XenonCord
         ch.setVersion( handshake.getProtocolVersion() );
         ch.getHandle().pipeline().remove( PipelineUtils.LEGACY_KICKER );
 
@@ -342,6 +350,11 @@ public class InitialHandler extends PacketHandler implements PendingConnection
         }
 
         this.virtualHost = InetSocketAddress.createUnresolved( handshake.getHost(), handshake.getPort() );
+        if ( !XenonCore.instance.getAntiBot().allowHandshake( getSocketAddress(), handshake ) )
+        {
+            ch.close();
+            return;
+        }
 
         bungee.getPluginManager().callEvent( new PlayerHandshakeEvent( InitialHandler.this, handshake ) );
 
@@ -401,6 +414,12 @@ public class InitialHandler extends PacketHandler implements PendingConnection
     {
         Preconditions.checkState( thisState == State.USERNAME, "Not expecting USERNAME" );
 
+        if ( !XenonCore.instance.getAntiBot().allowLogin( getSocketAddress(), System.nanoTime() - handshakeTime ) )
+        {
+            disconnect( XenonCore.instance.getSnapshot().getAntiBot().getVerifyMessage() );
+            return;
+        }
+
         if ( !AllowedCharacters.isValidName( loginRequest.getData(), onlineMode ) )
         {
             disconnect( bungee.getTranslation( "name_invalid" ) );
@@ -456,6 +475,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
             @Override
             public void done(PreLoginEvent result, Throwable error)
             {
+                loginTrace.end( LoginStage.PRE_LOGIN ); // XenonCord
                 if ( result.isCancelled() )
                 {
                     BaseComponent reason = result.getReason();
@@ -479,6 +499,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
         };
 
         // fire pre login event
+        loginTrace.begin( LoginStage.PRE_LOGIN ); // XenonCord
         bungee.getPluginManager().callEvent( new PreLoginEvent( InitialHandler.this, callback ) );
     }
 
@@ -486,10 +507,55 @@ public class InitialHandler extends PacketHandler implements PendingConnection
     public void handle(final EncryptionResponse encryptResponse) throws Exception
     {
         Preconditions.checkState( thisState == State.ENCRYPT, "Not expecting ENCRYPT" );
-        Preconditions.checkState( EncryptionUtil.check( loginRequest.getPublicKey(), encryptResponse, request ), "Invalid verification" );
         thisState = State.FINISHING; // Waterfall - move earlier - There is no verification of this later (and this is not API)
 
-        SecretKey sharedKey = EncryptionUtil.getSecret( encryptResponse, request );
+        // XenonCord start - RSA and SHA-1 run on the crypto workers, the login continues on our event loop
+        loginTrace.begin( LoginStage.ENCRYPTION );
+        final EncryptionRequest request = this.request;
+        final PlayerPublicKey publicKey = loginRequest.getPublicKey();
+        final EventLoop eventLoop = ch.getHandle().eventLoop();
+        // The client encrypts everything after this packet, nothing may be read before the cipher is in place
+        ch.getHandle().config().setAutoRead( false );
+        try
+        {
+            EncryptionUtil.cryptoExecutor.execute( () ->
+            {
+                try
+                {
+                    Preconditions.checkState( EncryptionUtil.check( publicKey, encryptResponse, request ), "Invalid verification" );
+                    SecretKey sharedKey = EncryptionUtil.getSecret( encryptResponse, request );
+                    String serverHash = EncryptionUtil.getServerHash( request.getServerId(), sharedKey );
+                    eventLoop.execute( () -> enableEncryption( sharedKey, serverHash ) );
+                } catch ( Throwable t )
+                {
+                    eventLoop.execute( () -> ch.getHandle().pipeline().fireExceptionCaught( t ) );
+                }
+            } );
+        } catch ( RejectedExecutionException ex )
+        {
+            // Too many logins are already waiting for the crypto workers
+            ch.close();
+        }
+    }
+
+    private void enableEncryption(SecretKey sharedKey, String serverHash)
+    {
+        if ( ch.isClosing() )
+        {
+            return;
+        }
+        try
+        {
+            enableEncryption0( sharedKey, serverHash );
+        } catch ( Exception ex )
+        {
+            ch.getHandle().pipeline().fireExceptionCaught( ex );
+        }
+    }
+    // XenonCord end
+
+    private void enableEncryption0(SecretKey sharedKey, String serverHash) throws Exception
+    {
         // Waterfall start
         if (sharedKey instanceof SecretKeySpec) {
             if (sharedKey.getEncoded().length != 16) {
@@ -502,18 +568,11 @@ public class InitialHandler extends PacketHandler implements PendingConnection
         ch.addBefore( PipelineUtils.FRAME_DECODER, PipelineUtils.DECRYPT_HANDLER, new CipherDecoder( decrypt ) );
         BungeeCipher encrypt = EncryptionUtil.getCipher( true, sharedKey );
         ch.addBefore( PipelineUtils.FRAME_PREPENDER, PipelineUtils.ENCRYPT_HANDLER, new CipherEncoder( encrypt ) );
+        ch.getHandle().config().setAutoRead( true ); // XenonCord
+        loginTrace.end( LoginStage.ENCRYPTION ); // XenonCord
 
         String encName = URLEncoder.encode( InitialHandler.this.getName(), "UTF-8" );
-
-        MessageDigest sha = MessageDigest.getInstance( "SHA-1" );
-        for ( byte[] bit : new byte[][]
-        {
-            request.getServerId().getBytes( "ISO_8859_1" ), sharedKey.getEncoded(), EncryptionUtil.keys.getPublic().getEncoded()
-        } )
-        {
-            sha.update( bit );
-        }
-        String encodedHash = URLEncoder.encode( new BigInteger( sha.digest() ).toString( 16 ), "UTF-8" );
+        String encodedHash = URLEncoder.encode( serverHash, "UTF-8" );
 
         String preventProxy = ( BungeeCord.getInstance().config.isPreventProxyConnections() && getSocketAddress() instanceof InetSocketAddress ) ? "&ip=" + URLEncoder.encode( getAddress().getAddress().getHostAddress(), "UTF-8" ) : "";
         String authURL = String.format( MOJANG_AUTH_URL, encName, encodedHash, preventProxy );
@@ -523,6 +582,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
             @Override
             public void done(String result, Throwable error)
             {
+                loginTrace.end( LoginStage.AUTH ); // XenonCord
                 if ( error == null )
                 {
                     LoginResult obj = BungeeCord.getInstance().gson.fromJson( result, LoginResult.class );
@@ -543,6 +603,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
             }
         };
         //thisState = State.FINISHING; // Waterfall - move earlier
+        loginTrace.begin( LoginStage.AUTH ); // XenonCord
         HttpClient.get( authURL, ch.getHandle().eventLoop(), handler );
     }
 
@@ -610,6 +671,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
             @Override
             public void done(LoginEvent result, Throwable error)
             {
+                loginTrace.end( LoginStage.LOGIN_EVENT ); // XenonCord
                 if ( result.isCancelled() )
                 {
                     BaseComponent reason = result.getReason();
@@ -644,6 +706,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
         };
 
         // fire login event
+        loginTrace.begin( LoginStage.LOGIN_EVENT ); // XenonCord
         bungee.getPluginManager().callEvent( new LoginEvent( InitialHandler.this, complete, this.getLoginProfile() ) ); // Waterfall: Parse LoginResult object to new constructor of LoginEvent
     }
 
@@ -667,7 +730,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
         }
         if ( initialServer == null )
         {
-            initialServer = bungee.getServerInfo( listener.getDefaultServer() );
+            initialServer = bungee.selectServer( listener.getDefaultServer() ); // XenonCord
         }
 
         Callback<PostLoginEvent> complete = new Callback<PostLoginEvent>()
@@ -681,6 +744,7 @@ public class InitialHandler extends PacketHandler implements PendingConnection
                     return;
                 }
 
+                loginTrace.begin( LoginStage.CONNECT ); // XenonCord
                 userCon.connect( result.getTarget(), null, true, ServerConnectEvent.Reason.JOIN_PROXY );
             }
         };
@@ -0,0 +1,282 @@
+package net.md_5.bungee.connection;
+
+import com.mojang.brigadier.context.StringRange;
+import com.mojang.brigadier.suggestion.Suggestion;
+import com.mojang.brigadier.suggestion.Suggestions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.md_5.bungee.ServerConnection;
+import net.md_5.bungee.UserConnection;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.packet.TabCompleteRequest;
+import net.md_5.bungee.protocol.packet.TabCompleteResponse;
+
+/**
+ * Tab completion requests of a 1.13+ player which go to the backend.
+ *
+ * While the backend has not answered a request, newer requests are held back
+ * and only the newest is sent once the answer arrives. Answers to requests
+ * the player typed past are dropped, the client ignores them anyway.
+ *
+ * Optionally the answers are kept for a short time. When the player types
+ * more of the same word, the kept suggestions starting with the longer word
+ * are sent without asking the backend.
+ */
+public class TabCompletePipeline
+{
+
+    /**
+     * Milliseconds after which a request without answer no longer holds back
+     * newer ones.
+     */
+    static final long RESPONSE_TIMEOUT = 1000;
+    private static final int CACHE_SIZE = 8;
+    //
+    private final UserConnection con;
+    private final boolean pipeline;
+    private final long cacheTtl;
+    //
+    private ServerConnection server;
+    private TabCompleteRequest inFlight;
+    private long inFlightSince;
+    private TabCompleteRequest pending;
+    private int latestId;
+    //
+    private final Answer[] answers = new Answer[ CACHE_SIZE ];
+    private int nextAnswer;
+
+    private static final class Answer
+    {
+
+        private final ServerConnection server;
+        private final String cursor;
+        private final Suggestions suggestions;
+        private final long time;
+
+        private Answer(ServerConnection server, String cursor, Suggestions suggestions, long time)
+        {
+            this.server = server;
+            this.cursor = cursor;
+            this.suggestions = suggestions;
+            this.time = time;
+        }
+    }
+
+    /**
+     * @param pipeline whether to hold back requests while one is answered
+     * @param cacheTtl milliseconds answers are kept, 0 to not keep them
+     */
+    public TabCompletePipeline(UserConnection con, boolean pipeline, long cacheTtl)
+    {
+        this.con = con;
+        this.pipeline = pipeline;
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * Handles a request which would be passed to the backend.
+     *
+     * @return whether the request may be passed on now
+     */
+    synchronized boolean request(ServerConnection server, TabCompleteRequest request)
+    {
+        long now = currentTime();
+        latestId = request.getTransactionId();
+        if ( this.server != server )
+        {
+            this.server = server;
+            inFlight = null;
+            pending = null;
+        }
+
+        TabCompleteResponse answer = answer( server, request, now );
+        if ( answer != null )
+        {
+            pending = null;
+            sendToClient( answer );
+            return false;
+        }
+
+        if ( pipeline && inFlight != null && now - inFlightSince < RESPONSE_TIMEOUT )
+        {
+            if ( pending == null )
+            {
+                schedule( () -> timeout( server ), inFlightSince + RESPONSE_TIMEOUT - now );
+            }
+            pending = request;
+            return false;
+        }
+
+        pending = null;
+        inFlight = request;
+        inFlightSince = now;
+        return true;
+    }
+
+    /**
+     * Handles an answer of the backend.
+     *
+     * @return the cursor of the answered request, or null if the request was
+     * not passed on by this pipeline
+     */
+    synchronized String response(ServerConnection server, int transactionId)
+    {
+        if ( this.server != server || inFlight == null || inFlight.getTransactionId() != transactionId )
+        {
+            return null;
+        }
+        String cursor = inFlight.getCursor();
+        inFlight = null;
+        return cursor;
+    }
+
+    /**
+     * Checks if the player sent a newer request than the answered one. The
+     * held back request is sent if there is one.
+     */
+    synchronized boolean superseded(ServerConnection server, int transactionId)
+    {
+        if ( !pipeline || transactionId == latestId )
+        {
+            return false;
+        }
+        if ( inFlight == null )
+        {
+            sendPending( server );
+        }
+        return true;
+    }
+
+    /**
+     * Keeps the suggestions sent for a request passed on by this pipeline.
+     *
+     * @param cursor the cursor returned by {@link #response}, may be null
+     */
+    synchronized void cache(ServerConnection server, String cursor, Suggestions suggestions)
+    {
+        if ( cacheTtl <= 0 || cursor == null || suggestions.isEmpty() || suggestions.getRange().getEnd() != cursor.length() )
+        {
+            return;
+        }
+        answers[nextAnswer] = new Answer( server, cursor, suggestions, currentTime() );
+        nextAnswer = ( nextAnswer + 1 ) % answers.length;
+    }
+
+    private synchronized void timeout(ServerConnection server)
+    {
+        if ( pending != null && ( inFlight == null || currentTime() - inFlightSince >= RESPONSE_TIMEOUT ) )
+        {
+            inFlight = null;
+            sendPending( server );
+        }
+    }
+
+    private void sendPending(ServerConnection server)
+    {
+        TabCompleteRequest request = pending;
+        pending = null;
+        if ( request == null || this.server != server )
+        {
+            return;
+        }
+
+        long now = currentTime();
+        TabCompleteResponse answer = answer( server, request, now );
+        if ( answer != null )
+        {
+            sendToClient( answer );
+            return;
+        }
+        inFlight = request;
+        inFlightSince = now;
+        sendToServer( server, request );
+    }
+
+    /**
+     * Narrows the kept suggestions of the longest cursor the request extends
+     * by characters of the same word. Like the suggestions of brigadier and
+     * most plugins, cursors and suggestions are compared ignoring case.
+     */
+    private TabCompleteResponse answer(ServerConnection server, TabCompleteRequest request, long now)
+    {
+        if ( cacheTtl <= 0 )
+        {
+            return null;
+        }
+
+        String cursor = request.getCursor();
+        Answer best = null;
+        for ( Answer answer : answers )
+        {
+            if ( answer != null && answer.server == server && now - answer.time <= cacheTtl
+                    && ( best == null || answer.cursor.length() > best.cursor.length() )
+                    && cursor.regionMatches( true, 0, answer.cursor, 0, answer.cursor.length() ) && isWord( cursor, answer.cursor.length() ) )
+            {
+                best = answer;
+            }
+        }
+        if ( best == null )
+        {
+            return null;
+        }
+
+        int start = best.suggestions.getRange().getStart();
+        int length = cursor.length() - start;
+        StringRange range = StringRange.between( start, cursor.length() );
+        List<Suggestion> list = best.suggestions.getList();
+        List<Suggestion> matches = new ArrayList<>( list.size() );
+        for ( Suggestion suggestion : list )
+        {
+            String text = suggestion.getText();
+            if ( suggestion.getRange().getStart() != start )
+            {
+                // only the backend knows how to complete this
+                return null;
+            }
+            if ( text.regionMatches( true, 0, cursor, start, length ) )
+            {
+                matches.add( new Suggestion( range, text, suggestion.getTooltip() ) );
+            }
+        }
+        return new TabCompleteResponse( request.getTransactionId(), new Suggestions( range, matches ) );
+    }
+
+    /**
+     * Checks that the cursor continues the word with letters, digits,
+     * <code>_</code> or <code>-</code> from the given index on. Other
+     * characters may start a new argument or a nested one.
+     */
+    private static boolean isWord(String cursor, int from)
+    {
+        for ( int i = from; i < cursor.length(); i++ )
+        {
+            char ch = cursor.charAt( i );
+            if ( !Character.isLetterOrDigit( ch ) && ch != '_' && ch != '-' )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long currentTime()
+    {
+        return System.currentTimeMillis();
+    }
+
+    void sendToClient(DefinedPacket packet)
+    {
+        con.unsafe().sendPacket( packet );
+    }
+
+    void sendToServer(ServerConnection server, DefinedPacket packet)
+    {
+        server.unsafe().sendPacket( packet );
+    }
+
+    void schedule(Runnable task, long delay)
+    {
+        con.getCh().getHandle().eventLoop().schedule( task, delay, TimeUnit.MILLISECONDS );
+    }
+}
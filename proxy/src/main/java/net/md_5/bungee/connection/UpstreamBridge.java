@@ -24,7 +24,6 @@ import net.md_5.bungee.protocol.packet.*;
 import net.md_5.bungee.util.AllowedCharacters;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.UUID;
 
@@ -261,7 +260,7 @@ public class UpstreamBridge extends PacketHandler
                 int end = tabComplete.getCursor().length();
                 StringRange range = StringRange.between( start, end );
 
-                List<Suggestion> brigadier = new LinkedList<>();
+                List<Suggestion> brigadier = new ArrayList<>( results.size() ); // XenonCord
                 for ( String s : results )
                 {
                     brigadier.add( new Suggestion( range, s ) );
@@ -278,6 +277,14 @@ public class UpstreamBridge extends PacketHandler
             throw CancelSendSignal.INSTANCE;
         }
 
+        // XenonCord start
+        if ( con.getPendingConnection().getVersion() >= ProtocolConstants.MINECRAFT_1_13 && con.getServer() != null
+                && !con.getTabCompletes().request( con.getServer(), tabComplete ) )
+        {
+            throw CancelSendSignal.INSTANCE;
+        }
+        // XenonCord end
+
         if ( isCommand && con.getPendingConnection().getVersion() < ProtocolConstants.MINECRAFT_1_13 )
         {
             int lastSpace = tabComplete.getCursor().lastIndexOf( ' ' );
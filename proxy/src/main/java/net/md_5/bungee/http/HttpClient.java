@@ -24,9 +24,10 @@ public class HttpClient
 {
 
     public static final int TIMEOUT = 5000;
+    private static final boolean KEEP_ALIVE = !Boolean.getBoolean( "net.md_5.bungee.http.disable_keepalive" );
     private static final Cache<String, InetAddress> addressCache = CacheBuilder.newBuilder().expireAfterWrite( 1, TimeUnit.MINUTES ).build();
     // Waterfall Start - optionally use async resolver from Netty
-    private static final io.netty.resolver.dns.DnsAddressResolverGroup dnsResolverGroup =
+    static final io.netty.resolver.dns.DnsAddressResolverGroup dnsResolverGroup =
             new io.netty.resolver.dns.DnsAddressResolverGroup(PipelineUtils.getDatagramChannel(), io.netty.resolver.dns.DefaultDnsServerAddressStreamProvider.INSTANCE);
     // Waterfall End
 
@@ -58,6 +59,13 @@ public class HttpClient
             }
         }
 
+        // XenonCord - reuse kept alive connections instead of a TCP and TLS handshake per request
+        if ( KEEP_ALIVE )
+        {
+            HttpConnectionPool.of( eventLoop ).get( uri, port, ssl, callback );
+            return;
+        }
+
         // Waterfall Start - Move address creation to implementation method
         //InetAddress inetHost = addressCache.getIfPresent( uri.getHost() );
         //if ( inetHost == null )
@@ -0,0 +1,483 @@
+package net.md_5.bungee.http;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.handler.timeout.ReadTimeoutException;
+import io.netty.util.concurrent.ScheduledFuture;
+import lombok.RequiredArgsConstructor;
+import net.md_5.bungee.api.Callback;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.netty.PipelineUtils;
+
+import javax.net.ssl.SSLException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1 keep-alive connections, one pool per event loop so requests and callbacks never leave
+ * the loop of the connection that asked.
+ * <p>
+ * Every host gets at most {@link #MAX_CONNECTIONS} connections per loop, further requests wait in
+ * a bounded queue. Each request has a deadline from the moment it is submitted, queued ones
+ * included. After {@link #FAILURE_THRESHOLD} failures or timeouts in a row a host is considered
+ * down and requests fail right away until a single probe request succeeds again, a probe which
+ * does not succeed keeps the host down for another round.
+ */
+final class HttpConnectionPool
+{
+
+    static final int MAX_CONNECTIONS = Integer.getInteger( "net.md_5.bungee.http.max_connections", 8 );
+    static final int MAX_PENDING = Integer.getInteger( "net.md_5.bungee.http.max_pending", 256 );
+    static final int FAILURE_THRESHOLD = Integer.getInteger( "net.md_5.bungee.http.failure_threshold", 5 );
+    private static final long OPEN_NANOS = TimeUnit.MILLISECONDS.toNanos( Integer.getInteger( "net.md_5.bungee.http.circuit_open", 10000 ) );
+    private static final int IDLE_TIMEOUT = Integer.getInteger( "net.md_5.bungee.http.idle_timeout", 30000 );
+    private static final Map<EventLoop, HttpConnectionPool> pools = new ConcurrentHashMap<>();
+    private static SslContext sslContext;
+    //
+    private final EventLoop eventLoop;
+    private final Bootstrap bootstrap;
+    private final int timeout;
+    private final long openNanos;
+    private final Map<String, Endpoint> endpoints = new HashMap<>();
+
+    HttpConnectionPool(EventLoop eventLoop, Bootstrap bootstrap)
+    {
+        this( eventLoop, bootstrap, HttpClient.TIMEOUT, OPEN_NANOS );
+    }
+
+    @VisibleForTesting
+    HttpConnectionPool(EventLoop eventLoop, Bootstrap bootstrap, int timeout, long openNanos)
+    {
+        this.eventLoop = eventLoop;
+        this.bootstrap = bootstrap.group( eventLoop ).option( ChannelOption.CONNECT_TIMEOUT_MILLIS, timeout );
+        this.timeout = timeout;
+        this.openNanos = openNanos;
+    }
+
+    static HttpConnectionPool of(EventLoop eventLoop)
+    {
+        return pools.computeIfAbsent( eventLoop, loop ->
+        {
+            // Waterfall - netty reflection -> factory
+            Bootstrap bootstrap = new Bootstrap().channelFactory( PipelineUtils.getChannelFactory( null ) );
+            if ( ProxyServer.getInstance().getConfig().isUseNettyDnsResolver() )
+            {
+                bootstrap.resolver( HttpClient.dnsResolverGroup );
+            }
+            return new HttpConnectionPool( loop, bootstrap );
+        } );
+    }
+
+    /**
+     * Sends a GET request, the callback is always called on this pool's event loop.
+     */
+    void get(URI uri, int port, boolean ssl, Callback<String> callback)
+    {
+        if ( !eventLoop.inEventLoop() )
+        {
+            eventLoop.execute( () -> get( uri, port, ssl, callback ) );
+            return;
+        }
+
+        String path = uri.getRawPath() + ( ( uri.getRawQuery() == null ) ? "" : "?" + uri.getRawQuery() );
+        Endpoint endpoint = endpoints.computeIfAbsent( ( ssl ? "https://" : "http://" ) + uri.getHost() + ":" + port, key -> new Endpoint( uri.getHost(), port, ssl ) );
+        endpoint.submit( new Request( path, callback ) );
+    }
+
+    private static synchronized SslContext sslContext() throws SSLException
+    {
+        if ( sslContext == null )
+        {
+            sslContext = SslContextBuilder.forClient().build();
+        }
+        return sslContext;
+    }
+
+    @RequiredArgsConstructor
+    private static final class Request
+    {
+
+        private final String path;
+        private final Callback<String> callback;
+        private boolean retried;
+        private boolean probe;
+        private boolean done;
+        private ScheduledFuture<?> deadline;
+        /**
+         * The connection the request was last written to.
+         */
+        private Handler handler;
+    }
+
+    @RequiredArgsConstructor
+    private final class Endpoint
+    {
+
+        private final String host;
+        private final int port;
+        private final boolean ssl;
+        /**
+         * Most recently used first, so rarely used connections are the ones left to time out.
+         */
+        private final ArrayDeque<Channel> idle = new ArrayDeque<>();
+        private final ArrayDeque<Request> pending = new ArrayDeque<>();
+        /**
+         * Connections which are open or still connecting.
+         */
+        private int connections;
+        private int failures;
+        private long openUntil;
+        private boolean probing;
+
+        private void submit(Request request)
+        {
+            if ( failures >= FAILURE_THRESHOLD )
+            {
+                if ( probing || System.nanoTime() - openUntil < 0 )
+                {
+                    request.callback.done( null, new IOException( "Too many failed requests to " + host + ", not trying again yet" ) );
+                    return;
+                }
+                probing = true;
+                request.probe = true;
+            }
+            request.deadline = eventLoop.schedule( () -> expire( request ), timeout, TimeUnit.MILLISECONDS );
+            send( request );
+        }
+
+        private void send(Request request)
+        {
+            Channel channel;
+            while ( ( channel = idle.pollFirst() ) != null )
+            {
+                if ( channel.isActive() )
+                {
+                    dispatch( channel, request, true );
+                    return;
+                }
+            }
+
+            if ( connections < MAX_CONNECTIONS )
+            {
+                connect( request );
+            } else if ( pending.size() < MAX_PENDING )
+            {
+                pending.add( request );
+            } else
+            {
+                complete( request, null, new IOException( "Too many pending requests to " + host ), false );
+            }
+        }
+
+        private void connect(Request request)
+        {
+            connections++;
+            bootstrap.clone().handler( new ChannelInitializer<Channel>()
+            {
+                @Override
+                protected void initChannel(Channel ch) throws Exception
+                {
+                    if ( ssl )
+                    {
+                        ch.pipeline().addLast( "ssl", new SslHandler( sslContext().newEngine( ch.alloc(), host, port ) ) );
+                    }
+                    ch.pipeline().addLast( "http", new HttpClientCodec() );
+                    ch.pipeline().addLast( "idle", new IdleStateHandler( 0, 0, IDLE_TIMEOUT, TimeUnit.MILLISECONDS ) );
+                    ch.pipeline().addLast( "handler", new Handler( Endpoint.this, ch ) );
+                }
+            } ).remoteAddress( InetSocketAddress.createUnresolved( host, port ) ).connect().addListener( (ChannelFutureListener) future ->
+            {
+                if ( future.isSuccess() )
+                {
+                    future.channel().closeFuture().addListener( closed -> closed( future.channel() ) );
+                    if ( request.done )
+                    {
+                        // timed out while connecting, the connection can still serve others
+                        release( future.channel() );
+                    } else
+                    {
+                        dispatch( future.channel(), request, false );
+                    }
+                } else
+                {
+                    connections--;
+                    complete( request, null, future.cause(), true );
+                    pump();
+                }
+            } );
+        }
+
+        private void dispatch(Channel channel, Request request, boolean reused)
+        {
+            request.handler = channel.pipeline().get( Handler.class );
+            request.handler.start( request, reused );
+
+            FullHttpRequest http = new DefaultFullHttpRequest( HttpVersion.HTTP_1_1, HttpMethod.GET, request.path, Unpooled.EMPTY_BUFFER );
+            http.headers().set( HttpHeaderNames.HOST, host );
+            channel.writeAndFlush( http ).addListener( ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE );
+        }
+
+        private void release(Channel channel)
+        {
+            Request next = pending.poll();
+            if ( next != null )
+            {
+                dispatch( channel, next, true );
+            } else
+            {
+                idle.addFirst( channel );
+            }
+        }
+
+        private void closed(Channel channel)
+        {
+            connections--;
+            idle.remove( channel );
+            pump();
+        }
+
+        private void pump()
+        {
+            if ( !pending.isEmpty() && connections < MAX_CONNECTIONS )
+            {
+                connect( pending.poll() );
+            }
+        }
+
+        /**
+         * Fails a request which is still waiting or running once its deadline passed.
+         */
+        private void expire(Request request)
+        {
+            if ( request.done )
+            {
+                return;
+            }
+            if ( request.handler != null && request.handler.request == request )
+            {
+                request.handler.abort();
+                complete( request, null, ReadTimeoutException.INSTANCE, true );
+            } else if ( pending.remove( request ) )
+            {
+                // never sent, the running requests tell whether the host is slow
+                complete( request, null, ReadTimeoutException.INSTANCE, false );
+            } else
+            {
+                // still connecting
+                complete( request, null, ReadTimeoutException.INSTANCE, true );
+            }
+        }
+
+        /**
+         * Calls back once per request and keeps the failure count.
+         *
+         * @param countsAsFailure whether the error means the host is in trouble, a probe which
+         * does not succeed always counts
+         */
+        private void complete(Request request, String result, Throwable error, boolean countsAsFailure)
+        {
+            if ( request.done )
+            {
+                return;
+            }
+            request.done = true;
+            if ( request.deadline != null )
+            {
+                request.deadline.cancel( false );
+            }
+            if ( request.probe )
+            {
+                probing = false;
+            }
+
+            if ( error == null )
+            {
+                failures = 0;
+            } else if ( countsAsFailure || request.probe )
+            {
+                failed();
+            }
+            request.callback.done( result, error );
+        }
+
+        private void failed()
+        {
+            if ( ++failures >= FAILURE_THRESHOLD )
+            {
+                openUntil = System.nanoTime() + openNanos;
+                Request request;
+                while ( ( request = pending.poll() ) != null )
+                {
+                    complete( request, null, new IOException( "Too many failed requests to " + host + ", not trying again yet" ), false );
+                }
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static final class Handler extends SimpleChannelInboundHandler<HttpObject>
+    {
+
+        private final Endpoint endpoint;
+        private final Channel channel;
+        private final StringBuilder buffer = new StringBuilder( 640 );
+        private Request request;
+        private boolean reused;
+        private boolean received;
+        private boolean keepAlive;
+
+        private void start(Request request, boolean reused)
+        {
+            this.request = request;
+            this.reused = reused;
+        }
+
+        /**
+         * Drops the running request, its deadline passed.
+         */
+        private void abort()
+        {
+            reset();
+            channel.close();
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) throws Exception
+        {
+            if ( request == null )
+            {
+                // Nothing was asked for, the connection is out of sync
+                ctx.close();
+                return;
+            }
+            received = true;
+
+            if ( msg instanceof HttpResponse )
+            {
+                HttpResponse response = (HttpResponse) msg;
+                int responseCode = response.status().code();
+                keepAlive = HttpUtil.isKeepAlive( response );
+
+                if ( responseCode != HttpResponseStatus.OK.code() && responseCode != HttpResponseStatus.NO_CONTENT.code() )
+                {
+                    // Only server side trouble counts towards taking the host out of rotation
+                    fail( new IllegalStateException( "Expected HTTP response 200 OK, got " + response.status() ),
+                            responseCode >= 500 || responseCode == HttpResponseStatus.TOO_MANY_REQUESTS.code() );
+                    return;
+                }
+            }
+            if ( msg instanceof HttpContent )
+            {
+                HttpContent content = (HttpContent) msg;
+                buffer.append( content.content().toString( StandardCharsets.UTF_8 ) );
+
+                if ( msg instanceof LastHttpContent )
+                {
+                    Request done = request;
+                    String result = buffer.toString();
+                    boolean reuse = keepAlive;
+                    reset();
+                    if ( reuse )
+                    {
+                        endpoint.release( channel );
+                    } else
+                    {
+                        channel.close();
+                    }
+                    endpoint.complete( done, result, null, false );
+                }
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception
+        {
+            if ( request != null )
+            {
+                fail( new ClosedChannelException(), true );
+            }
+            super.channelInactive( ctx );
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception
+        {
+            if ( request != null )
+            {
+                fail( cause, true );
+            } else
+            {
+                ctx.close();
+            }
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception
+        {
+            if ( evt instanceof IdleStateEvent && request == null )
+            {
+                ctx.close();
+                return;
+            }
+            super.userEventTriggered( ctx, evt );
+        }
+
+        private void fail(Throwable cause, boolean countsAsFailure)
+        {
+            Request failed = request;
+            // A kept alive connection may have been closed by the server just before we wrote to it
+            boolean retry = reused && !received && countsAsFailure && !failed.retried;
+            reset();
+            channel.close();
+
+            if ( retry )
+            {
+                failed.retried = true;
+                endpoint.send( failed );
+                return;
+            }
+            endpoint.complete( failed, null, cause, countsAsFailure );
+        }
+
+        private void reset()
+        {
+            request = null;
+            buffer.setLength( 0 );
+            received = false;
+            keepAlive = false;
+        }
+    }
+}
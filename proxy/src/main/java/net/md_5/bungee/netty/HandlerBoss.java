@@ -7,6 +7,7 @@ import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.haproxy.HAProxyMessage;
 import io.netty.handler.timeout.ReadTimeoutException;
+import ir.xenoncommunity.XenonCore;
 import net.md_5.bungee.api.ProxyServer;
 import net.md_5.bungee.connection.CancelSendSignal;
 import net.md_5.bungee.connection.InitialHandler;
@@ -96,6 +97,12 @@ public class HandlerBoss extends ChannelInboundHandlerAdapter
                     } );
 
                     channel.setRemoteAddress( newAddress );
+
+                    // XenonCord - the accept time check only saw the load balancer, filter the real source now
+                    if ( !XenonCore.instance.acceptConnection( newAddress ) )
+                    {
+                        channel.close();
+                    }
                 } else
                 {
                     healthCheck = true;
@@ -16,6 +16,7 @@ import io.netty.handler.timeout.ReadTimeoutHandler;
 import io.netty.incubator.channel.uring.*;
 import io.netty.util.AttributeKey;
 import io.netty.util.internal.PlatformDependent;
+import ir.xenoncommunity.XenonCore;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import net.md_5.bungee.BungeeCord;
@@ -42,6 +43,12 @@ public class PipelineUtils
         protected void initChannel(Channel ch) {
             SocketAddress remoteAddress = ( ch.remoteAddress() == null ) ? ch.parent().localAddress() : ch.remoteAddress();
             ListenerInfo listener = ch.attr( LISTENER ).get();
+            // XenonCord - drop blocked networks and bots before any handler, event or pipeline is created for them
+            if ( !listener.isProxyProtocol() && !XenonCore.instance.acceptConnection( remoteAddress ) )
+            {
+                ch.close();
+                return;
+            }
             ConnectionInitEvent connectionInitEvent = new ConnectionInitEvent(ch.remoteAddress(), listener, (result, throwable) -> { // Waterfall
 
            if (
@@ -0,0 +1,302 @@
+package net.md_5.bungee.tab;
+
+import io.netty.buffer.ByteBuf;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+import net.md_5.bungee.UserConnection;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.netty.ChannelWrapper;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.PacketWrapper;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.PlayerListItem;
+import net.md_5.bungee.protocol.packet.PlayerListItemRemove;
+import net.md_5.bungee.protocol.packet.PlayerListItemUpdate;
+
+/**
+ * Shows every player of the {@link GlobalTabList} to the player. Latency and
+ * display name of those entries come from the proxy, everything else the
+ * backend sends is passed on.
+ */
+public class Global extends TabList
+{
+
+    private final GlobalTabList table;
+    private final boolean ping;
+    /**
+     * Entries added by the backend which are not part of the table.
+     */
+    private final Collection<UUID> uuids = new HashSet<>();
+    /**
+     * Whether the client is in game and has the table, guarded by the table.
+     */
+    boolean synced;
+    /**
+     * The table version this viewer is up to date with, guarded by the table.
+     */
+    long syncedVersion;
+
+    /**
+     * @param ping whether latency changes of other players are shown
+     */
+    public Global(ProxiedPlayer player, GlobalTabList table, boolean ping)
+    {
+        super( player );
+        this.table = table;
+        this.ping = ping;
+    }
+
+    @Override
+    public void onUpdate(PlayerListItem playerListItem)
+    {
+        PlayerListItem.Action action = playerListItem.getAction();
+        List<PlayerListItem.Item> items = new ArrayList<>( playerListItem.getItems().length );
+        List<PlayerListItem.Item> gamemodes = new ArrayList<>();
+        for ( PlayerListItem.Item item : playerListItem.getItems() )
+        {
+            if ( item.getUuid() == null || !table.contains( item.getUuid() ) )
+            {
+                if ( action == PlayerListItem.Action.ADD_PLAYER )
+                {
+                    uuids.add( item.getUuid() );
+                } else if ( action == PlayerListItem.Action.REMOVE_PLAYER )
+                {
+                    uuids.remove( item.getUuid() );
+                }
+                items.add( item );
+            } else if ( action == PlayerListItem.Action.UPDATE_GAMEMODE )
+            {
+                if ( item.getGamemode() != null )
+                {
+                    table.updateGamemode( item.getUuid(), item.getGamemode() );
+                }
+                items.add( item );
+            } else if ( action == PlayerListItem.Action.ADD_PLAYER && item.getGamemode() != null )
+            {
+                // the entry exists already, adding it again would replace it
+                table.updateGamemode( item.getUuid(), item.getGamemode() );
+                PlayerListItem.Item gamemode = new PlayerListItem.Item();
+                gamemode.setUuid( item.getUuid() );
+                gamemode.setGamemode( item.getGamemode() );
+                gamemodes.add( gamemode );
+            }
+        }
+
+        if ( items.size() == playerListItem.getItems().length )
+        {
+            sendPacket( playerListItem );
+        } else if ( !items.isEmpty() )
+        {
+            PlayerListItem packet = new PlayerListItem();
+            packet.setAction( action );
+            packet.setItems( items.toArray( new PlayerListItem.Item[ 0 ] ) );
+            sendPacket( packet );
+        }
+        if ( !gamemodes.isEmpty() )
+        {
+            PlayerListItem packet = new PlayerListItem();
+            packet.setAction( PlayerListItem.Action.UPDATE_GAMEMODE );
+            packet.setItems( gamemodes.toArray( new PlayerListItem.Item[ 0 ] ) );
+            sendPacket( packet );
+        }
+    }
+
+    @Override
+    public void onUpdate(PlayerListItemRemove playerListItem)
+    {
+        List<UUID> removed = new ArrayList<>( playerListItem.getUuids().length );
+        for ( UUID uuid : playerListItem.getUuids() )
+        {
+            // players of the table stay while they are on the proxy
+            if ( !table.contains( uuid ) )
+            {
+                uuids.remove( uuid );
+                removed.add( uuid );
+            }
+        }
+
+        if ( removed.size() == playerListItem.getUuids().length )
+        {
+            sendPacket( playerListItem );
+        } else if ( !removed.isEmpty() )
+        {
+            PlayerListItemRemove packet = new PlayerListItemRemove();
+            packet.setUuids( removed.toArray( new UUID[ 0 ] ) );
+            sendPacket( packet );
+        }
+    }
+
+    @Override
+    public void onUpdate(PlayerListItemUpdate playerListItem)
+    {
+        EnumSet<PlayerListItemUpdate.Action> actions = playerListItem.getActions();
+        List<PlayerListItem.Item> own = new ArrayList<>( playerListItem.getItems().length );
+        List<PlayerListItem.Item> shared = new ArrayList<>();
+        for ( PlayerListItem.Item item : playerListItem.getItems() )
+        {
+            if ( table.contains( item.getUuid() ) )
+            {
+                // adding an existing entry again is ignored by these clients, chat sessions are still needed
+                shared.add( item );
+                if ( actions.contains( PlayerListItemUpdate.Action.UPDATE_GAMEMODE ) && item.getGamemode() != null )
+                {
+                    table.updateGamemode( item.getUuid(), item.getGamemode() );
+                }
+            } else
+            {
+                if ( actions.contains( PlayerListItemUpdate.Action.ADD_PLAYER ) )
+                {
+                    uuids.add( item.getUuid() );
+                }
+                own.add( item );
+            }
+        }
+
+        EnumSet<PlayerListItemUpdate.Action> sharedActions = EnumSet.copyOf( actions );
+        sharedActions.remove( PlayerListItemUpdate.Action.UPDATE_LATENCY );
+        sharedActions.remove( PlayerListItemUpdate.Action.UPDATE_DISPLAY_NAME );
+        if ( shared.isEmpty() || sharedActions.size() == actions.size() )
+        {
+            sendPacket( playerListItem );
+            return;
+        }
+
+        if ( !own.isEmpty() )
+        {
+            PlayerListItemUpdate packet = new PlayerListItemUpdate();
+            packet.setActions( actions );
+            packet.setItems( own.toArray( new PlayerListItem.Item[ 0 ] ) );
+            sendPacket( packet );
+        }
+        if ( !sharedActions.isEmpty() )
+        {
+            PlayerListItemUpdate packet = new PlayerListItemUpdate();
+            packet.setActions( sharedActions );
+            packet.setItems( shared.toArray( new PlayerListItem.Item[ 0 ] ) );
+            sendPacket( packet );
+        }
+    }
+
+    @Override
+    public void onPingChange(int ping)
+    {
+        table.updatePing( ( (UserConnection) player ).getRewriteId(), ping );
+    }
+
+    @Override
+    public void onServerChange()
+    {
+        sendRemove( uuids );
+        uuids.clear();
+        if ( getProtocolVersion() >= ProtocolConstants.MINECRAFT_1_20_2 )
+        {
+            // the client dropped its tab list while it was reconfigured
+            table.sync( this );
+        }
+    }
+
+    @Override
+    public void onConnect()
+    {
+        UserConnection con = (UserConnection) player;
+        table.add( con.getRewriteId(), this, con.getName(), loginProperties( con ), con.getGamemode(), con.getPing(), displayName( con ) );
+        table.join( this );
+    }
+
+    @Override
+    public void onJoinGame()
+    {
+        table.sync( this );
+    }
+
+    @Override
+    public void onReconfigure()
+    {
+        table.pause( this );
+    }
+
+    @Override
+    public void onDisconnect()
+    {
+        table.leave( this );
+        table.remove( ( (UserConnection) player ).getRewriteId(), this );
+    }
+
+    @Override
+    public void onDisplayNameChange()
+    {
+        UserConnection con = (UserConnection) player;
+        table.updateDisplayName( con.getRewriteId(), displayName( con ) );
+    }
+
+    private static BaseComponent displayName(UserConnection con)
+    {
+        return con.getDisplayName().equals( con.getName() ) ? null : TextComponent.fromLegacy( con.getDisplayName() );
+    }
+
+    boolean isPing()
+    {
+        return ping;
+    }
+
+    int getProtocolVersion()
+    {
+        return player.getPendingConnection().getVersion();
+    }
+
+    void sendPacket(DefinedPacket packet)
+    {
+        player.unsafe().sendPacket( packet );
+    }
+
+    ChannelWrapper getCh()
+    {
+        return ( (UserConnection) player ).getCh();
+    }
+
+    /**
+     * Writes packets encoded by the table. The buffers stay owned by the
+     * caller, the writes happen in order on the event loop of the player.
+     */
+    void send(List<ByteBuf> packets)
+    {
+        if ( packets.isEmpty() )
+        {
+            return;
+        }
+        ChannelWrapper ch = getCh();
+        List<ByteBuf> copies = new ArrayList<>( packets.size() );
+        for ( ByteBuf buf : packets )
+        {
+            copies.add( buf.retainedDuplicate() );
+        }
+        try
+        {
+            ch.getHandle().eventLoop().execute( () ->
+            {
+                // a batch racing a reconfiguration is dropped, the client is synced again afterwards
+                boolean game = ch.getEncodeProtocol() == Protocol.GAME;
+                for ( ByteBuf buf : copies )
+                {
+                    PacketWrapper wrapper = new PacketWrapper( null, buf, Protocol.GAME );
+                    if ( game )
+                    {
+                        ch.write( wrapper );
+                    }
+                    wrapper.trySingleRelease();
+                }
+            } );
+        } catch ( RejectedExecutionException ex )
+        {
+            copies.forEach( ByteBuf::release );
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package net.md_5.bungee.tab;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.Property;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.PlayerListItem;
+import net.md_5.bungee.protocol.packet.PlayerListItemRemove;
+import net.md_5.bungee.protocol.packet.PlayerListItemUpdate;
+
+/**
+ * The tab list shared by every player using {@link Global}.
+ *
+ * One table holds an entry per player. Changes are collected and sent to
+ * all viewers in batches by {@link #flush()}, so a viewer only receives what
+ * changed. Each batch is encoded once per protocol version and the same
+ * buffers are written to every viewer of that version. Viewers get the whole
+ * table once they are in game, and again after a reconfiguration, changes
+ * are only sent to viewers which are in game.
+ */
+public class GlobalTabList
+{
+
+    /**
+     * Entries per packet, keeps packets with skins well below the size
+     * limit of the client.
+     */
+    static final int MAX_ITEMS_PER_PACKET = 256;
+    private static final EnumSet<PlayerListItemUpdate.Action> ADD_ACTIONS = EnumSet.of( PlayerListItemUpdate.Action.ADD_PLAYER,
+            PlayerListItemUpdate.Action.UPDATE_LISTED, PlayerListItemUpdate.Action.UPDATE_LATENCY, PlayerListItemUpdate.Action.UPDATE_DISPLAY_NAME );
+    //
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<Global> viewers = new LinkedHashSet<>();
+    // Changes since the last flush, guarded by this
+    private final Set<UUID> removed = new LinkedHashSet<>();
+    private final Set<UUID> added = new LinkedHashSet<>();
+    private final Set<UUID> latency = new LinkedHashSet<>();
+    private final Set<UUID> displayNames = new LinkedHashSet<>();
+    /**
+     * Counts the changes to the table. A viewer synced at the current version
+     * has nothing to catch up on.
+     */
+    private long version;
+
+    private static final class Entry
+    {
+
+        private final UUID uuid;
+        private final Global owner;
+        private final String name;
+        private final Property[] properties;
+        private int gamemode;
+        private int ping;
+        private BaseComponent displayName;
+
+        private Entry(UUID uuid, Global owner, String name, Property[] properties, int gamemode, int ping, BaseComponent displayName)
+        {
+            this.uuid = uuid;
+            this.owner = owner;
+            this.name = name;
+            this.properties = properties;
+            this.gamemode = gamemode;
+            this.ping = ping;
+            this.displayName = displayName;
+        }
+    }
+
+    /**
+     * Whether the table has an entry with the given id, backend updates of
+     * these entries are partly replaced by the table.
+     */
+    public boolean contains(UUID uuid)
+    {
+        return entries.containsKey( uuid );
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Adds or replaces the entry of a player.
+     *
+     * @param owner the tab list of the player, only it can remove the entry
+     */
+    public synchronized void add(UUID uuid, Global owner, String name, Property[] properties, int gamemode, int ping, BaseComponent displayName)
+    {
+        if ( entries.put( uuid, new Entry( uuid, owner, name, properties, gamemode, ping, displayName ) ) != null )
+        {
+            // clients keep an entry which is added again, removals are sent first
+            removed.add( uuid );
+        }
+        added.add( uuid );
+        latency.remove( uuid );
+        displayNames.remove( uuid );
+        version++;
+    }
+
+    /**
+     * Removes the entry of a player, unless it was replaced by another
+     * session of the same player in the meantime.
+     */
+    public synchronized void remove(UUID uuid, Global owner)
+    {
+        Entry entry = entries.get( uuid );
+        if ( entry != null && entry.owner == owner )
+        {
+            entries.remove( uuid );
+            added.remove( uuid );
+            latency.remove( uuid );
+            displayNames.remove( uuid );
+            removed.add( uuid );
+            version++;
+        }
+    }
+
+    public synchronized void updatePing(UUID uuid, int ping)
+    {
+        Entry entry = entries.get( uuid );
+        if ( entry != null && entry.ping != ping )
+        {
+            entry.ping = ping;
+            if ( !added.contains( uuid ) )
+            {
+                latency.add( uuid );
+            }
+            version++;
+        }
+    }
+
+    public synchronized void updateDisplayName(UUID uuid, BaseComponent displayName)
+    {
+        Entry entry = entries.get( uuid );
+        if ( entry != null && !Objects.equals( entry.displayName, displayName ) )
+        {
+            entry.displayName = displayName;
+            if ( !added.contains( uuid ) )
+            {
+                displayNames.add( uuid );
+            }
+            version++;
+        }
+    }
+
+    /**
+     * Remembers the game mode a backend reported for a player, so that later
+     * additions of the entry carry it. The change itself reaches the viewers
+     * through the backends, it is not sent by the table.
+     */
+    public synchronized void updateGamemode(UUID uuid, int gamemode)
+    {
+        Entry entry = entries.get( uuid );
+        if ( entry != null )
+        {
+            entry.gamemode = gamemode;
+        }
+    }
+
+    /**
+     * Adds a viewer, it gets the table with its first {@link #sync(Global)}.
+     */
+    public synchronized void join(Global viewer)
+    {
+        viewers.add( viewer );
+        viewer.synced = false;
+    }
+
+    public synchronized void leave(Global viewer)
+    {
+        viewers.remove( viewer );
+    }
+
+    /**
+     * Stops sending changes to a viewer which left the game state, until it
+     * is synced again.
+     */
+    public synchronized void pause(Global viewer)
+    {
+        viewer.synced = false;
+    }
+
+    /**
+     * Sends the whole table to a viewer which is in game and has none of it,
+     * after it joined or was reconfigured. Changes are sent from then on.
+     */
+    public synchronized void sync(Global viewer)
+    {
+        if ( !viewers.contains( viewer ) )
+        {
+            return;
+        }
+        viewer.synced = true;
+        viewer.syncedVersion = version;
+        if ( entries.isEmpty() )
+        {
+            return;
+        }
+
+        int protocolVersion = viewer.getProtocolVersion();
+        List<DefinedPacket> packets = new ArrayList<>();
+        addPackets( packets, entries.values(), protocolVersion );
+        List<ByteBuf> encoded = encode( packets, protocolVersion );
+        try
+        {
+            viewer.send( encoded );
+        } finally
+        {
+            release( encoded );
+        }
+    }
+
+    /**
+     * Sends the changes since the last call to all viewers which do not
+     * have them yet. The packets are built from the current entries, so a
+     * viewer synced in the middle of a batch can safely receive it again.
+     */
+    public synchronized void flush()
+    {
+        if ( removed.isEmpty() && added.isEmpty() && latency.isEmpty() && displayNames.isEmpty() )
+        {
+            return;
+        }
+        List<UUID> removed = new ArrayList<>( this.removed );
+        List<Entry> added = entries( this.added );
+        List<Entry> latency = entries( this.latency );
+        List<Entry> displayNames = entries( this.displayNames );
+        this.removed.clear();
+        this.added.clear();
+        this.latency.clear();
+        this.displayNames.clear();
+
+        // per protocol version the changes without and with latency updates
+        Map<Integer, List<ByteBuf>> encoded = new HashMap<>();
+        Map<Integer, List<ByteBuf>> encodedPing = new HashMap<>();
+        try
+        {
+            for ( Global viewer : viewers )
+            {
+                if ( !viewer.synced || viewer.syncedVersion == version )
+                {
+                    continue;
+                }
+                viewer.syncedVersion = version;
+                int protocolVersion = viewer.getProtocolVersion();
+                List<ByteBuf> packets = encoded.computeIfAbsent( protocolVersion, (v) -> encode( changePackets( removed, added, displayNames, v ), v ) );
+                List<ByteBuf> pingPackets = ( viewer.isPing() && !latency.isEmpty() )
+                        ? encodedPing.computeIfAbsent( protocolVersion, (v) -> encode( latencyPackets( latency, v ), v ) )
+                        : null;
+                if ( pingPackets == null || packets.isEmpty() )
+                {
+                    viewer.send( ( pingPackets == null ) ? packets : pingPackets );
+                } else
+                {
+                    List<ByteBuf> all = new ArrayList<>( packets.size() + pingPackets.size() );
+                    all.addAll( packets );
+                    all.addAll( pingPackets );
+                    viewer.send( all );
+                }
+            }
+        } finally
+        {
+            encoded.values().forEach( GlobalTabList::release );
+            encodedPing.values().forEach( GlobalTabList::release );
+        }
+    }
+
+    private List<Entry> entries(Set<UUID> uuids)
+    {
+        List<Entry> list = new ArrayList<>( uuids.size() );
+        for ( UUID uuid : uuids )
+        {
+            Entry entry = entries.get( uuid );
+            if ( entry != null )
+            {
+                list.add( entry );
+            }
+        }
+        return list;
+    }
+
+    private static List<DefinedPacket> changePackets(List<UUID> removed, List<Entry> added, List<Entry> displayNames, int protocolVersion)
+    {
+        List<DefinedPacket> packets = new ArrayList<>();
+        boolean modern = protocolVersion >= ProtocolConstants.MINECRAFT_1_19_3;
+        for ( int start = 0; start < removed.size(); start += MAX_ITEMS_PER_PACKET )
+        {
+            List<UUID> chunk = removed.subList( start, Math.min( removed.size(), start + MAX_ITEMS_PER_PACKET ) );
+            if ( modern )
+            {
+                PlayerListItemRemove packet = new PlayerListItemRemove();
+                packet.setUuids( chunk.toArray( new UUID[ 0 ] ) );
+                packets.add( packet );
+            } else
+            {
+                PlayerListItem.Item[] items = new PlayerListItem.Item[ chunk.size() ];
+                for ( int i = 0; i < items.length; i++ )
+                {
+                    items[i] = new PlayerListItem.Item();
+                    items[i].setUuid( chunk.get( i ) );
+                }
+                packets.add( legacy( PlayerListItem.Action.REMOVE_PLAYER, items ) );
+            }
+        }
+        addPackets( packets, added, protocolVersion );
+        for ( List<Entry> chunk : chunks( displayNames ) )
+        {
+            PlayerListItem.Item[] items = new PlayerListItem.Item[ chunk.size() ];
+            for ( int i = 0; i < items.length; i++ )
+            {
+                items[i] = new PlayerListItem.Item();
+                items[i].setUuid( chunk.get( i ).uuid );
+                items[i].setDisplayName( chunk.get( i ).displayName );
+            }
+            packets.add( modern ? modern( EnumSet.of( PlayerListItemUpdate.Action.UPDATE_DISPLAY_NAME ), items ) : legacy( PlayerListItem.Action.UPDATE_DISPLAY_NAME, items ) );
+        }
+        return packets;
+    }
+
+    private static List<DefinedPacket> latencyPackets(List<Entry> latency, int protocolVersion)
+    {
+        List<DefinedPacket> packets = new ArrayList<>();
+        for ( List<Entry> chunk : chunks( latency ) )
+        {
+            PlayerListItem.Item[] items = new PlayerListItem.Item[ chunk.size() ];
+            for ( int i = 0; i < items.length; i++ )
+            {
+                items[i] = new PlayerListItem.Item();
+                items[i].setUuid( chunk.get( i ).uuid );
+                items[i].setPing( chunk.get( i ).ping );
+            }
+            packets.add( ( protocolVersion >= ProtocolConstants.MINECRAFT_1_19_3 )
+                    ? modern( EnumSet.of( PlayerListItemUpdate.Action.UPDATE_LATENCY ), items ) : legacy( PlayerListItem.Action.UPDATE_LATENCY, items ) );
+        }
+        return packets;
+    }
+
+    private static void addPackets(List<DefinedPacket> packets, Collection<Entry> added, int protocolVersion)
+    {
+        for ( List<Entry> chunk : chunks( added ) )
+        {
+            PlayerListItem.Item[] items = new PlayerListItem.Item[ chunk.size() ];
+            for ( int i = 0; i < items.length; i++ )
+            {
+                Entry entry = chunk.get( i );
+                PlayerListItem.Item item = items[i] = new PlayerListItem.Item();
+                item.setUuid( entry.uuid );
+                item.setUsername( entry.name );
+                item.setProperties( entry.properties );
+                item.setListed( true );
+                item.setGamemode( entry.gamemode );
+                item.setPing( entry.ping );
+                item.setDisplayName( entry.displayName );
+            }
+            packets.add( ( protocolVersion >= ProtocolConstants.MINECRAFT_1_19_3 ) ? modern( ADD_ACTIONS, items ) : legacy( PlayerListItem.Action.ADD_PLAYER, items ) );
+        }
+    }
+
+    private static List<List<Entry>> chunks(Collection<Entry> entries)
+    {
+        List<Entry> list = ( entries instanceof List ) ? (List<Entry>) entries : new ArrayList<>( entries );
+        List<List<Entry>> chunks = new ArrayList<>();
+        for ( int start = 0; start < list.size(); start += MAX_ITEMS_PER_PACKET )
+        {
+            chunks.add( list.subList( start, Math.min( list.size(), start + MAX_ITEMS_PER_PACKET ) ) );
+        }
+        return chunks;
+    }
+
+    private static PlayerListItemUpdate modern(EnumSet<PlayerListItemUpdate.Action> actions, PlayerListItem.Item[] items)
+    {
+        PlayerListItemUpdate packet = new PlayerListItemUpdate();
+        packet.setActions( actions );
+        packet.setItems( items );
+        return packet;
+    }
+
+    private static PlayerListItem legacy(PlayerListItem.Action action, PlayerListItem.Item[] items)
+    {
+        PlayerListItem packet = new PlayerListItem();
+        packet.setAction( action );
+        packet.setItems( items );
+        return packet;
+    }
+
+    /**
+     * Encodes packets the way the client encoder would, without framing or
+     * compression which are still done per connection.
+     */
+    private static List<ByteBuf> encode(List<DefinedPacket> packets, int protocolVersion)
+    {
+        List<ByteBuf> encoded = new ArrayList<>( packets.size() );
+        try
+        {
+            for ( DefinedPacket packet : packets )
+            {
+                ByteBuf buf = ByteBufAllocator.DEFAULT.buffer();
+                encoded.add( buf );
+                DefinedPacket.writeVarInt( Protocol.GAME.TO_CLIENT.getId( packet.getClass(), protocolVersion ), buf );
+                packet.write( buf, Protocol.GAME, ProtocolConstants.Direction.TO_CLIENT, protocolVersion );
+            }
+        } catch ( RuntimeException ex )
+        {
+            release( encoded );
+            throw ex;
+        }
+        return encoded;
+    }
+
+    private static void release(List<ByteBuf> encoded)
+    {
+        for ( ByteBuf buf : encoded )
+        {
+            buf.release();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package net.md_5.bungee.tab;
 
 import net.md_5.bungee.api.connection.ProxiedPlayer;
-import net.md_5.bungee.protocol.ProtocolConstants;
 import net.md_5.bungee.protocol.packet.PlayerListItem;
 import net.md_5.bungee.protocol.packet.PlayerListItemRemove;
 import net.md_5.bungee.protocol.packet.PlayerListItemUpdate;
@@ -71,25 +70,7 @@ public class ServerUnique extends TabList
     @Override
     public void onServerChange()
     {
-        if ( player.getPendingConnection().getVersion() >= ProtocolConstants.MINECRAFT_1_19_3 )
-        {
-            PlayerListItemRemove packet = new PlayerListItemRemove();
-            packet.setUuids( uuids.stream().toArray( UUID[]::new ) );
-            player.unsafe().sendPacket( packet );
-        } else
-        {
-            PlayerListItem packet = new PlayerListItem();
-            packet.setAction( PlayerListItem.Action.REMOVE_PLAYER );
-            PlayerListItem.Item[] items = new PlayerListItem.Item[ uuids.size() ];
-            int i = 0;
-            for ( UUID uuid : uuids )
-            {
-                PlayerListItem.Item item = items[i++] = new PlayerListItem.Item();
-                item.setUuid( uuid );
-            }
-            packet.setItems( items );
-            player.unsafe().sendPacket( packet );
-        }
+        sendRemove( uuids ); // XenonCord
         uuids.clear();
     }
 
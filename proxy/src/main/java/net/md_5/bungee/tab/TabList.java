@@ -1,11 +1,14 @@
 package net.md_5.bungee.tab;
 
+import java.util.Collection;
+import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import net.md_5.bungee.BungeeCord;
 import net.md_5.bungee.UserConnection;
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.connection.LoginResult;
 import net.md_5.bungee.protocol.Property;
+import net.md_5.bungee.protocol.ProtocolConstants;
 import net.md_5.bungee.protocol.packet.PlayerListItem;
 import net.md_5.bungee.protocol.packet.PlayerListItemRemove;
 import net.md_5.bungee.protocol.packet.PlayerListItemUpdate;
@@ -30,6 +33,75 @@ public abstract class TabList
 
     public abstract void onDisconnect();
 
+    // XenonCord start
+    /**
+     * Called after the display name of the player was changed.
+     */
+    public void onDisplayNameChange()
+    {
+    }
+
+    /**
+     * Called once the client is in game, after the login packet of its
+     * first server was sent.
+     */
+    public void onJoinGame()
+    {
+    }
+
+    /**
+     * Called when a 1.20.2+ client is sent back to configuration to switch
+     * servers. It is in game again with the next {@link #onServerChange()}.
+     */
+    public void onReconfigure()
+    {
+    }
+
+    /**
+     * Removes the given entries from the tab list of the player.
+     */
+    protected void sendRemove(Collection<UUID> uuids)
+    {
+        if ( player.getPendingConnection().getVersion() >= ProtocolConstants.MINECRAFT_1_19_3 )
+        {
+            PlayerListItemRemove packet = new PlayerListItemRemove();
+            packet.setUuids( uuids.stream().toArray( UUID[]::new ) );
+            player.unsafe().sendPacket( packet );
+        } else
+        {
+            PlayerListItem packet = new PlayerListItem();
+            packet.setAction( PlayerListItem.Action.REMOVE_PLAYER );
+            PlayerListItem.Item[] items = new PlayerListItem.Item[ uuids.size() ];
+            int i = 0;
+            for ( UUID uuid : uuids )
+            {
+                PlayerListItem.Item item = items[i++] = new PlayerListItem.Item();
+                item.setUuid( uuid );
+            }
+            packet.setItems( items );
+            player.unsafe().sendPacket( packet );
+        }
+    }
+
+    /**
+     * Copies the profile properties the player logged in with.
+     */
+    static Property[] loginProperties(UserConnection player)
+    {
+        LoginResult loginResult = player.getPendingConnection().getLoginProfile();
+        if ( loginResult == null || loginResult.getProperties() == null )
+        {
+            return new Property[ 0 ];
+        }
+        Property[] props = new Property[ loginResult.getProperties().length ];
+        for ( int i = 0; i < props.length; i++ )
+        {
+            props[i] = new Property( loginResult.getProperties()[i].getName(), loginResult.getProperties()[i].getValue(), loginResult.getProperties()[i].getSignature() );
+        }
+        return props;
+    }
+    // XenonCord end
+
     public static PlayerListItem rewrite(PlayerListItem playerListItem)
     {
         for ( PlayerListItem.Item item : playerListItem.getItems() )
@@ -76,19 +148,7 @@ public abstract class TabList
 
             if ( item.getProperties() != null )
             {
-                LoginResult loginResult = player.getPendingConnection().getLoginProfile();
-                if ( loginResult != null && loginResult.getProperties() != null )
-                {
-                    Property[] props = new Property[ loginResult.getProperties().length ];
-                    for ( int i = 0; i < props.length; i++ )
-                    {
-                        props[i] = new Property( loginResult.getProperties()[i].getName(), loginResult.getProperties()[i].getValue(), loginResult.getProperties()[i].getSignature() );
-                    }
-                    item.setProperties( props );
-                } else
-                {
-                    item.setProperties( new Property[ 0 ] );
-                }
+                item.setProperties( loginProperties( player ) );
             }
             if ( item.getGamemode() != null )
             {
@@ -4,6 +4,8 @@ import com.google.common.base.Preconditions;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.FrozenComponent;
+import net.md_5.bungee.api.chat.HoverEvent;
 import net.md_5.bungee.api.chat.ScoreComponent;
 import net.md_5.bungee.api.chat.TextComponent;
 import net.md_5.bungee.api.chat.hover.content.Content;
@@ -11,9 +13,9 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.score.Score;
 import net.md_5.bungee.protocol.ProtocolConstants;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * This class transforms chat components by attempting to replace transformable
@@ -44,13 +46,12 @@ public final class ChatComponentTransformer
                 return next;
             }
             next = next.duplicate();
-            next.getHoverEvent().setLegacy( true );
-            if ( next.getHoverEvent().getContents().size() > 1 )
-            {
-                Content exception = next.getHoverEvent().getContents().get( 0 );
-                next.getHoverEvent().getContents().clear();
-                next.getHoverEvent().getContents().add( exception );
-            }
+            // XenonCord start - duplicates share their events, change a copy of the hover event
+            List<Content> contents = next.getHoverEvent().getContents();
+            HoverEvent hoverEvent = new HoverEvent( next.getHoverEvent().getAction(), new ArrayList<>( ( contents.size() > 1 ) ? contents.subList( 0, 1 ) : contents ) );
+            hoverEvent.setLegacy( true );
+            next.setHoverEvent( hoverEvent );
+            // XenonCord end
         }
 
         return next;
@@ -99,6 +100,17 @@ public final class ChatComponentTransformer
             return new TextComponent( "" );
         }
 
+        // XenonCord start - most trees have nothing to transform, leave them untouched
+        if ( !root.needsTransform( transformHover && player.getPendingConnection().getVersion() < ProtocolConstants.MINECRAFT_1_16 ) )
+        {
+            return root;
+        }
+        if ( root instanceof FrozenComponent )
+        {
+            root = root.duplicate();
+        }
+        // XenonCord end
+
         if ( transformHover )
         {
             root = legacyHoverTransform( player, root );
@@ -106,7 +118,13 @@ public final class ChatComponentTransformer
 
         if ( root.getExtra() != null && !root.getExtra().isEmpty() )
         {
-            List<BaseComponent> list = root.getExtra().stream().map( (extra) -> transform( player, transformHover, extra ) ).collect( Collectors.toList() );
+            // XenonCord start - plain loop instead of a stream
+            List<BaseComponent> list = new ArrayList<>( root.getExtra().size() );
+            for ( BaseComponent extra : root.getExtra() )
+            {
+                list.add( transform( player, transformHover, extra ) );
+            }
+            // XenonCord end
             root.setExtra( list );
         }
 
@@ -0,0 +1,192 @@
+package net.md_5.bungee.util;
+
+import java.text.DateFormat;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+
+/**
+ * A message compiled once into literal text and positional slots.
+ *
+ * Patterns that only use plain <code>{n}</code> arguments are formatted
+ * without {@link MessageFormat}, producing the same output. Patterns with
+ * format types or styles keep using the {@link MessageFormat}.
+ */
+public final class Translation
+{
+
+    private static final int MAX_ARGUMENT_DIGITS = 4;
+    //
+    private final MessageFormat format;
+    private final Locale locale;
+    /**
+     * Literal text around the slots, one more entry than {@link #slots}, or
+     * null if the pattern needs {@link #format}.
+     */
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+    /**
+     * The message formatted without arguments and its components.
+     */
+    private final String plain;
+    private final BaseComponent[] plainComponents;
+
+    public Translation(String pattern)
+    {
+        // throws for malformed patterns just like before
+        this.format = new MessageFormat( pattern );
+        this.locale = format.getLocale();
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        if ( compile( pattern, literals, slots ) )
+        {
+            this.literals = literals.toArray( new String[ 0 ] );
+            this.slots = new int[ slots.size() ];
+            int length = 0;
+            for ( int i = 0; i < this.slots.length; i++ )
+            {
+                this.slots[i] = slots.get( i );
+            }
+            for ( String literal : this.literals )
+            {
+                length += literal.length();
+            }
+            this.literalLength = length;
+        } else
+        {
+            this.literals = null;
+            this.slots = null;
+            this.literalLength = 0;
+        }
+
+        this.plain = format.format( new Object[ 0 ] );
+        this.plainComponents = TextComponent.fromLegacyText( plain );
+    }
+
+    /**
+     * Splits the pattern following the quoting rules of {@link MessageFormat}.
+     *
+     * @return false if an argument is more than a plain index
+     */
+    private static boolean compile(String pattern, List<String> literals, List<Integer> slots)
+    {
+        StringBuilder literal = new StringBuilder();
+        boolean inQuote = false;
+        for ( int i = 0; i < pattern.length(); i++ )
+        {
+            char ch = pattern.charAt( i );
+            if ( ch == '\'' )
+            {
+                if ( i + 1 < pattern.length() && pattern.charAt( i + 1 ) == '\'' )
+                {
+                    literal.append( ch );
+                    i++;
+                } else
+                {
+                    inQuote = !inQuote;
+                }
+            } else if ( ch == '{' && !inQuote )
+            {
+                int close = pattern.indexOf( '}', i + 1 );
+                int digits = close - i - 1;
+                if ( close == -1 || digits == 0 || digits > MAX_ARGUMENT_DIGITS )
+                {
+                    return false;
+                }
+                int index = 0;
+                for ( int j = i + 1; j < close; j++ )
+                {
+                    char digit = pattern.charAt( j );
+                    if ( digit < '0' || digit > '9' )
+                    {
+                        return false;
+                    }
+                    index = index * 10 + ( digit - '0' );
+                }
+                literals.add( literal.toString() );
+                literal.setLength( 0 );
+                slots.add( index );
+                i = close;
+            } else
+            {
+                literal.append( ch );
+            }
+        }
+        literals.add( literal.toString() );
+        return true;
+    }
+
+    public String format(Object... args)
+    {
+        if ( args == null || args.length == 0 )
+        {
+            return plain;
+        }
+        if ( literals == null )
+        {
+            // the sub formats of a MessageFormat are not thread safe
+            synchronized ( format )
+            {
+                return format.format( args );
+            }
+        }
+
+        StringBuilder builder = new StringBuilder( literalLength + slots.length * 16 );
+        for ( int i = 0; i < slots.length; i++ )
+        {
+            builder.append( literals[i] );
+            int slot = slots[i];
+            if ( slot >= args.length )
+            {
+                builder.append( '{' ).append( slot ).append( '}' );
+            } else
+            {
+                builder.append( formatArgument( args[slot] ) );
+            }
+        }
+        return builder.append( literals[slots.length] ).toString();
+    }
+
+    private String formatArgument(Object arg)
+    {
+        // the defaults MessageFormat uses for arguments without a format
+        if ( arg == null )
+        {
+            return "null";
+        } else if ( arg instanceof String )
+        {
+            return (String) arg;
+        } else if ( arg instanceof Number )
+        {
+            return NumberFormat.getInstance( locale ).format( arg );
+        } else if ( arg instanceof Date )
+        {
+            return DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT, locale ).format( arg );
+        }
+        String string = arg.toString();
+        return ( string != null ) ? string : "null";
+    }
+
+    /**
+     * Gets the message without arguments as components, the same as
+     * {@link TextComponent#fromLegacyText(String)} of {@link #format(Object...)}.
+     *
+     * @return a copy of the cached components that may be modified freely
+     */
+    public BaseComponent[] toComponents()
+    {
+        BaseComponent[] components = new BaseComponent[ plainComponents.length ];
+        for ( int i = 0; i < components.length; i++ )
+        {
+            components[i] = plainComponents[i].duplicate();
+        }
+        return components;
+    }
+}
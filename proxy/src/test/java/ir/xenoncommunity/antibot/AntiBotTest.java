@@ -0,0 +1,103 @@
+package ir.xenoncommunity.antibot;
+
+import ir.xenoncommunity.utils.Configuration;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.Handshake;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AntiBotTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static AntiBotSettings settings(final int perSecond, final int attackThreshold) {
+        final Configuration.AntiBotData data = new Configuration.AntiBotData();
+        data.setMaxconnectionspersecond(perSecond);
+        data.setAttackthreshold(attackThreshold);
+        return new AntiBotSettings(data, "verify");
+    }
+
+    private static Handshake handshake(final int requestedProtocol) {
+        return new Handshake(ProtocolConstants.SUPPORTED_VERSION_IDS.get(0), "play.example.com", 25565, requestedProtocol);
+    }
+
+    @Test
+    public void testPrefixes() throws UnknownHostException {
+        assertEquals(PrefixTable.prefixOf(InetAddress.getByName("10.0.0.1")), PrefixTable.prefixOf(InetAddress.getByName("10.0.0.254")));
+        assertNotEquals(PrefixTable.prefixOf(InetAddress.getByName("10.0.0.1")), PrefixTable.prefixOf(InetAddress.getByName("10.0.1.1")));
+        assertEquals(PrefixTable.prefixOf(InetAddress.getByName("2001:db8::1")), PrefixTable.prefixOf(InetAddress.getByName("2001:db8::ffff:1")));
+        assertNotEquals(PrefixTable.prefixOf(InetAddress.getByName("2001:db8::1")), PrefixTable.prefixOf(InetAddress.getByName("2001:db8:0:1::1")));
+    }
+
+    @Test
+    public void testRateLimit() throws UnknownHostException {
+        final AntiBot antiBot = new AntiBot();
+        final AntiBotSettings settings = settings(2, 1000);
+        final InetAddress address = InetAddress.getByName("10.0.0.1");
+        final long now = System.nanoTime();
+
+        for (int i = 0; i < 10; i++)
+            assertTrue(antiBot.allowHandshake(settings, address, handshake(1), now), "Pings should not be rated");
+        assertTrue(antiBot.allowHandshake(settings, address, handshake(2), now));
+        assertTrue(antiBot.allowHandshake(settings, InetAddress.getByName("10.0.0.2"), handshake(2), now));
+        assertFalse(antiBot.allowHandshake(settings, address, handshake(2), now), "Same /24 should be limited");
+        assertTrue(antiBot.allowHandshake(settings, InetAddress.getByName("10.0.1.1"), handshake(2), now), "Other /24 should not be affected");
+        assertTrue(antiBot.allowHandshake(settings, address, handshake(2), now + SECOND), "Limit should reset every second");
+        assertTrue(antiBot.allowConnection(settings, address, now + SECOND), "A single penalty should not block while not under attack");
+    }
+
+    @Test
+    public void testCollisions() throws UnknownHostException {
+        final long first = PrefixTable.prefixOf(InetAddress.getByName("10.0.0.1"));
+        int collisions = 0;
+        for (int i = 1; i < 256; i++) {
+            final PrefixTable table = new PrefixTable(16);
+            final long other = PrefixTable.prefixOf(InetAddress.getByName("10.0." + i + ".1"));
+            table.add(first, 1, 5);
+
+            // a slot only ever answers for the prefix which wrote it last
+            final int count = table.add(other, 1, 1);
+            if (table.count(first, 1) == 0) {
+                collisions++;
+                assertEquals(1, count, "A colliding prefix should start from zero");
+            } else {
+                assertEquals(5, table.count(first, 1));
+            }
+
+            final PrefixTable values = new PrefixTable(16);
+            values.set(first, 42);
+            assertEquals(0, values.get(other));
+            assertEquals(42, values.get(first));
+        }
+        assertTrue(collisions > 0);
+    }
+
+    @Test
+    public void testVerifyFirst() throws UnknownHostException {
+        final AntiBot antiBot = new AntiBot();
+        final AntiBotSettings settings = settings(100, 2);
+        final InetAddress known = InetAddress.getByName("10.0.0.1");
+        final InetAddress unknown = InetAddress.getByName("10.0.5.1");
+        final long now = System.nanoTime();
+
+        assertTrue(antiBot.allowHandshake(settings, known, handshake(2), now));
+        assertTrue(antiBot.allowLogin(settings, known, 0, now), "Logins should pass while not under attack");
+
+        for (int i = 0; i < 5; i++) antiBot.allowHandshake(settings, InetAddress.getByName("10.1.0.1"), handshake(1), now);
+        assertFalse(antiBot.isUnderAttack(), "Pings should not count towards an attack");
+        for (int i = 0; i < 3; i++) antiBot.allowHandshake(settings, InetAddress.getByName("10.1." + i + ".1"), handshake(2), now);
+        assertTrue(antiBot.isUnderAttack());
+
+        assertTrue(antiBot.allowLogin(settings, known, 0, now), "Previously seen networks should pass");
+        assertFalse(antiBot.allowLogin(settings, unknown, 0, now), "New networks have to reconnect");
+        assertFalse(antiBot.allowLogin(settings, unknown, 0, now), "Reconnecting instantly is not enough");
+        assertTrue(antiBot.allowLogin(settings, unknown, 0, now + 2 * SECOND), "Reconnecting later verifies");
+    }
+}
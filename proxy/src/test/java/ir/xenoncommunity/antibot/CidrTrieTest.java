@@ -0,0 +1,114 @@
+package ir.xenoncommunity.antibot;
+
+import com.google.common.net.InetAddresses;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CidrTrieTest {
+    private static InetAddress ip(final String address) {
+        return InetAddresses.forString(address);
+    }
+
+    @Test
+    public void testIpv4() {
+        final CidrTrie ipv4 = CidrTrie.ipv4();
+        final CidrTrie ipv6 = CidrTrie.ipv6();
+        CidrTrie.parseInto("10.0.0.0/8", ipv4, ipv6);
+        CidrTrie.parseInto("192.168.1.0/24", ipv4, ipv6);
+        CidrTrie.parseInto("192.168.2.7", ipv4, ipv6);
+        CidrTrie.parseInto("192.168.3.77/24", ipv4, ipv6);
+
+        assertTrue(ipv4.contains(ip("10.1.2.3")));
+        assertTrue(ipv4.contains(ip("192.168.1.255")));
+        assertTrue(ipv4.contains(ip("192.168.2.7")));
+        assertTrue(ipv4.contains(ip("192.168.3.1")));
+        assertFalse(ipv4.contains(ip("11.0.0.1")));
+        assertFalse(ipv4.contains(ip("192.168.2.8")));
+        assertFalse(ipv4.contains(ip("192.168.0.1")));
+        assertFalse(ipv6.contains(ip("10.1.2.3")));
+        assertFalse(ipv4.contains(ip("::ffff:1")));
+    }
+
+    @Test
+    public void testIpv6() {
+        final CidrTrie ipv4 = CidrTrie.ipv4();
+        final CidrTrie ipv6 = CidrTrie.ipv6();
+        CidrTrie.parseInto("2001:db8::/32", ipv4, ipv6);
+        CidrTrie.parseInto("2a00:1450:4001:80b::/64", ipv4, ipv6);
+        CidrTrie.parseInto("2a00:1450:4001:80c::1", ipv4, ipv6);
+        CidrTrie.parseInto("2a00:1450:4001:80d::8000:0/97", ipv4, ipv6);
+
+        assertTrue(ipv6.contains(ip("2001:db8:ffff::1")));
+        assertTrue(ipv6.contains(ip("2a00:1450:4001:80b:1:2:3:4")));
+        assertTrue(ipv6.contains(ip("2a00:1450:4001:80c::1")));
+        assertTrue(ipv6.contains(ip("2a00:1450:4001:80d::ffff:ffff")));
+        assertFalse(ipv6.contains(ip("2a00:1450:4001:80d::7fff:ffff")));
+        assertFalse(ipv6.contains(ip("2a00:1450:4001:80c::2")));
+        assertFalse(ipv6.contains(ip("2001:db9::1")));
+        assertEquals(1, ipv4.getNodeCount());
+    }
+
+    @Test
+    public void testCoveringPrefix() {
+        final CidrTrie trie = CidrTrie.ipv4();
+        trie.add(ip("10.1.2.3"), 32);
+        trie.add(ip("10.1.3.0"), 24);
+        final int before = trie.getNodeCount();
+        trie.add(ip("10.0.0.0"), 8);
+        trie.add(ip("10.200.0.0"), 16);
+
+        assertTrue(trie.contains(ip("10.99.0.1")));
+        assertTrue(trie.contains(ip("10.1.2.3")));
+        // the /16 is covered by the /8 and never stored
+        assertEquals(before + 1, trie.getNodeCount());
+        // the nodes below the /8 are dropped once loading is done
+        trie.trim();
+        assertEquals(2, trie.getNodeCount());
+        assertTrue(trie.contains(ip("10.1.2.3")));
+        assertFalse(trie.contains(ip("11.1.2.3")));
+
+        final CidrTrie all = CidrTrie.ipv6();
+        all.add(ip("::"), 0);
+        assertTrue(all.contains(ip("2001:db8::1")));
+        assertTrue(all.trim().contains(ip("ffff::")));
+    }
+
+    @Test
+    public void testInvalid() {
+        final CidrTrie ipv4 = CidrTrie.ipv4();
+        final CidrTrie ipv6 = CidrTrie.ipv6();
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.parseInto("10.0.0.0/33", ipv4, ipv6));
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.parseInto("example.com", ipv4, ipv6));
+        assertThrows(IllegalArgumentException.class, () -> CidrTrie.parseInto("10.0.0.0/x", ipv4, ipv6));
+    }
+
+    @Test
+    public void testAgainstLinearScan() {
+        final Random random = new Random(42);
+        final int[] networks = new int[2000];
+        final int[] lengths = new int[networks.length];
+        final CidrTrie trie = CidrTrie.ipv4();
+        for (int i = 0; i < networks.length; i++) {
+            lengths[i] = 8 + random.nextInt(25);
+            networks[i] = random.nextInt() & (-1 << (32 - lengths[i]));
+            trie.add(InetAddresses.fromInteger(networks[i]), lengths[i]);
+        }
+        trie.trim();
+
+        for (int probe = 0; probe < 20000; probe++) {
+            // half the probes land inside a listed network
+            final int address = probe % 2 == 0 ? networks[random.nextInt(networks.length)] | (random.nextInt() & 0xFF) : random.nextInt();
+            boolean expected = false;
+            for (int i = 0; i < networks.length && !expected; i++)
+                expected = (address & (-1 << (32 - lengths[i]))) == networks[i];
+            assertEquals(expected, trie.contains(InetAddresses.fromInteger(address)), InetAddresses.fromInteger(address).getHostAddress());
+        }
+    }
+}
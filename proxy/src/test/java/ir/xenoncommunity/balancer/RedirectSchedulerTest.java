@@ -0,0 +1,177 @@
+package ir.xenoncommunity.balancer;
+
+import ir.xenoncommunity.utils.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulates a backend crash with its players falling back to two lobbies, on a virtual clock.
+ */
+public class RedirectSchedulerTest {
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Stand-in backend which falls over when more logins than it can take arrive within a second.
+     */
+    private static final class FakeBackend {
+        private final String name;
+        private final int loginsPerSecond;
+        private final List<Long> logins = new ArrayList<>();
+        private boolean crashed;
+
+        private FakeBackend(final String name, final int loginsPerSecond) {
+            this.name = name;
+            this.loginsPerSecond = loginsPerSecond;
+        }
+
+        private void login(final long at) {
+            logins.add(at);
+            int recent = 0;
+            for (final long login : logins)
+                if (at - login < TimeUnit.SECONDS.toNanos(1) && login <= at) recent++;
+            if (recent > loginsPerSecond) crashed = true;
+        }
+
+        private int peak() {
+            int peak = 0;
+            for (final long start : logins) {
+                int window = 0;
+                for (final long login : logins)
+                    if (login >= start && login - start < TimeUnit.SECONDS.toNanos(1)) window++;
+                peak = Math.max(peak, window);
+            }
+            return peak;
+        }
+    }
+
+    private static final class Player implements RedirectScheduler.Waiting {
+        private final FakeBackend target;
+        private final long[] clock;
+        private final List<String> messages = new ArrayList<>();
+        private boolean active = true;
+        private int admitted;
+        private long admittedAt = -1;
+
+        private Player(final FakeBackend target, final long[] clock) {
+            this.target = target;
+            this.clock = clock;
+        }
+
+        @Override
+        public boolean isActive() {
+            return active;
+        }
+
+        @Override
+        public void admit(final long delayMillis) {
+            assertTrue(delayMillis >= 0 && delayMillis <= 250, "jitter " + delayMillis);
+            admitted++;
+            admittedAt = clock[0] + delayMillis * MS;
+            target.login(admittedAt);
+        }
+
+        @Override
+        public void progress(final String message) {
+            messages.add(message);
+        }
+    }
+
+    private static RedirectSettings settings(final boolean enabled, final int maxWait) {
+        final Configuration.RedirectData data = new Configuration.RedirectData();
+        data.setEnabled(enabled);
+        data.setRate(20);
+        data.setBurst(20);
+        data.setJitter(250);
+        data.setMaxwait(maxWait);
+        return new RedirectSettings(data, "SERVER POSITION/TOTAL");
+    }
+
+    private static List<Player> crash(final RedirectScheduler scheduler, final long[] clock, final FakeBackend... fallbacks) {
+        final List<Player> players = new ArrayList<>();
+        // 600 players lose their backend within a few milliseconds
+        for (int i = 0; i < 600; i++) {
+            final Player player = new Player(fallbacks[i % fallbacks.length], clock);
+            players.add(player);
+            scheduler.redirect(player.target.name, player, clock[0] + i * 5_000L);
+        }
+        return players;
+    }
+
+    private static void run(final RedirectScheduler scheduler, final long[] clock, final long seconds) {
+        for (long end = clock[0] + TimeUnit.SECONDS.toNanos(seconds); clock[0] < end; ) {
+            clock[0] += RedirectScheduler.TICK_MILLIS * MS;
+            scheduler.tick(clock[0]);
+        }
+    }
+
+    @Test
+    public void testWithoutScheduler() {
+        final long[] clock = {0};
+        final RedirectScheduler scheduler = new RedirectScheduler(() -> settings(false, 120));
+        final FakeBackend lobby1 = new FakeBackend("lobby1", 100);
+        final FakeBackend lobby2 = new FakeBackend("lobby2", 100);
+        crash(scheduler, clock, lobby1, lobby2);
+
+        // everyone logs in right away and both lobbies go down as well
+        assertEquals(300, lobby1.peak());
+        assertTrue(lobby1.crashed && lobby2.crashed);
+    }
+
+    @Test
+    public void testWave() {
+        final long[] clock = {0};
+        final RedirectScheduler scheduler = new RedirectScheduler(() -> settings(true, 120));
+        final FakeBackend lobby1 = new FakeBackend("lobby1", 100);
+        final FakeBackend lobby2 = new FakeBackend("lobby2", 100);
+        final List<Player> players = crash(scheduler, clock, lobby1, lobby2);
+        // a player quits while waiting
+        players.get(599).active = false;
+
+        run(scheduler, clock, 30);
+
+        assertFalse(lobby1.crashed || lobby2.crashed);
+        // burst plus one second of rate, plus what the jitter moves into the window
+        assertTrue(lobby1.peak() <= 20 + 20 + 5, "peak " + lobby1.peak());
+        assertTrue(lobby2.peak() <= 20 + 20 + 5, "peak " + lobby2.peak());
+
+        long last = 0;
+        for (final Player player : players.subList(0, 599)) {
+            assertEquals(1, player.admitted);
+            last = Math.max(last, player.admittedAt);
+        }
+        assertEquals(0, players.get(599).admitted);
+        // 280 players per lobby after the burst at 20 per second
+        assertTrue(last > TimeUnit.SECONDS.toNanos(13) && last < TimeUnit.SECONDS.toNanos(15), "last admission " + last);
+        assertTrue(scheduler.getWaiting().isEmpty());
+
+        // the first ones went straight through, the last ones saw their place in line
+        assertTrue(players.get(0).messages.isEmpty());
+        assertEquals("lobby1 280/280", players.get(598).messages.get(0));
+        assertTrue(players.get(598).messages.size() >= 6);
+        final List<String> messages = players.get(598).messages;
+        assertTrue(messages.get(messages.size() - 1).startsWith("lobby1 1/"), messages.get(messages.size() - 1));
+    }
+
+    @Test
+    public void testMaxWait() {
+        final long[] clock = {0};
+        final RedirectScheduler scheduler = new RedirectScheduler(() -> settings(true, 5));
+        final FakeBackend lobby = new FakeBackend("lobby", 1000);
+        final List<Player> players = crash(scheduler, clock, lobby);
+
+        run(scheduler, clock, 6);
+
+        // 20 burst + 5 seconds at 20 per second, the rest is let through when their time is up
+        for (final Player player : players) {
+            assertEquals(1, player.admitted);
+            assertTrue(player.admittedAt <= TimeUnit.SECONDS.toNanos(6));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package ir.xenoncommunity.balancer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ServerGroupTest {
+    private static ServerGroup group(final BalanceStrategy strategy, final ServerGroup.Member... members) {
+        return new ServerGroup("lobbies", strategy, members);
+    }
+
+    private static ServerGroup.Member member(final String server, final int weight) {
+        return new ServerGroup.Member(server, weight, new BackendState());
+    }
+
+    @Test
+    public void testLeastPlayers() {
+        final ServerGroup.Member a = member("a", 1);
+        final ServerGroup.Member b = member("b", 1);
+        final ServerGroup group = group(BalanceStrategy.LEAST_PLAYERS, a, b);
+        a.getState().setLocalPlayers(10);
+        b.getState().setLocalPlayers(4);
+        assertEquals("b", group.select(member -> true).getServer());
+
+        // other proxies' players show up in the backend's own count
+        b.getState().pinged(1000, 30, 100);
+        assertEquals("a", group.select(member -> true).getServer());
+
+        // joins in flight count until the next health check
+        a.getState().getConnecting().addAndGet(25);
+        assertEquals("b", group.select(member -> true).getServer());
+    }
+
+    @Test
+    public void testWeightedRoundRobin() {
+        final ServerGroup group = group(BalanceStrategy.ROUND_ROBIN, member("a", 3), member("b", 1), member("c", 0));
+        final Map<String, Integer> picks = new HashMap<>();
+        String previous = null;
+        int run = 0;
+        int longestRun = 0;
+        for (int i = 0; i < 500; i++) {
+            final String server = group.select(member -> true).getServer();
+            picks.merge(server, 1, Integer::sum);
+            run = server.equals(previous) ? run + 1 : 1;
+            longestRun = Math.max(longestRun, run);
+            previous = server;
+        }
+        assertEquals(300, picks.get("a"));
+        assertEquals(100, picks.get("b"));
+        assertEquals(100, picks.get("c"));
+        // smooth: "a" never runs three times in a row
+        assertEquals(2, longestRun);
+    }
+
+    @Test
+    public void testLowestLatency() {
+        final ServerGroup.Member a = member("a", 1);
+        final ServerGroup.Member b = member("b", 1);
+        final ServerGroup group = group(BalanceStrategy.LOWEST_LATENCY, a, b);
+        a.getState().setLocalPlayers(5);
+        // no samples yet, falls back to the player count
+        assertEquals("b", group.select(member -> true).getServer());
+
+        a.getState().pinged(2_000_000, 0, 100);
+        b.getState().pinged(9_000_000, 0, 100);
+        assertEquals("a", group.select(member -> true).getServer());
+    }
+
+    @Test
+    public void testHealth() {
+        final ServerGroup.Member a = member("a", 1);
+        final ServerGroup.Member b = member("b", 1);
+        final ServerGroup group = group(BalanceStrategy.LEAST_PLAYERS, a, b);
+        b.getState().setLocalPlayers(50);
+        for (int i = 0; i < BackendState.FAILURE_THRESHOLD; i++) a.getState().failed();
+        assertEquals("b", group.select(member -> true).getServer());
+
+        // full backends are skipped as well
+        b.getState().pinged(1000, 100, 100);
+        a.getState().failed();
+        // nothing available, the member with fewer failures is still tried
+        assertEquals("b", group.select(member -> true).getServer());
+
+        a.getState().pinged(1000, 0, 100);
+        assertEquals("a", group.select(member -> true).getServer());
+        assertEquals("b", group.select(member -> !member.getServer().equals("a")).getServer());
+        assertNull(group.select(member -> false));
+    }
+}
@@ -0,0 +1,101 @@
+package ir.xenoncommunity.queue;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JoinQueueTest {
+    @Test
+    public void testTiers() {
+        final JoinQueue queue = new JoinQueue(3);
+        final JoinQueue.Entry a = queue.add(UUID.randomUUID(), 2);
+        final JoinQueue.Entry b = queue.add(UUID.randomUUID(), 2);
+        final JoinQueue.Entry vip = queue.add(UUID.randomUUID(), 0);
+        final JoinQueue.Entry clamped = queue.add(UUID.randomUUID(), 7);
+
+        assertEquals(1, queue.position(vip));
+        assertEquals(2, queue.position(a));
+        assertEquals(3, queue.position(b));
+        assertEquals(4, queue.position(clamped));
+
+        assertTrue(queue.remove(a));
+        assertFalse(queue.remove(a));
+        assertEquals(0, queue.position(a));
+        assertEquals(2, queue.position(b));
+
+        assertSame(vip, queue.poll());
+        assertSame(b, queue.poll());
+        assertSame(clamped, queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testAgainstList() {
+        final Random random = new Random(42);
+        final JoinQueue queue = new JoinQueue(3);
+        // the naive model: a list sorted by tier, then arrival
+        final List<JoinQueue.Entry> model = new ArrayList<>();
+        final List<Integer> arrival = new ArrayList<>();
+        int arrivals = 0;
+
+        for (int op = 0; op < 20_000; op++) {
+            final int action = random.nextInt(10);
+            if (action < 5 || model.isEmpty()) {
+                final JoinQueue.Entry entry = queue.add(UUID.randomUUID(), random.nextInt(3));
+                model.add(entry);
+                arrival.add(arrivals++);
+            } else if (action < 7) {
+                final int index = random.nextInt(model.size());
+                assertTrue(queue.remove(model.get(index)));
+                model.remove(index);
+                arrival.remove(index);
+            } else if (action < 8) {
+                int first = 0;
+                for (int i = 1; i < model.size(); i++)
+                    if (before(model, arrival, i, first)) first = i;
+                assertSame(model.get(first), queue.poll());
+                model.remove(first);
+                arrival.remove(first);
+            } else {
+                final int index = random.nextInt(model.size());
+                int ahead = 0;
+                for (int i = 0; i < model.size(); i++)
+                    if (before(model, arrival, i, index)) ahead++;
+                assertEquals(ahead + 1, queue.position(model.get(index)));
+            }
+            assertEquals(model.size(), queue.size());
+        }
+    }
+
+    private static boolean before(final List<JoinQueue.Entry> model, final List<Integer> arrival, final int i, final int j) {
+        final Comparator<Integer> order = Comparator.<Integer>comparingInt(k -> model.get(k).getTier()).thenComparingInt(arrival::get);
+        return order.compare(i, j) < 0;
+    }
+
+    @Test
+    public void testLargeQueue() {
+        final JoinQueue queue = new JoinQueue(2);
+        final List<JoinQueue.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) entries.add(queue.add(UUID.randomUUID(), i % 10 == 0 ? 0 : 1));
+
+        // churn from the middle of the line, then every position lookup stays logarithmic
+        for (int i = 1; i < entries.size(); i += 3) queue.remove(entries.get(i));
+        for (int i = 0; i < 50_000; i++) entries.add(queue.add(UUID.randomUUID(), 1));
+        long sum = 0;
+        for (final JoinQueue.Entry entry : entries) sum += queue.position(entry);
+        assertTrue(sum > 0);
+        assertEquals(1, queue.position(queue.peek()));
+        assertEquals(0, queue.peek().getTier());
+    }
+}
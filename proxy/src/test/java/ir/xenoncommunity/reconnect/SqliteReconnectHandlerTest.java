@@ -0,0 +1,66 @@
+package ir.xenoncommunity.reconnect;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SqliteReconnectHandlerTest {
+    private static final long NEVER = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    File folder;
+
+    @Test
+    public void testPersist() throws Exception {
+        final File file = new File(folder, "locations.db");
+        final SqliteReconnectHandler handler = new SqliteReconnectHandler(file, NEVER, 128);
+        for (int i = 0; i < 1000; i++)
+            handler.put("player" + i, "lobby");
+        for (int i = 0; i < 1000; i += 2)
+            handler.put("player" + i, "survival");
+        handler.close();
+
+        final SqliteReconnectHandler reopened = new SqliteReconnectHandler(file, NEVER, 128);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i % 2 == 0 ? "survival" : "lobby", reopened.get("player" + i));
+        assertNull(reopened.get("player1000"));
+        assertEquals(0, reopened.pending());
+        reopened.close();
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        final SqliteReconnectHandler handler = new SqliteReconnectHandler(new File(folder, "locations.db"), NEVER, 128);
+        for (int i = 0; i < 100; i++)
+            handler.put("player", i % 2 == 0 ? "lobby" : "survival");
+        assertEquals(1, handler.pending());
+
+        handler.save();
+        assertEquals(0, handler.pending());
+        // unchanged locations are not written again
+        handler.put("player", "survival");
+        assertEquals(0, handler.pending());
+        handler.close();
+    }
+
+    @Test
+    public void testBatchTrigger() throws Exception {
+        final SqliteReconnectHandler handler = new SqliteReconnectHandler(new File(folder, "locations.db"), NEVER, 10);
+        for (int i = 0; i < 25; i++)
+            handler.put("player" + i, "lobby");
+
+        // a full batch is written without waiting for the interval
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (handler.pending() >= 10) {
+            assertTrue(System.currentTimeMillis() < deadline, "pending " + handler.pending());
+            Thread.sleep(10);
+        }
+        handler.close();
+    }
+}
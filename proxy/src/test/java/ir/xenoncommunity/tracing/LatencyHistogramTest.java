@@ -0,0 +1,38 @@
+package ir.xenoncommunity.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testBuckets() {
+        for (long micros = 0; micros < 1 << 20; micros += 1 + micros / 7) {
+            final int index = LatencyHistogram.index(micros);
+            assertTrue(LatencyHistogram.upperBound(index) >= micros, "upper bound below " + micros);
+            assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < micros, "previous bucket holds " + micros);
+            assertTrue(LatencyHistogram.upperBound(index) <= micros + micros / 8, "bucket too wide at " + micros);
+        }
+        assertTrue(LatencyHistogram.index(Long.MAX_VALUE) < 512);
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int millis = 1; millis <= 100; millis++) histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100_000, histogram.getMaxMicros());
+        assertEquals(50_500, histogram.getMeanMicros());
+        final long p50 = histogram.getPercentileMicros(0.5);
+        assertTrue(p50 >= 50_000 && p50 <= 50_000 * 9 / 8, String.valueOf(p50));
+        final long p99 = histogram.getPercentileMicros(0.99);
+        assertTrue(p99 >= 99_000 && p99 <= 100_000, String.valueOf(p99));
+
+        histogram.reset();
+        assertEquals(0, histogram.getPercentileMicros(0.5));
+    }
+}
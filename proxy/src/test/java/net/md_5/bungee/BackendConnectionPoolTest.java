@@ -0,0 +1,160 @@
+package net.md_5.bungee;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.SocketAddress;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BackendConnectionPoolTest
+{
+
+    private EventLoopGroup group;
+    private Channel server;
+    private final Queue<Channel> accepted = new ConcurrentLinkedQueue<>();
+
+    @BeforeEach
+    public void start() throws InterruptedException
+    {
+        group = new NioEventLoopGroup( 2 );
+        server = new ServerBootstrap().group( group ).channel( NioServerSocketChannel.class ).childHandler( new ChannelInitializer<Channel>()
+        {
+            @Override
+            protected void initChannel(Channel ch)
+            {
+                accepted.add( ch );
+                ch.pipeline().addLast( new ChannelInboundHandlerAdapter() );
+            }
+        } ).bind( "127.0.0.1", 0 ).sync().channel();
+    }
+
+    @AfterEach
+    public void stop()
+    {
+        server.close();
+        group.shutdownGracefully( 0, 1, TimeUnit.SECONDS );
+    }
+
+    private static <T> T on(EventLoop loop, Callable<T> task) throws Exception
+    {
+        return loop.submit( task ).get( 5, TimeUnit.SECONDS );
+    }
+
+    private static int idle(EventLoop loop, BackendConnectionPool pool, SocketAddress address)
+    {
+        try
+        {
+            return on( loop, () -> pool.idle( address ) );
+        } catch ( Exception ex )
+        {
+            throw new AssertionError( ex );
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + 5000;
+        while ( !condition.getAsBoolean() )
+        {
+            assertTrue( System.currentTimeMillis() < deadline, "timed out" );
+            Thread.sleep( 10 );
+        }
+    }
+
+    @Test
+    public void testWarmup() throws Exception
+    {
+        EventLoop loop = group.next();
+        BackendConnectionPool pool = new BackendConnectionPool( loop, new Bootstrap().channel( NioSocketChannel.class ), 2 );
+        SocketAddress address = server.localAddress();
+
+        // the first switch finds nothing and starts the warm up
+        assertNull( on( loop, () -> pool.poll( address ) ) );
+        await( () -> accepted.size() == 2 );
+        await( () -> idle( loop, pool, address ) == 2 );
+
+        Channel channel = on( loop, () -> pool.poll( address ) );
+        assertNotNull( channel );
+        assertTrue( channel.isActive() );
+        assertSame( loop, channel.eventLoop() );
+        assertEquals( 0, channel.pipeline().names().size() - 1, channel.pipeline().names().toString() ); // only the tail context
+
+        // and is topped up again
+        await( () -> accepted.size() == 3 );
+        await( () -> idle( loop, pool, address ) == 2 );
+        channel.close();
+    }
+
+    @Test
+    public void testBackendClose() throws Exception
+    {
+        EventLoop loop = group.next();
+        BackendConnectionPool pool = new BackendConnectionPool( loop, new Bootstrap().channel( NioSocketChannel.class ), 1 );
+        SocketAddress address = server.localAddress();
+
+        on( loop, () -> pool.poll( address ) );
+        await( () -> idle( loop, pool, address ) == 1 );
+        // the client side can be connected before the server side was initialised
+        await( () -> !accepted.isEmpty() );
+
+        accepted.poll().close().sync();
+        await( () -> idle( loop, pool, address ) == 0 );
+    }
+
+    @Test
+    public void testUnexpectedData() throws Exception
+    {
+        EventLoop loop = group.next();
+        BackendConnectionPool pool = new BackendConnectionPool( loop, new Bootstrap().channel( NioSocketChannel.class ), 1 );
+        SocketAddress address = server.localAddress();
+
+        on( loop, () -> pool.poll( address ) );
+        await( () -> idle( loop, pool, address ) == 1 );
+        // the client side can be connected before the server side was initialised
+        await( () -> !accepted.isEmpty() );
+
+        Channel backend = accepted.poll();
+        backend.writeAndFlush( Unpooled.wrappedBuffer( new byte[]
+        {
+            1, 0
+        } ) ).sync();
+        await( () -> !backend.isActive() );
+        await( () -> idle( loop, pool, address ) == 0 );
+    }
+
+    @Test
+    public void testBackendDown() throws Exception
+    {
+        EventLoop loop = group.next();
+        BackendConnectionPool pool = new BackendConnectionPool( loop, new Bootstrap().channel( NioSocketChannel.class ), 2 );
+        SocketAddress address = server.localAddress();
+        server.close().sync();
+
+        assertNull( on( loop, () -> pool.poll( address ) ) );
+        Thread.sleep( 200 );
+        assertNull( on( loop, () -> pool.poll( address ) ) );
+        assertEquals( 0, idle( loop, pool, address ) );
+    }
+}
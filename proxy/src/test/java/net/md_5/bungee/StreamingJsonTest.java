@@ -0,0 +1,82 @@
+package net.md_5.bungee;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import net.md_5.bungee.api.Favicon;
+import net.md_5.bungee.api.ServerPing;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import net.md_5.bungee.chat.ComponentStyleSerializer;
+import net.md_5.bungee.chat.TextComponentSerializer;
+import net.md_5.bungee.api.chat.ComponentStyle;
+import net.md_5.bungee.connection.LoginResult;
+import net.md_5.bungee.protocol.Property;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The streaming adapters have to produce and accept exactly what the reflective ones did.
+ */
+public class StreamingJsonTest
+{
+
+    private static GsonBuilder base()
+    {
+        return new GsonBuilder()
+                .registerTypeAdapter( BaseComponent.class, new ComponentSerializer() )
+                .registerTypeAdapter( TextComponent.class, new TextComponentSerializer() )
+                .registerTypeAdapter( ComponentStyle.class, new ComponentStyleSerializer() )
+                .registerTypeAdapter( ServerPing.PlayerInfo.class, new PlayerInfoSerializer() )
+                .registerTypeAdapter( Favicon.class, Favicon.getFaviconTypeAdapter() );
+    }
+
+    private static final Gson reflective = base().create();
+    private static final Gson streaming = base()
+            .registerTypeAdapter( LoginResult.class, new LoginResultSerializer() )
+            .registerTypeAdapterFactory( ServerPingSerializer.FACTORY ).create();
+
+    @Test
+    public void testLoginResult()
+    {
+        String json = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\",\"properties\":[{\"name\":\"textures\",\"value\":\"dGV4dHVyZXM=\",\"signature\":\"c2lnbmF0dXJl\"},{\"name\":\"unsigned\",\"value\":\"x\"}],\"profileActions\":[{\"a\":[1,2]}]}";
+
+        LoginResult expected = reflective.fromJson( json, LoginResult.class );
+        LoginResult actual = streaming.fromJson( json, LoginResult.class );
+        assertEquals( expected.getId(), actual.getId() );
+        assertEquals( expected.getName(), actual.getName() );
+        assertArrayEquals( expected.getProperties(), actual.getProperties() );
+        assertEquals( reflective.toJson( expected ), streaming.toJson( actual ) );
+
+        assertEquals( reflective.toJson( expected.getProperties() ), LoginResultSerializer.toJson( actual.getProperties() ) );
+        assertEquals( "[]", LoginResultSerializer.toJson( new Property[ 0 ] ) );
+        assertEquals( null, streaming.fromJson( "{\"id\":null}", LoginResult.class ).getId() );
+    }
+
+    @Test
+    public void testServerPing()
+    {
+        ServerPing ping = new ServerPing( new ServerPing.Protocol( "XenonCord 1.8.x-1.21", 767 ),
+                new ServerPing.Players( 500, 123, new ServerPing.PlayerInfo[]
+                {
+                    new ServerPing.PlayerInfo( "Notch", UUID.randomUUID() ), new ServerPing.PlayerInfo( "§ajeb_ <&>", UUID.randomUUID() )
+                } ),
+                new TextComponent( TextComponent.fromLegacy( "§aA Minecraft §lServer" ) ), null );
+        ping.getModinfo().getModList().add( new ServerPing.ModItem( "forge", "1.0" ) );
+
+        String json = reflective.toJson( ping );
+        assertEquals( json, streaming.toJson( ping ) );
+        assertEquals( json, streaming.toJson( streaming.fromJson( json, ServerPing.class ) ) );
+
+        ServerPing empty = new ServerPing();
+        assertEquals( reflective.toJson( empty ), streaming.toJson( empty ) );
+
+        String backend = "{\"version\":{\"name\":\"Paper 1.21\",\"protocol\":767},\"enforcesSecureChat\":true,\"description\":\"hello\","
+                + "\"players\":{\"max\":20,\"online\":1,\"sample\":[{\"name\":\"Notch\",\"id\":\"069a79f4-44e9-4726-a5be-fca90e38aaf5\"}]},\"favicon\":null}";
+        assertEquals( reflective.toJson( reflective.fromJson( backend, ServerPing.class ) ), streaming.toJson( streaming.fromJson( backend, ServerPing.class ) ) );
+    }
+}
@@ -55,4 +55,58 @@ public class ThrottleTest
         ticker.value += TimeUnit.MILLISECONDS.toNanos( 50 );
         assertFalse( throttle.throttle( address ), "Address should not be throttled" );
     }
+
+    @Test
+    public void testSketchThrottle() throws UnknownHostException
+    {
+        FixedTicker ticker = new FixedTicker();
+        ConnectionThrottle throttle = new SketchConnectionThrottle( ticker, 10, 3 );
+        InetSocketAddress address = new InetSocketAddress( InetAddress.getByName( "127.0.0.1" ), 0 );
+
+        assertFalse( throttle.throttle( address ), "Address should not be throttled" ); // 1
+        assertFalse( throttle.throttle( address ), "Address should not be throttled" ); // 2
+        assertFalse( throttle.throttle( address ), "Address should not be throttled" ); // 3
+        assertTrue( throttle.throttle( address ), "Address should be throttled" ); // 4
+
+        throttle.unthrottle( address ); // 3
+        throttle.unthrottle( address ); // 2
+        assertFalse( throttle.throttle( address ), "Address should not be throttled" ); // 3
+        assertTrue( throttle.throttle( address ), "Address should be throttled" ); // 4
+
+        // Early in the next window most of the previous window still counts
+        ticker.value += TimeUnit.MILLISECONDS.toNanos( 12 );
+        assertTrue( throttle.throttle( address ), "Address should still be throttled" ); // 1 + 4 * 0.8
+
+        // Now test expiration
+        ticker.value += TimeUnit.MILLISECONDS.toNanos( 50 );
+        assertFalse( throttle.throttle( address ), "Address should not be throttled" );
+    }
+
+    @Test
+    public void testSketchThrottleFlood() throws UnknownHostException
+    {
+        FixedTicker ticker = new FixedTicker();
+        ConnectionThrottle throttle = new SketchConnectionThrottle( ticker, 4000, 3 );
+
+        // A rotating flood must neither grow the throttle nor lock out other sources
+        byte[] source = new byte[ 16 ];
+        source[0] = 0x20;
+        source[1] = 0x01;
+        for ( int i = 0; i < 60_000; i++ )
+        {
+            source[6] = (byte) ( i >> 8 );
+            source[7] = (byte) i;
+            throttle.throttle( new InetSocketAddress( InetAddress.getByAddress( source ), 0 ) );
+        }
+
+        InetSocketAddress player = new InetSocketAddress( InetAddress.getByName( "10.0.0.1" ), 0 );
+        assertFalse( throttle.throttle( player ), "Unrelated address should not be throttled" );
+
+        // Addresses in the same /64 share a counter, the last flood address already counted once
+        source[15] = 1;
+        InetSocketAddress neighbour = new InetSocketAddress( InetAddress.getByAddress( source ), 0 );
+        assertFalse( throttle.throttle( neighbour ), "Address should not be throttled" ); // 2
+        assertFalse( throttle.throttle( neighbour ), "Address should not be throttled" ); // 3
+        assertTrue( throttle.throttle( neighbour ), "Same /64 should be throttled" ); // 4
+    }
 }
@@ -0,0 +1,75 @@
+package net.md_5.bungee.connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.google.common.collect.ImmutableSet;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.tree.RootCommandNode;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.Set;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.Commands;
+import org.junit.jupiter.api.Test;
+
+public class CommandTreeCacheTest
+{
+
+    private static final int VERSION = ProtocolConstants.MINECRAFT_1_20_3;
+
+    private static Commands backendTree()
+    {
+        RootCommandNode root = new RootCommandNode();
+        root.addChild( LiteralArgumentBuilder.literal( "give" )
+                .then( RequiredArgumentBuilder.argument( "item", StringArgumentType.word() ) )
+                .build() );
+        root.addChild( LiteralArgumentBuilder.literal( "say" )
+                .then( RequiredArgumentBuilder.argument( "message", StringArgumentType.greedyString() ) )
+                .build() );
+        return new Commands( root );
+    }
+
+    @Test
+    public void testEncodeRoundTrip()
+    {
+        byte[] encoded = CommandTreeCache.encode( backendTree(), VERSION );
+        ByteBuf buf = Unpooled.wrappedBuffer( encoded );
+        assertEquals( Protocol.GAME.TO_CLIENT.getId( Commands.class, VERSION ), DefinedPacket.readVarInt( buf ) );
+        Commands decoded = new Commands();
+        decoded.read( buf, Protocol.GAME, ProtocolConstants.Direction.TO_CLIENT, VERSION );
+        assertEquals( 0, buf.readableBytes() );
+        assertNotNull( decoded.getRoot().getChild( "give" ) );
+        assertNotNull( decoded.getRoot().getChild( "say" ) );
+    }
+
+    @Test
+    public void testKeys()
+    {
+        CommandTreeCache cache = new CommandTreeCache( 1 << 20 );
+        byte[] raw = CommandTreeCache.encode( backendTree(), VERSION );
+        Set<String> commands = ImmutableSet.of( "server", "glist" );
+        byte[] merged = new byte[]
+        {
+            1, 2, 3
+        };
+
+        ByteBuf tree = Unpooled.copiedBuffer( raw );
+        assertNull( cache.get( tree, commands, VERSION ) );
+        cache.put( tree, commands, VERSION, merged );
+        // the cache keeps its own copy of the backend tree
+        tree.setByte( 0, tree.getByte( 0 ) + 1 );
+        tree.release();
+
+        assertSame( merged, cache.get( Unpooled.wrappedBuffer( raw ), ImmutableSet.of( "glist", "server" ), VERSION ) );
+        assertNull( cache.get( Unpooled.wrappedBuffer( raw ), ImmutableSet.of( "server" ), VERSION ) );
+        assertNull( cache.get( Unpooled.wrappedBuffer( raw ), commands, ProtocolConstants.MINECRAFT_1_20_2 ) );
+
+        byte[] changed = raw.clone();
+        changed[changed.length - 2] ^= 1;
+        assertNull( cache.get( Unpooled.wrappedBuffer( changed ), commands, VERSION ) );
+        assertEquals( 1, cache.size() );
+    }
+}
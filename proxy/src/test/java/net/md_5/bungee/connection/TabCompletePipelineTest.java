@@ -0,0 +1,219 @@
+package net.md_5.bungee.connection;
+
+import static org.junit.jupiter.api.Assertions.*;
+import com.mojang.brigadier.context.StringRange;
+import com.mojang.brigadier.suggestion.Suggestion;
+import com.mojang.brigadier.suggestion.Suggestions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.md_5.bungee.ServerConnection;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.packet.TabCompleteRequest;
+import net.md_5.bungee.protocol.packet.TabCompleteResponse;
+import org.junit.jupiter.api.Test;
+
+public class TabCompletePipelineTest
+{
+
+    private static final class Recorder extends TabCompletePipeline
+    {
+
+        private final List<DefinedPacket> client = new ArrayList<>();
+        private final List<DefinedPacket> server = new ArrayList<>();
+        private final List<Runnable> scheduled = new ArrayList<>();
+        private long time = 1000;
+
+        private Recorder(boolean pipeline, long cacheTtl)
+        {
+            super( null, pipeline, cacheTtl );
+        }
+
+        @Override
+        long currentTime()
+        {
+            return time;
+        }
+
+        @Override
+        void sendToClient(DefinedPacket packet)
+        {
+            client.add( packet );
+        }
+
+        @Override
+        void sendToServer(ServerConnection server, DefinedPacket packet)
+        {
+            this.server.add( packet );
+        }
+
+        @Override
+        void schedule(Runnable task, long delay)
+        {
+            assertTrue( delay > 0 && delay <= RESPONSE_TIMEOUT );
+            scheduled.add( task );
+        }
+    }
+
+    private static TabCompleteRequest request(int id, String cursor)
+    {
+        return new TabCompleteRequest( id, cursor );
+    }
+
+    private static Suggestions suggestions(int start, int end, String... texts)
+    {
+        StringRange range = StringRange.between( start, end );
+        List<Suggestion> list = new ArrayList<>();
+        for ( String text : texts )
+        {
+            list.add( new Suggestion( range, text ) );
+        }
+        return new Suggestions( range, list );
+    }
+
+    private static List<String> texts(DefinedPacket packet)
+    {
+        List<String> texts = new ArrayList<>();
+        for ( Suggestion suggestion : ( (TabCompleteResponse) packet ).getSuggestions().getList() )
+        {
+            texts.add( suggestion.getText() );
+        }
+        return texts;
+    }
+
+    @Test
+    public void testOnlyNewestIsForwarded()
+    {
+        Recorder pipeline = new Recorder( true, 0 );
+        ServerConnection server = new ServerConnection( null, null );
+
+        assertTrue( pipeline.request( server, request( 1, "/msg a" ) ) );
+        assertFalse( pipeline.request( server, request( 2, "/msg ab" ) ) );
+        assertFalse( pipeline.request( server, request( 3, "/msg abc" ) ) );
+        assertEquals( 1, pipeline.scheduled.size() );
+
+        // the answer to 1 is outdated, 3 goes out instead of 2
+        assertEquals( "/msg a", pipeline.response( server, 1 ) );
+        assertTrue( pipeline.superseded( server, 1 ) );
+        assertEquals( 1, pipeline.server.size() );
+        assertEquals( 3, ( (TabCompleteRequest) pipeline.server.get( 0 ) ).getTransactionId() );
+
+        assertEquals( "/msg abc", pipeline.response( server, 3 ) );
+        assertFalse( pipeline.superseded( server, 3 ) );
+
+        // the timeout has nothing left to send
+        pipeline.scheduled.get( 0 ).run();
+        assertEquals( 1, pipeline.server.size() );
+        assertTrue( pipeline.client.isEmpty() );
+    }
+
+    @Test
+    public void testServerChange()
+    {
+        Recorder pipeline = new Recorder( true, 0 );
+        ServerConnection first = new ServerConnection( null, null );
+        ServerConnection second = new ServerConnection( null, null );
+
+        assertTrue( pipeline.request( first, request( 1, "/a" ) ) );
+        // the old server will not answer the new one
+        assertTrue( pipeline.request( second, request( 2, "/b" ) ) );
+        assertNull( pipeline.response( first, 1 ) );
+        assertEquals( "/b", pipeline.response( second, 2 ) );
+    }
+
+    @Test
+    public void testWithoutPipeline()
+    {
+        Recorder pipeline = new Recorder( false, 0 );
+        ServerConnection server = new ServerConnection( null, null );
+
+        assertTrue( pipeline.request( server, request( 1, "/a" ) ) );
+        assertTrue( pipeline.request( server, request( 2, "/ab" ) ) );
+        assertNull( pipeline.response( server, 1 ) );
+        assertFalse( pipeline.superseded( server, 1 ) );
+        assertEquals( "/ab", pipeline.response( server, 2 ) );
+        assertTrue( pipeline.scheduled.isEmpty() );
+    }
+
+    @Test
+    public void testNarrowing()
+    {
+        Recorder pipeline = new Recorder( true, 60000 );
+        ServerConnection server = new ServerConnection( null, null );
+
+        assertTrue( pipeline.request( server, request( 1, "/msg Pl" ) ) );
+        String cursor = pipeline.response( server, 1 );
+        pipeline.cache( server, cursor, suggestions( 5, 7, "Player1", "player_two", "Plague", "other" ) );
+
+        assertFalse( pipeline.request( server, request( 2, "/msg PLAY" ) ) );
+        TabCompleteResponse answer = (TabCompleteResponse) pipeline.client.get( 0 );
+        assertEquals( 2, answer.getTransactionId() );
+        assertEquals( StringRange.between( 5, 9 ), answer.getSuggestions().getRange() );
+        assertEquals( StringRange.between( 5, 9 ), answer.getSuggestions().getList().get( 0 ).getRange() );
+        assertEquals( Arrays.asList( "Player1", "player_two" ), texts( answer ) );
+
+        assertFalse( pipeline.request( server, request( 3, "/msg player_" ) ) );
+        assertEquals( Arrays.asList( "player_two" ), texts( pipeline.client.get( 1 ) ) );
+
+        // a new argument or other characters need the backend
+        assertTrue( pipeline.request( server, request( 4, "/msg Pl " ) ) );
+        assertNull( pipeline.response( server, 3 ) );
+        assertEquals( "/msg Pl ", pipeline.response( server, 4 ) );
+        assertTrue( pipeline.request( server, request( 5, "/msg Pl:" ) ) );
+        assertEquals( "/msg Pl:", pipeline.response( server, 5 ) );
+        assertEquals( 2, pipeline.client.size() );
+    }
+
+    @Test
+    public void testNotCached()
+    {
+        Recorder pipeline = new Recorder( true, 60000 );
+        ServerConnection server = new ServerConnection( null, null );
+
+        // empty answers and answers for another part of the input are not kept
+        pipeline.cache( server, "/give a", suggestions( 6, 7 ) );
+        pipeline.cache( server, "/give b", suggestions( 6, 6, "bee" ) );
+        pipeline.cache( server, null, suggestions( 6, 7, "cat" ) );
+        assertTrue( pipeline.request( server, request( 1, "/give ab" ) ) );
+        assertEquals( "/give ab", pipeline.response( server, 1 ) );
+        assertTrue( pipeline.request( server, request( 2, "/give bee" ) ) );
+        assertTrue( pipeline.client.isEmpty() );
+
+        // kept answers expire
+        Recorder expiring = new Recorder( true, 100 );
+        expiring.cache( server, "/give c", suggestions( 6, 7, "cat" ) );
+        expiring.time += 100;
+        assertFalse( expiring.request( server, request( 1, "/give ca" ) ) );
+        expiring.time += 1;
+        assertTrue( expiring.request( server, request( 2, "/give cat" ) ) );
+    }
+
+    @Test
+    public void testTimeout()
+    {
+        Recorder pipeline = new Recorder( true, 0 );
+        ServerConnection server = new ServerConnection( null, null );
+
+        assertTrue( pipeline.request( server, request( 1, "/a" ) ) );
+        assertFalse( pipeline.request( server, request( 2, "/ab" ) ) );
+
+        // the answer is not late yet
+        pipeline.time += TabCompletePipeline.RESPONSE_TIMEOUT - 1;
+        pipeline.scheduled.get( 0 ).run();
+        assertTrue( pipeline.server.isEmpty() );
+
+        // the newest request goes out once the backend took too long
+        assertFalse( pipeline.request( server, request( 3, "/abc" ) ) );
+        pipeline.time += 1;
+        pipeline.scheduled.get( 0 ).run();
+        assertEquals( 1, pipeline.server.size() );
+        assertEquals( 3, ( (TabCompleteRequest) pipeline.server.get( 0 ) ).getTransactionId() );
+
+        // a late answer is dropped, the answer to 3 is expected
+        assertNull( pipeline.response( server, 1 ) );
+        assertTrue( pipeline.superseded( server, 1 ) );
+        assertEquals( "/abc", pipeline.response( server, 3 ) );
+        assertFalse( pipeline.superseded( server, 3 ) );
+        assertEquals( 1, pipeline.server.size() );
+    }
+}
@@ -0,0 +1,254 @@
+package net.md_5.bungee.http;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the pool against a local stand-in for the session server, the same kind of stub the proxy
+ * can be pointed at with {@code -Dwaterfall.auth.url=http://127.0.0.1:<port>/...}.
+ */
+public class HttpConnectionPoolTest
+{
+
+    private static final String PROFILE = "{\"id\":\"069a79f444e94726a5befca90e38aaf5\",\"name\":\"Notch\",\"properties\":[]}";
+    //
+    private EventLoopGroup group;
+    private Channel server;
+    private final AtomicInteger accepted = new AtomicInteger();
+    private volatile boolean closeAfterResponse;
+    private volatile boolean silent;
+    private volatile HttpResponseStatus status = HttpResponseStatus.OK;
+
+    @BeforeEach
+    public void start() throws InterruptedException
+    {
+        group = new NioEventLoopGroup( 2 );
+        server = new ServerBootstrap().group( group ).channel( NioServerSocketChannel.class ).childHandler( new ChannelInitializer<Channel>()
+        {
+            @Override
+            protected void initChannel(Channel ch)
+            {
+                accepted.incrementAndGet();
+                ch.pipeline().addLast( new HttpServerCodec(), new HttpObjectAggregator( 1024 ), new SimpleChannelInboundHandler<FullHttpRequest>()
+                {
+                    @Override
+                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest msg)
+                    {
+                        if ( silent )
+                        {
+                            return;
+                        }
+                        FullHttpResponse response = new DefaultFullHttpResponse( HttpVersion.HTTP_1_1, status, Unpooled.copiedBuffer( PROFILE, StandardCharsets.UTF_8 ) );
+                        response.headers().setInt( HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes() );
+                        ctx.writeAndFlush( response );
+                        if ( closeAfterResponse )
+                        {
+                            ctx.close();
+                        }
+                    }
+                } );
+            }
+        } ).bind( "127.0.0.1", 0 ).sync().channel();
+    }
+
+    @AfterEach
+    public void stop()
+    {
+        server.close();
+        group.shutdownGracefully( 0, 1, TimeUnit.SECONDS );
+    }
+
+    private HttpConnectionPool pool(EventLoop eventLoop)
+    {
+        return new HttpConnectionPool( eventLoop, new Bootstrap().channel( NioSocketChannel.class ) );
+    }
+
+    /**
+     * A pool which gives up after 200ms and keeps a host down for 300ms.
+     */
+    private HttpConnectionPool fastPool(EventLoop eventLoop)
+    {
+        return new HttpConnectionPool( eventLoop, new Bootstrap().channel( NioSocketChannel.class ), 200, TimeUnit.MILLISECONDS.toNanos( 300 ) );
+    }
+
+    private static Throwable error(CompletableFuture<String> future) throws Exception
+    {
+        return future.handle( (result, cause) -> cause ).get( 5, TimeUnit.SECONDS );
+    }
+
+    private static void assertRejected(Throwable error)
+    {
+        assertTrue( error instanceof IOException && error.getMessage().startsWith( "Too many failed requests" ), String.valueOf( error ) );
+    }
+
+    private URI uri(int port)
+    {
+        return URI.create( "http://127.0.0.1:" + port + "/session/minecraft/hasJoined?username=Notch&serverId=abc" );
+    }
+
+    private static CompletableFuture<String> get(HttpConnectionPool pool, URI uri)
+    {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        pool.get( uri, uri.getPort(), false, (result, error) ->
+        {
+            if ( error != null )
+            {
+                future.completeExceptionally( error );
+            } else
+            {
+                future.complete( result );
+            }
+        } );
+        return future;
+    }
+
+    private int port()
+    {
+        return ( (InetSocketAddress) server.localAddress() ).getPort();
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception
+    {
+        HttpConnectionPool pool = pool( group.next() );
+        for ( int i = 0; i < 20; i++ )
+        {
+            assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+        }
+        assertEquals( 1, accepted.get() );
+    }
+
+    @Test
+    public void testBoundedConnections() throws Exception
+    {
+        HttpConnectionPool pool = pool( group.next() );
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            futures.add( get( pool, uri( port() ) ) );
+        }
+        for ( CompletableFuture<String> future : futures )
+        {
+            assertEquals( PROFILE, future.get( 5, TimeUnit.SECONDS ) );
+        }
+        assertTrue( accepted.get() <= HttpConnectionPool.MAX_CONNECTIONS, "opened " + accepted.get() );
+    }
+
+    @Test
+    public void testServerClose() throws Exception
+    {
+        closeAfterResponse = true;
+        HttpConnectionPool pool = pool( group.next() );
+        for ( int i = 0; i < 5; i++ )
+        {
+            assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+        }
+        assertEquals( 5, accepted.get() );
+    }
+
+    @Test
+    public void testCircuitBreaker() throws Exception
+    {
+        int closedPort;
+        try ( ServerSocket socket = new ServerSocket( 0 ) )
+        {
+            closedPort = socket.getLocalPort();
+        }
+
+        HttpConnectionPool pool = pool( group.next() );
+        for ( int i = 0; i < HttpConnectionPool.FAILURE_THRESHOLD; i++ )
+        {
+            CompletableFuture<String> future = get( pool, uri( closedPort ) );
+            assertTrue( future.handle( (result, error) -> error != null ).get( 5, TimeUnit.SECONDS ) );
+        }
+
+        assertRejected( error( get( pool, uri( closedPort ) ) ) );
+
+        // Other hosts are not affected
+        assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testProbeTimeout() throws Exception
+    {
+        silent = true;
+        HttpConnectionPool pool = fastPool( group.next() );
+
+        // timeouts take the host out of rotation
+        for ( int i = 0; i < HttpConnectionPool.FAILURE_THRESHOLD; i++ )
+        {
+            assertTrue( error( get( pool, uri( port() ) ) ) instanceof ReadTimeoutException );
+        }
+        assertRejected( error( get( pool, uri( port() ) ) ) );
+
+        // the probe times out as well and the host stays down
+        Thread.sleep( 400 );
+        assertTrue( error( get( pool, uri( port() ) ) ) instanceof ReadTimeoutException );
+        assertRejected( error( get( pool, uri( port() ) ) ) );
+
+        // the next probe is let through and brings the host back
+        silent = false;
+        Thread.sleep( 400 );
+        assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+        assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+    }
+
+    @Test
+    public void testProbeClientError() throws Exception
+    {
+        status = HttpResponseStatus.SERVICE_UNAVAILABLE;
+        HttpConnectionPool pool = fastPool( group.next() );
+        for ( int i = 0; i < HttpConnectionPool.FAILURE_THRESHOLD; i++ )
+        {
+            assertTrue( error( get( pool, uri( port() ) ) ) instanceof IllegalStateException );
+        }
+        assertRejected( error( get( pool, uri( port() ) ) ) );
+
+        // a probe answered with a client error does not count as up
+        status = HttpResponseStatus.NOT_FOUND;
+        Thread.sleep( 400 );
+        assertTrue( error( get( pool, uri( port() ) ) ) instanceof IllegalStateException );
+        assertRejected( error( get( pool, uri( port() ) ) ) );
+
+        status = HttpResponseStatus.OK;
+        Thread.sleep( 400 );
+        assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+        assertEquals( PROFILE, get( pool, uri( port() ) ).get( 5, TimeUnit.SECONDS ) );
+    }
+}
@@ -0,0 +1,471 @@
+package net.md_5.bungee.tab;
+
+import static org.junit.jupiter.api.Assertions.*;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.netty.ChannelWrapper;
+import net.md_5.bungee.protocol.DefinedPacket;
+import net.md_5.bungee.protocol.MinecraftEncoder;
+import net.md_5.bungee.protocol.Property;
+import net.md_5.bungee.protocol.Protocol;
+import net.md_5.bungee.protocol.ProtocolConstants;
+import net.md_5.bungee.protocol.packet.PlayerListItem;
+import net.md_5.bungee.protocol.packet.PlayerListItemRemove;
+import net.md_5.bungee.protocol.packet.PlayerListItemUpdate;
+import org.junit.jupiter.api.Test;
+
+public class GlobalTabListTest
+{
+
+    private static final int VERSION = ProtocolConstants.MINECRAFT_1_20_3;
+
+    private static final class ClientEntry
+    {
+
+        private final String name;
+        private int ping;
+        private BaseComponent displayName;
+        private int gamemode;
+
+        private ClientEntry(String name, int ping, BaseComponent displayName)
+        {
+            this.name = name;
+            this.ping = ping;
+            this.displayName = displayName;
+        }
+    }
+
+    /**
+     * A viewer decoding what it is sent into the tab list a client would
+     * show.
+     */
+    private static final class Viewer extends Global
+    {
+
+        private final int protocolVersion;
+        private final Map<UUID, ClientEntry> tabList = new HashMap<>();
+        private final List<List<ByteBuf>> received = new ArrayList<>();
+        private final List<DefinedPacket> passed = new ArrayList<>();
+
+        private Viewer(GlobalTabList table, boolean ping, int protocolVersion)
+        {
+            super( null, table, ping );
+            this.protocolVersion = protocolVersion;
+        }
+
+        @Override
+        int getProtocolVersion()
+        {
+            return protocolVersion;
+        }
+
+        @Override
+        void sendPacket(DefinedPacket packet)
+        {
+            passed.add( packet );
+        }
+
+        @Override
+        void send(List<ByteBuf> packets)
+        {
+            received.add( packets );
+            for ( ByteBuf packet : packets )
+            {
+                decode( tabList, packet, protocolVersion );
+            }
+        }
+    }
+
+    /**
+     * A viewer writing to a channel, which decodes what gets through the
+     * encoder into the tab list a client would show.
+     */
+    private static final class ChannelViewer extends Global
+    {
+
+        private final EmbeddedChannel channel = new EmbeddedChannel( new ChannelInboundHandlerAdapter() );
+        private final ChannelWrapper ch;
+        private final Map<UUID, ClientEntry> tabList = new HashMap<>();
+
+        private ChannelViewer(GlobalTabList table)
+        {
+            super( null, table, true );
+            channel.pipeline().addLast( new MinecraftEncoder( Protocol.LOGIN, false, VERSION ) );
+            ch = new ChannelWrapper( channel.pipeline().firstContext() );
+        }
+
+        @Override
+        int getProtocolVersion()
+        {
+            return VERSION;
+        }
+
+        @Override
+        ChannelWrapper getCh()
+        {
+            return ch;
+        }
+
+        private int read()
+        {
+            channel.runPendingTasks();
+            int read = 0;
+            ByteBuf packet;
+            while ( ( packet = channel.readOutbound() ) != null )
+            {
+                decode( tabList, packet, VERSION );
+                packet.release();
+                read++;
+            }
+            return read;
+        }
+    }
+
+    private static void decode(Map<UUID, ClientEntry> tabList, ByteBuf packet, int protocolVersion)
+    {
+        ByteBuf buf = packet.duplicate();
+        int id = DefinedPacket.readVarInt( buf );
+        if ( id == Protocol.GAME.TO_CLIENT.getId( PlayerListItemRemove.class, protocolVersion ) )
+        {
+            PlayerListItemRemove remove = new PlayerListItemRemove();
+            remove.read( buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion );
+            for ( UUID uuid : remove.getUuids() )
+            {
+                tabList.remove( uuid );
+            }
+        } else if ( protocolVersion >= ProtocolConstants.MINECRAFT_1_19_3 )
+        {
+            assertEquals( Protocol.GAME.TO_CLIENT.getId( PlayerListItemUpdate.class, protocolVersion ), id );
+            PlayerListItemUpdate update = new PlayerListItemUpdate();
+            update.read( buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion );
+            for ( PlayerListItem.Item item : update.getItems() )
+            {
+                if ( update.getActions().contains( PlayerListItemUpdate.Action.ADD_PLAYER ) )
+                {
+                    tabList.putIfAbsent( item.getUuid(), new ClientEntry( item.getUsername(), 0, null ) );
+                }
+                ClientEntry entry = tabList.get( item.getUuid() );
+                assertNotNull( entry );
+                if ( update.getActions().contains( PlayerListItemUpdate.Action.UPDATE_LATENCY ) )
+                {
+                    entry.ping = item.getPing();
+                }
+                if ( update.getActions().contains( PlayerListItemUpdate.Action.UPDATE_DISPLAY_NAME ) )
+                {
+                    entry.displayName = item.getDisplayName();
+                }
+            }
+        } else
+        {
+            assertEquals( Protocol.GAME.TO_CLIENT.getId( PlayerListItem.class, protocolVersion ), id );
+            PlayerListItem list = new PlayerListItem();
+            list.read( buf, ProtocolConstants.Direction.TO_CLIENT, protocolVersion );
+            for ( PlayerListItem.Item item : list.getItems() )
+            {
+                switch ( list.getAction() )
+                {
+                    case ADD_PLAYER:
+                        ClientEntry added = new ClientEntry( item.getUsername(), item.getPing(), item.getDisplayName() );
+                        added.gamemode = item.getGamemode();
+                        tabList.put( item.getUuid(), added );
+                        break;
+                    case REMOVE_PLAYER:
+                        tabList.remove( item.getUuid() );
+                        break;
+                    case UPDATE_LATENCY:
+                        tabList.get( item.getUuid() ).ping = item.getPing();
+                        break;
+                    case UPDATE_DISPLAY_NAME:
+                        tabList.get( item.getUuid() ).displayName = item.getDisplayName();
+                        break;
+                    default:
+                        fail( "unexpected " + list.getAction() );
+                }
+            }
+        }
+        assertEquals( 0, buf.readableBytes() );
+    }
+
+    private static void assertShows(Map<UUID, ClientEntry> expected, Map<UUID, ClientEntry> tabList, boolean ping)
+    {
+        assertEquals( expected.keySet(), tabList.keySet() );
+        for ( Map.Entry<UUID, ClientEntry> entry : expected.entrySet() )
+        {
+            ClientEntry shown = tabList.get( entry.getKey() );
+            assertEquals( entry.getValue().name, shown.name );
+            assertEquals( entry.getValue().displayName, shown.displayName );
+            if ( ping )
+            {
+                assertEquals( entry.getValue().ping, shown.ping );
+            }
+        }
+    }
+
+    @Test
+    public void testRandomChanges()
+    {
+        GlobalTabList table = new GlobalTabList();
+        Map<UUID, ClientEntry> expected = new HashMap<>();
+        List<UUID> known = new ArrayList<>();
+        List<Viewer> viewers = new ArrayList<>();
+        Random random = new Random( 3 );
+        for ( int round = 0; round < 200; round++ )
+        {
+            for ( int i = random.nextInt( 40 ); i > 0; i-- )
+            {
+                int operation = random.nextInt( 10 );
+                if ( operation < 3 || known.isEmpty() )
+                {
+                    // new players and players coming back with the same id
+                    UUID uuid = ( known.isEmpty() || random.nextBoolean() ) ? UUID.randomUUID() : known.get( random.nextInt( known.size() ) );
+                    if ( !known.contains( uuid ) )
+                    {
+                        known.add( uuid );
+                    }
+                    String name = "player" + random.nextInt( 1000 );
+                    table.add( uuid, null, name, new Property[ 0 ], 0, 50, null );
+                    expected.put( uuid, new ClientEntry( name, 50, null ) );
+                } else
+                {
+                    UUID uuid = known.get( random.nextInt( known.size() ) );
+                    ClientEntry entry = expected.get( uuid );
+                    if ( operation < 5 )
+                    {
+                        table.remove( uuid, null );
+                        expected.remove( uuid );
+                    } else if ( operation < 8 )
+                    {
+                        int ping = random.nextInt( 300 );
+                        table.updatePing( uuid, ping );
+                        if ( entry != null )
+                        {
+                            entry.ping = ping;
+                        }
+                    } else
+                    {
+                        BaseComponent displayName = random.nextBoolean() ? null : new TextComponent( "nick" + random.nextInt( 5 ) );
+                        table.updateDisplayName( uuid, displayName );
+                        if ( entry != null )
+                        {
+                            entry.displayName = displayName;
+                        }
+                    }
+                }
+            }
+
+            if ( random.nextInt( 10 ) == 0 )
+            {
+                Viewer viewer = new Viewer( table, random.nextBoolean(), random.nextBoolean() ? ProtocolConstants.MINECRAFT_1_20_3 : ProtocolConstants.MINECRAFT_1_18_2 );
+                table.join( viewer );
+                viewer.onJoinGame();
+                viewers.add( viewer );
+            }
+            table.flush();
+            assertEquals( expected.size(), table.size() );
+            for ( Viewer viewer : viewers )
+            {
+                assertShows( expected, viewer.tabList, viewer.isPing() );
+            }
+        }
+        assertTrue( viewers.size() > 10 );
+    }
+
+    @Test
+    public void testEncodedOncePerVersion()
+    {
+        GlobalTabList table = new GlobalTabList();
+        Viewer modern = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_20_3 );
+        Viewer modernToo = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_20_3 );
+        Viewer legacy = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_18_2 );
+        for ( Viewer viewer : new Viewer[]
+        {
+            modern, modernToo, legacy
+        } )
+        {
+            table.join( viewer );
+            viewer.onJoinGame();
+        }
+
+        for ( int i = 0; i < GlobalTabList.MAX_ITEMS_PER_PACKET + 1; i++ )
+        {
+            table.add( UUID.randomUUID(), null, "p" + i, new Property[ 0 ], 0, 0, null );
+        }
+        table.flush();
+        assertSame( modern.received.get( 0 ), modernToo.received.get( 0 ) );
+        assertNotSame( modern.received.get( 0 ), legacy.received.get( 0 ) );
+        assertEquals( 2, modern.received.get( 0 ).size() );
+        for ( ByteBuf buf : modern.received.get( 0 ) )
+        {
+            assertEquals( 0, buf.refCnt() );
+        }
+
+        // nothing changed, nothing sent
+        table.flush();
+        assertEquals( 1, modern.received.size() );
+
+        // a viewer joining before the flush gets the batch with its sync only
+        Viewer late = new Viewer( table, false, ProtocolConstants.MINECRAFT_1_20_3 );
+        table.add( UUID.randomUUID(), null, "late", new Property[ 0 ], 0, 0, null );
+        table.join( late );
+        late.onJoinGame();
+        table.flush();
+        assertEquals( 1, late.received.size() );
+        assertEquals( 2, modern.received.size() );
+        assertEquals( table.size(), late.tabList.size() );
+    }
+
+    @Test
+    public void testProtocolGate()
+    {
+        GlobalTabList table = new GlobalTabList();
+        Map<UUID, ClientEntry> expected = new HashMap<>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            UUID uuid = UUID.randomUUID();
+            table.add( uuid, null, "p" + i, new Property[ 0 ], 0, 10, null );
+            expected.put( uuid, new ClientEntry( "p" + i, 10, null ) );
+        }
+        ChannelViewer viewer = new ChannelViewer( table );
+        table.join( viewer );
+
+        // still logging in and configuring, changes wait for the client to be in game
+        UUID joined = UUID.randomUUID();
+        table.add( joined, null, "joined", new Property[ 0 ], 0, 20, null );
+        expected.put( joined, new ClientEntry( "joined", 20, null ) );
+        table.flush();
+        viewer.ch.setEncodeProtocol( Protocol.CONFIGURATION );
+        table.updatePing( joined, 30 );
+        expected.get( joined ).ping = 30;
+        table.flush();
+        assertEquals( 0, viewer.read() );
+
+        // the first login packet was sent
+        viewer.ch.setEncodeProtocol( Protocol.GAME );
+        viewer.onJoinGame();
+        assertTrue( viewer.read() > 0 );
+        assertShows( expected, viewer.tabList, true );
+
+        // a batch racing a reconfiguration does not get through
+        viewer.ch.setEncodeProtocol( Protocol.CONFIGURATION );
+        table.updateDisplayName( joined, new TextComponent( "nick" ) );
+        expected.get( joined ).displayName = new TextComponent( "nick" );
+        table.flush();
+        assertEquals( 0, viewer.read() );
+
+        // reconfigured for a server switch, the client dropped its tab list
+        viewer.onReconfigure();
+        viewer.tabList.clear();
+        table.updatePing( joined, 40 );
+        expected.get( joined ).ping = 40;
+        table.flush();
+        assertEquals( 0, viewer.read() );
+        viewer.ch.setEncodeProtocol( Protocol.GAME );
+        table.sync( viewer );
+        viewer.read();
+        assertShows( expected, viewer.tabList, true );
+
+        table.updatePing( joined, 50 );
+        expected.get( joined ).ping = 50;
+        table.flush();
+        assertEquals( 1, viewer.read() );
+        assertShows( expected, viewer.tabList, true );
+        assertFalse( viewer.channel.finish() );
+    }
+
+    @Test
+    public void testBackendUpdates()
+    {
+        GlobalTabList table = new GlobalTabList();
+        UUID shared = UUID.randomUUID();
+        UUID npc = UUID.randomUUID();
+        table.add( shared, null, "shared", new Property[ 0 ], 0, 0, null );
+        Viewer viewer = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_20_3 );
+
+        PlayerListItem.Item sharedItem = new PlayerListItem.Item();
+        sharedItem.setUuid( shared );
+        PlayerListItem.Item npcItem = new PlayerListItem.Item();
+        npcItem.setUuid( npc );
+        PlayerListItemUpdate update = new PlayerListItemUpdate();
+        update.setActions( EnumSet.of( PlayerListItemUpdate.Action.ADD_PLAYER, PlayerListItemUpdate.Action.UPDATE_GAMEMODE, PlayerListItemUpdate.Action.UPDATE_LATENCY ) );
+        update.setItems( new PlayerListItem.Item[]
+        {
+            sharedItem, npcItem
+        } );
+        viewer.onUpdate( update );
+
+        // the backend latency of table entries is dropped, the rest passes
+        assertEquals( 2, viewer.passed.size() );
+        PlayerListItemUpdate own = (PlayerListItemUpdate) viewer.passed.get( 0 );
+        assertEquals( update.getActions(), own.getActions() );
+        assertArrayEquals( new PlayerListItem.Item[]
+        {
+            npcItem
+        }, own.getItems() );
+        PlayerListItemUpdate rest = (PlayerListItemUpdate) viewer.passed.get( 1 );
+        assertEquals( EnumSet.of( PlayerListItemUpdate.Action.ADD_PLAYER, PlayerListItemUpdate.Action.UPDATE_GAMEMODE ), rest.getActions() );
+        assertArrayEquals( new PlayerListItem.Item[]
+        {
+            sharedItem
+        }, rest.getItems() );
+
+        // table entries are not removed by the backend
+        viewer.passed.clear();
+        PlayerListItemRemove remove = new PlayerListItemRemove();
+        remove.setUuids( new UUID[]
+        {
+            shared, npc
+        } );
+        viewer.onUpdate( remove );
+        assertEquals( 1, viewer.passed.size() );
+        assertArrayEquals( new UUID[]
+        {
+            npc
+        }, ( (PlayerListItemRemove) viewer.passed.get( 0 ) ).getUuids() );
+
+        viewer.passed.clear();
+        remove.setUuids( new UUID[]
+        {
+            shared
+        } );
+        viewer.onUpdate( remove );
+        assertTrue( viewer.passed.isEmpty() );
+        assertTrue( table.contains( shared ) );
+    }
+
+    @Test
+    public void testBackendGamemode()
+    {
+        GlobalTabList table = new GlobalTabList();
+        UUID shared = UUID.randomUUID();
+        table.add( shared, null, "shared", new Property[ 0 ], 0, 0, null );
+        Viewer viewer = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_18_2 );
+
+        PlayerListItem.Item item = new PlayerListItem.Item();
+        item.setUuid( shared );
+        item.setGamemode( 3 );
+        PlayerListItem update = new PlayerListItem();
+        update.setAction( PlayerListItem.Action.UPDATE_GAMEMODE );
+        update.setItems( new PlayerListItem.Item[]
+        {
+            item
+        } );
+        viewer.onUpdate( update );
+        assertSame( update, viewer.passed.get( 0 ) );
+
+        // viewers getting the table later see the game mode the backend reported
+        Viewer late = new Viewer( table, true, ProtocolConstants.MINECRAFT_1_18_2 );
+        table.join( late );
+        late.onJoinGame();
+        assertEquals( 3, late.tabList.get( shared ).gamemode );
+    }
+}
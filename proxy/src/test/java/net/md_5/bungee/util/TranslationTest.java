@@ -0,0 +1,92 @@
+package net.md_5.bungee.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.text.MessageFormat;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.ResourceBundle;
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import org.junit.jupiter.api.Test;
+
+public class TranslationTest
+{
+
+    private static final Object[][] ARGS = new Object[][]
+    {
+        null, new Object[ 0 ], new Object[]
+        {
+            "lobby"
+        }, new Object[]
+        {
+            "a", "b", "c"
+        }, new Object[]
+        {
+            1234567, 2.5, null
+        }, new Object[]
+        {
+            new Date( 0 ), new StringBuilder( "built" ), '\''
+        }
+    };
+
+    private static void assertParity(String pattern)
+    {
+        MessageFormat format = new MessageFormat( pattern );
+        Translation translation = new Translation( pattern );
+        for ( Object[] args : ARGS )
+        {
+            String expected;
+            try
+            {
+                expected = format.format( args );
+            } catch ( IllegalArgumentException ex )
+            {
+                assertThrows( ex.getClass(), () -> translation.format( args ), pattern );
+                continue;
+            }
+            assertEquals( expected, translation.format( args ), pattern );
+        }
+    }
+
+    @Test
+    public void testMessages()
+    {
+        ResourceBundle bundle = ResourceBundle.getBundle( "messages" );
+        Enumeration<String> keys = bundle.getKeys();
+        while ( keys.hasMoreElements() )
+        {
+            assertParity( bundle.getString( keys.nextElement() ) );
+        }
+    }
+
+    @Test
+    public void testPatterns()
+    {
+        String[] patterns = new String[]
+        {
+            "", "plain", "{0}", "{0}{0}{1}", "{2} before {0}", "{00} {01}", "{10}", "it''s {0}", "'{0}' quoted", "'it''s' {1}",
+            "unterminated '{0}", "}{0}}", "'", "''''", "{0,number,#.##}", "{0,date}", "{1,choice,0#none|1#one|1<many}"
+        };
+        for ( String pattern : patterns )
+        {
+            assertParity( pattern );
+        }
+
+        assertThrows( IllegalArgumentException.class, () -> new Translation( "{0" ) );
+        assertThrows( IllegalArgumentException.class, () -> new Translation( "{x}" ) );
+        assertThrows( IllegalArgumentException.class, () -> new Translation( "{ 0}" ) );
+    }
+
+    @Test
+    public void testComponents()
+    {
+        Translation translation = new Translation( "\u00a7cThe server went \u00a7ldown\u00a7r {0}" );
+        BaseComponent[] first = translation.toComponents();
+        assertArrayEquals( TextComponent.fromLegacyText( translation.format() ), first );
+
+        first[0].setBold( true );
+        BaseComponent[] second = translation.toComponents();
+        assertNotSame( first[0], second[0] );
+        assertArrayEquals( TextComponent.fromLegacyText( translation.format() ), second );
+    }
+}